@@ -45,6 +45,15 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.github.davidmoten.guavamini.Lists;
 import com.github.davidmoten.guavamini.Preconditions;
 import com.github.davidmoten.odata.client.ActionRequestNoReturn;
@@ -97,6 +106,10 @@ import com.github.davidmoten.odata.client.generator.model.Structure;
 import com.github.davidmoten.odata.client.generator.model.Structure.FieldName;
 import com.github.davidmoten.odata.client.internal.ChangedFields;
 import com.github.davidmoten.odata.client.internal.Checks;
+import com.github.davidmoten.odata.client.internal.FieldOrdinals;
+import com.github.davidmoten.odata.client.internal.GeneratedDeserializer;
+import com.github.davidmoten.odata.client.internal.GeneratedSerializer;
+import com.github.davidmoten.odata.client.internal.LazyFields;
 import com.github.davidmoten.odata.client.internal.ParameterMap;
 import com.github.davidmoten.odata.client.internal.RequestHelper;
 import com.github.davidmoten.odata.client.internal.TypedObject;
@@ -465,6 +478,10 @@ public final class Generator {
 				p.format("%sreturn classes.get(name);\n", indent.right());
 				p.format("%s}\n\n", indent.left());
 
+				if (names.getOptions(schema).generateJsonCodecs()) {
+					writeJacksonModuleMethod(schema, imports, indent, p);
+				}
+
 				// close class
 				p.format("}\n");
 			}
@@ -476,6 +493,27 @@ public final class Generator {
 
 	}
 
+	private void writeJacksonModuleMethod(Schema schema, Imports imports, Indent indent, PrintWriter p) {
+		p.format("%s@%s\n", indent, imports.add(Override.class));
+		p.format("%spublic %s<%s> jacksonModule() {\n", indent, imports.add(Optional.class),
+				imports.add(Module.class));
+		// name by package so that clients generated from the same namespace don't clash
+		p.format("%s%s m = new %s(\"%s\");\n", indent.right(), imports.add(SimpleModule.class),
+				imports.add(SimpleModule.class), names.getPackageSchema(schema));
+		Stream.concat( //
+				Util.types(schema, TEntityType.class)
+						.map(x -> names.getFullClassNameEntity(schema, x.getName())), //
+				Util.types(schema, TComplexType.class)
+						.map(x -> names.getFullClassNameComplexType(schema, x.getName()))) //
+				.map(imports::add) //
+				.forEach(c -> {
+					p.format("%sm.addSerializer(%s.class, new %s._Serializer());\n", indent, c, c);
+					p.format("%sm.addDeserializer(%s.class, new %s._Deserializer());\n", indent, c, c);
+				});
+		p.format("%sreturn %s.of(m);\n", indent, imports.add(Optional.class));
+		p.format("%s}\n\n", indent.left());
+	}
+
 	private void writeEnum(Schema schema, TEnumType t) {
 		names.getDirectoryEnum(schema).mkdirs();
 		String simpleClassName = names.getSimpleClassNameEnum(schema, t.getName());
@@ -560,6 +598,7 @@ public final class Generator {
 				addContextPathInjectableField(imports, indent, p);
 				addUnmappedFieldsField(imports, indent, p);
 				addChangedFieldsField(imports, indent, p);
+				addLazyFieldsField(imports, indent, p);
 			}
 
 			p.format("\n%s@%s\n", indent, imports.add(Override.class));
@@ -569,6 +608,7 @@ public final class Generator {
 
 			// add other fields
 			printPropertyFields(imports, indent, p, t.getProperties(), t.hasBaseType());
+			writeFieldOrdinals(t, imports, indent, p);
 
 			// write constructor
 			writeNoArgsConstructor(simpleClassName, indent, p, t.hasBaseType());
@@ -601,7 +641,9 @@ public final class Generator {
 			addInheritedPropertyNames(t, methodNames);
 			printNavigationPropertyGetters(t, imports, indent, p, t.getNavigationProperties(), methodNames);
 
-			addUnmappedFieldsSetterAndGetter(imports, indent, p, methodNames);
+			addUnmappedFieldsSetterAndGetter(imports, indent, p, methodNames, true);
+
+			writeMaterializeMethod(t, imports, indent, p, methodNames);
 
 			if (t.hasStream()) {
 				p.format("\n%s/**\n", indent);
@@ -635,6 +677,10 @@ public final class Generator {
 			// write toString
 			writeToString(t, simpleClassName, imports, indent, p);
 
+			if (names.getOptions(names.getSchema(entityType)).generateJsonCodecs()) {
+				writeJsonCodecs(t, simpleClassName, imports, indent, p, true);
+			}
+
 			p.format("%s}\n", indent.left());
 
 			writeToFile(imports, w, t.getClassFile());
@@ -895,6 +941,10 @@ public final class Generator {
 	private void writeToString(Structure<?> t, String simpleClassName, Imports imports, Indent indent, PrintWriter p) {
 		p.format("\n%s@%s\n", indent, imports.add(Override.class));
 		p.format("%spublic %s toString() {\n", indent, imports.add(String.class));
+		if (t instanceof EntityType) {
+			p.format("%smaterialize();\n", indent.right());
+			indent.left();
+		}
 		p.format("%s%s b = new %s();\n", indent.right(), imports.add(StringBuilder.class),
 				imports.add(StringBuilder.class));
 		p.format("%sb.append(\"%s[\");\n", indent, simpleClassName);
@@ -918,10 +968,163 @@ public final class Generator {
 		p.format("%s}\n", indent.left());
 	}
 
+	private void writeMaterializeMethod(EntityType t, Imports imports, Indent indent, PrintWriter p,
+			Set<String> methodNames) {
+		methodNames.add("materialize");
+		p.format("\n%s@%s\n", indent, imports.add(Override.class));
+		p.format("%spublic void materialize() {\n", indent);
+		p.format("%sif (lazyFields != null) {\n", indent.right());
+		indent.right();
+		t.getFields(imports).forEach(f -> writeLazyFieldRead(indent, p, f));
+		p.format("%slazyFields.forEachRemaining(this::setUnmappedField);\n", indent);
+		p.format("%s}\n", indent.left());
+		p.format("%s}\n", indent.left());
+	}
+
+	private static void writeLazyFieldRead(Indent indent, PrintWriter p, Field f) {
+		if (f.isCollection) {
+			writeLazyFieldRead(indent, p, f.fieldName, f.propertyName, f.innerFullClassName, true);
+		} else {
+			writeLazyFieldRead(indent, p, f.fieldName, f.propertyName, f.importedType, false);
+		}
+	}
+
+	// leaves indent as it was
+	private static void writeLazyGetterRead(Indent indent, PrintWriter p, String fieldName, String propertyName,
+			String importedType, boolean isCollection) {
+		p.format("%sif (lazyFields != null) {\n", indent.right());
+		indent.right();
+		writeLazyFieldRead(indent, p, fieldName, propertyName, importedType, isCollection);
+		p.format("%s}\n", indent.left());
+		indent.left();
+	}
+
+	private static void writeLazyFieldRead(Indent indent, PrintWriter p, String fieldName, String propertyName,
+			String importedType, boolean isCollection) {
+		String method = isCollection ? "list" : "value";
+		p.format("%s%s = lazyFields.%s(\"%s\", %s, %s.class);\n", indent, fieldName, method, propertyName,
+				fieldName, importedType);
+	}
+
+	private void writeJsonCodecs(Structure<?> t, String simpleClassName, Imports imports, Indent indent,
+			PrintWriter p, boolean ofEntity) {
+		List<Field> fields = fieldsInSerializationOrder(t, imports);
+
+		// serializer
+		p.format("\n%s/**\n", indent);
+		p.format("%s * Writes {@link %s} without bean introspection. Registered by the schema\n", indent,
+				simpleClassName);
+		p.format("%s * info Jackson module.\n", indent);
+		p.format("%s */\n", indent);
+		p.format("%spublic static final class _Serializer extends %s<%s> {\n", indent,
+				imports.add(GeneratedSerializer.class), simpleClassName);
+		p.format("\n%sprivate static final long serialVersionUID = 1L;\n", indent.right());
+		p.format("\n%spublic _Serializer() {\n", indent);
+		p.format("%ssuper(%s.class);\n", indent.right(), simpleClassName);
+		p.format("%s}\n", indent.left());
+		p.format("\n%s@%s\n", indent, imports.add(Override.class));
+		p.format("%spublic void serialize(%s _x, %s g, %s provider) throws %s {\n", indent, simpleClassName,
+				imports.add(JsonGenerator.class), imports.add(SerializerProvider.class),
+				imports.add(IOException.class));
+		p.format("%sg.writeStartObject(_x);\n", indent.right());
+		p.format("%swrite(g, provider, \"@odata.type\", _x.odataType);\n", indent);
+		fields.forEach(f -> p.format("%swrite(g, provider, \"%s\", _x.%s);\n", indent, f.propertyName,
+				f.fieldName));
+		p.format("%swriteUnmapped(g, provider, _x.unmappedFields());\n", indent);
+		p.format("%sg.writeEndObject();\n", indent);
+		p.format("%s}\n", indent.left());
+		p.format("%s}\n", indent.left());
+
+		// deserializer
+		String deserializerType = imports.add(JsonDeserializer.class) + "<" + imports.add(Object.class) + ">";
+		p.format("\n%s/**\n", indent);
+		p.format("%s * Reads {@link %s} without bean introspection. Registered by the schema\n", indent,
+				simpleClassName);
+		p.format("%s * info Jackson module.\n", indent);
+		p.format("%s */\n", indent);
+		p.format("%spublic static final class _Deserializer extends %s<%s> {\n", indent,
+				imports.add(GeneratedDeserializer.class), simpleClassName);
+		p.format("\n%sprivate static final long serialVersionUID = 1L;\n", indent.right());
+		p.format("\n%sprivate %s _odataType;\n", indent, deserializerType);
+		fields.forEach(f -> p.format("%sprivate %s _%s;\n", indent, deserializerType, f.fieldName));
+		p.format("\n%spublic _Deserializer() {\n", indent);
+		p.format("%ssuper(%s.class);\n", indent.right(), simpleClassName);
+		p.format("%s}\n", indent.left());
+		p.format("\n%s@%s\n", indent, imports.add(Override.class));
+		p.format("%sprotected void resolveFields(%s ctxt) throws %s {\n", indent,
+				imports.add(DeserializationContext.class), imports.add(JsonMappingException.class));
+		p.format("%s_odataType = deserializer(ctxt, %s.class);\n", indent.right(), imports.add(String.class));
+		fields.forEach(f -> {
+			if (f.isCollection) {
+				p.format("%s_%s = collectionDeserializer(ctxt, %s.class);\n", indent, f.fieldName,
+						f.innerFullClassName);
+			} else {
+				p.format("%s_%s = deserializer(ctxt, %s.class);\n", indent, f.fieldName, f.importedType);
+			}
+		});
+		p.format("%s}\n", indent.left());
+		p.format("\n%s@%s\n", indent, imports.add(Override.class));
+		p.format("%s@%s(\"unchecked\")\n", indent, imports.add(SuppressWarnings.class));
+		p.format("%spublic %s deserialize(%s p, %s ctxt) throws %s {\n", indent, simpleClassName,
+				imports.add(JsonParser.class), imports.add(DeserializationContext.class),
+				imports.add(IOException.class));
+		// use _x as identifier so doesn't conflict with any field name
+		p.format("%s%s _x = new %s();\n", indent.right(), simpleClassName, simpleClassName);
+		p.format("%s_x.contextPath = inject(ctxt, %s.class);\n", indent, imports.add(ContextPath.class));
+		if (ofEntity) {
+			p.format("%s_x.changedFields = inject(ctxt, %s.class);\n", indent, imports.add(ChangedFields.class));
+			p.format("%s_x.lazyFields = inject(ctxt, %s.class);\n", indent, imports.add(LazyFields.class));
+		}
+		p.format("%s_x.unmappedFields = inject(ctxt, %s.class);\n", indent,
+				imports.add(UnmappedFieldsImpl.class));
+		p.format("%sfor (%s t = firstField(p); t == %s.FIELD_NAME; t = p.nextToken()) {\n", indent,
+				imports.add(JsonToken.class), imports.add(JsonToken.class));
+		p.format("%s%s name = p.getCurrentName();\n", indent.right(), imports.add(String.class));
+		p.format("%sp.nextToken();\n", indent);
+		p.format("%sswitch (name) {\n", indent);
+		p.format("%scase \"@odata.type\":\n", indent);
+		p.format("%s_x.odataType = (%s) read(p, ctxt, _odataType);\n", indent.right(), imports.add(String.class));
+		p.format("%sbreak;\n", indent);
+		indent.left();
+		fields.forEach(f -> {
+			p.format("%scase \"%s\":\n", indent, f.propertyName);
+			p.format("%s_x.%s = (%s) read(p, ctxt, _%s);\n", indent.right(), f.fieldName, f.importedType,
+					f.fieldName);
+			p.format("%sbreak;\n", indent);
+			indent.left();
+		});
+		p.format("%sdefault:\n", indent);
+		p.format("%s_x.setUnmappedField(name, readUnmapped(p, ctxt));\n", indent.right());
+		indent.left();
+		p.format("%s}\n", indent);
+		p.format("%s}\n", indent.left());
+		p.format("%sreturn _x;\n", indent);
+		p.format("%s}\n", indent.left());
+		p.format("%s}\n", indent.left());
+	}
+
+	private static List<Field> fieldsInSerializationOrder(Structure<?> t, Imports imports) {
+		// as with @JsonPropertyOrder on the class, own properties come first
+		Set<String> own = t.getProperties() //
+				.stream() //
+				.map(TProperty::getName) //
+				.collect(Collectors.toSet());
+		List<Field> fields = t.getFields(imports);
+		return Stream.concat( //
+				fields.stream().filter(f -> own.contains(f.name)), //
+				fields.stream().filter(f -> !own.contains(f.name))) //
+				.collect(Collectors.toList());
+	}
+
 	private void writeCopyMethod(Structure<?> t, String simpleClassName, Imports imports, Indent indent, PrintWriter p,
 			boolean ofEntity) {
 		List<FieldName> fields = t.getFieldNames();
 		p.format("\n%sprivate %s _copy() {\n", indent, simpleClassName);
+		if (ofEntity) {
+			// the copy doesn't share the lazy fields
+			p.format("%smaterialize();\n", indent.right());
+			indent.left();
+		}
 		// use _x as identifier so doesn't conflict with any field name
 		p.format("%s%s _x = new %s();\n", indent.right(), simpleClassName, simpleClassName);
 		p.format("%s_x.contextPath = contextPath;\n", indent);
@@ -995,6 +1198,33 @@ public final class Generator {
 		p.format("%sprotected %s changedFields;\n", indent, imports.add(ChangedFields.class));
 	}
 
+	private static void writeFieldOrdinals(Structure<?> t, Imports imports, Indent indent, PrintWriter p) {
+		// base type properties come first so that base type ordinals are valid for
+		// this type too
+		String names = t.getFieldNames() //
+				.stream() //
+				.map(f -> "\"" + f.name + "\"") //
+				.collect(Collectors.joining(", "));
+		p.format("\n%sprivate static final %s FIELD_ORDINALS = %s.of(%s);\n", indent,
+				imports.add(FieldOrdinals.class), imports.add(FieldOrdinals.class), names);
+	}
+
+	private static int fieldOrdinal(Structure<?> t, String name) {
+		List<FieldName> names = t.getFieldNames();
+		for (int i = 0; i < names.size(); i++) {
+			if (names.get(i).name.equals(name)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("property not found: " + name);
+	}
+
+	private static void addLazyFieldsField(Imports imports, Indent indent, PrintWriter p) {
+		p.format("\n%s@%s\n", indent, imports.add(JacksonInject.class));
+		p.format("%s@%s\n", indent, imports.add(JsonIgnore.class));
+		p.format("%sprotected %s lazyFields;\n", indent, imports.add(LazyFields.class));
+	}
+
 	private void writeToFile(Imports imports, StringWriter w, File classFile) throws IOException {
 		byte[] bytes = w //
 				.toString() //
@@ -1031,6 +1261,7 @@ public final class Generator {
 
 			// write fields from properties
 			printPropertyFields(imports, indent, p, t.getProperties(), t.hasBaseType());
+			writeFieldOrdinals(t, imports, indent, p);
 
 			// write constructor
 			writeNoArgsConstructor(simpleClassName, indent, p, t.hasBaseType());
@@ -1044,7 +1275,7 @@ public final class Generator {
 			printPropertyGetterAndSetters(t, imports, indent, p, simpleClassName, t.getFullType(), t.getProperties(),
 					false, methodNames);
 
-			addUnmappedFieldsSetterAndGetter(imports, indent, p, methodNames);
+			addUnmappedFieldsSetterAndGetter(imports, indent, p, methodNames, false);
 
 			p.format("\n%s@%s\n", indent, imports.add(Override.class));
 			p.format("%spublic void postInject(boolean addKeysToContextPath) {\n", indent);
@@ -1059,6 +1290,10 @@ public final class Generator {
 			// write toString
 			writeToString(t, simpleClassName, imports, indent, p);
 
+			if (names.getOptions(schema).generateJsonCodecs()) {
+				writeJsonCodecs(t, simpleClassName, imports, indent, p, false);
+			}
+
 			p.format("\n}\n");
 			writeToFile(imports, w, t.getClassFile());
 		} catch (IOException e) {
@@ -1498,7 +1733,8 @@ public final class Generator {
 			t.printPropertyJavadoc(p, indent, f.name, "{@code this} (for method chaining)", map);
 			p.format("\n%spublic Builder %s(%s %s) {\n", indent, f.fieldName, f.importedType, f.fieldName);
 			p.format("%sthis.%s = %s;\n", indent.right(), f.fieldName, f.fieldName);
-			p.format("%sthis.changedFields = changedFields.add(\"%s\");\n", indent, f.name);
+			p.format("%sthis.changedFields = changedFields.add(FIELD_ORDINALS, %s);\n", indent,
+					fieldOrdinal(t, f.name));
 			p.format("%sreturn this;\n", indent);
 			p.format("%s}\n", indent.left());
 			if (f.isCollection) {
@@ -1539,7 +1775,7 @@ public final class Generator {
 	}
 
 	private static void addUnmappedFieldsSetterAndGetter(Imports imports, Indent indent, PrintWriter p,
-            Set<String> methodNames) {
+            Set<String> methodNames, boolean ofEntity) {
         p.format("\n%s@%s\n", indent, imports.add(JsonAnySetter.class));
         methodNames.add("setUnmappedField");
         p.format("%sprivate void setUnmappedField(%s name, %s value) {\n", //
@@ -1561,6 +1797,10 @@ public final class Generator {
         methodNames.add("getUnmappedFields");
         p.format("\n%s@%s\n", indent, imports.add(Override.class));
         p.format("%spublic %s getUnmappedFields() {\n", indent, imports.add(UnmappedFields.class));
+        if (ofEntity) {
+            p.format("%smaterialize();\n", indent.right());
+            indent.left();
+        }
         p.format("%sreturn unmappedFields();\n", indent.right());
         p.format("%s}\n", indent.left());
     }
@@ -1600,6 +1840,9 @@ public final class Generator {
 							String options = String.format("%s.EMPTY", imports.add(HttpRequestOptions.class));
 							p.format("%spublic %s<%s> %s() {\n", indent, imports.add(CollectionPage.class),
 									importedInnerType, methodName);
+							if (ofEntity) {
+								writeLazyGetterRead(indent, p, fieldName, x.getName(), importedInnerType, true);
+							}
 							writePropertyGetterCollectionBody(imports, indent, p, fieldName, inner, importedInnerType,
 									isEntity, options);
 							p.format("%s}\n", indent.left());
@@ -1618,7 +1861,8 @@ public final class Generator {
 							// use _x as identifier so doesn't conflict with any field name
 							p.format("%s%s _x = _copy();\n", indent.right(), simpleClassName);
 							if (ofEntity) {
-								p.format("%s_x.changedFields = changedFields.add(\"%s\");\n", indent, x.getName());
+								p.format("%s_x.changedFields = changedFields.add(FIELD_ORDINALS, %s);\n", indent,
+										fieldOrdinal(structure, x.getName()));
 							}
 							p.format("%s_x.odataType = %s.nvl(odataType, \"%s\");\n", //
 									indent, //
@@ -1639,6 +1883,9 @@ public final class Generator {
 							
 							p.format("%spublic %s<%s> %s(%s options) {\n", indent, imports.add(CollectionPage.class),
 									importedInnerType, methodName, imports.add(HttpRequestOptions.class));
+							if (ofEntity) {
+								writeLazyGetterRead(indent, p, fieldName, x.getName(), importedInnerType, true);
+							}
 							writePropertyGetterCollectionBody(imports, indent, p, fieldName, inner, importedInnerType,
 									isEntity, options);
 							p.format("%s}\n", indent.left());
@@ -1725,6 +1972,9 @@ public final class Generator {
 							final String importedType = names.toImportedTypeNonCollection(t, imports);
 							String importedTypeWithOptional = imports.add(Optional.class) + "<" + importedType + ">";
 							p.format("%spublic %s %s() {\n", indent, importedTypeWithOptional, methodName);
+							if (ofEntity) {
+								writeLazyGetterRead(indent, p, fieldName, x.getName(), importedType, false);
+							}
 							p.format("%sreturn %s.ofNullable(%s);\n", indent.right(), imports.add(Optional.class),
 									fieldName);
 							p.format("%s}\n", indent.left());
@@ -1746,7 +1996,8 @@ public final class Generator {
 							// use _x as identifier so doesn't conflict with any field name
 							p.format("%s%s _x = _copy();\n", indent.right(), simpleClassName);
 							if (ofEntity) {
-								p.format("%s_x.changedFields = changedFields.add(\"%s\");\n", indent, x.getName());
+								p.format("%s_x.changedFields = changedFields.add(FIELD_ORDINALS, %s);\n", indent,
+										fieldOrdinal(structure, x.getName()));
 							}
 							p.format("%s_x.odataType = %s.nvl(odataType, \"%s\");\n", //
 									indent, //
@@ -1870,7 +2121,7 @@ public final class Generator {
 					if (isCollection(x)) {
 						if (names.isEntityWithNamespace(names.getType(x))) {
 							p.format("%sreturn new %s(\n", indent.right(), toClassName(x, imports));
-							p.format("%scontextPath.addSegment(\"%s\"), %s.getValue(unmappedFields, \"%s\"));\n", //
+							p.format("%scontextPath.addSegment(\"%s\"), %s.getValue(unmappedFields, lazyFields, \"%s\"));\n", //
 									indent.right().right().right().right(), x.getName(), imports.add(RequestHelper.class), x.getName());
 							indent.left().left().left().left();
 						} else {
@@ -1879,7 +2130,7 @@ public final class Generator {
 					} else {
 						if (names.isEntityWithNamespace(names.getType(x))) {
 							Schema sch = names.getSchema(names.getInnerType(names.getType(x)));
-							p.format("%sreturn new %s(contextPath.addSegment(\"%s\"), %s.getValue(unmappedFields, \"%s\"));\n", //
+							p.format("%sreturn new %s(contextPath.addSegment(\"%s\"), %s.getValue(unmappedFields, lazyFields, \"%s\"));\n", //
 									indent.right(), //
 									imports.add(names.getFullClassNameEntityRequestFromTypeWithNamespace(sch,
 											names.getInnerType(names.getType(x)))),
@@ -17,6 +17,7 @@ public class SchemaOptions {
     public final String actionRequestClassSuffix;
     public final boolean pageComplexTypes;
     public final boolean failOnMissingEntitySet;
+    public final boolean generateJsonCodecs;
     
     // TODO make configurable
     private final String packageSuffixComplexTypeCollectionRequest = ".complex.collection.request";
@@ -27,7 +28,8 @@ public class SchemaOptions {
             String packageSuffixContainer,
             String packageSuffixSchema, String simpleClassNameSchema,
             String collectionRequestClassSuffix, String entityRequestClassSuffix,
-            String actionRequestClassSuffix, boolean pageComplexTypes, boolean failOnMissingEntitySet) {
+            String actionRequestClassSuffix, boolean pageComplexTypes, boolean failOnMissingEntitySet,
+            boolean generateJsonCodecs) {
         this.namespace = namespace;
         this.pkg = pkg;
         this.packageSuffixEnum = packageSuffixEnum;
@@ -43,11 +45,31 @@ public class SchemaOptions {
         this.actionRequestClassSuffix = actionRequestClassSuffix;
         this.pageComplexTypes = pageComplexTypes;
         this.failOnMissingEntitySet = failOnMissingEntitySet;
+        this.generateJsonCodecs = generateJsonCodecs;
     }
 
-    public SchemaOptions(String namespace, String pkg) {
+    public SchemaOptions(String namespace, String pkg, String packageSuffixEnum,
+            String packageSuffixEntity, String packageSuffixComplexType,
+            String packageSuffixEntityRequest, String packageSuffixCollectionRequest,
+            String packageSuffixContainer,
+            String packageSuffixSchema, String simpleClassNameSchema,
+            String collectionRequestClassSuffix, String entityRequestClassSuffix,
+            String actionRequestClassSuffix, boolean pageComplexTypes, boolean failOnMissingEntitySet) {
+        this(namespace, pkg, packageSuffixEnum, packageSuffixEntity, packageSuffixComplexType,
+                packageSuffixEntityRequest, packageSuffixCollectionRequest, packageSuffixContainer,
+                packageSuffixSchema, simpleClassNameSchema, collectionRequestClassSuffix,
+                entityRequestClassSuffix, actionRequestClassSuffix, pageComplexTypes,
+                failOnMissingEntitySet, false);
+    }
+
+    public SchemaOptions(String namespace, String pkg, boolean generateJsonCodecs) {
         this(namespace, pkg, ".enums", ".entity", ".complex", ".entity.request", ".collection.request",
-                ".container", ".schema", "SchemaInfo", "CollectionRequest", "EntityRequest", "ActionRequest", true, true);
+                ".container", ".schema", "SchemaInfo", "CollectionRequest", "EntityRequest", "ActionRequest", true, true,
+                generateJsonCodecs);
+    }
+
+    public SchemaOptions(String namespace, String pkg) {
+        this(namespace, pkg, false);
     }
 
     public String pkg() {
@@ -98,6 +120,17 @@ public class SchemaOptions {
         return pageComplexTypes;
     }
 
+    /**
+     * Returns true if a serializer and deserializer should be generated for each
+     * entity and complex type (registered via a Jackson module returned by the
+     * generated schema info) so that Jackson bean introspection is not used.
+     * 
+     * @return true if serializers and deserializers should be generated
+     */
+    public boolean generateJsonCodecs() {
+        return generateJsonCodecs;
+    }
+
     public String packageSuffixComplexTypeCollectionRequest() {
         return packageSuffixComplexTypeCollectionRequest;
     }
@@ -0,0 +1,93 @@
+package com.github.davidmoten.odata.client.jdk;
+
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+import com.github.davidmoten.odata.client.AsyncHttpService;
+import com.github.davidmoten.odata.client.HttpMethod;
+import com.github.davidmoten.odata.client.HttpRequestOptions;
+import com.github.davidmoten.odata.client.HttpResponse;
+import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.Path;
+import com.github.davidmoten.odata.client.RequestHeader;
+
+/**
+ * {@link AsyncHttpService} using {@link HttpClient#sendAsync}. No thread is
+ * held while a request is in flight. Usually obtained from
+ * {@link JdkHttpService#toAsync(java.util.concurrent.Executor)}.
+ */
+public final class JdkAsyncHttpService implements AsyncHttpService {
+
+    private final Path basePath;
+    private final HttpClient client;
+    private final BiFunction<URL, List<RequestHeader>, List<RequestHeader>> requestHeadersModifier;
+    private final long readTimeoutMs;
+
+    public JdkAsyncHttpService(Path basePath, HttpClient client,
+            BiFunction<URL, List<RequestHeader>, List<RequestHeader>> requestHeadersModifier,
+            long readTimeoutMs) {
+        this.basePath = basePath;
+        this.client = client;
+        this.requestHeadersModifier = requestHeadersModifier;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> get(String url, List<RequestHeader> requestHeaders,
+            HttpRequestOptions options) {
+        return send(HttpMethod.GET, url, requestHeaders, null, options);
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> patch(String url, List<RequestHeader> requestHeaders,
+            byte[] content, HttpRequestOptions options) {
+        return send(HttpMethod.PATCH, url, requestHeaders, Requests.publisher(content), options);
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> put(String url, List<RequestHeader> requestHeaders,
+            byte[] content, HttpRequestOptions options) {
+        return send(HttpMethod.PUT, url, requestHeaders, Requests.publisher(content), options);
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> post(String url, List<RequestHeader> requestHeaders,
+            byte[] content, HttpRequestOptions options) {
+        return send(HttpMethod.POST, url, requestHeaders, Requests.publisher(content), options);
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> delete(String url, List<RequestHeader> requestHeaders,
+            HttpRequestOptions options) {
+        return send(HttpMethod.DELETE, url, requestHeaders, null, options);
+    }
+
+    @Override
+    public Path getBasePath() {
+        return basePath;
+    }
+
+    @Override
+    public HttpService toBlocking() {
+        return new JdkHttpService(basePath, client, requestHeadersModifier, readTimeoutMs);
+    }
+
+    @Override
+    public void close() throws Exception {
+        // HttpClient releases its connections when it is garbage collected
+    }
+
+    private CompletableFuture<HttpResponse> send(HttpMethod method, String url,
+            List<RequestHeader> requestHeaders, BodyPublisher body, HttpRequestOptions options) {
+        return Requests.cancelOnExpiry(client
+                .sendAsync(Requests.request(method, url, requestHeaders, body, options,
+                        requestHeadersModifier, readTimeoutMs), BodyHandlers.ofByteArray()),
+                options).thenApply(Requests::toResponse);
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.github.davidmoten.odata.client.jdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+
+import com.github.davidmoten.odata.client.AsyncHttpService;
+import com.github.davidmoten.odata.client.ClientException;
+import com.github.davidmoten.odata.client.HttpMethod;
+import com.github.davidmoten.odata.client.HttpRequestOptions;
+import com.github.davidmoten.odata.client.HttpResponse;
+import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.HttpStreamingResponse;
+import com.github.davidmoten.odata.client.Path;
+import com.github.davidmoten.odata.client.RequestHeader;
+
+/**
+ * {@link HttpService} using {@link HttpClient} from {@code java.net.http}. The
+ * client negotiates HTTP/2 where the server supports it (always for https
+ * servers that offer it via ALPN) so concurrent requests to the same host are
+ * multiplexed over a few connections. {@link #toAsync(Executor)} returns a
+ * non-blocking service that shares the same client.
+ */
+public final class JdkHttpService implements HttpService {
+
+    private final Path basePath;
+    private final HttpClient client;
+    private final BiFunction<URL, List<RequestHeader>, List<RequestHeader>> requestHeadersModifier;
+    private final long readTimeoutMs;
+
+    /**
+     * Constructor.
+     *
+     * @param basePath               base path of the service
+     * @param client                 http client
+     * @param requestHeadersModifier modifies the request headers for each request
+     *                               (for authentication for instance)
+     * @param readTimeoutMs          default time allowed for the response headers
+     *                               to arrive (0 for no limit)
+     */
+    public JdkHttpService(Path basePath, HttpClient client,
+            BiFunction<URL, List<RequestHeader>, List<RequestHeader>> requestHeadersModifier,
+            long readTimeoutMs) {
+        this.basePath = basePath;
+        this.client = client;
+        this.requestHeadersModifier = requestHeadersModifier;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    public static JdkHttpService create(Path basePath) {
+        return create(basePath, (url, m) -> m, 0, 0);
+    }
+
+    /**
+     * Returns a service using a new HTTP/2 client. Has the same signature as
+     * {@code HttpServiceFactory.create} in the Microsoft client builder so it can
+     * be passed as a method reference.
+     *
+     * @param basePath               base path of the service
+     * @param requestHeadersModifier modifies the request headers for each request
+     * @param connectTimeoutMs       connect timeout (0 for the client default)
+     * @param readTimeoutMs          default time allowed for the response headers
+     *                               to arrive (0 for no limit)
+     * @return new service
+     */
+    public static JdkHttpService create(Path basePath,
+            BiFunction<URL, List<RequestHeader>, List<RequestHeader>> requestHeadersModifier,
+            long connectTimeoutMs, long readTimeoutMs) {
+        return new JdkHttpService(basePath, clientBuilder(connectTimeoutMs).build(),
+                requestHeadersModifier, readTimeoutMs);
+    }
+
+    /**
+     * Returns a client builder configured as used by
+     * {@link #create(Path, BiFunction, long, long)} (HTTP/2, following redirects
+     * and using the default proxy selector) for further customization.
+     *
+     * @param connectTimeoutMs connect timeout (0 for the client default)
+     * @return client builder
+     */
+    public static HttpClient.Builder clientBuilder(long connectTimeoutMs) {
+        return Requests.clientBuilder(connectTimeoutMs);
+    }
+
+    @Override
+    public HttpResponse get(String url, List<RequestHeader> requestHeaders,
+            HttpRequestOptions options) {
+        return send(HttpMethod.GET, url, requestHeaders, null, options);
+    }
+
+    @Override
+    public HttpResponse patch(String url, List<RequestHeader> requestHeaders, InputStream content,
+            int length, HttpRequestOptions options) {
+        return send(HttpMethod.PATCH, url, requestHeaders, Requests.publisher(content, length),
+                options);
+    }
+
+    @Override
+    public HttpResponse put(String url, List<RequestHeader> requestHeaders, InputStream content,
+            int length, HttpRequestOptions options) {
+        return send(HttpMethod.PUT, url, requestHeaders, Requests.publisher(content, length),
+                options);
+    }
+
+    @Override
+    public HttpResponse post(String url, List<RequestHeader> requestHeaders, InputStream content,
+            int length, HttpRequestOptions options) {
+        return send(HttpMethod.POST, url, requestHeaders, Requests.publisher(content, length),
+                options);
+    }
+
+    @Override
+    public HttpResponse delete(String url, List<RequestHeader> requestHeaders,
+            HttpRequestOptions options) {
+        return send(HttpMethod.DELETE, url, requestHeaders, null, options);
+    }
+
+    @Override
+    public InputStream getStream(HttpMethod method, String url, List<RequestHeader> requestHeaders,
+            HttpRequestOptions options) {
+        java.net.http.HttpResponse<InputStream> response = execute(
+                request(method, url, requestHeaders, null, options), BodyHandlers.ofInputStream(),
+                options);
+        if (response.statusCode() >= HttpURLConnection.HTTP_BAD_REQUEST) {
+            // the body is the error message, not the content asked for
+            String message;
+            try (InputStream in = response.body()) {
+                message = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                message = "";
+            }
+            throw new ClientException(response.statusCode(), "responseCode="
+                    + response.statusCode() + " from url=" + url + ", message=\n" + message);
+        }
+        return Requests.body(response, options);
+    }
+
+    @Override
+    public HttpStreamingResponse submitStreaming(HttpMethod method, String url,
+            List<RequestHeader> requestHeaders, InputStream content, int length,
+            HttpRequestOptions options) {
+        // the body is handed to the caller as it arrives, closing it releases the
+        // stream (or connection)
+        java.net.http.HttpResponse<InputStream> response = execute(
+                request(method, url, requestHeaders, Requests.publisher(content, length), options),
+                BodyHandlers.ofInputStream(), options);
+        return new HttpStreamingResponse(response.statusCode(), response.headers().map(),
+                Requests.body(response, options));
+    }
+
+    @Override
+    public Path getBasePath() {
+        return basePath;
+    }
+
+    @Override
+    public AsyncHttpService toAsync(Executor executor) {
+        return new JdkAsyncHttpService(basePath, client, requestHeadersModifier, readTimeoutMs);
+    }
+
+    @Override
+    public void close() throws Exception {
+        // HttpClient releases its connections when it is garbage collected
+    }
+
+    private HttpResponse send(HttpMethod method, String url, List<RequestHeader> requestHeaders,
+            BodyPublisher body, HttpRequestOptions options) {
+        return Requests.toResponse(execute(request(method, url, requestHeaders, body, options),
+                BodyHandlers.ofByteArray(), options));
+    }
+
+    private HttpRequest request(HttpMethod method, String url, List<RequestHeader> requestHeaders,
+            BodyPublisher body, HttpRequestOptions options) {
+        return Requests.request(method, url, requestHeaders, body, options,
+                requestHeadersModifier, readTimeoutMs);
+    }
+
+    private <T> java.net.http.HttpResponse<T> execute(HttpRequest request,
+            BodyHandler<T> handler, HttpRequestOptions options) {
+        try {
+            if (options.deadline().isPresent()) {
+                // sent asynchronously so that the exchange can be cancelled at the deadline
+                return Requests.await(client.sendAsync(request, handler), options);
+            } else {
+                return client.send(request, handler);
+            }
+        } catch (IOException e) {
+            throw new ClientException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClientException(e);
+        }
+    }
+
+}
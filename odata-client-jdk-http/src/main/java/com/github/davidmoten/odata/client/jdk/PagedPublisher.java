@@ -0,0 +1,258 @@
+package com.github.davidmoten.odata.client.jdk;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.odata.client.CollectionPage;
+import com.github.davidmoten.odata.client.ObjectOrDeltaLink;
+import com.github.davidmoten.odata.client.Paged;
+
+/**
+ * A {@link Flow.Publisher} of the items of a paged collection. Pages are
+ * requested on the given executor only when the subscriber has outstanding
+ * demand and has been sent every item of the current page, so a slow
+ * subscriber holds back the network requests. Cancelling the subscription
+ * stops further page requests.
+ *
+ * <p>
+ * The publisher is cold: each subscriber reads the collection from the first
+ * page. For example:
+ *
+ * <pre>
+ * Flow.Publisher&lt;User&gt; users = PagedPublisher.create(client.users()::get, executor);
+ * </pre>
+ *
+ * @param <T> item type
+ */
+public final class PagedPublisher<T> implements Flow.Publisher<T> {
+
+    private final Supplier<? extends Cursor<T>> cursorFactory;
+    private final Executor executor;
+
+    private PagedPublisher(Supplier<? extends Cursor<T>> cursorFactory, Executor executor) {
+        this.cursorFactory = cursorFactory;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns a publisher of the items of the collection whose first page is
+     * returned by {@code firstPage} (for example {@code request::get} of a
+     * collection request).
+     *
+     * @param <T>       item type
+     * @param firstPage requests the first page, called on {@code executor} when
+     *                  the first item is requested
+     * @param executor  runs the page requests and the subscriber callbacks
+     * @return publisher
+     */
+    public static <T> PagedPublisher<T> create(Supplier<? extends Paged<T, ?>> firstPage,
+            Executor executor) {
+        Preconditions.checkNotNull(firstPage);
+        Preconditions.checkNotNull(executor);
+        return new PagedPublisher<T>(() -> new Cursor<T>(firstPage, Optional.empty()), executor);
+    }
+
+    /**
+     * As {@link CollectionPage#streamWithDeltaLink()}: publishes the items of the
+     * collection (wrapped) followed by the deltaLink of the last page.
+     *
+     * @param <T>       item type
+     * @param firstPage requests the first page of a delta query
+     * @param executor  runs the page requests and the subscriber callbacks
+     * @return publisher
+     */
+    public static <T> PagedPublisher<ObjectOrDeltaLink<T>> createWithDeltaLink(
+            Supplier<CollectionPage<T>> firstPage, Executor executor) {
+        Preconditions.checkNotNull(firstPage);
+        Preconditions.checkNotNull(executor);
+        return new PagedPublisher<ObjectOrDeltaLink<T>>(
+                () -> new Cursor<ObjectOrDeltaLink<T>>(() -> new WrappedPage<T>(firstPage.get()),
+                        Optional.of(p -> ObjectOrDeltaLink
+                                .ofDeltaLink(((WrappedPage<?>) p).page.deltaLink()))),
+                executor);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+        PageSubscription<T> subscription = new PageSubscription<T>(subscriber,
+                cursorFactory.get(), executor);
+        subscriber.onSubscribe(subscription);
+    }
+
+    // walks the items of the pages, fetching the next page when asked for
+    private static final class Cursor<T> {
+
+        private final Supplier<? extends Paged<T, ?>> firstPage;
+        // item emitted after the last page (given the last page)
+        private final Optional<Function<Paged<T, ?>, T>> last;
+        private Paged<T, ?> page;
+        private int index;
+        private boolean finished;
+
+        Cursor(Supplier<? extends Paged<T, ?>> firstPage,
+                Optional<Function<Paged<T, ?>, T>> last) {
+            this.firstPage = firstPage;
+            this.last = last;
+        }
+
+        // Returns the next item. Returns empty after requesting a page (so that
+        // cancellation is checked between pages) or when there are no more items.
+        Optional<T> next() {
+            if (page == null) {
+                page = firstPage.get();
+                return Optional.empty();
+            } else if (index < page.currentPage().size()) {
+                T v = page.currentPage().get(index);
+                index++;
+                return Optional.of(v);
+            } else {
+                Optional<? extends Paged<T, ?>> p = page.nextPage();
+                if (p.isPresent()) {
+                    page = p.get();
+                    index = 0;
+                    return Optional.empty();
+                } else {
+                    finished = true;
+                    return last.map(f -> f.apply(page));
+                }
+            }
+        }
+
+        // true if every item has been returned, without requesting a page when
+        // the page says it is the last one so that completion needs no demand
+        boolean isFinished() {
+            return finished || !last.isPresent() && page != null
+                    && index == page.currentPage().size() && isLastPage(page);
+        }
+
+        private static boolean isLastPage(Paged<?, ?> page) {
+            if (page instanceof CollectionPage) {
+                return !((CollectionPage<?>) page).nextLink().isPresent();
+            } else if (page instanceof WrappedPage) {
+                return !((WrappedPage<?>) page).page.nextLink().isPresent();
+            } else {
+                return false;
+            }
+        }
+    }
+
+    private static final class PageSubscription<T> implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Cursor<T> cursor;
+        private final Executor executor;
+        private final AtomicLong requested = new AtomicLong();
+        // serializes the drain loop so that signals are never concurrent
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile Throwable badRequest;
+
+        PageSubscription(Flow.Subscriber<? super T> subscriber, Cursor<T> cursor,
+                Executor executor) {
+            this.subscriber = subscriber;
+            this.cursor = cursor;
+            this.executor = executor;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException(
+                        "request must be positive (rule 3.9) but was " + n);
+            } else {
+                requested.getAndUpdate(r -> r + n < 0 ? Long.MAX_VALUE : r + n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled.set(true);
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    cancelled.set(true);
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            while (true) {
+                try {
+                    while (!cancelled.get()) {
+                        if (badRequest != null) {
+                            cancelled.set(true);
+                            subscriber.onError(badRequest);
+                        } else if (cursor.isFinished()) {
+                            cancelled.set(true);
+                            subscriber.onComplete();
+                        } else if (requested.get() == 0) {
+                            break;
+                        } else {
+                            Optional<T> v = cursor.next();
+                            if (v.isPresent()) {
+                                requested.decrementAndGet();
+                                subscriber.onNext(v.get());
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    if (!cancelled.getAndSet(true)) {
+                        subscriber.onError(e);
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // adapts a CollectionPage of T to a page of ObjectOrDeltaLink<T>
+    private static final class WrappedPage<T>
+            implements Paged<ObjectOrDeltaLink<T>, WrappedPage<T>> {
+
+        final CollectionPage<T> page;
+        private List<ObjectOrDeltaLink<T>> list;
+
+        WrappedPage(CollectionPage<T> page) {
+            this.page = page;
+        }
+
+        @Override
+        public List<ObjectOrDeltaLink<T>> currentPage() {
+            if (list == null) {
+                list = Collections.unmodifiableList(page.currentPage().stream()
+                        .map(ObjectOrDeltaLink::ofObject)
+                        .collect(Collectors.toList()));
+            }
+            return list;
+        }
+
+        @Override
+        public Optional<WrappedPage<T>> nextPage() {
+            return page.nextPage().map(WrappedPage::new);
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.github.davidmoten.odata.client.jdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpClient.Version;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiFunction;
+
+import com.github.davidmoten.odata.client.ClientException;
+import com.github.davidmoten.odata.client.Deadline.Registration;
+import com.github.davidmoten.odata.client.HttpMethod;
+import com.github.davidmoten.odata.client.HttpRequestOptions;
+import com.github.davidmoten.odata.client.HttpResponse;
+import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.RequestHeader;
+import com.github.davidmoten.odata.client.internal.Deadlines;
+
+final class Requests {
+
+    // headers that HttpClient sets itself and refuses to accept from callers
+    private static final Set<String> RESTRICTED_HEADERS = new TreeSet<>(
+            Arrays.asList("connection", "content-length", "expect", "host", "upgrade"));
+
+    private Requests() {
+        // prevent instantiation
+    }
+
+    static HttpClient.Builder clientBuilder(long connectTimeoutMs) {
+        HttpClient.Builder b = HttpClient.newBuilder() //
+                .version(Version.HTTP_2) //
+                .followRedirects(Redirect.NORMAL);
+        if (connectTimeoutMs > 0) {
+            b = b.connectTimeout(Duration.ofMillis(connectTimeoutMs));
+        }
+        // honour the proxy system properties like the other transports
+        ProxySelector proxySelector = ProxySelector.getDefault();
+        if (proxySelector != null) {
+            b = b.proxy(proxySelector);
+        }
+        return b;
+    }
+
+    static HttpRequest request(HttpMethod method, String url, List<RequestHeader> requestHeaders,
+            BodyPublisher body, HttpRequestOptions options,
+            BiFunction<URL, List<RequestHeader>, List<RequestHeader>> requestHeadersModifier,
+            long readTimeoutMs) {
+        URI uri = URI.create(url);
+        HttpRequest.Builder b = HttpRequest.newBuilder(uri);
+        for (RequestHeader header : requestHeadersModifier.apply(toUrl(uri), requestHeaders)) {
+            if (!RESTRICTED_HEADERS.contains(header.name().toLowerCase(Locale.ENGLISH))) {
+                b = b.header(header.name(), header.value());
+            }
+        }
+        // HttpClient has no read timeout, the nearest is the time allowed for the
+        // response headers to arrive (capped by the time left before the deadline)
+        long timeoutMs = Deadlines
+                .limit(options, Optional.of(options.requestReadTimeoutMs().orElse(readTimeoutMs)))
+                .get();
+        if (timeoutMs > 0) {
+            b = b.timeout(Duration.ofMillis(timeoutMs));
+        }
+        return b.method(method.toString(), body == null ? BodyPublishers.noBody() : body).build();
+    }
+
+    static BodyPublisher publisher(InputStream content, int length) {
+        if (content == null || length == 0) {
+            return BodyPublishers.noBody();
+        }
+        BodyPublisher p = BodyPublishers.ofInputStream(() -> content);
+        if (length == HttpService.LENGTH_UNKNOWN) {
+            // sent chunked (HTTP/1.1) or as data frames without a length (HTTP/2)
+            return p;
+        } else {
+            return BodyPublishers.fromPublisher(p, length);
+        }
+    }
+
+    static BodyPublisher publisher(byte[] content) {
+        return BodyPublishers.ofByteArray(content);
+    }
+
+    /**
+     * Cancels the exchange if the deadline of the request passes before the
+     * response arrives.
+     */
+    static <T> CompletableFuture<T> cancelOnExpiry(CompletableFuture<T> future,
+            HttpRequestOptions options) {
+        Registration registration = Deadlines.onExpiry(options, () -> future.cancel(true));
+        future.whenComplete((x, e) -> registration.close());
+        return future;
+    }
+
+    /**
+     * Waits for the response of a request that has a deadline.
+     */
+    static <T> java.net.http.HttpResponse<T> await(
+            CompletableFuture<java.net.http.HttpResponse<T>> future, HttpRequestOptions options)
+            throws InterruptedException {
+        try {
+            return cancelOnExpiry(future, options).get();
+        } catch (CancellationException e) {
+            throw options.deadline().get().exception(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw Deadlines.error(options, (IOException) e.getCause());
+            } else {
+                throw ClientException.from(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Returns the response body that is closed if the deadline of the request
+     * passes while it is being read.
+     */
+    static InputStream body(java.net.http.HttpResponse<InputStream> response,
+            HttpRequestOptions options) {
+        InputStream in = response.body();
+        return Deadlines.releaseOnClose(in, Deadlines.onExpiry(options, () -> {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // ignore, the reader will fail anyway
+            }
+        }));
+    }
+
+    static HttpResponse toResponse(java.net.http.HttpResponse<byte[]> response) {
+        return new HttpResponse(response.statusCode(), response.body());
+    }
+
+    private static URL toUrl(URI uri) {
+        try {
+            return uri.toURL();
+        } catch (MalformedURLException e) {
+            throw new ClientException(e);
+        }
+    }
+
+}
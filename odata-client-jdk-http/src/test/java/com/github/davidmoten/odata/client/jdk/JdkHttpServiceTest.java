@@ -0,0 +1,134 @@
+package com.github.davidmoten.odata.client.jdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.davidmoten.odata.client.AsyncHttpService;
+import com.github.davidmoten.odata.client.ClientException;
+import com.github.davidmoten.odata.client.HttpMethod;
+import com.github.davidmoten.odata.client.HttpRequestOptions;
+import com.github.davidmoten.odata.client.HttpResponse;
+import com.github.davidmoten.odata.client.HttpStreamingResponse;
+import com.github.davidmoten.odata.client.Path;
+import com.github.davidmoten.odata.client.PathStyle;
+import com.github.davidmoten.odata.client.RequestHeader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class JdkHttpServiceTest {
+
+    private HttpServer server;
+    private JdkHttpService service;
+    private String url;
+
+    @Before
+    public void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/ok", exchange -> respond(exchange, 200, "{\"a\":1}"));
+        server.createContext("/bad", exchange -> respond(exchange, 404, "not here"));
+        server.createContext("/echo",
+                exchange -> respond(exchange, 200, exchange.getRequestMethod() + ":"
+                        + exchange.getRequestHeaders().getFirst("X-Test") + ":"
+                        + read(exchange.getRequestBody())));
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+        service = JdkHttpService.create(new Path(url, PathStyle.IDENTIFIERS_AS_SEGMENTS),
+                (u, m) -> {
+                    List<RequestHeader> list = new ArrayList<>(m);
+                    list.add(RequestHeader.create("X-Test", "t"));
+                    return list;
+                }, 5000, 5000);
+    }
+
+    @After
+    public void after() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testGet() {
+        HttpResponse r = service.get(url + "/ok", Collections.emptyList(), HttpRequestOptions.EMPTY);
+        assertEquals(200, r.getResponseCode());
+        assertEquals("{\"a\":1}", r.getText());
+    }
+
+    @Test
+    public void testGetStreamErrorThrowsWithBody() {
+        try {
+            service.getStream(url + "/bad", Collections.emptyList(), HttpRequestOptions.EMPTY);
+            fail();
+        } catch (ClientException e) {
+            assertEquals(404, (int) e.getStatusCode().get());
+            assertTrue(e.getMessage().endsWith("not here"));
+        }
+    }
+
+    @Test
+    public void testPatchWithRestrictedHeaderIgnored() {
+        HttpResponse r = service.patch(url + "/echo",
+                Collections.singletonList(RequestHeader.create("Content-Length", "5")), "hello",
+                HttpRequestOptions.EMPTY);
+        assertEquals("PATCH:t:hello", r.getText());
+    }
+
+    @Test
+    public void testSubmitStreaming() throws IOException {
+        try (HttpStreamingResponse r = service.submitStreaming(HttpMethod.POST, url + "/echo",
+                Collections.emptyList(), "there", HttpRequestOptions.EMPTY)) {
+            assertEquals(200, r.getResponseCode());
+            assertEquals("application/json", r.getHeader("content-type").get());
+            assertEquals("POST:t:there", read(r.getBody()));
+        }
+    }
+
+    @Test
+    public void testAsyncSharesClientAndRoundTrips() {
+        AsyncHttpService a = service.toAsync(ForkJoinPool.commonPool());
+        assertTrue(a instanceof JdkAsyncHttpService);
+        assertSame(service.getBasePath(), a.getBasePath());
+        List<CompletableFuture<HttpResponse>> list = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            list.add(a.get(url + "/ok", Collections.emptyList(), HttpRequestOptions.EMPTY));
+        }
+        list.forEach(f -> assertEquals("{\"a\":1}", f.join().getText()));
+        assertFalse(a.toBlocking() instanceof AsyncHttpService);
+        assertEquals("DELETE:t:",
+                a.delete(url + "/echo", Collections.emptyList(), HttpRequestOptions.EMPTY).join()
+                        .getText());
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        in.transferTo(bytes);
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.github.davidmoten.odata.client.jdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.davidmoten.odata.client.TestPage;
+import com.github.davidmoten.odata.client.TestPage.Fetches;
+
+public class PagedPublisherTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testPublishesAllItems() throws InterruptedException {
+        Fetches fetches = new Fetches();
+        Recorder<Integer> r = new Recorder<>(Long.MAX_VALUE);
+        PagedPublisher.create(() -> new TestPage(3, 2, fetches, -1), executor).subscribe(r);
+        assertTrue(r.finished.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), r.items);
+        assertEquals(null, r.error.get());
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void testPagesRequestedOnDemand() throws InterruptedException {
+        Fetches fetches = new Fetches();
+        CountDownLatch firstPageRequested = new CountDownLatch(1);
+        Recorder<Integer> r = new Recorder<>(0);
+        PagedPublisher.create(() -> {
+            firstPageRequested.countDown();
+            return new TestPage(100, 2, fetches, -1);
+        }, executor).subscribe(r);
+        // nothing requested so no pages fetched
+        assertFalse(firstPageRequested.await(100, TimeUnit.MILLISECONDS));
+        r.subscription.request(3);
+        assertTrue(r.received.tryAcquire(3, 5, TimeUnit.SECONDS));
+        // items 0 and 1 are from the first page and 2 from the second
+        assertFalse(fetches.await(2, 100, TimeUnit.MILLISECONDS));
+        assertEquals(3, r.items.size());
+        assertEquals(1, fetches.get());
+        r.subscription.cancel();
+        r.subscription.request(10);
+        assertFalse(fetches.await(2, 100, TimeUnit.MILLISECONDS));
+        assertEquals(3, r.items.size());
+    }
+
+    @Test
+    public void testErrorFetchingPage() throws InterruptedException {
+        Recorder<Integer> r = new Recorder<>(Long.MAX_VALUE);
+        PagedPublisher.create(() -> new TestPage(5, 2, new Fetches(), 2), executor)
+                .subscribe(r);
+        assertTrue(r.finished.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 1, 2, 3), r.items);
+        assertEquals("boo", r.error.get().getMessage());
+    }
+
+    @Test
+    public void testNonPositiveRequestSignalsError() throws InterruptedException {
+        Recorder<Integer> r = new Recorder<>(0);
+        PagedPublisher.create(() -> new TestPage(5, 2, new Fetches(), -1), executor)
+                .subscribe(r);
+        r.subscription.request(0);
+        assertTrue(r.finished.await(5, TimeUnit.SECONDS));
+        assertTrue(r.error.get() instanceof IllegalArgumentException);
+    }
+
+    private static final class Recorder<T> implements Flow.Subscriber<T> {
+
+        final List<T> items = new CopyOnWriteArrayList<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final CountDownLatch finished = new CountDownLatch(1);
+        // a permit per item received
+        final Semaphore received = new Semaphore(0);
+        private final long initialRequest;
+        volatile Flow.Subscription subscription;
+
+        Recorder(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+            received.release();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+            finished.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            finished.countDown();
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.github.davidmoten.odata.client.jdk;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.github.davidmoten.odata.client.AsyncHttpService;
+import com.github.davidmoten.odata.client.HttpRequestOptions;
+import com.github.davidmoten.odata.client.HttpResponse;
+import com.github.davidmoten.odata.client.Path;
+import com.github.davidmoten.odata.client.PathStyle;
+import com.github.davidmoten.odata.client.internal.ApacheHttpClientHttpService;
+import com.github.davidmoten.odata.client.internal.DefaultHttpService;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Compares the transports making {@code REQUESTS} GETs with {@code CONCURRENCY}
+ * in flight. Run the main method with no arguments to use a local stub server
+ * (which also reports how many connections each transport opened) or with a
+ * url argument to use another server (an HTTP/2 server shows the multiplexing
+ * of the jdk transports, the local stub only speaks HTTP/1.1).
+ */
+public final class TransportBenchmark {
+
+    private static final int REQUESTS = 4000;
+    private static final int CONCURRENCY = 200;
+    private static final byte[] BODY = ("{\"value\":[" + String.join(",",
+            Collections.nCopies(50, "{\"id\":\"abc\",\"name\":\"a name\",\"count\":123}")) + "]}")
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private TransportBenchmark() {
+        // prevent instantiation
+    }
+
+    public static void main(String[] args) throws Exception {
+        Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+        HttpServer server = null;
+        final String url;
+        if (args.length > 0) {
+            url = args[0];
+        } else {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 1000);
+            server.setExecutor(Executors.newFixedThreadPool(CONCURRENCY));
+            server.createContext("/", exchange -> {
+                connections.add(exchange.getRemoteAddress());
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, BODY.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(BODY);
+                }
+            });
+            server.start();
+            url = "http://localhost:" + server.getAddress().getPort() + "/";
+        }
+        Path path = new Path(url, PathStyle.IDENTIFIERS_AS_SEGMENTS);
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            for (int round = 0; round < 3; round++) {
+                System.out.println("round " + round);
+                run("HttpURLConnection", connections,
+                        AsyncHttpService.fromBlocking(new DefaultHttpService(path, x -> x, c -> {
+                        }), executor), url);
+                run("Apache HttpClient", connections, AsyncHttpService
+                        .fromBlocking(new ApacheHttpClientHttpService(path), executor), url);
+                JdkHttpService jdk = JdkHttpService.create(path);
+                run("java.net.http blocking", connections,
+                        AsyncHttpService.fromBlocking(jdk, executor), url);
+                run("java.net.http async", connections, jdk.toAsync(executor), url);
+            }
+        } finally {
+            executor.shutdownNow();
+            if (server != null) {
+                server.stop(0);
+                ((ExecutorService) server.getExecutor()).shutdownNow();
+            }
+        }
+    }
+
+    private static void run(String name, Set<InetSocketAddress> connections,
+            AsyncHttpService service, String url) throws Exception {
+        connections.clear();
+        AtomicInteger errors = new AtomicInteger();
+        long t = System.nanoTime();
+        List<CompletableFuture<HttpResponse>> inFlight = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            inFlight.add(service.get(url, Collections.emptyList(), HttpRequestOptions.EMPTY));
+            if (inFlight.size() == CONCURRENCY) {
+                inFlight.forEach(check(errors));
+                inFlight.clear();
+            }
+        }
+        inFlight.forEach(check(errors));
+        long ms = (System.nanoTime() - t) / 1_000_000;
+        System.out.println(String.format("  %-24s %6d ms %8.0f req/s  connections=%s errors=%s",
+                name, ms, REQUESTS * 1000.0 / Math.max(ms, 1),
+                connections.isEmpty() ? "n/a" : String.valueOf(connections.size()), errors.get()));
+        service.close();
+    }
+
+    private static Consumer<CompletableFuture<HttpResponse>> check(AtomicInteger errors) {
+        return f -> {
+            try {
+                if (f.join().getResponseCode() != 200) {
+                    errors.incrementAndGet();
+                }
+            } catch (CompletionException e) {
+                errors.incrementAndGet();
+            }
+        };
+    }
+
+}
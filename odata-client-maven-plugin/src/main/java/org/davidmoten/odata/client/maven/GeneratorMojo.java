@@ -50,6 +50,10 @@ public class GeneratorMojo extends AbstractMojo {
     @Parameter(name = "pageComplexTypes", required = false, defaultValue = "true")
     boolean pageComplexTypes;
 
+    // applies to schemas without explicit configuration
+    @Parameter(name = "generateJsonCodecs", required = false, defaultValue = "false")
+    boolean generateJsonCodecs;
+
     @Parameter(name = "outputDirectory", defaultValue = "${project.build.directory}/generated-sources/java")
     File outputDirectory;
 
@@ -69,7 +73,7 @@ public class GeneratorMojo extends AbstractMojo {
                         s.packageSuffixSchema, s.simpleClassNameSchema,
                         s.collectionRequestClassSuffix, s.entityRequestClassSuffix,
                         s.actionRequestClassSuffix, s.pageComplexTypes, //
-                        s.failOnMissingEntitySet))
+                        s.failOnMissingEntitySet, s.generateJsonCodecs))
                 .collect(Collectors.toList());
 
         InputStream is = null;
@@ -117,7 +121,8 @@ public class GeneratorMojo extends AbstractMojo {
                             getLog().info("schema options not found so autogenerating for namespace=" + schema.getNamespace());
                             return Stream.of(new SchemaOptions(schema.getNamespace(),
                                     blankIfNull(autoPackagePrefix)
-                                            + toPackage(schema.getNamespace())));
+                                            + toPackage(schema.getNamespace()),
+                                    generateJsonCodecs));
                         }
                     }) //
                     .collect(Collectors.toList());
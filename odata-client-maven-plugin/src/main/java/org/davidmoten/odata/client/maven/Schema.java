@@ -17,5 +17,6 @@ public class Schema {
     public String actionRequestClassSuffix = "ActionRequest";
     public boolean pageComplexTypes = true;
     public boolean failOnMissingEntitySet = true;
+    public boolean generateJsonCodecs = false;
 
 }
@@ -0,0 +1,47 @@
+package com.github.davidmoten.microsoft.client.builder;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.impl.client.HttpClientBuilder;
+
+import com.github.davidmoten.odata.client.internal.InstrumentedConnectionManager;
+
+/**
+ * Connection pool settings for the Apache HttpClient created by
+ * {@link MicrosoftClientBuilder}. Unset values keep the HttpClient defaults.
+ */
+final class ConnectionPoolOptions {
+
+    Optional<Integer> maxTotal = Optional.empty();
+    Optional<Integer> maxPerRoute = Optional.empty();
+    Optional<Long> evictIdleMs = Optional.empty();
+    Optional<Long> validateAfterInactivityMs = Optional.empty();
+    Optional<Long> timeToLiveMs = Optional.empty();
+
+    boolean isSet() {
+        return maxTotal.isPresent() || maxPerRoute.isPresent() || evictIdleMs.isPresent()
+                || validateAfterInactivityMs.isPresent() || timeToLiveMs.isPresent();
+    }
+
+    InstrumentedConnectionManager createConnectionManager() {
+        // a non-positive time to live means connections live indefinitely
+        InstrumentedConnectionManager cm = new InstrumentedConnectionManager(
+                timeToLiveMs.orElse(-1L), TimeUnit.MILLISECONDS);
+        maxTotal.ifPresent(cm::setMaxTotal);
+        maxPerRoute.ifPresent(cm::setDefaultMaxPerRoute);
+        validateAfterInactivityMs.ifPresent(x -> cm.setValidateAfterInactivity(x.intValue()));
+        return cm;
+    }
+
+    HttpClientBuilder configure(HttpClientBuilder b) {
+        if (evictIdleMs.isPresent()) {
+            b = b.evictIdleConnections(evictIdleMs.get(), TimeUnit.MILLISECONDS);
+        }
+        if (timeToLiveMs.isPresent()) {
+            b = b.evictExpiredConnections();
+        }
+        return b;
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.github.davidmoten.microsoft.client.builder;
+
+import java.net.URL;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.Path;
+import com.github.davidmoten.odata.client.RequestHeader;
+
+/**
+ * Creates the transport used by a client built with
+ * {@link MicrosoftClientBuilder} in place of the default Apache HttpClient
+ * based service. For example {@code JdkHttpService::create} from the
+ * {@code odata-client-jdk-http} artifact (Java 11+).
+ */
+@FunctionalInterface
+public interface HttpServiceFactory {
+
+    /**
+     * Returns a new service.
+     * 
+     * @param basePath               base path of the service
+     * @param requestHeadersModifier must be applied to the request headers of
+     *                               every request (adds authentication)
+     * @param connectTimeoutMs       connect timeout (0 for the transport default)
+     * @param readTimeoutMs          read timeout (0 for the transport default)
+     * @return new service
+     */
+    HttpService create(Path basePath,
+            BiFunction<URL, List<RequestHeader>, List<RequestHeader>> requestHeadersModifier,
+            long connectTimeoutMs, long readTimeoutMs);
+
+}
@@ -24,7 +24,6 @@ import org.apache.http.config.SocketConfig;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 
 import com.github.davidmoten.guavamini.Preconditions;
 import com.github.davidmoten.microsoft.authentication.AccessTokenProvider;
@@ -33,6 +32,7 @@ import com.github.davidmoten.microsoft.authentication.Authenticator;
 import com.github.davidmoten.microsoft.authentication.BearerAuthenticator;
 import com.github.davidmoten.microsoft.authentication.ClientCredentialsAccessTokenProvider;
 import com.github.davidmoten.odata.client.Context;
+import com.github.davidmoten.odata.client.HttpCompression;
 import com.github.davidmoten.odata.client.HttpService;
 import com.github.davidmoten.odata.client.Path;
 import com.github.davidmoten.odata.client.PathStyle;
@@ -41,6 +41,7 @@ import com.github.davidmoten.odata.client.RequestHeader;
 import com.github.davidmoten.odata.client.SchemaInfo;
 import com.github.davidmoten.odata.client.Serializer;
 import com.github.davidmoten.odata.client.internal.ApacheHttpClientHttpService;
+import com.github.davidmoten.odata.client.internal.InstrumentedConnectionManager;
 
 public final class MicrosoftClientBuilder<T> {
 
@@ -63,6 +64,10 @@ public final class MicrosoftClientBuilder<T> {
             .empty();
     private String authenticationEndpoint = AuthenticationEndpoint.GLOBAL.url();
     private Function<? super HttpService, ? extends HttpService> httpServiceTransformer = x -> x;
+    private Optional<HttpServiceFactory> httpServiceFactory = Optional.empty();
+    private Optional<HttpCompression> compression = Optional.empty();
+    private final ConnectionPoolOptions pool = new ConnectionPoolOptions();
+    private Optional<SharedTransport> transport = Optional.empty();
     private Optional<AccessTokenProvider> accessTokenProvider = Optional.empty();
     private Optional<Authenticator> authenticator = Optional.empty();
     private Optional<Supplier<UsernamePassword>> basicCredentials = Optional.empty();
@@ -174,6 +179,90 @@ public final class MicrosoftClientBuilder<T> {
             return this;
         }
 
+        /**
+         * Uses a transport (connection pool) shared with other clients instead of
+         * creating one for this client. Closing the built client releases its hold on
+         * the transport. Cannot be combined with the connection pool, compression,
+         * {@code httpClientProvider}, {@code httpClientBuilderExtras} or
+         * {@code httpServiceFactory} options (set those on the transport). The proxy
+         * and timeout options still apply to authentication requests.
+         * 
+         * @param transport shared transport
+         * @return this
+         */
+        public BuilderCustomAuthenticator<T> transport(SharedTransport transport) {
+            Preconditions.checkNotNull(transport);
+            b.transport = Optional.of(transport);
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of connections in the pool (the HttpClient default
+         * is 20). Not applicable with {@code httpClientProvider} or
+         * {@code httpServiceFactory}.
+         * 
+         * @param max maximum total connections
+         * @return this
+         */
+        public BuilderCustomAuthenticator<T> maxConnectionsTotal(int max) {
+            Preconditions.checkArgument(max > 0, "max must be > 0");
+            b.pool.maxTotal = Optional.of(max);
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of connections to one host (the HttpClient default
+         * is 2 which serializes concurrent calls to the same service). Not
+         * applicable with {@code httpClientProvider} or {@code httpServiceFactory}.
+         * 
+         * @param max maximum connections per route
+         * @return this
+         */
+        public BuilderCustomAuthenticator<T> maxConnectionsPerRoute(int max) {
+            Preconditions.checkArgument(max > 0, "max must be > 0");
+            b.pool.maxPerRoute = Optional.of(max);
+            return this;
+        }
+
+        /**
+         * Closes pooled connections that have been idle for longer than the given
+         * duration (checked by a background thread).
+         * 
+         * @param duration maximum idle time
+         * @param unit     unit of duration
+         * @return this
+         */
+        public BuilderCustomAuthenticator<T> evictIdleConnectionsAfter(long duration, TimeUnit unit) {
+            b.pool.evictIdleMs = Optional.of(unit.toMillis(duration));
+            return this;
+        }
+
+        /**
+         * Checks that a pooled connection is still open before reusing it if it has
+         * been idle for longer than the given duration.
+         * 
+         * @param duration idle time before validation
+         * @param unit     unit of duration
+         * @return this
+         */
+        public BuilderCustomAuthenticator<T> validateAfterInactivity(long duration, TimeUnit unit) {
+            b.pool.validateAfterInactivityMs = Optional.of(unit.toMillis(duration));
+            return this;
+        }
+
+        /**
+         * Sets the maximum lifetime of a pooled connection. Expired connections are
+         * not reused and are closed by a background thread.
+         * 
+         * @param duration connection time to live
+         * @param unit     unit of duration
+         * @return this
+         */
+        public BuilderCustomAuthenticator<T> connectionTimeToLive(long duration, TimeUnit unit) {
+            b.pool.timeToLiveMs = Optional.of(unit.toMillis(duration));
+            return this;
+        }
+
         /**
          * Do your own thing to create an Apache {@link HttpClient}. This method might
          * disappear if the underlying http service gets swapped out for another one.
@@ -186,6 +275,7 @@ public final class MicrosoftClientBuilder<T> {
         public BuilderCustomAuthenticator<T> httpClientProvider(
                 Supplier<CloseableHttpClient> supplier) {
             Preconditions.checkArgument(!b.httpClientBuilderExtras.isPresent());
+            Preconditions.checkArgument(!b.httpServiceFactory.isPresent());
             b.httpClientSupplier = Optional.of(supplier);
             return this;
         }
@@ -203,14 +293,51 @@ public final class MicrosoftClientBuilder<T> {
         public BuilderCustomAuthenticator<T> httpClientBuilderExtras(
                 Function<HttpClientBuilder, HttpClientBuilder> extras) {
             Preconditions.checkArgument(!b.httpClientSupplier.isPresent());
+            Preconditions.checkArgument(!b.httpServiceFactory.isPresent());
             b.httpClientBuilderExtras = Optional.of(extras);
             return this;
         }
 
+        /**
+         * Sets the factory for the transport used by the client instead of the
+         * default Apache HttpClient based one. Cannot be combined with
+         * {@code httpClientProvider}, {@code httpClientBuilderExtras} or the proxy
+         * options (configure the proxy in the factory). Use
+         * {@code JdkHttpService::create} from {@code odata-client-jdk-http} for
+         * HTTP/2 and non-blocking requests.
+         * 
+         * @param factory creates the http service
+         * @return this
+         */
+        public BuilderCustomAuthenticator<T> httpServiceFactory(HttpServiceFactory factory) {
+            Preconditions.checkArgument(!b.httpClientSupplier.isPresent());
+            Preconditions.checkArgument(!b.httpClientBuilderExtras.isPresent());
+            Preconditions.checkArgument(!b.compression.isPresent());
+            b.httpServiceFactory = Optional.of(factory);
+            return this;
+        }
+
+        /**
+         * Sets the compression used by the default Apache HttpClient based transport
+         * (the client's own content compression is disabled so that the bytes on the
+         * wire can be counted in {@link HttpCompression#stats()}). Cannot be combined
+         * with {@code httpServiceFactory}.
+         * 
+         * @param compression compression settings
+         * @return this
+         */
+        public BuilderCustomAuthenticator<T> compression(HttpCompression compression) {
+            Preconditions.checkNotNull(compression);
+            Preconditions.checkArgument(!b.httpServiceFactory.isPresent());
+            b.compression = Optional.of(compression);
+            return this;
+        }
+
         public T build() {
             return createService(b.baseUrl, authenticator, b.connectTimeoutMs, b.readTimeoutMs,
                     b.proxyHost, b.proxyPort, b.proxyUsername, b.proxyPassword,
-                    b.httpClientSupplier, b.httpClientBuilderExtras, b.creator,
+                    b.httpClientSupplier, b.httpClientBuilderExtras, b.httpServiceFactory,
+                    b.compression, b.pool, b.transport, b.creator,
                     b.authenticationEndpoint, b.httpServiceTransformer,b.schemas, b.pathStyle);
         }
 
@@ -345,6 +472,90 @@ public final class MicrosoftClientBuilder<T> {
             b.proxyPassword = Optional.of(password);
             return this;
         }
+
+        /**
+         * Uses a transport (connection pool) shared with other clients instead of
+         * creating one for this client. Closing the built client releases its hold on
+         * the transport. Cannot be combined with the connection pool, compression,
+         * {@code httpClientProvider}, {@code httpClientBuilderExtras} or
+         * {@code httpServiceFactory} options (set those on the transport). The proxy
+         * and timeout options still apply to authentication requests.
+         * 
+         * @param transport shared transport
+         * @return this
+         */
+        public Builder5<T> transport(SharedTransport transport) {
+            Preconditions.checkNotNull(transport);
+            b.transport = Optional.of(transport);
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of connections in the pool (the HttpClient default
+         * is 20). Not applicable with {@code httpClientProvider} or
+         * {@code httpServiceFactory}.
+         * 
+         * @param max maximum total connections
+         * @return this
+         */
+        public Builder5<T> maxConnectionsTotal(int max) {
+            Preconditions.checkArgument(max > 0, "max must be > 0");
+            b.pool.maxTotal = Optional.of(max);
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of connections to one host (the HttpClient default
+         * is 2 which serializes concurrent calls to the same service). Not
+         * applicable with {@code httpClientProvider} or {@code httpServiceFactory}.
+         * 
+         * @param max maximum connections per route
+         * @return this
+         */
+        public Builder5<T> maxConnectionsPerRoute(int max) {
+            Preconditions.checkArgument(max > 0, "max must be > 0");
+            b.pool.maxPerRoute = Optional.of(max);
+            return this;
+        }
+
+        /**
+         * Closes pooled connections that have been idle for longer than the given
+         * duration (checked by a background thread).
+         * 
+         * @param duration maximum idle time
+         * @param unit     unit of duration
+         * @return this
+         */
+        public Builder5<T> evictIdleConnectionsAfter(long duration, TimeUnit unit) {
+            b.pool.evictIdleMs = Optional.of(unit.toMillis(duration));
+            return this;
+        }
+
+        /**
+         * Checks that a pooled connection is still open before reusing it if it has
+         * been idle for longer than the given duration.
+         * 
+         * @param duration idle time before validation
+         * @param unit     unit of duration
+         * @return this
+         */
+        public Builder5<T> validateAfterInactivity(long duration, TimeUnit unit) {
+            b.pool.validateAfterInactivityMs = Optional.of(unit.toMillis(duration));
+            return this;
+        }
+
+        /**
+         * Sets the maximum lifetime of a pooled connection. Expired connections are
+         * not reused and are closed by a background thread.
+         * 
+         * @param duration connection time to live
+         * @param unit     unit of duration
+         * @return this
+         */
+        public Builder5<T> connectionTimeToLive(long duration, TimeUnit unit) {
+            b.pool.timeToLiveMs = Optional.of(unit.toMillis(duration));
+            return this;
+        }
         
         /**
          * Do your own thing to create an Apache {@link HttpClient}. This method might
@@ -357,6 +568,7 @@ public final class MicrosoftClientBuilder<T> {
          */
         public Builder5<T> httpClientProvider(Supplier<CloseableHttpClient> supplier) {
             Preconditions.checkArgument(!b.httpClientBuilderExtras.isPresent());
+            Preconditions.checkArgument(!b.httpServiceFactory.isPresent());
             b.httpClientSupplier = Optional.of(supplier);
             return this;
         }
@@ -374,10 +586,46 @@ public final class MicrosoftClientBuilder<T> {
         public Builder5<T> httpClientBuilderExtras(
                 Function<HttpClientBuilder, HttpClientBuilder> extras) {
             Preconditions.checkArgument(!b.httpClientSupplier.isPresent());
+            Preconditions.checkArgument(!b.httpServiceFactory.isPresent());
             b.httpClientBuilderExtras = Optional.of(extras);
             return this;
         }
 
+        /**
+         * Sets the factory for the transport used by the client instead of the
+         * default Apache HttpClient based one. Cannot be combined with
+         * {@code httpClientProvider}, {@code httpClientBuilderExtras} or the proxy
+         * options (configure the proxy in the factory). Use
+         * {@code JdkHttpService::create} from {@code odata-client-jdk-http} for
+         * HTTP/2 and non-blocking requests.
+         * 
+         * @param factory creates the http service
+         * @return this
+         */
+        public Builder5<T> httpServiceFactory(HttpServiceFactory factory) {
+            Preconditions.checkArgument(!b.httpClientSupplier.isPresent());
+            Preconditions.checkArgument(!b.httpClientBuilderExtras.isPresent());
+            Preconditions.checkArgument(!b.compression.isPresent());
+            b.httpServiceFactory = Optional.of(factory);
+            return this;
+        }
+
+        /**
+         * Sets the compression used by the default Apache HttpClient based transport
+         * (the client's own content compression is disabled so that the bytes on the
+         * wire can be counted in {@link HttpCompression#stats()}). Cannot be combined
+         * with {@code httpServiceFactory}.
+         * 
+         * @param compression compression settings
+         * @return this
+         */
+        public Builder5<T> compression(HttpCompression compression) {
+            Preconditions.checkNotNull(compression);
+            Preconditions.checkArgument(!b.httpServiceFactory.isPresent());
+            b.compression = Optional.of(compression);
+            return this;
+        }
+
         /**
          * Sets the authentication endpoint url to use for access tokens etc. If not
          * specified defaults to {@link AuthenticationEndpoint#GLOBAL}.
@@ -430,7 +678,8 @@ public final class MicrosoftClientBuilder<T> {
             return createService(b.baseUrl, b.tenantName, b.resource, b.scopes, b.clientId,
                     b.clientSecret, b.refreshBeforeExpiryDurationMs, b.connectTimeoutMs,
                     b.readTimeoutMs, b.proxyHost, b.proxyPort, b.proxyUsername, b.proxyPassword,
-                    b.httpClientSupplier, b.httpClientBuilderExtras, b.creator,
+                    b.httpClientSupplier, b.httpClientBuilderExtras, b.httpServiceFactory,
+                    b.compression, b.pool, b.transport, b.creator,
                     b.authenticationEndpoint, b.httpServiceTransformer, b.accessTokenProvider,
                     b.authenticator, b.schemas, b.pathStyle);
         }
@@ -473,6 +722,10 @@ public final class MicrosoftClientBuilder<T> {
             Optional<String> proxyUsername, Optional<String> proxyPassword,
             Optional<Supplier<CloseableHttpClient>> supplier,
             Optional<Function<HttpClientBuilder, HttpClientBuilder>> httpClientBuilderExtras,
+            Optional<HttpServiceFactory> httpServiceFactory, //
+            Optional<HttpCompression> compression, //
+            ConnectionPoolOptions pool, //
+            Optional<SharedTransport> transport, //
             Creator<T> creator, //
             String authenticationEndpoint, //
             Function<? super HttpService, ? extends HttpService> httpServiceTransformer,
@@ -502,21 +755,24 @@ public final class MicrosoftClientBuilder<T> {
             auth = new BearerAuthenticator(accessTokenProvider, baseUrl);
         }
         return createService(baseUrl, auth, connectTimeoutMs, readTimeoutMs, proxyHost, proxyPort,
-                proxyUsername, proxyPassword, supplier, httpClientBuilderExtras, creator,
-                authenticationEndpoint, httpServiceTransformer, schemas, pathStyle);
+                proxyUsername, proxyPassword, supplier, httpClientBuilderExtras, httpServiceFactory,
+                compression, pool, transport, creator, authenticationEndpoint, httpServiceTransformer, schemas, pathStyle);
     }
 
     private static Supplier<CloseableHttpClient> createClientSupplier(long connectTimeoutMs,
             long readTimeoutMs, Optional<String> proxyHost, Optional<Integer> proxyPort,
             Optional<String> proxyUsername, Optional<String> proxyPassword,
             Optional<Supplier<CloseableHttpClient>> supplier,
-            Optional<Function<HttpClientBuilder, HttpClientBuilder>> httpClientBuilderExtras) {
+            Optional<Function<HttpClientBuilder, HttpClientBuilder>> httpClientBuilderExtras,
+            boolean disableContentCompression, ConnectionPoolOptions pool,
+            Optional<InstrumentedConnectionManager> connectionManager) {
         final Supplier<CloseableHttpClient> clientSupplier;
         if (supplier.isPresent()) {
             clientSupplier = supplier.get();
         } else {
             clientSupplier = () -> createHttpClient(connectTimeoutMs, readTimeoutMs, proxyHost,
-                    proxyPort, proxyUsername, proxyPassword, httpClientBuilderExtras);
+                    proxyPort, proxyUsername, proxyPassword, httpClientBuilderExtras,
+                    disableContentCompression, pool, connectionManager.get());
         }
         return clientSupplier;
     }
@@ -528,19 +784,53 @@ public final class MicrosoftClientBuilder<T> {
             Optional<String> proxyUsername, Optional<String> proxyPassword,
             Optional<Supplier<CloseableHttpClient>> supplier,
             Optional<Function<HttpClientBuilder, HttpClientBuilder>> httpClientBuilderExtras,
+            Optional<HttpServiceFactory> httpServiceFactory, //
+            Optional<HttpCompression> compression, //
+            ConnectionPoolOptions pool, //
+            Optional<SharedTransport> transport, //
             Creator<T> creator, String authenticationEndpoint, //
             Function<? super HttpService, ? extends HttpService> httpServiceTransformer, //
             List<SchemaInfo> schemas, PathStyle pathStyle) {
-        final Supplier<CloseableHttpClient> clientSupplier = createClientSupplier(connectTimeoutMs,
-                readTimeoutMs, proxyHost, proxyPort, proxyUsername, proxyPassword, supplier,
-                httpClientBuilderExtras);
         Path basePath = new Path(baseUrl, pathStyle);
-        HttpService httpService = new ApacheHttpClientHttpService( //
-                basePath, //
-                clientSupplier, //
-                authenticator::authenticate);
+        HttpService httpService;
+        Preconditions.checkArgument(
+                !pool.isSet() || !supplier.isPresent() && !httpServiceFactory.isPresent(),
+                "connection pool options cannot be combined with httpClientProvider or httpServiceFactory");
+        Preconditions.checkArgument(!httpServiceFactory.isPresent() || !proxyHost.isPresent()
+                && !proxyPort.isPresent() && !proxyUsername.isPresent() && !proxyPassword.isPresent(),
+                "proxy options cannot be combined with httpServiceFactory (configure the proxy in the factory)");
+        Preconditions.checkArgument(!transport.isPresent() || !supplier.isPresent()
+                && !httpClientBuilderExtras.isPresent() && !httpServiceFactory.isPresent()
+                && !compression.isPresent() && !pool.isSet(),
+                "transport cannot be combined with options that configure the http client");
+        if (transport.isPresent()) {
+            httpService = transport.get().createService(basePath, authenticator);
+        } else if (httpServiceFactory.isPresent()) {
+            httpService = httpServiceFactory.get().create(basePath, authenticator::authenticate,
+                    connectTimeoutMs, readTimeoutMs);
+        } else {
+            Optional<InstrumentedConnectionManager> connectionManager = supplier.isPresent()
+                    ? Optional.empty()
+                    : Optional.of(pool.createConnectionManager());
+            final Supplier<CloseableHttpClient> clientSupplier = createClientSupplier(
+                    connectTimeoutMs, readTimeoutMs, proxyHost, proxyPort, proxyUsername,
+                    proxyPassword, supplier, httpClientBuilderExtras, compression.isPresent(),
+                    pool, connectionManager);
+            httpService = new ApacheHttpClientHttpService( //
+                    basePath, //
+                    clientSupplier, //
+                    authenticator::authenticate, //
+                    compression.orElseGet(HttpCompression::none), //
+                    connectionManager);
+        }
         httpService = httpServiceTransformer.apply(httpService);
-        return creator.create(new Context(Serializer.INSTANCE, httpService, createProperties(), schemas));
+        if (transport.isPresent()) {
+            return creator.create(new Context(Serializer.INSTANCE, httpService,
+                    httpService.toAsync(transport.get().executor()), createProperties(), schemas));
+        } else {
+            return creator.create(
+                    new Context(Serializer.INSTANCE, httpService, createProperties(), schemas));
+        }
     }
 
     public static Map<String, Object> createProperties() {
@@ -551,16 +841,17 @@ public final class MicrosoftClientBuilder<T> {
         return p;
     }
 
-    private static CloseableHttpClient createHttpClient(long connectTimeoutMs, long readTimeoutMs,
+    static CloseableHttpClient createHttpClient(long connectTimeoutMs, long readTimeoutMs,
             Optional<String> proxyHost, Optional<Integer> proxyPort, Optional<String> proxyUsername,
             Optional<String> proxyPassword,
-            Optional<Function<HttpClientBuilder, HttpClientBuilder>> httpClientBuilderExtras) {
+            Optional<Function<HttpClientBuilder, HttpClientBuilder>> httpClientBuilderExtras,
+            boolean disableContentCompression, ConnectionPoolOptions pool,
+            InstrumentedConnectionManager cm) {
         RequestConfig config = RequestConfig.custom() //
                 .setConnectTimeout((int) connectTimeoutMs) //
                 .setSocketTimeout((int) readTimeoutMs) //
                 .build();
 
-        PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
         // Set soTimeout here to affect socketRead in the phase of ssl handshake. Note
         // that
         // the RequestConfig.setSocketTimeout will take effect only after the ssl
@@ -572,6 +863,7 @@ public final class MicrosoftClientBuilder<T> {
                 .useSystemProperties() //
                 .setDefaultRequestConfig(config) //
                 .setConnectionManager(cm);
+        b = pool.configure(b);
 
         if (proxyHost.isPresent()) {
             HttpHost proxy = new HttpHost(proxyHost.get(), proxyPort.get());
@@ -585,6 +877,10 @@ public final class MicrosoftClientBuilder<T> {
             }
             b = b.setProxy(proxy);
         }
+        if (disableContentCompression) {
+            // HttpService decodes the responses itself
+            b = b.disableContentCompression();
+        }
         if (httpClientBuilderExtras.isPresent()) {
             b = httpClientBuilderExtras.get().apply(b);
         }
@@ -0,0 +1,198 @@
+package com.github.davidmoten.microsoft.client.builder;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.microsoft.authentication.Authenticator;
+import com.github.davidmoten.odata.client.ConnectionPoolStats;
+import com.github.davidmoten.odata.client.HttpCompression;
+import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.Path;
+import com.github.davidmoten.odata.client.internal.ApacheHttpClientHttpService;
+import com.github.davidmoten.odata.client.internal.BlockingCallExecutors;
+import com.github.davidmoten.odata.client.internal.InstrumentedConnectionManager;
+import com.github.davidmoten.odata.client.internal.SharedHttpClient;
+
+/**
+ * A connection pool (and executor for async requests) that can be shared by
+ * many clients built with {@link MicrosoftClientBuilder}, for example one
+ * client per tenant. Each client keeps its own base url and authentication but
+ * sockets and TLS sessions are shared.
+ *
+ * <p>
+ * Closing a client releases its hold on the transport. The pool is closed once
+ * the transport and every client using it have been closed.
+ */
+public final class SharedTransport implements AutoCloseable {
+
+    private final SharedHttpClient client;
+    private final HttpCompression compression;
+    private final Executor executor;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private SharedTransport(SharedHttpClient client, HttpCompression compression,
+            Executor executor) {
+        this.client = client;
+        this.compression = compression;
+        this.executor = executor;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    HttpService createService(Path basePath, Authenticator authenticator) {
+        if (closed.get()) {
+            throw new IllegalStateException("transport has been closed");
+        }
+        return new ApacheHttpClientHttpService(basePath, client, authenticator::authenticate,
+                compression);
+    }
+
+    /**
+     * Returns the executor used for async requests by clients using this
+     * transport.
+     *
+     * @return executor
+     */
+    public Executor executor() {
+        return executor;
+    }
+
+    public ConnectionPoolStats connectionPoolStats() {
+        return client.connectionManager().get().stats();
+    }
+
+    /**
+     * Returns the number of clients using this transport (plus one until the
+     * transport is closed).
+     *
+     * @return reference count
+     */
+    public int references() {
+        return client.references();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (closed.compareAndSet(false, true)) {
+            client.release();
+        }
+    }
+
+    public static final class Builder {
+
+        private long connectTimeoutMs;
+        private long readTimeoutMs;
+        private Optional<String> proxyHost = Optional.empty();
+        private Optional<Integer> proxyPort = Optional.empty();
+        private Optional<String> proxyUsername = Optional.empty();
+        private Optional<String> proxyPassword = Optional.empty();
+        private Optional<HttpCompression> compression = Optional.empty();
+        private Optional<Executor> executor = Optional.empty();
+        private final ConnectionPoolOptions pool = new ConnectionPoolOptions();
+
+        Builder() {
+        }
+
+        public Builder connectTimeout(long duration, TimeUnit unit) {
+            connectTimeoutMs = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder readTimeout(long duration, TimeUnit unit) {
+            readTimeoutMs = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder proxyHost(String proxyHost) {
+            this.proxyHost = Optional.of(proxyHost);
+            return this;
+        }
+
+        public Builder proxyPort(int proxyPort) {
+            this.proxyPort = Optional.of(proxyPort);
+            return this;
+        }
+
+        public Builder proxyUsername(String username) {
+            this.proxyUsername = Optional.of(username);
+            return this;
+        }
+
+        public Builder proxyPassword(String password) {
+            this.proxyPassword = Optional.of(password);
+            return this;
+        }
+
+        public Builder maxConnectionsTotal(int max) {
+            Preconditions.checkArgument(max > 0, "max must be > 0");
+            pool.maxTotal = Optional.of(max);
+            return this;
+        }
+
+        public Builder maxConnectionsPerRoute(int max) {
+            Preconditions.checkArgument(max > 0, "max must be > 0");
+            pool.maxPerRoute = Optional.of(max);
+            return this;
+        }
+
+        public Builder evictIdleConnectionsAfter(long duration, TimeUnit unit) {
+            pool.evictIdleMs = Optional.of(unit.toMillis(duration));
+            return this;
+        }
+
+        public Builder validateAfterInactivity(long duration, TimeUnit unit) {
+            pool.validateAfterInactivityMs = Optional.of(unit.toMillis(duration));
+            return this;
+        }
+
+        public Builder connectionTimeToLive(long duration, TimeUnit unit) {
+            pool.timeToLiveMs = Optional.of(unit.toMillis(duration));
+            return this;
+        }
+
+        /**
+         * Sets the compression used by all clients of the transport (the byte counts
+         * in {@link HttpCompression#stats()} are totals across the clients).
+         *
+         * @param compression compression settings
+         * @return this
+         */
+        public Builder compression(HttpCompression compression) {
+            Preconditions.checkNotNull(compression);
+            this.compression = Optional.of(compression);
+            return this;
+        }
+
+        /**
+         * Sets the executor used for async requests. The executor is not shut down
+         * when the transport is closed. Defaults to a pool owned by the transport of
+         * at most {@link BlockingCallExecutors#DEFAULT_MAX_THREADS} daemon threads.
+         *
+         * @param executor executor for async requests
+         * @return this
+         */
+        public Builder executor(Executor executor) {
+            Preconditions.checkNotNull(executor);
+            this.executor = Optional.of(executor);
+            return this;
+        }
+
+        public SharedTransport build() {
+            InstrumentedConnectionManager cm = pool.createConnectionManager();
+            SharedHttpClient client = new SharedHttpClient(
+                    MicrosoftClientBuilder.createHttpClient(connectTimeoutMs, readTimeoutMs,
+                            proxyHost, proxyPort, proxyUsername, proxyPassword, Optional.empty(),
+                            compression.isPresent(), pool, cm),
+                    Optional.of(cm));
+            return new SharedTransport(client, compression.orElseGet(HttpCompression::none),
+                    executor.orElseGet(() -> BlockingCallExecutors.create(
+                            "odata-client-shared", BlockingCallExecutors.DEFAULT_MAX_THREADS)));
+        }
+    }
+
+}
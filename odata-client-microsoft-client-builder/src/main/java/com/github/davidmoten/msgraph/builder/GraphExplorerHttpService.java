@@ -5,7 +5,9 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
 
+import com.github.davidmoten.odata.client.ConnectionPoolStats;
 import com.github.davidmoten.odata.client.HttpMethod;
 import com.github.davidmoten.odata.client.HttpRequestOptions;
 import com.github.davidmoten.odata.client.HttpResponse;
@@ -74,6 +76,11 @@ public final class GraphExplorerHttpService implements HttpService {
         return s.getBasePath();
     }
 
+    @Override
+    public Optional<ConnectionPoolStats> connectionPoolStats() {
+        return s.connectionPoolStats();
+    }
+
     @Override
     public InputStream getStream(HttpMethod method, String url, List<RequestHeader> requestHeaders,
             HttpRequestOptions options) {
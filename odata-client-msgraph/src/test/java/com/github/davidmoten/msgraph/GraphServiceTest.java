@@ -714,6 +714,26 @@ public class GraphServiceTest {
         assertEquals("OneDrive", drive.getName().get());
     }
 
+    @Test
+    public void testExpandEntityRequestLazy() {
+        GraphService client = clientBuilder() //
+                .expectRequest("/users/fred?$expand=drive") //
+                .withResponse("/response-user-expand-with-drive.json") //
+                .withRequestHeadersStandard() //
+                .build();
+        User user = client.users("fred").expand("drive").lazy().get();
+        assertEquals("Megan Bowen", user.getDisplayName().get());
+        assertEquals(Arrays.asList("+1 412 555 0109"), user.getBusinessPhones().currentPage());
+        Drive drive = user.getDrive().get();
+        assertEquals("OneDrive", drive.getName().get());
+        String s = user.toString();
+        assertTrue(s, s.contains("drive="));
+        User copy = user.withCity("Canberra");
+        assertEquals("Canberra", copy.getCity().get());
+        assertEquals(Arrays.asList("+1 412 555 0109"), copy.getBusinessPhones().currentPage());
+        assertTrue(copy.getUnmappedFields().containsKey("drive"));
+    }
+
     @Test
     public void testTimeoutsOnNonEntityCollection() {
         GraphService client = clientBuilder() //
@@ -943,7 +963,35 @@ public class GraphServiceTest {
             assertEquals(HttpURLConnection.HTTP_NOT_FOUND, (int) e.getStatusCode().get());
         }
     }
-    
+
+    @Test
+    public void testPatchAfterLazyGetSendsChangedFieldsOnly() {
+        GraphService client = clientBuilder() //
+                .expectRequest("/users/1") //
+                .withResponse("/response-user.json") //
+                .withRequestHeadersStandard() //
+                .expectRequest("/users/1") //
+                .withPayload("/request-user-patch.json") //
+                .withMethod(HttpMethod.PATCH) //
+                .withRequestHeaders(RequestHeader.CONTENT_TYPE_JSON, RequestHeader.ODATA_VERSION,
+                        RequestHeader.ACCEPT_JSON) //
+                .build();
+        User user = client.users("1").lazy().get().withCity("Canberra");
+        assertEquals(Sets.newHashSet("city"), user.getChangedFields().toSet());
+        User patched = user.patch();
+        assertEquals("Canberra", patched.getCity().get());
+        assertEquals("Conf Room Adams", patched.getDisplayName().get());
+    }
+
+    @Test
+    public void testChangedFieldsOfBuilderIncludeBaseTypeFields() {
+        // id is declared on entity, the base type of user
+        User user = User.builderUser().id("1").city("Canberra").build();
+        assertEquals(Sets.newHashSet("id", "city"), user.getChangedFields().toSet());
+        assertEquals("{\"@odata.type\":\"microsoft.graph.user\",\"id\":\"1\",\"city\":\"Canberra\"}",
+                Serializer.INSTANCE.serializeChangesOnly(user));
+    }
+
     @Test
     public void testMailRead() {
         GraphService client = clientBuilder() //
@@ -0,0 +1,110 @@
+package com.github.davidmoten.odata.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import com.github.davidmoten.odata.client.internal.BlockingHttpService;
+import com.github.davidmoten.odata.client.internal.ExecutorAsyncHttpService;
+import com.github.davidmoten.odata.client.internal.RequestBodies;
+
+/**
+ * Non-blocking counterpart of {@link HttpService}. Each call returns as soon as
+ * the request has been submitted and the returned future completes with the
+ * buffered response (or exceptionally on a transport error). Implementations
+ * backed by a non-blocking client can have many requests in flight without
+ * dedicating a thread to each.
+ */
+public interface AsyncHttpService extends AutoCloseable {
+
+    CompletableFuture<HttpResponse> get(String url, List<RequestHeader> requestHeaders,
+            HttpRequestOptions options);
+
+    CompletableFuture<HttpResponse> patch(String url, List<RequestHeader> requestHeaders,
+            byte[] content, HttpRequestOptions options);
+
+    CompletableFuture<HttpResponse> put(String url, List<RequestHeader> requestHeaders,
+            byte[] content, HttpRequestOptions options);
+
+    CompletableFuture<HttpResponse> post(String url, List<RequestHeader> requestHeaders,
+            byte[] content, HttpRequestOptions options);
+
+    CompletableFuture<HttpResponse> delete(String url, List<RequestHeader> requestHeaders,
+            HttpRequestOptions options);
+
+    Path getBasePath();
+
+    default CompletableFuture<HttpResponse> submitWithContent(HttpMethod method, String url,
+            List<RequestHeader> requestHeaders, byte[] content, HttpRequestOptions options) {
+        if (method == HttpMethod.PATCH) {
+            return patch(url, requestHeaders, content, options);
+        } else if (method == HttpMethod.PUT) {
+            return put(url, requestHeaders, content, options);
+        } else if (method == HttpMethod.POST) {
+            return post(url, requestHeaders, content, options);
+        } else {
+            CompletableFuture<HttpResponse> f = new CompletableFuture<>();
+            f.completeExceptionally(new IllegalArgumentException(
+                    method + " not permitted for a submission with content"));
+            return f;
+        }
+    }
+
+    default CompletableFuture<HttpResponse> submitWithContent(HttpMethod method, String url,
+            List<RequestHeader> requestHeaders, String content, HttpRequestOptions options) {
+        return submitWithContent(method, url, requestHeaders,
+                content.getBytes(StandardCharsets.UTF_8), options);
+    }
+
+    /**
+     * Submits a request with a body that writes itself to the connection. The
+     * default implementation writes the body to a byte array and calls
+     * {@link #submitWithContent(HttpMethod, String, List, byte[], HttpRequestOptions)}.
+     * 
+     * @param method         http method (PATCH, PUT or POST)
+     * @param url            url
+     * @param requestHeaders request headers
+     * @param body           request body
+     * @param options        request options
+     * @return response
+     */
+    default CompletableFuture<HttpResponse> submit(HttpMethod method, String url,
+            List<RequestHeader> requestHeaders, RequestBody body, HttpRequestOptions options) {
+        final byte[] bytes;
+        try {
+            bytes = RequestBodies.toBytes(body);
+        } catch (RuntimeException e) {
+            CompletableFuture<HttpResponse> f = new CompletableFuture<>();
+            f.completeExceptionally(e);
+            return f;
+        }
+        return submitWithContent(method, url, requestHeaders, bytes, options);
+    }
+
+    /**
+     * Returns a blocking {@link HttpService} that delegates to this service and
+     * waits for each response. Closing the returned service closes this one.
+     *
+     * @return blocking view of this service
+     */
+    default HttpService toBlocking() {
+        return new BlockingHttpService(this);
+    }
+
+    /**
+     * Returns an {@link AsyncHttpService} that runs each call of the blocking
+     * {@code service} on {@code executor}. This does not reduce the number of
+     * threads blocked on I/O (one per in-flight call is still used) but lets a
+     * blocking transport be used where an async one is expected. Closing the
+     * returned service closes {@code service} (but not the executor).
+     *
+     * @param service  blocking service
+     * @param executor runs the blocking calls
+     * @return async view of the blocking service
+     */
+    static AsyncHttpService fromBlocking(HttpService service, Executor executor) {
+        return new ExecutorAsyncHttpService(service, executor);
+    }
+
+}
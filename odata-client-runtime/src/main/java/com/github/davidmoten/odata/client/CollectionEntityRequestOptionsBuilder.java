@@ -1,14 +1,19 @@
 package com.github.davidmoten.odata.client;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import com.github.davidmoten.guavamini.Preconditions;
@@ -32,18 +37,20 @@ public final class CollectionEntityRequestOptionsBuilder<T extends ODataEntityTy
     private Optional<Long> connectTimeoutMs;
     private Optional<Long> readTimeoutMs;
 	private Optional<String> deltaToken;
+    private boolean lazy;
+    private Optional<Deadline> deadline;
 
     CollectionEntityRequestOptionsBuilder(CollectionPageEntityRequest<T, R> request) {
         this(request, Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(),
                 Optional.empty(), Optional.empty(), "minimal", Optional.empty(), Optional.empty(), Optional.empty(), //
-                Optional.empty(), new HashMap<>());
+                Optional.empty(), new HashMap<>(), false, Optional.empty());
     }
     
     private CollectionEntityRequestOptionsBuilder(CollectionPageEntityRequest<T, R> request, Optional<String> search,
             Optional<String> filter, Optional<String> orderBy, Optional<Long> skip, Optional<Long> top,
             Optional<String> select, Optional<String> expand, String metadata, Optional<String> urlOverride, //
             Optional<Long> connectTimeoutMs, Optional<Long> readTimeoutMs, Optional<String> deltaToken, //
-            Map<String, String> queries) {
+            Map<String, String> queries, boolean lazy, Optional<Deadline> deadline) {
         this.request = request;
         this.search = search;
         this.filter = filter;
@@ -58,6 +65,8 @@ public final class CollectionEntityRequestOptionsBuilder<T extends ODataEntityTy
         this.readTimeoutMs = readTimeoutMs;
         this.deltaToken = deltaToken;
         this.queries = queries;
+        this.lazy = lazy;
+        this.deadline = deadline;
     }
 
     public CollectionEntityRequestOptionsBuilder<T, R> requestHeader(String name, String value) {
@@ -153,6 +162,43 @@ public final class CollectionEntityRequestOptionsBuilder<T extends ODataEntityTy
     	return this;
     }
     
+    /**
+     * Entities in the returned pages only decode object and array valued
+     * properties (nested complex types, collections) when they are first accessed.
+     * Useful when only a few properties of each entity are used. Each page is read
+     * into memory before the entities are created.
+     * 
+     * @return this
+     */
+    public CollectionEntityRequestOptionsBuilder<T, R> lazy() {
+        this.lazy = true;
+        return this;
+    }
+
+    /**
+     * Sets the overall time budget (and cancellation token) for the request and
+     * for the further pages fetched while iterating the returned collection.
+     * 
+     * @param deadline deadline for the request and its pages
+     * @return this
+     */
+    public CollectionEntityRequestOptionsBuilder<T, R> deadline(Deadline deadline) {
+        Preconditions.checkNotNull(deadline);
+        this.deadline = Optional.of(deadline);
+        return this;
+    }
+
+    /**
+     * Asks the service to include the number of entities in the collection
+     * (ignoring {@code $top} and {@code $skip}) in the response
+     * ({@code $count=true}). See {@link CollectionPage#count()}.
+     * 
+     * @return this
+     */
+    public CollectionEntityRequestOptionsBuilder<T, R> includeCount() {
+        return query("$count", "true");
+    }
+
 	public CollectionEntityRequestOptionsBuilder<T, R> deltaTokenLatest() {
 		this.deltaToken = Optional.of("latest");
 		return this;
@@ -160,7 +206,7 @@ public final class CollectionEntityRequestOptionsBuilder<T extends ODataEntityTy
     
     public <S extends T> CollectionEntityRequestOptionsBuilder<S, EntityRequest<S>> filter(Class<S> cls) {
         return new CollectionEntityRequestOptionsBuilder<S, EntityRequest<S>>(request.filter(cls), search, filter,
-                orderBy, skip, top, select, expand, metadata, urlOverride, connectTimeoutMs, readTimeoutMs, deltaToken, queries);
+                orderBy, skip, top, select, expand, metadata, urlOverride, connectTimeoutMs, readTimeoutMs, deltaToken, queries, lazy, deadline);
     }
 
 	public CollectionEntityRequestOptionsBuilder<T, R> query(String name, String value) {
@@ -169,14 +215,101 @@ public final class CollectionEntityRequestOptionsBuilder<T extends ODataEntityTy
 	}
     
     CollectionRequestOptions build() {
-        requestHeaders.add(RequestHeader.acceptJsonWithMetadata(metadata));
-        return new CollectionRequestOptions(requestHeaders, search, filter, orderBy, skip, top,
-                select, expand, urlOverride, connectTimeoutMs, readTimeoutMs, deltaToken, queries);
+        return build(filter, skip, top);
+    }
+
+    private CollectionRequestOptions build(Optional<String> filter, Optional<Long> skip,
+            Optional<Long> top) {
+        List<RequestHeader> h = new ArrayList<>(requestHeaders);
+        h.add(RequestHeader.acceptJsonWithMetadata(metadata));
+        return new CollectionRequestOptions(h, search, filter, orderBy, skip, top, select, expand,
+                urlOverride, connectTimeoutMs, readTimeoutMs, deltaToken, new HashMap<>(queries),
+                lazy, deadline);
     }
 
     public CollectionPage<T> get() {
         return request.get(build());
     }
+
+    /**
+     * Returns the number of entities in the collection that match the filter and
+     * search options of this request using the {@code /$count} segment (no
+     * entities are read).
+     * 
+     * @return number of matching entities
+     */
+    public long getCount() {
+        return request.getCount(build(filter, Optional.empty(), Optional.empty()));
+    }
+
+    /**
+     * Returns a scan of the collection split into one partition per filter
+     * clause. Each clause is combined with the filter of this request (if any)
+     * using {@code and}. The clauses should select disjoint sets of entities (for
+     * example key ranges or date buckets) that together cover the collection.
+     * 
+     * @param clauses filter clause of each partition
+     * @return partitioned scan
+     */
+    public PartitionedScan<T> partitionByFilter(List<String> clauses) {
+        Preconditions.checkNotNull(clauses);
+        List<Supplier<CollectionPage<T>>> partitions = new ArrayList<>();
+        for (String clause : clauses) {
+            Preconditions.checkNotNull(clause);
+            Optional<String> f = Optional.of(
+                    filter.map(x -> "(" + x + ") and (" + clause + ")").orElse(clause));
+            CollectionRequestOptions options = build(f, skip, top);
+            partitions.add(() -> request.get(options));
+        }
+        return new PartitionedScan<>(partitions);
+    }
+
+    public PartitionedScan<T> partitionByFilter(String... clauses) {
+        return partitionByFilter(Arrays.asList(clauses));
+    }
+
+    /**
+     * Returns a scan of the first {@code count} entities of the collection split
+     * into {@code $skip}/{@code $top} windows of {@code windowSize} entities. Set
+     * an {@link #orderBy(String)} that gives a stable order (like the key) so that
+     * the windows don't overlap.
+     * 
+     * @param count      number of entities to read (for example from
+     *                   {@code $count})
+     * @param windowSize number of entities in each partition
+     * @return partitioned scan
+     */
+    public PartitionedScan<T> partitionBySkip(long count, long windowSize) {
+        Preconditions.checkArgument(count > 0, "count must be > 0");
+        Preconditions.checkArgument(windowSize > 0, "windowSize must be > 0");
+        Preconditions.checkArgument(!skip.isPresent() && !top.isPresent(),
+                "skip and top must not be set");
+        List<Supplier<CollectionPage<T>>> partitions = new ArrayList<>();
+        for (long start = 0; start < count; start += windowSize) {
+            Optional<Long> s = start == 0 ? Optional.empty() : Optional.of(start);
+            CollectionRequestOptions options = build(filter, s,
+                    Optional.of(Math.min(windowSize, count - start)));
+            partitions.add(() -> request.get(options));
+        }
+        return new PartitionedScan<>(partitions);
+    }
+
+    /**
+     * As {@link #partitionBySkip(long, long)} using the {@link #getCount()} of the
+     * collection.
+     * 
+     * @param windowSize number of entities in each partition
+     * @return partitioned scan
+     */
+    public PartitionedScan<T> partitionBySkip(long windowSize) {
+        long count = getCount();
+        if (count == 0) {
+            CollectionRequestOptions options = build(filter, skip, top);
+            return new PartitionedScan<>(Collections.singletonList(() -> request.get(options)));
+        } else {
+            return partitionBySkip(count, windowSize);
+        }
+    }
     
     @Override
     public Iterator<T> iterator() {
@@ -190,6 +323,23 @@ public final class CollectionEntityRequestOptionsBuilder<T extends ODataEntityTy
     public Stream<ObjectOrDeltaLink<T>> streamWithDeltaLink() {
         return get().streamWithDeltaLink();
     }
+
+    /**
+     * Returns a stream of the items where up to {@code pages} pages are fetched on
+     * {@code executor} ahead of the page being consumed. See
+     * {@link Paged#streamPrefetching(int, Executor)}.
+     * 
+     * @param pages    maximum number of pages fetched ahead of the consumer
+     * @param executor runs the page requests
+     * @return stream of items
+     */
+    public Stream<T> streamPrefetching(int pages, Executor executor) {
+        return get().streamPrefetching(pages, executor);
+    }
+
+    public Stream<ObjectOrDeltaLink<T>> streamWithDeltaLink(int pages, Executor executor) {
+        return get().streamWithDeltaLink(pages, executor);
+    }
     
     public <S> S to(Function<? super CollectionPage<T>,? extends S> function) {
     	return function.apply(get());
@@ -199,6 +349,10 @@ public final class CollectionEntityRequestOptionsBuilder<T extends ODataEntityTy
         return request.post(build(), entity);
     }
 
+    public CompletableFuture<T> postAsync(T entity) {
+        return request.postAsync(build(), entity);
+    }
+
     public List<T> toList() {
         return get().toList();
     }
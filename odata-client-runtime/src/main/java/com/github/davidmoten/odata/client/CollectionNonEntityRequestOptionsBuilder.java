@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -30,6 +31,7 @@ public final class CollectionNonEntityRequestOptionsBuilder<T> {
     private Optional<Long> connectTimeoutMs;
     private Optional<Long> readTimeoutMs;
     private Optional<String> deltaToken;
+    private Optional<Deadline> deadline;
 
     CollectionNonEntityRequestOptionsBuilder(CollectionPageNonEntityRequest<T> request) {
         this(request, //
@@ -46,7 +48,8 @@ public final class CollectionNonEntityRequestOptionsBuilder<T> {
                 Optional.empty(), //
                 Optional.empty(), //
                 Optional.empty(), //
-                new HashMap<>());
+                new HashMap<>(), //
+                Optional.empty());
     }
 
     private CollectionNonEntityRequestOptionsBuilder(CollectionPageNonEntityRequest<T> request,
@@ -54,7 +57,8 @@ public final class CollectionNonEntityRequestOptionsBuilder<T> {
             Optional<String> orderBy, Optional<Long> skip, Optional<Long> top,
             Optional<String> select, Optional<String> expand, String metadata,
             Optional<String> urlOverride, Optional<Long> connectTimeoutMs, //
-            Optional<Long> readTimeoutMs, Optional<String> deltaToken, Map<String, String> queries) {
+            Optional<Long> readTimeoutMs, Optional<String> deltaToken, Map<String, String> queries,
+            Optional<Deadline> deadline) {
         this.request = request;
         this.requestHeaders = requestHeaders;
         this.search = search;
@@ -70,6 +74,7 @@ public final class CollectionNonEntityRequestOptionsBuilder<T> {
         this.readTimeoutMs = readTimeoutMs;
         this.deltaToken = deltaToken;
         this.queries = queries;
+        this.deadline = deadline;
     }
 
     public CollectionNonEntityRequestOptionsBuilder<T> requestHeader(String name, String value) {
@@ -138,7 +143,7 @@ public final class CollectionNonEntityRequestOptionsBuilder<T> {
     public <S extends T> CollectionNonEntityRequestOptionsBuilder<S> filter(Class<S> cls) {
         return new CollectionNonEntityRequestOptionsBuilder<S>(request.filter(cls), requestHeaders,
                 search, filter, orderBy, skip, top, select, expand, metadata, urlOverride, //
-                connectTimeoutMs, readTimeoutMs, deltaToken, queries);
+                connectTimeoutMs, readTimeoutMs, deltaToken, queries, deadline);
     }
 
     public CollectionNonEntityRequestOptionsBuilder<T> orderBy(String clause) {
@@ -185,6 +190,30 @@ public final class CollectionNonEntityRequestOptionsBuilder<T> {
         return this;
     }
     
+    /**
+     * Sets the overall time budget (and cancellation token) for the request and
+     * for the further pages fetched while iterating the returned collection.
+     * 
+     * @param deadline deadline for the request and its pages
+     * @return this
+     */
+    public CollectionNonEntityRequestOptionsBuilder<T> deadline(Deadline deadline) {
+        Preconditions.checkNotNull(deadline);
+        this.deadline = Optional.of(deadline);
+        return this;
+    }
+
+    /**
+     * Asks the service to include the number of members of the collection
+     * (ignoring {@code $top} and {@code $skip}) in the response
+     * ({@code $count=true}). See {@link CollectionPage#count()}.
+     * 
+     * @return this
+     */
+    public CollectionNonEntityRequestOptionsBuilder<T> includeCount() {
+        return query("$count", "true");
+    }
+
     public CollectionNonEntityRequestOptionsBuilder<T> deltaTokenLatest() {
         this.deltaToken = Optional.of("latest");
         return this;
@@ -198,13 +227,32 @@ public final class CollectionNonEntityRequestOptionsBuilder<T> {
     CollectionRequestOptions build() {
         requestHeaders.add(RequestHeader.acceptJsonWithMetadata(metadata));
         return new CollectionRequestOptions(requestHeaders, search, filter, orderBy, skip, top,
-                select, expand, urlOverride, connectTimeoutMs, readTimeoutMs, deltaToken, queries);
+                select, expand, urlOverride, connectTimeoutMs, readTimeoutMs, deltaToken, queries, false,
+                deadline);
     }
 
     public CollectionPage<T> get() {
         return request.get(build());
     }
     
+    /**
+     * Returns the number of members of the collection that match the filter and
+     * search options of this request using the {@code /$count} segment (no
+     * members are read). If the collection is the result of an action then the
+     * count is requested with the first page instead.
+     * 
+     * @return number of matching members
+     */
+    public long getCount() {
+        if (request.countSegmentSupported()) {
+            // only filtering and searching apply to /$count
+            return request.getCount(build());
+        } else {
+            return includeCount().get().count().orElseThrow(
+                    () -> new ClientException("count not returned by the service"));
+        }
+    }
+
     public Iterator<T> iterator() {
         return get().iterator();
     }
@@ -216,6 +264,23 @@ public final class CollectionNonEntityRequestOptionsBuilder<T> {
     public Stream<ObjectOrDeltaLink<T>> streamWithDeltaLink() {
         return get().streamWithDeltaLink();
     }
+
+    /**
+     * Returns a stream of the items where up to {@code pages} pages are fetched on
+     * {@code executor} ahead of the page being consumed. See
+     * {@link Paged#streamPrefetching(int, Executor)}.
+     * 
+     * @param pages    maximum number of pages fetched ahead of the consumer
+     * @param executor runs the page requests
+     * @return stream of items
+     */
+    public Stream<T> streamPrefetching(int pages, Executor executor) {
+        return get().streamPrefetching(pages, executor);
+    }
+
+    public Stream<ObjectOrDeltaLink<T>> streamWithDeltaLink(int pages, Executor executor) {
+        return get().streamWithDeltaLink(pages, executor);
+    }
     
     public <S> S to(Function<? super CollectionPage<T>,? extends S> function) {
     	return function.apply(get());
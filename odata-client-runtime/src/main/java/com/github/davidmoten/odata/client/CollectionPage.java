@@ -1,5 +1,8 @@
 package com.github.davidmoten.odata.client;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -7,19 +10,23 @@ import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import com.fasterxml.jackson.annotation.JsonAnyGetter;
 import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreType;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.odata.client.internal.PagePrefetcher;
 import com.github.davidmoten.odata.client.internal.RequestHelper;
 import com.github.davidmoten.odata.client.internal.UnmappedFieldsImpl;
 
@@ -33,13 +40,15 @@ import com.github.davidmoten.odata.client.internal.UnmappedFieldsImpl;
 @JsonIgnoreType
 @JsonPropertyOrder({"@odata.nextLink","@odata.deltaLink","value"})
 public final class CollectionPage<T> implements Paged<T, CollectionPage<T>> {
-    
+
+    private static final long MAX_INITIAL_CAPACITY = 1 << 20;
 
     private final ContextPath contextPath;
     private final Class<T> cls;
     private final List<T> list;
     private final Optional<String> nextLink;
     private final Optional<String> deltaLink;
+    private final Optional<Long> count;
     private final List<RequestHeader> requestHeaders;
 	private final HttpRequestOptions options;
 	private final Consumer<? super CollectionPage<T>> listener;
@@ -54,10 +63,25 @@ public final class CollectionPage<T> implements Paged<T, CollectionPage<T>> {
             UnmappedFields unmappedFields, //
             List<RequestHeader> requestHeaders, //
             HttpRequestOptions options,
+            Consumer<? super CollectionPage<T>> listener) {
+        this(contextPath, cls, list, nextLink, deltaLink, Optional.empty(), unmappedFields,
+                requestHeaders, options, listener);
+    }
+
+    public CollectionPage(ContextPath contextPath, //
+            Class<T> cls, //
+            List<T> list, //
+            Optional<String> nextLink, //
+            Optional<String> deltaLink, //
+            Optional<Long> count, //
+            UnmappedFields unmappedFields, //
+            List<RequestHeader> requestHeaders, //
+            HttpRequestOptions options,
             Consumer<? super CollectionPage<T>> listener) {
 		Preconditions.checkArgument(!nextLink.isPresent() || contextPath != null, "if nextLink is present contextPath must be non-null");
         Preconditions.checkNotNull(cls);
         Preconditions.checkNotNull(nextLink);
+        Preconditions.checkNotNull(count);
         Preconditions.checkNotNull(unmappedFields);
         Preconditions.checkNotNull(requestHeaders);
         Preconditions.checkNotNull(options);
@@ -66,6 +90,7 @@ public final class CollectionPage<T> implements Paged<T, CollectionPage<T>> {
         this.list = list == null ? Collections.emptyList() : list;
         this.nextLink = nextLink;
         this.deltaLink = deltaLink;
+        this.count = count;
         this.unmappedFields = unmappedFields;
         this.requestHeaders = requestHeaders;
         this.options = options;
@@ -99,6 +124,63 @@ public final class CollectionPage<T> implements Paged<T, CollectionPage<T>> {
     	return deltaLink;
     }
     
+    /**
+     * Returns the {@code @odata.count} value of this page, the number of items in
+     * the whole collection (ignoring {@code $top} and {@code $skip}) when the
+     * count was requested (see
+     * {@link CollectionEntityRequestOptionsBuilder#includeCount()}). Services
+     * usually only return it with the first page.
+     * 
+     * @return count of the collection if returned by the service
+     */
+    @JsonIgnore
+    public Optional<Long> count() {
+        return count;
+    }
+
+    /**
+     * Returns the items of this and the following pages in a list that is
+     * presized from {@link #count()} if present.
+     * 
+     * @return list of all items
+     */
+    @Override
+    public List<T> toList() {
+        return Util.add(this, new ArrayList<T>(initialCapacity()));
+    }
+
+    /**
+     * Reports {@link #count()} (if present) as the estimated size. The count is
+     * not reported as an exact size because it may be approximate and the
+     * collection may change while it is read.
+     * 
+     * @return spliterator over all items
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        if (count.isPresent()) {
+            Iterator<T> it = iterator();
+            return new Spliterators.AbstractSpliterator<T>(count.get(), Spliterator.ORDERED) {
+                @Override
+                public boolean tryAdvance(Consumer<? super T> action) {
+                    if (it.hasNext()) {
+                        action.accept(it.next());
+                        return true;
+                    } else {
+                        return false;
+                    }
+                }
+            };
+        } else {
+            return Paged.super.spliterator();
+        }
+    }
+
+    private int initialCapacity() {
+        // don't trust a large count with a large allocation
+        return (int) Math.max(list.size(), Math.min(count.orElse(0L), MAX_INITIAL_CAPACITY));
+    }
+
     /**
 	 * Returns the next delta (if exists) as given by the last page of the
 	 * current collection which may have a deltaLink attribute. If the last page
@@ -135,17 +217,23 @@ public final class CollectionPage<T> implements Paged<T, CollectionPage<T>> {
 
     Optional<CollectionPage<T>> nextPage(Optional<String> link) {
         if (link.isPresent()) {
+            // stop paging once the deadline has passed
+            options.deadline().ifPresent(Deadline::checkNotExpired);
             // TODO handle relative nextLink?
-            HttpResponse response = contextPath.context().service().get(link.get(),
-                    requestHeaders, options);
-            // odata 4 says the "value" element of the returned json is an array of
-            // serialized T see example at
-            // https://www.odata.org/getting-started/basic-tutorial/#entitySet
-            RequestHelper.checkResponseCodeOk(contextPath, response);
-            CollectionPage<T> page = contextPath.context().serializer().deserializeCollectionPage(
-			        response.getText(), cls, contextPath, requestHeaders, options, listener);
-            listener.accept(page);
-			return Optional.of(page);
+            // the page is parsed as it arrives
+            try (HttpStreamingResponse response = contextPath.context().service()
+                    .getStreaming(link.get(), requestHeaders, options)) {
+                // odata 4 says the "value" element of the returned json is an array of
+                // serialized T see example at
+                // https://www.odata.org/getting-started/basic-tutorial/#entitySet
+                RequestHelper.checkResponseCodeOk(contextPath.toUrl(), response);
+                CollectionPage<T> page = contextPath.context().serializer().deserializeCollectionPage(
+                        response.getBody(), cls, contextPath, requestHeaders, options, listener);
+                listener.accept(page);
+                return Optional.of(page);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         } else {
             return Optional.empty();
         }
@@ -159,9 +247,35 @@ public final class CollectionPage<T> implements Paged<T, CollectionPage<T>> {
      * @return a stream of the paged objects (wrapped) followed by a deltaLink.
      */
     public Stream<ObjectOrDeltaLink<T>> streamWithDeltaLink() {
+        return streamWithDeltaLink(this, CollectionPage::nextPage);
+    }
+
+    /**
+     * As {@link #streamWithDeltaLink()} but up to {@code pages} pages are fetched
+     * on {@code executor} ahead of the page being consumed. Close the stream to
+     * stop fetching pages if it is not consumed to the end.
+     * 
+     * @param pages    maximum number of pages fetched ahead of the consumer
+     * @param executor runs the page requests
+     * @return a stream of the paged objects (wrapped) followed by a deltaLink.
+     */
+    public Stream<ObjectOrDeltaLink<T>> streamWithDeltaLink(int pages, Executor executor) {
+        PagePrefetcher<T, CollectionPage<T>> prefetcher = new PagePrefetcher<>(this, pages,
+                executor);
+        // skip this page
+        prefetcher.next();
+        return streamWithDeltaLink(this,
+                p -> prefetcher.hasNext()
+                        ? Optional.of((CollectionPage<T>) prefetcher.next())
+                        : Optional.empty()) //
+                .onClose(prefetcher::close);
+    }
+
+    private static <T> Stream<ObjectOrDeltaLink<T>> streamWithDeltaLink(CollectionPage<T> first,
+            Function<CollectionPage<T>, Optional<CollectionPage<T>>> nextPage) {
         Iterator<ObjectOrDeltaLink<T>> it = new Iterator<ObjectOrDeltaLink<T>>() {
 
-            CollectionPage<T> page = CollectionPage.this;
+            CollectionPage<T> page = first;
             Optional<String> deltaLink = page.deltaLink();
             
             int i = 0;
@@ -194,7 +308,7 @@ public final class CollectionPage<T> implements Paged<T, CollectionPage<T>> {
                 if (page != null) {
                     while (true) {
                         if (page != null && i == page.currentPage().size()) {
-                            page = page.nextPage().orElse(null);
+                            page = nextPage.apply(page).orElse(null);
                             if (page != null) {
                                 deltaLink = page.deltaLink();
                             }
@@ -2,12 +2,16 @@ package com.github.davidmoten.odata.client;
 
 import static com.github.davidmoten.odata.client.internal.Util.odataTypeName;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -49,17 +53,33 @@ public class CollectionPageEntityRequest<T extends ODataEntityType, R extends En
             // perform service request
             ContextPath cp = contextPath.addQueries(options.getQueries());
             List<RequestHeader> h = RequestHelper.cleanAndSupplementRequestHeaders(options, "minimal", false);
-            HttpResponse r = cp.context().service().get(options.getUrlOverride().orElse(cp.toUrl()), h, options);
-            RequestHelper.checkResponseCodeOk(cp, r);
-            return cp.context().serializer().deserializeCollectionPage(r.getText(), cls, cp, h, options,
-                    null);
+            String url = options.getUrlOverride().orElse(cp.toUrl());
+            // the page is parsed as it arrives
+            try (HttpStreamingResponse r = cp.context().service().getStreaming(url, h, options)) {
+                RequestHelper.checkResponseCodeOk(cp.toUrl(), r);
+                return cp.context().serializer().deserializeCollectionPage(r.getBody(), cls, cp, h,
+                        options, null);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    long getCount(CollectionRequestOptions options) {
+        if (value.isPresent()) {
+            return get(options).currentPage().size();
         }
+        return RequestHelper.getCount(contextPath, options);
     }
 
     T post(CollectionRequestOptions options, T entity) {
         return RequestHelper.post(entity, contextPath, cls, options);
     }
 
+    CompletableFuture<T> postAsync(CollectionRequestOptions options, T entity) {
+        return RequestHelper.postAsync(entity, contextPath, cls, options);
+    }
+
     public R id(String id) {
         return entityRequestFactory.create(contextPath.addKeys(new NameValue(id)));
     }
@@ -80,7 +100,55 @@ public class CollectionPageEntityRequest<T extends ODataEntityType, R extends En
     public Stream<ObjectOrDeltaLink<T>> streamWithDeltaLink() {
         return get().streamWithDeltaLink();
     }
+
+    /**
+     * Returns a stream of the items where up to {@code pages} pages are fetched on
+     * {@code executor} ahead of the page being consumed. See
+     * {@link Paged#streamPrefetching(int, Executor)}.
+     * 
+     * @param pages    maximum number of pages fetched ahead of the consumer
+     * @param executor runs the page requests
+     * @return stream of items
+     */
+    public Stream<T> streamPrefetching(int pages, Executor executor) {
+        return get().streamPrefetching(pages, executor);
+    }
+
+    public Stream<ObjectOrDeltaLink<T>> streamWithDeltaLink(int pages, Executor executor) {
+        return get().streamWithDeltaLink(pages, executor);
+    }
     
+    /**
+     * Returns the number of entities in the collection using the {@code /$count}
+     * segment (no entities are read).
+     * 
+     * @return number of entities in the collection
+     */
+    public long getCount() {
+        return new CollectionEntityRequestOptionsBuilder<T, R>(this).getCount();
+    }
+
+    public CollectionEntityRequestOptionsBuilder<T, R> includeCount() {
+        return new CollectionEntityRequestOptionsBuilder<T, R>(this).includeCount();
+    }
+
+    public PartitionedScan<T> partitionByFilter(List<String> clauses) {
+        return new CollectionEntityRequestOptionsBuilder<T, R>(this).partitionByFilter(clauses);
+    }
+
+    public PartitionedScan<T> partitionByFilter(String... clauses) {
+        return new CollectionEntityRequestOptionsBuilder<T, R>(this).partitionByFilter(clauses);
+    }
+
+    public PartitionedScan<T> partitionBySkip(long count, long windowSize) {
+        return new CollectionEntityRequestOptionsBuilder<T, R>(this).partitionBySkip(count,
+                windowSize);
+    }
+
+    public PartitionedScan<T> partitionBySkip(long windowSize) {
+        return new CollectionEntityRequestOptionsBuilder<T, R>(this).partitionBySkip(windowSize);
+    }
+
     public <S> S to(Function<? super CollectionPage<T>,? extends S> function) {
     	return function.apply(get());
     }
@@ -92,6 +160,10 @@ public class CollectionPageEntityRequest<T extends ODataEntityType, R extends En
     public T post(T entity) {
         return new CollectionEntityRequestOptionsBuilder<T, R>(this).post(entity);
     }
+
+    public CompletableFuture<T> postAsync(T entity) {
+        return new CollectionEntityRequestOptionsBuilder<T, R>(this).postAsync(entity);
+    }
     
     /**
      * Returns a request for only those members of the collection that are of the
@@ -179,6 +251,14 @@ public class CollectionPageEntityRequest<T extends ODataEntityType, R extends En
         return new CollectionEntityRequestOptionsBuilder<T, R>(this).readTimeout(duration, unit);
     }
     
+    public CollectionEntityRequestOptionsBuilder<T, R> lazy() {
+        return new CollectionEntityRequestOptionsBuilder<T, R>(this).lazy();
+    }
+
+    public CollectionEntityRequestOptionsBuilder<T, R> deadline(Deadline deadline) {
+        return new CollectionEntityRequestOptionsBuilder<T, R>(this).deadline(deadline);
+    }
+
     public CollectionEntityRequestOptionsBuilder<T, R> deltaTokenLatest() {
         return new CollectionEntityRequestOptionsBuilder<T, R>(this).deltaTokenLatest();
     }
@@ -2,11 +2,14 @@ package com.github.davidmoten.odata.client;
 
 import static com.github.davidmoten.odata.client.internal.Util.odataTypeNameFromAny;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -68,30 +71,57 @@ public class CollectionPageNonEntityRequest<T> implements Iterable<T> {
     
     CollectionPage<T> get(RequestOptions options) {
         ContextPath cp = contextPath.addQueries(options.getQueries());
-        final HttpResponse r;
         List<RequestHeader> h = RequestHelper.cleanAndSupplementRequestHeaders(options, "minimal",
                 method != HttpMethod.GET);
-        if (method == HttpMethod.GET) {
-            r = cp.context().service().get(cp.toUrl(), h, options);
-        } else {
-            r = cp.context().service().post(cp.toUrl(), h, content.get(), options);
+        HttpService service = cp.context().service();
+        // the page is parsed as it arrives
+        try (HttpStreamingResponse r = method == HttpMethod.GET
+                ? service.getStreaming(cp.toUrl(), h, options)
+                : service.submitStreaming(HttpMethod.POST, cp.toUrl(), h, content.get(), options)) {
+            RequestHelper.checkResponseCode(cp.toUrl(), r, expectedResponseCode,
+                    expectedResponseCode);
+            return cp //
+                    .context() //
+                    .serializer() //
+                    .deserializeCollectionPage( //
+                            r.getBody(), //
+                            cls, //
+                            cp, //
+                            h, //
+                            options, //
+                            null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        RequestHelper.checkResponseCode(cp, r, expectedResponseCode);
-        return cp //
-                .context() //
-                .serializer() //
-                .deserializeCollectionPage( //
-                        r.getText(), //
-                        cls, //
-                        cp, //
-                        h, //
-                        options, //
-                        null);
     }
     
+    // the result of an action can't be addressed with /$count
+    boolean countSegmentSupported() {
+        return method == HttpMethod.GET;
+    }
+
+    long getCount(CollectionRequestOptions options) {
+        return RequestHelper.getCount(contextPath, options);
+    }
+
     public CollectionPage<T> get() {
         return new CollectionNonEntityRequestOptionsBuilder<T>(this).get();
     }
+
+    /**
+     * Returns the number of members of the collection using the {@code /$count}
+     * segment (no members are read). If the collection is the result of an action
+     * then the count is requested with the first page.
+     * 
+     * @return number of members of the collection
+     */
+    public long getCount() {
+        return new CollectionNonEntityRequestOptionsBuilder<T>(this).getCount();
+    }
+
+    public CollectionNonEntityRequestOptionsBuilder<T> includeCount() {
+        return new CollectionNonEntityRequestOptionsBuilder<T>(this).includeCount();
+    }
     
     public void forEach(Consumer<? super T> consumer) {
         stream().forEach(consumer);
@@ -104,6 +134,23 @@ public class CollectionPageNonEntityRequest<T> implements Iterable<T> {
     public Stream<ObjectOrDeltaLink<T>> streamWithDeltaLink() {
         return get().streamWithDeltaLink();
     }
+
+    /**
+     * Returns a stream of the items where up to {@code pages} pages are fetched on
+     * {@code executor} ahead of the page being consumed. See
+     * {@link Paged#streamPrefetching(int, Executor)}.
+     * 
+     * @param pages    maximum number of pages fetched ahead of the consumer
+     * @param executor runs the page requests
+     * @return stream of items
+     */
+    public Stream<T> streamPrefetching(int pages, Executor executor) {
+        return get().streamPrefetching(pages, executor);
+    }
+
+    public Stream<ObjectOrDeltaLink<T>> streamWithDeltaLink(int pages, Executor executor) {
+        return get().streamWithDeltaLink(pages, executor);
+    }
     
     public <S> S to(Function<? super CollectionPage<T>,? extends S> function) {
     	return function.apply(get());
@@ -192,6 +239,10 @@ public class CollectionPageNonEntityRequest<T> implements Iterable<T> {
         return new CollectionNonEntityRequestOptionsBuilder<T>(this).urlOverride(urlOverride);
     }
 
+    public CollectionNonEntityRequestOptionsBuilder<T> deadline(Deadline deadline) {
+        return new CollectionNonEntityRequestOptionsBuilder<T>(this).deadline(deadline);
+    }
+
     public CollectionNonEntityRequestOptionsBuilder<T> deltaTokenLatest() {
         return new CollectionNonEntityRequestOptionsBuilder<T>(this).deltaTokenLatest();
     }
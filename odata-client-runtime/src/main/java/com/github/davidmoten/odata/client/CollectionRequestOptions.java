@@ -22,13 +22,15 @@ final class CollectionRequestOptions implements RequestOptions {
     private final Optional<Long> readTimeoutMs;
 	private final Optional<String> deltaToken;
 	private final Map<String, String> queries;
+    private final boolean lazy;
+    private final Optional<Deadline> deadline;
 
     CollectionRequestOptions(List<RequestHeader> requestHeaders, Optional<String> search,
             Optional<String> filter, Optional<String> orderBy, Optional<Long> skip,
             Optional<Long> top, Optional<String> select, Optional<String> expand, //
             Optional<String> urlOverride, Optional<Long> connectTimeoutMs, //
             Optional<Long> readTimeoutMs, Optional<String> deltaToken, //
-            Map<String, String> queries) {
+            Map<String, String> queries, boolean lazy, Optional<Deadline> deadline) {
     	Preconditions.checkNotNull(connectTimeoutMs);
     	Preconditions.checkNotNull(readTimeoutMs);
         this.requestHeaders = requestHeaders;
@@ -44,6 +46,8 @@ final class CollectionRequestOptions implements RequestOptions {
         this.readTimeoutMs = readTimeoutMs;
         this.deltaToken = deltaToken;
         this.queries = queries;
+        this.lazy = lazy;
+        this.deadline = deadline;
     }
 
     @Override
@@ -80,4 +84,14 @@ final class CollectionRequestOptions implements RequestOptions {
 	public Optional<Long> requestReadTimeoutMs() {
 		return readTimeoutMs;
 	}
+
+    @Override
+    public boolean lazy() {
+        return lazy;
+    }
+
+    @Override
+    public Optional<Deadline> deadline() {
+        return deadline;
+    }
 }
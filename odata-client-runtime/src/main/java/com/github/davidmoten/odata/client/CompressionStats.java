@@ -0,0 +1,61 @@
+package com.github.davidmoten.odata.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Byte counts of an {@link HttpService} using {@link HttpCompression}. Response
+ * bodies are counted as they are read (so a body that is not read to the end is
+ * only partially counted). Uncompressed responses count the same on the wire as
+ * decoded.
+ */
+public final class CompressionStats {
+
+    private final AtomicLong responseBytesOnWire = new AtomicLong();
+    private final AtomicLong responseBytesDecoded = new AtomicLong();
+    private final AtomicLong requestBytesUncompressed = new AtomicLong();
+    private final AtomicLong requestBytesOnWire = new AtomicLong();
+
+    CompressionStats() {
+        // created by HttpCompression
+    }
+
+    public long responseBytesOnWire() {
+        return responseBytesOnWire.get();
+    }
+
+    public long responseBytesDecoded() {
+        return responseBytesDecoded.get();
+    }
+
+    public long requestBytesUncompressed() {
+        return requestBytesUncompressed.get();
+    }
+
+    public long requestBytesOnWire() {
+        return requestBytesOnWire.get();
+    }
+
+    public void addResponseBytesOnWire(long n) {
+        responseBytesOnWire.addAndGet(n);
+    }
+
+    public void addResponseBytesDecoded(long n) {
+        responseBytesDecoded.addAndGet(n);
+    }
+
+    public void addRequestBytesUncompressed(long n) {
+        requestBytesUncompressed.addAndGet(n);
+    }
+
+    public void addRequestBytesOnWire(long n) {
+        requestBytesOnWire.addAndGet(n);
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionStats [responseBytesOnWire=" + responseBytesOnWire
+                + ", responseBytesDecoded=" + responseBytesDecoded + ", requestBytesUncompressed="
+                + requestBytesUncompressed + ", requestBytesOnWire=" + requestBytesOnWire + "]";
+    }
+
+}
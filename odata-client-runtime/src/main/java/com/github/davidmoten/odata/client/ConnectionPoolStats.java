@@ -0,0 +1,102 @@
+package com.github.davidmoten.odata.client;
+
+/**
+ * Snapshot of the connection pool of an {@link HttpService}. A non-zero
+ * {@code pending} count or a growing {@code totalWaitMs} means requests are
+ * waiting for a connection and the pool limits may be too low.
+ */
+public final class ConnectionPoolStats {
+
+    private final int leased;
+    private final int pending;
+    private final int available;
+    private final int max;
+    private final long leases;
+    private final long totalWaitMs;
+    private final long maxWaitMs;
+
+    public ConnectionPoolStats(int leased, int pending, int available, int max, long leases,
+            long totalWaitMs, long maxWaitMs) {
+        this.leased = leased;
+        this.pending = pending;
+        this.available = available;
+        this.max = max;
+        this.leases = leases;
+        this.totalWaitMs = totalWaitMs;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    /**
+     * Returns the number of connections in use.
+     *
+     * @return connections in use
+     */
+    public int leased() {
+        return leased;
+    }
+
+    /**
+     * Returns the number of requests waiting for a connection.
+     *
+     * @return requests waiting for a connection
+     */
+    public int pending() {
+        return pending;
+    }
+
+    /**
+     * Returns the number of idle connections that can be reused.
+     *
+     * @return idle connections
+     */
+    public int available() {
+        return available;
+    }
+
+    /**
+     * Returns the maximum number of connections in the pool.
+     *
+     * @return maximum total connections
+     */
+    public int max() {
+        return max;
+    }
+
+    /**
+     * Returns the number of connections leased from the pool since it was
+     * created.
+     *
+     * @return number of leases
+     */
+    public long leases() {
+        return leases;
+    }
+
+    /**
+     * Returns the total time spent waiting to lease a connection since the pool
+     * was created.
+     *
+     * @return total wait time in ms
+     */
+    public long totalWaitMs() {
+        return totalWaitMs;
+    }
+
+    /**
+     * Returns the longest time spent waiting to lease a connection since the pool
+     * was created.
+     *
+     * @return maximum wait time in ms
+     */
+    public long maxWaitMs() {
+        return maxWaitMs;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPoolStats [leased=" + leased + ", pending=" + pending + ", available="
+                + available + ", max=" + max + ", leases=" + leases + ", totalWaitMs="
+                + totalWaitMs + ", maxWaitMs=" + maxWaitMs + "]";
+    }
+
+}
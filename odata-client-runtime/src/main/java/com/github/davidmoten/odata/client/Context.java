@@ -5,11 +5,17 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.github.davidmoten.odata.client.internal.BlockingCallExecutors;
+import com.github.davidmoten.odata.client.internal.SchemaLookup;
+
 public final class Context {
 
     private final Serializer serializer;
     private final HttpService service;
 
+    // null until first requested if not supplied
+    private volatile AsyncHttpService asyncService;
+
     // used to specify options that override standard odata behaviour to deal with
     // service bugs etc. For example, MsGraph @odata.mediaEditLink is wrong for an
     // fileAttachment and needs special editing to get working until Microsoft fix
@@ -19,11 +25,39 @@ public final class Context {
     // used to look up subclasses when deserializing
     private final List<SchemaInfo> schemas;
 
+    // memoized class lookups by odata type across schemas
+    private final SchemaLookup schemaLookup;
+
     public Context(Serializer serializer, HttpService service, Map<String, Object> properties, List<SchemaInfo> schemas) {
+        this(serializer, service, null, properties, schemas);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param serializer   serializer
+     * @param service      blocking http service
+     * @param asyncService async http service used by the {@code ...Async} request
+     *                     methods, if null then {@code service.toAsync} is used
+     *                     with an executor owned by this context of at most
+     *                     {@link BlockingCallExecutors#DEFAULT_MAX_THREADS}
+     *                     daemon threads
+     * @param properties   properties
+     * @param schemas      schemas
+     */
+    public Context(Serializer serializer, HttpService service, AsyncHttpService asyncService,
+            Map<String, Object> properties, List<SchemaInfo> schemas) {
         this.serializer = serializer;
         this.service = service;
+        this.asyncService = asyncService;
         this.properties = new HashMap<>(properties);
         this.schemas = schemas;
+        this.schemaLookup = new SchemaLookup(schemas);
+        if (serializer != null && schemas != null) {
+            // generated serializers and deserializers if present (only registered the
+            // first time a schema is seen)
+            serializer.registerSchemas(schemas);
+        }
     }
 
     public Context(Serializer serializer, HttpService service, List<SchemaInfo> schemas) {
@@ -38,6 +72,22 @@ public final class Context {
         return service;
     }
 
+    public AsyncHttpService asyncService() {
+        AsyncHttpService a = asyncService;
+        if (a == null) {
+            synchronized (this) {
+                a = asyncService;
+                if (a == null) {
+                    // blocking calls must not tie up the common ForkJoinPool
+                    a = service.toAsync(BlockingCallExecutors.create("odata-client-async",
+                            BlockingCallExecutors.DEFAULT_MAX_THREADS));
+                    asyncService = a;
+                }
+            }
+        }
+        return a;
+    }
+
     public Object getProperty(String name) {
         return properties.get(name);
     }
@@ -58,4 +108,8 @@ public final class Context {
         return schemas;
     }
 
+    SchemaLookup schemaLookup() {
+        return schemaLookup;
+    }
+
 }
@@ -0,0 +1,203 @@
+package com.github.davidmoten.odata.client;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.github.davidmoten.guavamini.Preconditions;
+
+/**
+ * An overall time budget and cancellation token for one or more requests. The
+ * same deadline can be attached to a request, the pages fetched after it, the
+ * chunks of an upload and the attempts of a {@link Retries} loop. Once the
+ * deadline has passed (or {@link #cancel()} has been called) requests in
+ * progress are aborted at the socket and further requests fail fast with a
+ * {@link DeadlineExceededException}.
+ */
+public final class Deadline {
+
+    private static final ScheduledExecutorService TIMER = createTimer();
+
+    private final Optional<Long> expiryNanos;
+    private final AtomicReference<String> stopped = new AtomicReference<>();
+    private final Set<Runnable> abortActions = ConcurrentHashMap.newKeySet();
+    private final AtomicReference<ScheduledFuture<?>> timer = new AtomicReference<>();
+
+    private Deadline(Optional<Long> expiryNanos) {
+        this.expiryNanos = expiryNanos;
+    }
+
+    /**
+     * Returns a deadline that expires after the given duration from now.
+     *
+     * @param duration time budget
+     * @param unit     unit of duration
+     * @return deadline
+     */
+    public static Deadline after(long duration, TimeUnit unit) {
+        Preconditions.checkArgument(duration >= 0, "duration must be >= 0");
+        return new Deadline(Optional.of(System.nanoTime() + unit.toNanos(duration)));
+    }
+
+    /**
+     * Returns a token without a time limit that only stops requests when
+     * {@link #cancel()} is called.
+     *
+     * @return cancellation token
+     */
+    public static Deadline cancellable() {
+        return new Deadline(Optional.empty());
+    }
+
+    /**
+     * Aborts requests in progress and fails subsequent requests using this
+     * deadline.
+     */
+    public void cancel() {
+        stop("cancelled");
+    }
+
+    public boolean isCancelled() {
+        return "cancelled".equals(stopped.get());
+    }
+
+    /**
+     * Returns true if the deadline has passed or the token has been cancelled.
+     *
+     * @return true if requests should no longer be made
+     */
+    public boolean isExpired() {
+        if (stopped.get() != null) {
+            return true;
+        } else if (expiryNanos.isPresent() && System.nanoTime() - expiryNanos.get() >= 0) {
+            stop("deadline exceeded");
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the time left before the deadline in milliseconds (at least 1 while
+     * not expired so that it can be used as a timeout) or empty if there is no
+     * time limit.
+     *
+     * @return remaining time in ms
+     * @throws DeadlineExceededException if expired
+     */
+    public Optional<Long> remainingMs() {
+        checkNotExpired();
+        // round up so that waiting for the remaining time reaches the deadline
+        return expiryNanos.map(t -> Math.max(1,
+                TimeUnit.NANOSECONDS.toMillis(t - System.nanoTime() + 999_999)));
+    }
+
+    /**
+     * Returns the timeout to use for a request: the smaller of the request timeout
+     * and the time remaining.
+     *
+     * @param timeoutMs request timeout in ms
+     * @return timeout in ms
+     * @throws DeadlineExceededException if expired
+     */
+    public Optional<Long> limit(Optional<Long> timeoutMs) {
+        Optional<Long> remaining = remainingMs();
+        if (!remaining.isPresent()) {
+            return timeoutMs;
+        } else if (!timeoutMs.isPresent() || timeoutMs.get() <= 0) {
+            // 0 means no timeout
+            return remaining;
+        } else {
+            return Optional.of(Math.min(timeoutMs.get(), remaining.get()));
+        }
+    }
+
+    public void checkNotExpired() {
+        if (isExpired()) {
+            throw new DeadlineExceededException(stopped.get());
+        }
+    }
+
+    /**
+     * Runs {@code abort} when the deadline passes or the token is cancelled (or
+     * immediately if that has already happened) unless the returned registration
+     * is closed first. Used by {@link HttpService} implementations to abort a
+     * request in progress.
+     *
+     * @param abort action that aborts a request
+     * @return registration to close when the request completes
+     */
+    public Registration onExpiry(Runnable abort) {
+        abortActions.add(abort);
+        if (isExpired()) {
+            runAbort(abort);
+        } else {
+            startTimer();
+        }
+        return () -> abortActions.remove(abort);
+    }
+
+    /**
+     * Returns an exception describing why the deadline stopped a request (used
+     * to replace the IO error caused by aborting a request).
+     *
+     * @param cause error thrown by the aborted request
+     * @return exception to throw
+     */
+    public DeadlineExceededException exception(Throwable cause) {
+        String reason = stopped.get();
+        return new DeadlineExceededException(reason == null ? "deadline exceeded" : reason, cause);
+    }
+
+    private void startTimer() {
+        if (expiryNanos.isPresent() && timer.get() == null) {
+            ScheduledFuture<?> f = TIMER.schedule(this::isExpired,
+                    expiryNanos.get() - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (!timer.compareAndSet(null, f)) {
+                f.cancel(false);
+            }
+        }
+    }
+
+    private void stop(String reason) {
+        if (stopped.compareAndSet(null, reason)) {
+            ScheduledFuture<?> f = timer.get();
+            if (f != null) {
+                f.cancel(false);
+            }
+            abortActions.forEach(Deadline::runAbort);
+        }
+    }
+
+    private static ScheduledExecutorService createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "odata-client-deadline");
+            t.setDaemon(true);
+            return t;
+        });
+        // don't hold on to deadlines that were cancelled long before they expire
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    private static void runAbort(Runnable abort) {
+        try {
+            abort.run();
+        } catch (RuntimeException e) {
+            // aborting is best effort, the request will fail anyway
+        }
+    }
+
+    @FunctionalInterface
+    public interface Registration extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.github.davidmoten.odata.client;
+
+/**
+ * Thrown when a request is stopped because its {@link Deadline} passed or was
+ * cancelled.
+ */
+public final class DeadlineExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 4203650457411365382L;
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
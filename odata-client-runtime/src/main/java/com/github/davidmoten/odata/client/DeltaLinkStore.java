@@ -0,0 +1,45 @@
+package com.github.davidmoten.odata.client;
+
+import java.util.Optional;
+
+import com.github.davidmoten.odata.client.internal.FileDeltaLinkStore;
+
+/**
+ * Holds the deltaLink checkpoint of a {@link DeltaSync} between rounds and
+ * across restarts.
+ */
+public interface DeltaLinkStore {
+
+    /**
+     * Returns the last saved deltaLink or empty if there is none (in which case a
+     * full sync is made).
+     *
+     * @return last saved deltaLink
+     */
+    Optional<String> load();
+
+    /**
+     * Replaces the saved deltaLink. Implementations should make the replacement
+     * atomic so that a crash leaves either the old or the new value.
+     *
+     * @param deltaLink deltaLink to save
+     */
+    void save(String deltaLink);
+
+    /**
+     * Removes the saved deltaLink.
+     */
+    void clear();
+
+    /**
+     * Returns a store that keeps the deltaLink in {@code file}. A save writes a
+     * temporary file in the same directory and then moves it over {@code file}.
+     *
+     * @param file file holding the deltaLink
+     * @return file-backed store
+     */
+    static DeltaLinkStore file(java.nio.file.Path file) {
+        return new FileDeltaLinkStore(file);
+    }
+
+}
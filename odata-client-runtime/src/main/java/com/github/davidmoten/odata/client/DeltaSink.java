@@ -0,0 +1,37 @@
+package com.github.davidmoten.odata.client;
+
+/**
+ * Receives the changes read by a {@link DeltaSync}. A round that fails part
+ * way is read again from the last saved deltaLink so the same change may be
+ * received more than once; implementations should be idempotent.
+ *
+ * @param <T> item type
+ */
+public interface DeltaSink<T> {
+
+    /**
+     * Called for an item that was added or changed.
+     *
+     * @param item the item (for some services only the changed properties are
+     *             present)
+     */
+    void upsert(T item);
+
+    /**
+     * Called for an item marked with {@code @removed}. Usually only the key of
+     * the item is present.
+     *
+     * @param item the removed item
+     */
+    void delete(T item);
+
+    /**
+     * Called before a full sync (the first sync or a resync after the service
+     * rejected the deltaLink) after which the sink receives every item again.
+     * Does nothing by default.
+     */
+    default void reset() {
+        // do nothing
+    }
+
+}
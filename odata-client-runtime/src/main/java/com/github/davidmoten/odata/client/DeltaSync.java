@@ -0,0 +1,348 @@
+package com.github.davidmoten.odata.client;
+
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.davidmoten.guavamini.Preconditions;
+
+/**
+ * Keeps a {@link DeltaSink} up to date with a delta-capable collection (like
+ * {@code client.users().delta()}). Each round reads the changes since the
+ * deltaLink saved in a {@link DeltaLinkStore}, passes them to the sink and
+ * then saves the deltaLink of the last page, so a crash or a failed round is
+ * followed by reading the same changes again rather than losing them. If there
+ * is no saved deltaLink or the service rejects it with 410 Gone then the sink
+ * is reset and the whole collection is read again.
+ *
+ * <p>
+ * When polling, the interval is halved after a round with changes (down to the
+ * minimum) and doubled after a round without changes or a failed round (up to
+ * the maximum). A round that had to follow a nextLink goes straight to the
+ * minimum.
+ *
+ * @param <T> item type
+ */
+public final class DeltaSync<T> implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DeltaSync.class);
+
+    private static final int HTTP_GONE = 410;
+
+    private final Supplier<CollectionPage<T>> fullSync;
+    private final Function<String, CollectionPage<T>> fromDeltaLink;
+    private final DeltaLinkStore store;
+    private final DeltaSink<T> sink;
+    private final Predicate<? super T> isRemoved;
+    private final long minIntervalMs;
+    private final long maxIntervalMs;
+
+    // serializes rounds, held without the monitor of this so that close() and
+    // pollIntervalMs() don't wait for a round to finish
+    private final Object roundLock = new Object();
+
+    // guarded by this
+    private long intervalMs;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> next;
+    private boolean closed;
+
+    private DeltaSync(Builder<T> b) {
+        this.fullSync = b.fullSync;
+        this.fromDeltaLink = b.fromDeltaLink;
+        this.store = b.store;
+        this.sink = b.sink;
+        this.isRemoved = b.isRemoved;
+        this.minIntervalMs = b.minIntervalMs;
+        this.maxIntervalMs = b.maxIntervalMs;
+        this.intervalMs = b.minIntervalMs;
+    }
+
+    /**
+     * Starts building a sync of the given delta request. The request is used as
+     * is for a full sync and with {@code urlOverride} to read from a deltaLink.
+     *
+     * @param <T>     item type
+     * @param request delta request (for example {@code client.users().delta()})
+     * @return builder
+     */
+    public static <T extends ODataEntityType> Builder<T> from(
+            CollectionPageEntityRequest<T, ?> request) {
+        Preconditions.checkNotNull(request);
+        return from(request::get, link -> request.urlOverride(link).get());
+    }
+
+    /**
+     * Starts building a sync.
+     *
+     * @param <T>           item type
+     * @param fullSync      returns the first page of a delta query without a
+     *                      deltaLink (reads the whole collection)
+     * @param fromDeltaLink returns the first page of changes from a deltaLink
+     * @return builder
+     */
+    public static <T> Builder<T> from(Supplier<CollectionPage<T>> fullSync,
+            Function<String, CollectionPage<T>> fromDeltaLink) {
+        Preconditions.checkNotNull(fullSync);
+        Preconditions.checkNotNull(fromDeltaLink);
+        return new Builder<T>(fullSync, fromDeltaLink);
+    }
+
+    /**
+     * Reads and applies the changes since the saved deltaLink (or the whole
+     * collection if there is none) and saves the new deltaLink. Calls are
+     * serialized with the rounds run by {@link #start(ScheduledExecutorService)}.
+     *
+     * @return the number of items passed to the sink
+     */
+    public int syncOnce() {
+        synchronized (roundLock) {
+            return round().changes;
+        }
+    }
+
+    /**
+     * Runs a round now and then keeps polling on {@code scheduler} until
+     * {@link #close()} is called. A failed round is logged and retried at the
+     * next poll.
+     *
+     * @param scheduler runs the rounds
+     * @return this
+     */
+    public synchronized DeltaSync<T> start(ScheduledExecutorService scheduler) {
+        Preconditions.checkNotNull(scheduler);
+        Preconditions.checkArgument(this.scheduler == null, "already started");
+        Preconditions.checkArgument(!closed, "closed");
+        this.scheduler = scheduler;
+        schedule(0);
+        return this;
+    }
+
+    /**
+     * Returns the delay before the next poll in milliseconds.
+     *
+     * @return current poll interval in ms
+     */
+    public synchronized long pollIntervalMs() {
+        return intervalMs;
+    }
+
+    /**
+     * Stops polling. A round in progress is completed.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (next != null) {
+            next.cancel(false);
+        }
+    }
+
+    private void schedule(long delayMs) {
+        try {
+            next = scheduler.schedule(this::poll, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.warn("delta sync stopped because the scheduler rejected the next poll", e);
+            closed = true;
+        }
+    }
+
+    private void poll() {
+        synchronized (roundLock) {
+            if (isClosed()) {
+                return;
+            }
+            int changes;
+            int pages;
+            try {
+                Round r = round();
+                changes = r.changes;
+                pages = r.pages;
+            } catch (RuntimeException e) {
+                log.warn("delta sync round failed: " + e.getMessage(), e);
+                changes = 0;
+                pages = 1;
+            }
+            synchronized (this) {
+                intervalMs = nextIntervalMs(intervalMs, changes, pages, minIntervalMs,
+                        maxIntervalMs);
+                if (!closed) {
+                    schedule(intervalMs);
+                }
+            }
+        }
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    static long nextIntervalMs(long intervalMs, int changes, int pages, long minIntervalMs,
+            long maxIntervalMs) {
+        if (pages > 1) {
+            // busy enough to page so there is probably more to come
+            return minIntervalMs;
+        } else if (changes > 0) {
+            return Math.max(minIntervalMs, intervalMs / 2);
+        } else {
+            return Math.min(maxIntervalMs, intervalMs * 2);
+        }
+    }
+
+    private Round round() {
+        Optional<String> deltaLink = store.load();
+        if (!deltaLink.isPresent()) {
+            return full();
+        }
+        try {
+            return apply(fromDeltaLink.apply(deltaLink.get()));
+        } catch (ClientException e) {
+            if (e.getStatusCode().equals(Optional.of(HTTP_GONE))) {
+                log.info("deltaLink no longer valid, starting full sync");
+                store.clear();
+                return full();
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    private Round full() {
+        sink.reset();
+        return apply(fullSync.get());
+    }
+
+    private Round apply(CollectionPage<T> first) {
+        int changes = 0;
+        int pages = 0;
+        CollectionPage<T> page = first;
+        while (true) {
+            pages++;
+            for (T item : page.currentPage()) {
+                if (isRemoved.test(item)) {
+                    sink.delete(item);
+                } else {
+                    sink.upsert(item);
+                }
+                changes++;
+            }
+            Optional<CollectionPage<T>> p = page.nextPage();
+            if (!p.isPresent()) {
+                break;
+            }
+            page = p.get();
+        }
+        // only save the checkpoint once every change has reached the sink
+        String deltaLink = page.deltaLink().orElseThrow(
+                () -> new ClientException("last page of delta has no @odata.deltaLink"));
+        store.save(deltaLink);
+        return new Round(changes, pages);
+    }
+
+    private static boolean hasRemovedAnnotation(Object item) {
+        if (item instanceof ODataType) {
+            UnmappedFields f = ((ODataType) item).getUnmappedFields();
+            return f != null && (f.containsKey("@removed") || f.containsKey("@odata.removed"));
+        } else {
+            return false;
+        }
+    }
+
+    private static final class Round {
+        final int changes;
+        final int pages;
+
+        Round(int changes, int pages) {
+            this.changes = changes;
+            this.pages = pages;
+        }
+    }
+
+    public static final class Builder<T> {
+
+        private final Supplier<CollectionPage<T>> fullSync;
+        private final Function<String, CollectionPage<T>> fromDeltaLink;
+        private DeltaLinkStore store;
+        private DeltaSink<T> sink;
+        private Predicate<? super T> isRemoved = DeltaSync::hasRemovedAnnotation;
+        private long minIntervalMs = TimeUnit.SECONDS.toMillis(10);
+        private long maxIntervalMs = TimeUnit.MINUTES.toMillis(10);
+
+        Builder(Supplier<CollectionPage<T>> fullSync,
+                Function<String, CollectionPage<T>> fromDeltaLink) {
+            this.fullSync = fullSync;
+            this.fromDeltaLink = fromDeltaLink;
+        }
+
+        /**
+         * Sets where the deltaLink is kept between rounds (for example
+         * {@link DeltaLinkStore#file(java.nio.file.Path)}). Mandatory.
+         *
+         * @param store deltaLink store
+         * @return this
+         */
+        public Builder<T> store(DeltaLinkStore store) {
+            Preconditions.checkNotNull(store);
+            this.store = store;
+            return this;
+        }
+
+        /**
+         * Sets the receiver of the changes. Mandatory.
+         *
+         * @param sink receives the changes
+         * @return this
+         */
+        public Builder<T> sink(DeltaSink<T> sink) {
+            Preconditions.checkNotNull(sink);
+            this.sink = sink;
+            return this;
+        }
+
+        /**
+         * Sets the test for a removed item. Defaults to the presence of an
+         * {@code @removed} (or {@code @odata.removed}) annotation in the unmapped
+         * fields of the item.
+         *
+         * @param isRemoved returns true if the item has been removed
+         * @return this
+         */
+        public Builder<T> isRemoved(Predicate<? super T> isRemoved) {
+            Preconditions.checkNotNull(isRemoved);
+            this.isRemoved = isRemoved;
+            return this;
+        }
+
+        /**
+         * Sets the bounds of the poll interval. Defaults to 10 seconds and 10
+         * minutes.
+         *
+         * @param min  shortest interval (used after busy rounds)
+         * @param max  longest interval (approached while nothing changes)
+         * @param unit unit of {@code min} and {@code max}
+         * @return this
+         */
+        public Builder<T> pollInterval(long min, long max, TimeUnit unit) {
+            Preconditions.checkArgument(min > 0, "min must be > 0");
+            Preconditions.checkArgument(max >= min, "max must be >= min");
+            this.minIntervalMs = unit.toMillis(min);
+            this.maxIntervalMs = unit.toMillis(max);
+            return this;
+        }
+
+        public DeltaSync<T> build() {
+            Preconditions.checkNotNull(store, "store must be set");
+            Preconditions.checkNotNull(sink, "sink must be set");
+            return new DeltaSync<T>(this);
+        }
+    }
+
+}
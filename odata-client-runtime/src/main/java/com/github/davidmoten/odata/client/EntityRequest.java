@@ -1,6 +1,7 @@
 package com.github.davidmoten.odata.client;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import com.github.davidmoten.odata.client.internal.RequestHelper;
 
@@ -39,6 +40,26 @@ public abstract class EntityRequest<T extends ODataEntityType> {
         return RequestHelper.put(entity, contextPath, options);
     }
 
+    CompletableFuture<T> getAsync(EntityRequestOptions<T> options) {
+        if (value.isPresent()) {
+            return CompletableFuture.completedFuture(get(options));
+        } else {
+            return RequestHelper.getAsync(contextPath, cls, options);
+        }
+    }
+
+    CompletableFuture<Void> deleteAsync(EntityRequestOptions<T> options) {
+        return RequestHelper.deleteAsync(contextPath, options);
+    }
+
+    CompletableFuture<T> patchAsync(EntityRequestOptions<T> options, T entity) {
+        return RequestHelper.patchAsync(entity, contextPath, options);
+    }
+
+    CompletableFuture<T> putAsync(EntityRequestOptions<T> options, T entity) {
+        return RequestHelper.putAsync(entity, contextPath, options);
+    }
+
     public T get() {
         return builder().get();
     }
@@ -55,6 +76,22 @@ public abstract class EntityRequest<T extends ODataEntityType> {
         return builder().put(entity);
     }
 
+    public CompletableFuture<T> getAsync() {
+        return builder().getAsync();
+    }
+
+    public CompletableFuture<Void> deleteAsync() {
+        return builder().deleteAsync();
+    }
+
+    public CompletableFuture<T> patchAsync(T entity) {
+        return builder().patchAsync(entity);
+    }
+
+    public CompletableFuture<T> putAsync(T entity) {
+        return builder().putAsync(entity);
+    }
+
     public EntityRequestOptionsBuilder<T> requestHeader(String key, String value) {
         return builder().requestHeader(key, value);
     }
@@ -71,6 +108,14 @@ public abstract class EntityRequest<T extends ODataEntityType> {
         return builder().expand(clause);
     }
 
+    public EntityRequestOptionsBuilder<T> lazy() {
+        return builder().lazy();
+    }
+
+    public EntityRequestOptionsBuilder<T> deadline(Deadline deadline) {
+        return builder().deadline(deadline);
+    }
+
     public EntityRequestOptionsBuilder<T> metadataFull() {
         return builder().metadataFull();
     }
@@ -14,10 +14,27 @@ public final class EntityRequestOptions<T extends ODataEntityType> implements Re
     private final boolean useCaches;
 	private final Optional<Long> connectTimeoutMs;
 	private final Optional<Long> readTimeoutMs;
+    private final boolean lazy;
+    private final Optional<Deadline> deadline;
 
     public EntityRequestOptions(List<RequestHeader> requestHeaders, Optional<String> select,
             Optional<String> expand, boolean useCaches, Optional<Long> connectTimeoutMs, //
             Optional<Long> readTimeoutMs, Map<String, String> queries) {
+        this(requestHeaders, select, expand, useCaches, connectTimeoutMs, readTimeoutMs, queries,
+                false);
+    }
+
+    public EntityRequestOptions(List<RequestHeader> requestHeaders, Optional<String> select,
+            Optional<String> expand, boolean useCaches, Optional<Long> connectTimeoutMs, //
+            Optional<Long> readTimeoutMs, Map<String, String> queries, boolean lazy) {
+        this(requestHeaders, select, expand, useCaches, connectTimeoutMs, readTimeoutMs, queries,
+                lazy, Optional.empty());
+    }
+
+    public EntityRequestOptions(List<RequestHeader> requestHeaders, Optional<String> select,
+            Optional<String> expand, boolean useCaches, Optional<Long> connectTimeoutMs, //
+            Optional<Long> readTimeoutMs, Map<String, String> queries, boolean lazy,
+            Optional<Deadline> deadline) {
         this.requestHeaders = requestHeaders;
         this.select = select;
         this.expand = expand;
@@ -25,6 +42,8 @@ public final class EntityRequestOptions<T extends ODataEntityType> implements Re
         this.connectTimeoutMs = connectTimeoutMs;
         this.readTimeoutMs = readTimeoutMs;
         this.queries = queries;
+        this.lazy = lazy;
+        this.deadline = deadline;
     }
 
     public Optional<String> getSelect() {
@@ -69,4 +88,14 @@ public final class EntityRequestOptions<T extends ODataEntityType> implements Re
 		return readTimeoutMs;
 	}
 
+    @Override
+    public boolean lazy() {
+        return lazy;
+    }
+
+    @Override
+    public Optional<Deadline> deadline() {
+        return deadline;
+    }
+
 }
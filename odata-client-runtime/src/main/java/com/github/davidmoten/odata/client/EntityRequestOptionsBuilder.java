@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import com.github.davidmoten.guavamini.Preconditions;
@@ -21,6 +22,8 @@ public final class EntityRequestOptionsBuilder<T extends ODataEntityType> {
     private String metadata = null; // set this later if not present
     private Optional<Long> connectTimeoutMs = Optional.empty();
     private Optional<Long> readTimeoutMs = Optional.empty();
+    private boolean lazy = false;
+    private Optional<Deadline> deadline = Optional.empty();
 
     EntityRequestOptionsBuilder(EntityRequest<T> request, boolean isMediaEntityOrHasStreamProperty) {
         this.request = request;
@@ -88,6 +91,29 @@ public final class EntityRequestOptionsBuilder<T extends ODataEntityType> {
         return this;
     }
     
+    /**
+     * The returned entity only decodes object and array valued properties (nested
+     * complex types, collections) when they are first accessed.
+     * 
+     * @return this
+     */
+    public EntityRequestOptionsBuilder<T> lazy() {
+        this.lazy = true;
+        return this;
+    }
+
+    /**
+     * Sets the overall time budget (and cancellation token) for the request.
+     * 
+     * @param deadline deadline for the request
+     * @return this
+     */
+    public EntityRequestOptionsBuilder<T> deadline(Deadline deadline) {
+        Preconditions.checkNotNull(deadline);
+        this.deadline = Optional.of(deadline);
+        return this;
+    }
+
     public T get() {
         updateMetadataForReturningObject();
         return request.get(build());
@@ -106,6 +132,31 @@ public final class EntityRequestOptionsBuilder<T extends ODataEntityType> {
     public void delete() {
         request.delete(build());
     }
+
+    /**
+     * Returns the entity without blocking the calling thread. Requests are made
+     * with {@link Context#asyncService()}.
+     * 
+     * @return future of the entity
+     */
+    public CompletableFuture<T> getAsync() {
+        updateMetadataForReturningObject();
+        return request.getAsync(build());
+    }
+
+    public CompletableFuture<T> patchAsync(T entity) {
+        updateMetadataForReturningObject();
+        return request.patchAsync(build(), entity);
+    }
+
+    public CompletableFuture<T> putAsync(T entity) {
+        updateMetadataForReturningObject();
+        return request.putAsync(build(), entity);
+    }
+
+    public CompletableFuture<Void> deleteAsync() {
+        return request.deleteAsync(build());
+    }
     
     private void updateMetadataForReturningObject() {
         if (metadata == null && isMediaEntityOrHasStreamProperty) {
@@ -121,7 +172,7 @@ public final class EntityRequestOptionsBuilder<T extends ODataEntityType> {
         }
         requestHeaders.add(RequestHeader.acceptJsonWithMetadata(metadata));
         return new EntityRequestOptions<T>(requestHeaders, select, expand, useCaches, //
-        		connectTimeoutMs, readTimeoutMs, queries);
+        		connectTimeoutMs, readTimeoutMs, queries, lazy, deadline);
     }
 
 }
@@ -0,0 +1,82 @@
+package com.github.davidmoten.odata.client;
+
+import com.github.davidmoten.guavamini.Preconditions;
+
+/**
+ * Compression settings for an {@link HttpService}. Response compression
+ * advertises {@code Accept-Encoding: gzip, deflate} and decodes the response as
+ * it is read. Request compression sends bodies at least a given size with
+ * {@code Content-Encoding: gzip}; if the server rejects that with 415
+ * (Unsupported Media Type) the request is resent uncompressed (when the body
+ * can be reread) and request compression is not used again by the service.
+ *
+ * <p>
+ * Byte counts for the service are available from {@link #stats()}.
+ */
+public final class HttpCompression {
+
+    private static final int NEVER = -1;
+
+    private final boolean responses;
+    private final int requestMinBytes;
+    private final CompressionStats stats;
+
+    private HttpCompression(boolean responses, int requestMinBytes, CompressionStats stats) {
+        this.responses = responses;
+        this.requestMinBytes = requestMinBytes;
+        this.stats = stats;
+    }
+
+    /**
+     * Returns settings with no compression.
+     *
+     * @return settings with no compression
+     */
+    public static HttpCompression none() {
+        return new HttpCompression(false, NEVER, new CompressionStats());
+    }
+
+    /**
+     * Returns settings that ask for compressed responses.
+     *
+     * @return settings with response compression
+     */
+    public static HttpCompression responses() {
+        return new HttpCompression(true, NEVER, new CompressionStats());
+    }
+
+    /**
+     * Returns a copy of these settings (sharing stats) that also gzips request
+     * bodies of at least {@code bytes}. The length of a repeatable body of unknown
+     * length (like a json entity) is found by buffering it if it is small, larger
+     * ones count as longer than the buffer (64KB).
+     *
+     * @param bytes minimum request body size to compress
+     * @return settings with request compression
+     */
+    public HttpCompression gzipRequestsLargerThan(int bytes) {
+        Preconditions.checkArgument(bytes >= 0, "bytes must be >= 0");
+        return new HttpCompression(responses, bytes, stats);
+    }
+
+    public boolean compressResponses() {
+        return responses;
+    }
+
+    /**
+     * Returns true if a request body of the given length should be gzipped.
+     *
+     * @param length body length (or a lower bound on it) or
+     *               {@link HttpService#LENGTH_UNKNOWN}
+     * @return true if the body should be gzipped
+     */
+    public boolean compressRequest(int length) {
+        return requestMinBytes != NEVER && length != HttpService.LENGTH_UNKNOWN
+                && length >= requestMinBytes;
+    }
+
+    public CompressionStats stats() {
+        return stats;
+    }
+
+}
@@ -21,10 +21,31 @@ public interface HttpRequestOptions {
 	 */
 	Optional<Long> requestReadTimeoutMs();
 
-	HttpRequestOptions EMPTY = new HttpRequestOptionsImpl(Optional.empty(), Optional.empty());
+	/**
+	 * If present returns the deadline (overall time budget and cancellation
+	 * token) for the request. Requests still in progress when the deadline passes
+	 * are aborted.
+	 * 
+	 * @return request deadline
+	 */
+	default Optional<Deadline> deadline() {
+		return Optional.empty();
+	}
+
+	HttpRequestOptions EMPTY = new HttpRequestOptionsImpl(Optional.empty(), Optional.empty(),
+			Optional.empty());
 
 	static HttpRequestOptions create(Optional<Long> connectTimeoutMs, Optional<Long> readTimeoutMs) {
-		return new HttpRequestOptionsImpl(connectTimeoutMs, readTimeoutMs);
+		return create(connectTimeoutMs, readTimeoutMs, Optional.empty());
+	}
+
+	static HttpRequestOptions create(Optional<Long> connectTimeoutMs, Optional<Long> readTimeoutMs,
+			Optional<Deadline> deadline) {
+		return new HttpRequestOptionsImpl(connectTimeoutMs, readTimeoutMs, deadline);
+	}
+
+	static HttpRequestOptions deadline(Deadline deadline) {
+		return create(Optional.empty(), Optional.empty(), Optional.of(deadline));
 	}
 
 	static Builder connectTimeout(long duration, TimeUnit unit) {
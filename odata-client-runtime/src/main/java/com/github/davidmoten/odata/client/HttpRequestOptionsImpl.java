@@ -6,10 +6,13 @@ final class HttpRequestOptionsImpl implements HttpRequestOptions {
 
 	private final Optional<Long> connectTimeoutMs;
 	private final Optional<Long> readTimeoutMs;
+	private final Optional<Deadline> deadline;
 
-	HttpRequestOptionsImpl(Optional<Long> connectTimeoutMs, Optional<Long> readTimeoutMs) {
+	HttpRequestOptionsImpl(Optional<Long> connectTimeoutMs, Optional<Long> readTimeoutMs,
+			Optional<Deadline> deadline) {
 		this.connectTimeoutMs = connectTimeoutMs;
 		this.readTimeoutMs = readTimeoutMs;
+		this.deadline = deadline;
 	}
 
 	@Override
@@ -22,4 +25,9 @@ final class HttpRequestOptionsImpl implements HttpRequestOptions {
 		return readTimeoutMs;
 	}
 
+	@Override
+	public Optional<Deadline> deadline() {
+		return deadline;
+	}
+
 }
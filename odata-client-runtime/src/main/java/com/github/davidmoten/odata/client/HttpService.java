@@ -10,10 +10,12 @@ import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 import com.github.davidmoten.odata.client.internal.DefaultHttpService;
+import com.github.davidmoten.odata.client.internal.RequestBodies;
 
 public interface HttpService extends AutoCloseable {
     
@@ -40,6 +42,29 @@ public interface HttpService extends AutoCloseable {
     }
 
     Path getBasePath();
+
+    /**
+     * Returns a snapshot of the connection pool of this service if the transport
+     * exposes one.
+     * 
+     * @return connection pool statistics
+     */
+    default Optional<ConnectionPoolStats> connectionPoolStats() {
+        return Optional.empty();
+    }
+
+    /**
+     * Returns an {@link AsyncHttpService} that uses the same transport as this
+     * service. The default implementation runs the blocking calls of this service
+     * on {@code executor}, implementations with a non-blocking client should
+     * override this (and may ignore {@code executor}).
+     * 
+     * @param executor runs blocking calls if the transport is not non-blocking
+     * @return async view of this service
+     */
+    default AsyncHttpService toAsync(Executor executor) {
+        return AsyncHttpService.fromBlocking(this, executor);
+    }
     
     
     default HttpResponse send(HttpMethod method, String url, List<RequestHeader> requestHeaders,
@@ -107,6 +132,86 @@ public interface HttpService extends AutoCloseable {
         }
     }
 
+    /**
+     * Submits a request with a body that writes itself to the connection. The
+     * default implementation writes the body to a byte array and calls
+     * {@link #submitWithContent(HttpMethod, String, List, InputStream, int, HttpRequestOptions)},
+     * implementations should override this to write the body straight to the
+     * connection.
+     * 
+     * @param method         http method (PATCH, PUT or POST)
+     * @param url            url
+     * @param requestHeaders request headers
+     * @param body           request body
+     * @param options        request options
+     * @return response
+     */
+    default HttpResponse submit(HttpMethod method, String url, List<RequestHeader> requestHeaders,
+            RequestBody body, HttpRequestOptions options) {
+        byte[] b = RequestBodies.toBytes(body);
+        return submitWithContent(method, url, requestHeaders, new ByteArrayInputStream(b),
+                b.length, options);
+    }
+
+    /**
+     * Submits the request and returns the response without reading its body so
+     * that the body can be parsed as it arrives. The caller must close the
+     * returned response. The default implementation buffers the response using
+     * the other methods of this interface.
+     * 
+     * @param method         http method
+     * @param url            url
+     * @param requestHeaders request headers
+     * @param content        request body, may be null if there is no body
+     * @param length         length of the request body or {@link #LENGTH_UNKNOWN}
+     * @param options        request options
+     * @return response with unread body
+     */
+    default HttpStreamingResponse submitStreaming(HttpMethod method, String url,
+            List<RequestHeader> requestHeaders, InputStream content, int length,
+            HttpRequestOptions options) {
+        final HttpResponse response;
+        if (method == HttpMethod.GET) {
+            response = get(url, requestHeaders, options);
+        } else if (method == HttpMethod.DELETE) {
+            response = delete(url, requestHeaders, options);
+        } else {
+            response = submitWithContent(method, url, requestHeaders, content, length, options);
+        }
+        return HttpStreamingResponse.from(response);
+    }
+
+    default HttpStreamingResponse getStreaming(String url, List<RequestHeader> requestHeaders,
+            HttpRequestOptions options) {
+        return submitStreaming(HttpMethod.GET, url, requestHeaders, null, LENGTH_UNKNOWN, options);
+    }
+
+    default HttpStreamingResponse submitStreaming(HttpMethod method, String url,
+            List<RequestHeader> requestHeaders, String content, HttpRequestOptions options) {
+        byte[] b = content.getBytes(StandardCharsets.UTF_8);
+        return submitStreaming(method, url, requestHeaders, new ByteArrayInputStream(b), b.length,
+                options);
+    }
+
+    /**
+     * As {@link #submitStreaming(HttpMethod, String, List, InputStream, int, HttpRequestOptions)}
+     * but with a body that writes itself to the connection. The default
+     * implementation writes the body to a byte array first.
+     * 
+     * @param method         http method
+     * @param url            url
+     * @param requestHeaders request headers
+     * @param body           request body
+     * @param options        request options
+     * @return response with unread body
+     */
+    default HttpStreamingResponse submitStreaming(HttpMethod method, String url,
+            List<RequestHeader> requestHeaders, RequestBody body, HttpRequestOptions options) {
+        byte[] b = RequestBodies.toBytes(body);
+        return submitStreaming(method, url, requestHeaders, new ByteArrayInputStream(b), b.length,
+                options);
+    }
+
     default HttpResponse get(String url, HttpRequestOptions options) {
         return get(url, Collections.emptyList(), options);
     }
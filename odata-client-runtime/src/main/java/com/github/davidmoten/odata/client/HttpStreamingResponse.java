@@ -0,0 +1,86 @@
+package com.github.davidmoten.odata.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+
+import com.github.davidmoten.guavamini.Preconditions;
+
+/**
+ * An HTTP response whose body is read from the connection as it arrives rather
+ * than buffered in full. Must be closed (which closes the body and releases the
+ * connection) once the body has been consumed.
+ */
+public final class HttpStreamingResponse implements Closeable {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int responseCode;
+    private final Map<String, List<String>> headers;
+    private final InputStream body;
+
+    public HttpStreamingResponse(int responseCode, Map<String, List<String>> headers,
+            InputStream body) {
+        Preconditions.checkNotNull(headers);
+        Preconditions.checkNotNull(body);
+        this.responseCode = responseCode;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    /**
+     * Returns a streaming view of an already buffered response.
+     *
+     * @param response buffered response
+     * @return streaming response reading from the buffered bytes
+     */
+    public static HttpStreamingResponse from(HttpResponse response) {
+        byte[] bytes = response.getBytes() == null ? EMPTY : response.getBytes();
+        return new HttpStreamingResponse(response.getResponseCode(), Collections.emptyMap(),
+                new ByteArrayInputStream(bytes));
+    }
+
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Returns the first value of the header with the given name (case-insensitive).
+     *
+     * @param name header name
+     * @return first value of the header if present
+     */
+    public Optional<String> getHeader(String name) {
+        for (Entry<String, List<String>> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey()) && !entry.getValue().isEmpty()) {
+                return Optional.of(entry.getValue().get(0));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the response body. Is empty (not null) if the response has no body.
+     *
+     * @return response body
+     */
+    public InputStream getBody() {
+        return body;
+    }
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+
+}
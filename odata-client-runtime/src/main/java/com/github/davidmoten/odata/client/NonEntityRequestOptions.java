@@ -13,16 +13,25 @@ public final class NonEntityRequestOptions<T> implements RequestOptions {
     private final boolean useCaches;
     private final Optional<Long> connectTimeoutMs;
     private final Optional<Long> readTimeoutMs;
+    private final Optional<Deadline> deadline;
 
     public NonEntityRequestOptions(List<RequestHeader> requestHeaders, Optional<String> select,
             Optional<String> expand, boolean useCaches, Optional<Long> connectTimeoutMs, //
             Optional<Long> readTimeoutMs) {
+        this(requestHeaders, select, expand, useCaches, connectTimeoutMs, readTimeoutMs,
+                Optional.empty());
+    }
+
+    public NonEntityRequestOptions(List<RequestHeader> requestHeaders, Optional<String> select,
+            Optional<String> expand, boolean useCaches, Optional<Long> connectTimeoutMs, //
+            Optional<Long> readTimeoutMs, Optional<Deadline> deadline) {
         this.requestHeaders = requestHeaders;
         this.select = select;
         this.expand = expand;
         this.useCaches = useCaches;
         this.connectTimeoutMs = connectTimeoutMs;
         this.readTimeoutMs = readTimeoutMs;
+        this.deadline = deadline;
     }
 
     public Optional<String> getSelect() {
@@ -66,4 +75,9 @@ public final class NonEntityRequestOptions<T> implements RequestOptions {
 		return readTimeoutMs;
 	}
 
+    @Override
+    public Optional<Deadline> deadline() {
+        return deadline;
+    }
+
 }
@@ -17,6 +17,7 @@ public final class NonEntityRequestOptionsBuilder<T> {
     private String metadata = "minimal";
     private Optional<Long> connectTimeoutMs = Optional.empty();
     private Optional<Long> readTimeoutMs = Optional.empty();
+    private Optional<Deadline> deadline = Optional.empty();
 
     NonEntityRequestOptionsBuilder(NonEntityRequest<T> request) {
         this.request = request;
@@ -78,13 +79,26 @@ public final class NonEntityRequestOptionsBuilder<T> {
     	return this;
     } 
 
+    /**
+     * Sets the overall time budget (and cancellation token) for the request.
+     * 
+     * @param deadline deadline for the request
+     * @return this
+     */
+    public NonEntityRequestOptionsBuilder<T> deadline(Deadline deadline) {
+        Preconditions.checkNotNull(deadline);
+        this.deadline = Optional.of(deadline);
+        return this;
+    }
+
     public T get() {
         return request.get(build());
     }
 
     private NonEntityRequestOptions<T> build() {
         requestHeaders.add(RequestHeader.acceptJsonWithMetadata(metadata));
-        return new NonEntityRequestOptions<T>(requestHeaders, select, expand, useCaches, connectTimeoutMs, readTimeoutMs);
+        return new NonEntityRequestOptions<T>(requestHeaders, select, expand, useCaches, connectTimeoutMs, readTimeoutMs,
+                deadline);
     }
 
 }
@@ -5,4 +5,13 @@ import com.github.davidmoten.odata.client.internal.ChangedFields;
 public interface ODataEntityType extends ODataType {
 
     ChangedFields getChangedFields();
+
+    /**
+     * If this entity was read lazily (see {@code lazy()} on the request builders)
+     * then decodes all properties that have not been accessed yet. Does nothing
+     * otherwise. Is called before the entity is copied or serialized.
+     */
+    default void materialize() {
+        // do nothing
+    }
 }
@@ -26,6 +26,15 @@ public final class ObjectOrDeltaLink<T> {
         this.deltaLink = deltaLink;
     }
 
+    public static <T> ObjectOrDeltaLink<T> ofObject(T object) {
+        Preconditions.checkNotNull(object);
+        return new ObjectOrDeltaLink<T>(Optional.of(object), Optional.empty());
+    }
+
+    public static <T> ObjectOrDeltaLink<T> ofDeltaLink(Optional<String> deltaLink) {
+        return new ObjectOrDeltaLink<T>(Optional.empty(), deltaLink);
+    }
+
     public Optional<T> object() {
         return object;
     }
@@ -7,10 +7,14 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import com.github.davidmoten.odata.client.internal.PagePrefetcher;
+
 public interface Paged<T, R extends Paged<T, R>> extends Iterable<T> {
 
     List<T> currentPage();
@@ -29,6 +33,25 @@ public interface Paged<T, R extends Paged<T, R>> extends Iterable<T> {
         return StreamSupport.stream(this.spliterator(), false);
     }
     
+    /**
+     * Returns a stream of the items of this and the following pages where up to
+     * {@code pages} pages are fetched on {@code executor} ahead of the page being
+     * consumed so that the round trip for the next page is off the critical path.
+     * An error fetching a page is thrown when the stream reaches that page. Close
+     * the stream (for example using try-with-resources) to stop fetching pages if
+     * it is not consumed to the end.
+     * 
+     * @param pages    maximum number of pages fetched ahead of the consumer
+     * @param executor runs the page requests (one at a time per stream)
+     * @return stream of items
+     */
+    default Stream<T> streamPrefetching(int pages, Executor executor) {
+        PagePrefetcher<T, R> prefetcher = new PagePrefetcher<>(this, pages, executor);
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(prefetcher.items(), 0), false)
+                .onClose(prefetcher::close);
+    }
+
     default <S> S to(Function<? super Paged<T, R>,? extends S> function) {
     	return function.apply(this);
     }
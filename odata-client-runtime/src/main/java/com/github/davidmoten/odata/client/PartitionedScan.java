@@ -0,0 +1,262 @@
+package com.github.davidmoten.odata.client;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.github.davidmoten.guavamini.Preconditions;
+
+/**
+ * Reads a collection as a number of independent partitions (for example
+ * disjoint {@code $filter} ranges or {@code $skip}/{@code $top} windows), each
+ * with its own {@code @odata.nextLink} chain, so that a full read is limited by
+ * the number of connections rather than by the latency of a single chain. At
+ * most {@link #concurrency(int)} partitions are read at the same time.
+ *
+ * <p>
+ * Items from different partitions are interleaved in no particular order. An
+ * error reading any partition stops the other partitions and is thrown to the
+ * caller.
+ *
+ * @param <T> item type
+ */
+public final class PartitionedScan<T> {
+
+    private static final List<Object> END = new ArrayList<>();
+
+    // the first page of each partition
+    private final List<Supplier<CollectionPage<T>>> partitions;
+    private int concurrency;
+
+    PartitionedScan(List<Supplier<CollectionPage<T>>> partitions) {
+        Preconditions.checkArgument(!partitions.isEmpty(), "at least one partition required");
+        this.partitions = partitions;
+        this.concurrency = partitions.size();
+    }
+
+    public int partitions() {
+        return partitions.size();
+    }
+
+    /**
+     * Sets the maximum number of partitions read at the same time. Defaults to
+     * the number of partitions.
+     *
+     * @param concurrency maximum number of partitions read at once
+     * @return this
+     */
+    public PartitionedScan<T> concurrency(int concurrency) {
+        Preconditions.checkArgument(concurrency > 0, "concurrency must be > 0");
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Returns the items of all partitions as one stream. Partitions are read on
+     * {@code executor} and at most two pages per reader are held that the stream
+     * has not yet reached. Close the stream (for example using
+     * try-with-resources) to stop reading if it is not consumed to the end.
+     *
+     * @param executor runs the partition reads
+     * @return merged stream of items
+     */
+    public Stream<T> stream(Executor executor) {
+        Preconditions.checkNotNull(executor);
+        int readers = readers();
+        BlockingQueue<List<T>> queue = new ArrayBlockingQueue<>(2 * readers);
+        AtomicInteger running = new AtomicInteger(readers);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Scan scan = new Scan(cancelled,
+                (partition, page) -> offer(queue, page.currentPage(), cancelled), () -> {
+                    // the last reader to finish marks the end of the stream
+                    if (running.decrementAndGet() == 0) {
+                        offer(queue, end(), cancelled);
+                    }
+                });
+        scan.start(executor, readers);
+        Iterator<T> it = new Iterator<T>() {
+
+            List<T> list;
+            int i;
+            boolean done;
+
+            @Override
+            public boolean hasNext() {
+                while (!done && (list == null || i == list.size())) {
+                    try {
+                        list = queue.poll(100, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        scan.cancel();
+                        Thread.currentThread().interrupt();
+                        throw new ClientException("interrupted", e);
+                    }
+                    // readers stop on error without marking the end
+                    scan.checkError();
+                    if (list == null) {
+                        if (cancelled.get()) {
+                            throw new ClientException("partitioned scan was cancelled");
+                        }
+                        continue;
+                    }
+                    i = 0;
+                    if (list == END) {
+                        done = true;
+                        scan.checkError();
+                    }
+                }
+                return !done;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T v = list.get(i);
+                i++;
+                return v;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(it, 0), false)
+                .onClose(scan::cancel);
+    }
+
+    /**
+     * Reads all partitions on {@code executor} and passes every item with the
+     * index of its partition to {@code consumer}. The consumer is called from the
+     * executor threads, concurrently for different partitions. Returns when all
+     * partitions have been read.
+     *
+     * @param executor runs the partition reads
+     * @param consumer receives each item and the index of its partition
+     */
+    public void forEach(Executor executor, ObjIntConsumer<? super T> consumer) {
+        Preconditions.checkNotNull(executor);
+        Preconditions.checkNotNull(consumer);
+        int readers = readers();
+        CountDownLatch finished = new CountDownLatch(readers);
+        Scan scan = new Scan(new AtomicBoolean(),
+                (partition, page) -> page.currentPage().forEach(x -> consumer.accept(x, partition)),
+                finished::countDown);
+        scan.start(executor, readers);
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            scan.cancel();
+            Thread.currentThread().interrupt();
+            throw new ClientException("interrupted", e);
+        }
+        scan.checkError();
+    }
+
+    private int readers() {
+        return Math.min(concurrency, partitions.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> end() {
+        return (List<T>) END;
+    }
+
+    // waits for space in the queue unless the stream has been closed
+    private static <T> void offer(BlockingQueue<List<T>> queue, List<T> list,
+            AtomicBoolean cancelled) {
+        try {
+            while (!cancelled.get()) {
+                if (queue.offer(list, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled.set(true);
+        }
+    }
+
+    @FunctionalInterface
+    private interface PageSink<T> {
+        void accept(int partition, CollectionPage<T> page);
+    }
+
+    private final class Scan {
+
+        private final PageSink<T> sink;
+        private final Runnable onReaderFinished;
+        private final AtomicInteger nextPartition = new AtomicInteger();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private final AtomicBoolean cancelled;
+
+        Scan(AtomicBoolean cancelled, PageSink<T> sink, Runnable onReaderFinished) {
+            this.cancelled = cancelled;
+            this.sink = sink;
+            this.onReaderFinished = onReaderFinished;
+        }
+
+        void start(Executor executor, int readers) {
+            for (int i = 0; i < readers; i++) {
+                try {
+                    executor.execute(this::read);
+                } catch (RejectedExecutionException e) {
+                    fail(e);
+                    onReaderFinished.run();
+                }
+            }
+        }
+
+        // each reader takes the next unread partition until none are left
+        private void read() {
+            try {
+                int i;
+                while (!cancelled.get()
+                        && (i = nextPartition.getAndIncrement()) < partitions.size()) {
+                    Optional<CollectionPage<T>> page = Optional.of(partitions.get(i).get());
+                    while (!cancelled.get() && page.isPresent()) {
+                        sink.accept(i, page.get());
+                        page = cancelled.get() ? Optional.empty() : page.get().nextPage();
+                    }
+                }
+            } catch (Throwable e) {
+                fail(e);
+            } finally {
+                onReaderFinished.run();
+            }
+        }
+
+        private void fail(Throwable e) {
+            error.compareAndSet(null, e);
+            cancelled.set(true);
+        }
+
+        void cancel() {
+            cancelled.set(true);
+        }
+
+        void checkError() {
+            Throwable e = error.get();
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            } else if (e instanceof Error) {
+                throw (Error) e;
+            } else if (e != null) {
+                throw new ClientException(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.github.davidmoten.odata.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.github.davidmoten.odata.client.internal.RequestBodies;
+
+/**
+ * The body of a request that writes itself to the connection so that the
+ * payload does not need to be copied into a String or byte array first.
+ */
+public interface RequestBody {
+
+    /**
+     * Writes the body to {@code out}. Must not close {@code out}.
+     * 
+     * @param out destination
+     * @throws IOException on write error
+     */
+    void writeTo(OutputStream out) throws IOException;
+
+    /**
+     * Returns the number of bytes that {@link #writeTo(OutputStream)} writes or
+     * {@link HttpService#LENGTH_UNKNOWN}.
+     * 
+     * @return length in bytes or {@link HttpService#LENGTH_UNKNOWN}
+     */
+    default int length() {
+        return HttpService.LENGTH_UNKNOWN;
+    }
+
+    /**
+     * Returns true if {@link #writeTo(OutputStream)} can be called more than once
+     * (for example to resend the request).
+     * 
+     * @return true if the body can be written more than once
+     */
+    default boolean isRepeatable() {
+        return true;
+    }
+
+    static RequestBody of(byte[] bytes) {
+        return RequestBodies.of(bytes);
+    }
+
+    /**
+     * Returns a body that copies {@code in}. It is repeatable if {@code in}
+     * supports mark and reset and is small (at most
+     * {@link RequestBodies#MAX_MARK_BYTES}) so that large uploads are not
+     * buffered.
+     * 
+     * @param in     content
+     * @param length number of bytes in {@code in} or
+     *               {@link HttpService#LENGTH_UNKNOWN}
+     * @return body
+     */
+    static RequestBody of(InputStream in, int length) {
+        return RequestBodies.of(in, length);
+    }
+
+    /**
+     * Returns a body that serializes {@code value} to json as it is written.
+     * 
+     * @param value object to serialize
+     * @return body
+     */
+    static RequestBody json(Object value) {
+        return out -> Serializer.INSTANCE.serialize(value, out);
+    }
+
+    /**
+     * Returns a body that serializes the changed fields of {@code entity} to json
+     * as it is written.
+     * 
+     * @param entity entity to serialize
+     * @return body
+     */
+    static RequestBody jsonChangesOnly(ODataEntityType entity) {
+        return out -> Serializer.INSTANCE.serializeChangesOnly(entity, out);
+    }
+
+}
@@ -7,6 +7,8 @@ public final class RequestHeader {
     public static final RequestHeader ODATA_VERSION = create("OData-Version", "4.0");
 
     public static final RequestHeader ACCEPT_JSON = create("Accept", "application/json");
+
+    public static final RequestHeader ACCEPT_TEXT_PLAIN = create("Accept", "text/plain");
     
     private final String name;
     private final String value;
@@ -12,6 +12,16 @@ public interface RequestOptions  extends HttpRequestOptions {
     Map<String, String> getQueries();
     
     Optional<String> getUrlOverride();
+
+    /**
+     * Returns true if returned entities should only decode object and array valued
+     * properties when they are first accessed.
+     * 
+     * @return true if entities should be read lazily
+     */
+    default boolean lazy() {
+        return false;
+    }
     
     RequestOptions EMPTY = new RequestOptions() {
 
@@ -43,6 +53,12 @@ public interface RequestOptions  extends HttpRequestOptions {
     };
     
     static RequestOptions create(Map<String, String> queries, List<RequestHeader> requestHeaders, Optional<Long> connectTimeoutMs, Optional<Long> readTimeoutMs) {
+        return create(queries, requestHeaders, connectTimeoutMs, readTimeoutMs, Optional.empty());
+    }
+
+    static RequestOptions create(Map<String, String> queries, List<RequestHeader> requestHeaders,
+            Optional<Long> connectTimeoutMs, Optional<Long> readTimeoutMs,
+            Optional<Deadline> deadline) {
         return new RequestOptions() {
 
             @Override
@@ -69,7 +85,12 @@ public interface RequestOptions  extends HttpRequestOptions {
 			public Optional<Long> requestReadTimeoutMs() {
 				return readTimeoutMs;
 			}
-            
+
+            @Override
+            public Optional<Deadline> deadline() {
+                return deadline;
+            }
+
         };
     }
     
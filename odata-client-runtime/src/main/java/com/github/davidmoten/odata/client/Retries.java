@@ -1,6 +1,7 @@
 package com.github.davidmoten.odata.client;
 
 import java.util.Iterator;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -31,6 +32,23 @@ public final class Retries {
     }
 
     public void performWithRetries(RunnableThrowing runnable) {
+        performWithRetries(Optional.empty(), runnable);
+    }
+
+    /**
+     * Runs {@code runnable} with retries until it succeeds, retries are exhausted
+     * or the deadline passes. Waits between attempts are cut short by the
+     * deadline and a {@link DeadlineExceededException} is not retried.
+     * 
+     * @param deadline overall deadline for all attempts
+     * @param runnable action to perform
+     */
+    public void performWithRetries(Deadline deadline, RunnableThrowing runnable) {
+        Preconditions.checkNotNull(deadline);
+        performWithRetries(Optional.of(deadline), runnable);
+    }
+
+    void performWithRetries(Optional<Deadline> deadline, RunnableThrowing runnable) {
         int attempt = 0;
         Throwable error = null;
         Function<? super Throwable, Boolean> keepGoing = keepGoingIf().get();
@@ -40,9 +58,12 @@ public final class Retries {
                 throw new RetryException("attempts greater than maxRetries", error);
             }
             attempt++;
+            deadline.ifPresent(Deadline::checkNotExpired);
             try {
                 runnable.run();
                 break;
+            } catch (DeadlineExceededException e) {
+                throw e;
             } catch (Throwable e) {
                 error = e;
                 log.debug(e.getMessage(), e);
@@ -53,6 +74,12 @@ public final class Retries {
                     throw new RetryException("stopping retries because no more intervals specified");
                 }
                 long waitMs = intervalsMs.next();
+                if (deadline.isPresent()) {
+                    Optional<Long> remainingMs = deadline.get().remainingMs();
+                    if (remainingMs.isPresent()) {
+                        waitMs = Math.min(waitMs, remainingMs.get());
+                    }
+                }
                 log.debug("sleeping " + waitMs + "ms");
                 sleep(waitMs);
             }
@@ -1,5 +1,9 @@
 package com.github.davidmoten.odata.client;
 
+import java.util.Optional;
+
+import com.fasterxml.jackson.databind.Module;
+
 public interface SchemaInfo {
 
     /**
@@ -12,4 +16,16 @@ public interface SchemaInfo {
      */
     Class<?> getClassFromTypeWithNamespace(String name);
 
+    /**
+     * Returns a Jackson module with serializers and deserializers for the types in
+     * the schema if they have been generated. Returns {@code Optional.empty()} by
+     * default (types are bound using Jackson bean introspection).
+     * 
+     * @return module with serializers and deserializers for the types in the
+     *         schema
+     */
+    default Optional<Module> jacksonModule() {
+        return Optional.empty();
+    }
+
 }
@@ -1,37 +1,57 @@
 package com.github.davidmoten.odata.client;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.InjectableValues;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
 import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.fasterxml.jackson.databind.ser.BeanSerializerFactory;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.github.davidmoten.guavamini.Sets;
 import com.github.davidmoten.guavamini.annotations.VisibleForTesting;
+import com.github.davidmoten.odata.client.internal.ChangedFieldWriter;
 import com.github.davidmoten.odata.client.internal.ChangedFields;
 import com.github.davidmoten.odata.client.internal.InjectableValuesFromFactories;
-import com.github.davidmoten.odata.client.internal.RequestHelper;
+import com.github.davidmoten.odata.client.internal.LazyFields;
+import com.github.davidmoten.odata.client.internal.ODataTypeResolverBuilder;
+import com.github.davidmoten.odata.client.internal.SchemaLookup;
 import com.github.davidmoten.odata.client.internal.UnmappedFieldsImpl;
 
 public final class Serializer {
@@ -52,8 +72,45 @@ public final class Serializer {
         }
     };
     
-    private static final ObjectMapper MAPPER_EXCLUDE_NULLS = createObjectMapper(false);
-    private static final ObjectMapper MAPPER_INCLUDE_NULLS = createObjectMapper(true);
+    private static final String CHANGED_FIELDS_FILTER_ID = "changedFields";
+
+    // assigns the changed fields filter to entities, only used by the changes only
+    // writer
+    private static final AnnotationIntrospector CHANGED_FIELDS_FILTER = new NopAnnotationIntrospector() {
+
+        private static final long serialVersionUID = -2862212452924212519L;
+
+        @Override
+        public Object findFilterId(Annotated a) {
+            if (a instanceof AnnotatedClass && ODataEntityType.class.isAssignableFrom(a.getRawType())) {
+                return CHANGED_FIELDS_FILTER_ID;
+            } else {
+                return null;
+            }
+        }
+    };
+
+    // replaced when modules are registered (see registerModule)
+    private static volatile ObjectMapper mapperExcludeNulls = createObjectMapper(false);
+
+    // guarded by Serializer.class
+    private static final Map<String, Module> MODULES = new LinkedHashMap<>();
+
+    // schemas whose modules have been registered, only added to while holding
+    // Serializer.class
+    private static final Set<SchemaInfo> SCHEMAS = ConcurrentHashMap.newKeySet();
+    private static final ObjectWriter WRITER_CHANGES_ONLY = createObjectMapper(true) //
+            .setAnnotationIntrospector(AnnotationIntrospector.pair(CHANGED_FIELDS_FILTER,
+                    IGNORE_JSON_INCLUDE_ANNOTATION)) //
+            .setSerializerFactory(BeanSerializerFactory.instance
+                    .withSerializerModifier(ChangedFieldWriter.MODIFIER)) //
+            .writer();
+
+    // ObjectReaders are immutable and thread-safe. Caching them per type means the
+    // root deserializer lookup happens once per type rather than once per call.
+    // Per-call state (ContextPath etc.) is supplied with ObjectReader.with(InjectableValues).
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final Map<JavaType, ObjectReader> PARAMETRIC_READERS = new ConcurrentHashMap<>();
 
     public static final Serializer INSTANCE = new Serializer();
 
@@ -61,6 +118,50 @@ public final class Serializer {
         // prevent instantiation
     }
     
+    /**
+     * Registers a Jackson module (for example one with generated serializers and
+     * deserializers for the types of a schema, see
+     * {@link SchemaInfo#jacksonModule()}) with the mapper used for deserialization
+     * and for {@link #serialize(Object)}. Modules are identified by name and a
+     * module with an already registered name is ignored. Changes-only
+     * serialization continues to use bean serialization.
+     * 
+     * <p>
+     * Registration replaces the mapper so should happen before use (it is normally
+     * called once per schema by {@link #registerSchemas(List)}).
+     * 
+     * @param module module to register
+     */
+    public void registerModule(Module module) {
+        synchronized (Serializer.class) {
+            if (MODULES.putIfAbsent(module.getModuleName(), module) == null) {
+                mapperExcludeNulls = createObjectMapper(false).registerModules(MODULES.values());
+                READERS.clear();
+                PARAMETRIC_READERS.clear();
+            }
+        }
+    }
+
+    /**
+     * Registers the module of each schema (see {@link SchemaInfo#jacksonModule()})
+     * the first time the schema is seen. Later calls with the same schemas (for
+     * example from every {@link Context} created for a client) neither create the
+     * module again nor replace the mapper.
+     * 
+     * @param schemas schemas
+     */
+    public void registerSchemas(List<SchemaInfo> schemas) {
+        for (SchemaInfo schema : schemas) {
+            if (!SCHEMAS.contains(schema)) {
+                synchronized (Serializer.class) {
+                    if (SCHEMAS.add(schema)) {
+                        schema.jacksonModule().ifPresent(this::registerModule);
+                    }
+                }
+            }
+        }
+    }
+
     @VisibleForTesting
     static ObjectMapper createObjectMapper(boolean includeNulls) {
         return new ObjectMapper() //
@@ -68,6 +169,8 @@ public final class Serializer {
                 .registerModule(new Jdk8Module()) //
                 .registerModule(new JavaTimeModule())
                 .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false) //
+                // resolve sub-classes of ODataType from @odata.type while binding
+                .setDefaultTyping(new ODataTypeResolverBuilder()) //
                 .setSerializationInclusion(includeNulls ? Include.ALWAYS : Include.NON_NULL) //
                 .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS) //
                 
@@ -77,53 +180,203 @@ public final class Serializer {
 
     public <T> T deserialize(String text, Class<? extends T> cls, ContextPath contextPath,
             boolean addKeysToContextPath) {
-        try {
-            if (contextPath != null) {
-                ObjectMapper m = MAPPER_EXCLUDE_NULLS.copy();
-                InjectableValues iv = createInjectableValues(contextPath);
-                m.setInjectableValues(iv);
-                T t = m.readValue(text, cls);
-                if (t instanceof ODataType) {
-                    ((ODataType) t).postInject(addKeysToContextPath);
-                }
-                return t;
-            } else {
-                return MAPPER_EXCLUDE_NULLS.readValue(text, cls);
-            }
+        try (JsonParser p = mapperExcludeNulls.getFactory().createParser(text)) {
+            return deserialize(p, cls, contextPath, addKeysToContextPath);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Deserializes UTF-8 encoded json without decoding it to a String first.
+     * 
+     * @param <T>                  return type
+     * @param bytes                UTF-8 encoded json
+     * @param cls                  class to deserialize to (or a super class of it,
+     *                             see {@code @odata.type})
+     * @param contextPath          context path, may be null
+     * @param addKeysToContextPath passed to {@link ODataType#postInject(boolean)}
+     * @return deserialized object
+     */
+    public <T> T deserialize(byte[] bytes, Class<? extends T> cls, ContextPath contextPath,
+            boolean addKeysToContextPath) {
+        try (JsonParser p = mapperExcludeNulls.getFactory().createParser(bytes)) {
+            return deserialize(p, cls, contextPath, addKeysToContextPath);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Deserializes json read from the given stream (encoding is detected). The
+     * stream is closed by this method.
+     * 
+     * @param <T>                  return type
+     * @param in                   json input
+     * @param cls                  class to deserialize to (or a super class of it,
+     *                             see {@code @odata.type})
+     * @param contextPath          context path, may be null
+     * @param addKeysToContextPath passed to {@link ODataType#postInject(boolean)}
+     * @return deserialized object
+     */
+    public <T> T deserialize(InputStream in, Class<? extends T> cls, ContextPath contextPath,
+            boolean addKeysToContextPath) {
+        try (JsonParser p = mapperExcludeNulls.getFactory().createParser(in)) {
+            return deserialize(p, cls, contextPath, addKeysToContextPath);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static <T> T deserialize(JsonParser p, Class<? extends T> cls,
+            ContextPath contextPath, boolean addKeysToContextPath) throws IOException {
+        return read(p, reader(cls), contextPath, addKeysToContextPath);
+    }
+
+    private static <T> T read(JsonParser p, ObjectReader r, ContextPath contextPath,
+            boolean addKeysToContextPath) throws IOException {
+        if (contextPath != null) {
+            T t = withContext(r, contextPath).readValue(p);
+            if (t instanceof ODataType) {
+                ((ODataType) t).postInject(addKeysToContextPath);
+            }
+            return t;
+        } else {
+            return r.readValue(p);
+        }
+    }
+
+    private static ObjectReader withContext(ObjectReader r, ContextPath contextPath) {
+        ObjectReader result = r.with(createInjectableValues(contextPath));
+        if (contextPath.context() != null) {
+            // used to resolve sub-classes from @odata.type
+            result = result.withAttribute(SchemaLookup.class, contextPath.context().schemaLookup());
+        }
+        return result;
+    }
+
+    private static ObjectReader reader(Class<?> cls) {
+        return READERS.computeIfAbsent(cls, mapperExcludeNulls::readerFor);
+    }
+
+    private static ObjectReader reader(JavaType type) {
+        return PARAMETRIC_READERS.computeIfAbsent(type, mapperExcludeNulls::readerFor);
+    }
+
     private static InjectableValues createInjectableValues(ContextPath contextPath) {
+        return createInjectableValues(contextPath, () -> null);
+    }
+
+    private static InjectableValues createInjectableValues(ContextPath contextPath,
+            Callable<LazyFields> lazyFields) {
         return new InjectableValuesFromFactories() //
                 .addValue(ContextPath.class, () -> contextPath) //
                 .addValue(ChangedFields.class, ChangedFields::new) //
-                .addValue(UnmappedFieldsImpl.class, UnmappedFieldsImpl::new);
+                .addValue(UnmappedFieldsImpl.class, UnmappedFieldsImpl::new) //
+                .addValue(LazyFields.class, lazyFields);
+    }
+
+    /**
+     * Deserializes an entity from UTF-8 encoded json leaving the object and array
+     * valued fields undecoded until they are first accessed (see
+     * {@link LazyFields}). If {@code cls} is not an entity type or
+     * {@code contextPath} is null then the json is deserialized as normal.
+     * 
+     * @param <T>                  return type
+     * @param bytes                UTF-8 encoded json
+     * @param cls                  class to deserialize to (or a super class of it,
+     *                             see {@code @odata.type})
+     * @param contextPath          context path, may be null
+     * @param addKeysToContextPath passed to {@link ODataType#postInject(boolean)}
+     * @return deserialized object
+     */
+    public <T> T deserializeLazy(byte[] bytes, Class<? extends T> cls, ContextPath contextPath,
+            boolean addKeysToContextPath) {
+        try (JsonParser p = mapperExcludeNulls.getFactory().createParser(bytes)) {
+            if (contextPath == null || !ODataEntityType.class.isAssignableFrom(cls)) {
+                return deserialize(p, cls, contextPath, addKeysToContextPath);
+            }
+            p.nextToken();
+            return readLazy(p, bytes, withContext(reader(cls), contextPath), contextPath,
+                    addKeysToContextPath);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // p is positioned at the start of the object and is reading from json
+    private static <T> T readLazy(JsonParser p, byte[] json, ObjectReader r,
+            ContextPath contextPath, boolean addKeysToContextPath) throws IOException {
+        TokenBuffer scalars = new TokenBuffer(p);
+        LazyFields lazy = LazyFields.read(p, json, r, scalars);
+        T t = r.with(createInjectableValues(contextPath, lazy::attach)).readValue(scalars.asParser());
+        if (!lazy.isAttached()) {
+            // the class has nowhere to keep the deferred fields so read it in full
+            t = r.readValue(json, lazy.start(), lazy.end() - lazy.start());
+        }
+        if (t instanceof ODataType) {
+            ((ODataType) t).postInject(addKeysToContextPath);
+        }
+        return t;
+    }
+
+    private static boolean isLazy(HttpRequestOptions options) {
+        return options instanceof RequestOptions && ((RequestOptions) options).lazy();
     }
 
     public <T, S> T deserializeWithParametricType(String text, Class<? extends T> cls,
             Class<? extends S> parametricTypeClass, ContextPath contextPath,
             boolean addKeysToContextPath) {
-        try {
-            ObjectMapper m = MAPPER_EXCLUDE_NULLS.copy();
-            JavaType type = m.getTypeFactory().constructParametricType(cls,
-                    parametricTypeClass);
-            if (contextPath != null) {
-                InjectableValues iv = createInjectableValues(contextPath);
-                m.setInjectableValues(iv);
-                T t = m.readValue(text, type);
-                if (t instanceof ODataType) {
-                    ((ODataType) t).postInject(addKeysToContextPath);
-                }
-                return t;
-            } else {
-                return m.readValue(text, type);
-            }
+        try (JsonParser p = mapperExcludeNulls.getFactory().createParser(text)) {
+            return deserializeWithParametricType(p, cls, parametricTypeClass, contextPath,
+                    addKeysToContextPath);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
+
+    public <T, S> T deserializeWithParametricType(byte[] bytes, Class<? extends T> cls,
+            Class<? extends S> parametricTypeClass, ContextPath contextPath,
+            boolean addKeysToContextPath) {
+        try (JsonParser p = mapperExcludeNulls.getFactory().createParser(bytes)) {
+            return deserializeWithParametricType(p, cls, parametricTypeClass, contextPath,
+                    addKeysToContextPath);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Deserializes json read from the given stream. The stream is closed by this
+     * method.
+     * 
+     * @param <T>                  return type
+     * @param <S>                  type parameter of return type
+     * @param in                   json input
+     * @param cls                  class to deserialize to
+     * @param parametricTypeClass  class of the type parameter
+     * @param contextPath          context path, may be null
+     * @param addKeysToContextPath passed to {@link ODataType#postInject(boolean)}
+     * @return deserialized object
+     */
+    public <T, S> T deserializeWithParametricType(InputStream in, Class<? extends T> cls,
+            Class<? extends S> parametricTypeClass, ContextPath contextPath,
+            boolean addKeysToContextPath) {
+        try (JsonParser p = mapperExcludeNulls.getFactory().createParser(in)) {
+            return deserializeWithParametricType(p, cls, parametricTypeClass, contextPath,
+                    addKeysToContextPath);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static <T, S> T deserializeWithParametricType(JsonParser p, Class<? extends T> cls,
+            Class<? extends S> parametricTypeClass, ContextPath contextPath,
+            boolean addKeysToContextPath) throws IOException {
+        JavaType type = mapperExcludeNulls.getTypeFactory().constructParametricType(cls,
+                parametricTypeClass);
+        return read(p, reader(type), contextPath, addKeysToContextPath);
+    }
     
     public <T> T deserialize(String text, Class<T> cls) {
         return deserialize(text, cls, null, false);
@@ -134,29 +387,52 @@ public final class Serializer {
             if (text == null) {
                 return Optional.empty();
             }
-            ObjectNode node = new ObjectMapper().readValue(text, ObjectNode.class);
-            return Optional.ofNullable(node.get("@odata.type")).map(JsonNode::asText);
+            JsonNode node = mapperExcludeNulls.readTree(text);
+            return Optional.ofNullable(node.get(ODataTypeResolverBuilder.ODATA_TYPE)).map(JsonNode::asText);
         } catch (IOException e) {
             return Optional.empty();
         }
     }
 
     public String serialize(Object entity) {
+        materialize(entity);
         try {
-            return MAPPER_EXCLUDE_NULLS.writeValueAsString(entity);
+            return mapperExcludeNulls.writeValueAsString(entity);
         } catch (JsonProcessingException e) {
             throw new RuntimeException(e);
         }
     }
     
+    /**
+     * Writes the entity as UTF-8 encoded json to {@code out} without building a
+     * String first. {@code out} is not closed.
+     * 
+     * @param entity object to serialize
+     * @param out    destination
+     * @throws IOException on write error
+     */
+    public void serialize(Object entity, OutputStream out) throws IOException {
+        materialize(entity);
+        mapperExcludeNulls.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValue(out, entity);
+    }
+
     public String serializePrettyPrint(Object entity) {
+        materialize(entity);
         try {
-            return MAPPER_EXCLUDE_NULLS.writerWithDefaultPrettyPrinter().writeValueAsString(entity);
+            return mapperExcludeNulls.writerWithDefaultPrettyPrinter().writeValueAsString(entity);
         } catch (JsonProcessingException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private static void materialize(Object entity) {
+        // fields of a lazily read entity are only written once decoded
+        if (entity instanceof ODataEntityType) {
+            ((ODataEntityType) entity).materialize();
+        }
+    }
+
     public <T extends ODataEntityType> String serializeChangesOnlyPrettyPrint(T entity) {
         return serializeChangesOnly(entity, true);
     }
@@ -166,30 +442,66 @@ public final class Serializer {
     }
     
     public <T extends ODataEntityType> String serializeChangesOnly(T entity, boolean prettyPrint) {
+        ObjectWriter w = changesOnlyWriter(entity);
+        if (prettyPrint) {
+            w = w.withDefaultPrettyPrinter();
+        }
         try {
-            ObjectMapper m = MAPPER_INCLUDE_NULLS;
-            final String s;
-            if (prettyPrint) {
-                s = m.writerWithDefaultPrettyPrinter().writeValueAsString(entity);    
-            } else {
-                s = m.writeValueAsString(entity);
+            return w.writeValueAsString(entity);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the changed fields of the entity as UTF-8 encoded json to {@code out}
+     * without building a String first. {@code out} is not closed.
+     * 
+     * @param <T>    entity type
+     * @param entity entity to serialize
+     * @param out    destination
+     * @throws IOException on write error
+     */
+    public <T extends ODataEntityType> void serializeChangesOnly(T entity, OutputStream out)
+            throws IOException {
+        changesOnlyWriter(entity).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(out,
+                entity);
+    }
+
+    private static <T extends ODataEntityType> ObjectWriter changesOnlyWriter(T entity) {
+        // single pass, the filter only writes the changed fields (and @odata.type) of
+        // the entity itself (nested values are written in full)
+        return WRITER_CHANGES_ONLY.with(new SimpleFilterProvider()
+                .addFilter(CHANGED_FIELDS_FILTER_ID, new ChangedFieldsFilter(entity)));
+    }
+
+    private static final class ChangedFieldsFilter extends SimpleBeanPropertyFilter {
+
+        private final ODataEntityType entity;
+        private final ChangedFields changedFields;
+
+        ChangedFieldsFilter(ODataEntityType entity) {
+            this.entity = entity;
+            this.changedFields = entity.getChangedFields();
+        }
+
+        @Override
+        public void serializeAsField(Object pojo, JsonGenerator g, SerializerProvider provider,
+                PropertyWriter writer) throws Exception {
+            if (pojo != entity || isIncluded(writer)) {
+                writer.serializeAsField(pojo, g, provider);
+            } else if (!g.canOmitFields()) {
+                writer.serializeAsOmittedField(pojo, g, provider);
             }
-            
-            JsonNode tree = m.readTree(s);
-            ObjectNode o = (ObjectNode) tree;
-            ChangedFields cf = entity.getChangedFields();
-            List<String> list = new ArrayList<>();
-            Iterator<String> it = o.fieldNames();
-            while (it.hasNext()) {
-                String name = it.next();
-                if (!cf.contains(name) && !name.equals("@odata.type")) {
-                    list.add(name);
-                }
+        }
+
+        private boolean isIncluded(PropertyWriter writer) {
+            if (writer instanceof ChangedFieldWriter) {
+                return ((ChangedFieldWriter) writer).isChanged(changedFields);
+            } else {
+                String name = writer.getName();
+                return name.equals(ODataTypeResolverBuilder.ODATA_TYPE) || changedFields.contains(name);
             }
-            o.remove(list);
-            return o.toString();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
         }
     }
 
@@ -200,62 +512,169 @@ public final class Serializer {
             List<RequestHeader> requestHeaders, //
             HttpRequestOptions options, //
             Consumer<? super CollectionPage<T>> listener) {
-        CollectionInfo<T> c = deserializeToCollection(json, cls, contextPath);
-        return new CollectionPage<T>(contextPath, cls, c.list, c.nextLink, c.deltaLink, c.unmappedFields,
-                requestHeaders, options, listener);
+        try (JsonParser p = mapperExcludeNulls.getFactory().createParser(json)) {
+            return deserializeCollectionPage(p, null, cls, contextPath, requestHeaders, options,
+                    listener);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
-    
-    private static final Set<String> COLLECTION_PAGE_FIELDS = Sets.newHashSet("value", "@odata.nextLink", "@odata.deltaLink");
 
-    private <T> CollectionInfo<T> deserializeToCollection(String json, Class<T> cls,
-            ContextPath contextPath) {
-        try {
-            ObjectMapper m = MAPPER_EXCLUDE_NULLS;
-            ObjectNode o = m.readValue(json, ObjectNode.class);
-            List<T> list = new ArrayList<T>();
-            for (JsonNode item : o.get("value")) {
-                String text = m.writeValueAsString(item);
-                Class<? extends T> subClass = RequestHelper.getSubClass(contextPath, contextPath.context().schemas(),
-                        cls, text);
-                list.add(deserialize(text, subClass, contextPath, true));
-            }
-            // TODO support relative urls using odata.context if present
-            Optional<String> nextLink = Optional.ofNullable(o.get("@odata.nextLink"))
-                    .map(JsonNode::asText);
-            Optional<String> deltaLink = Optional.ofNullable(o.get("@odata.deltaLink"))
-                    .map(JsonNode::asText);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> map = m.convertValue(o, HashMap.class);
-            UnmappedFieldsImpl u = new UnmappedFieldsImpl();
-            for (String fieldName: map.keySet()) {
-                if (!COLLECTION_PAGE_FIELDS.contains(fieldName)) {
-                    u.put(fieldName, map.get(fieldName));
-                }
+    public <T> CollectionPage<T> deserializeCollectionPage( //
+            byte[] json, //
+            Class<T> cls, //
+            ContextPath contextPath, //
+            List<RequestHeader> requestHeaders, //
+            HttpRequestOptions options, //
+            Consumer<? super CollectionPage<T>> listener) {
+        try (JsonParser p = mapperExcludeNulls.getFactory().createParser(json)) {
+            return deserializeCollectionPage(p, isLazy(options) ? json : null, cls, contextPath,
+                    requestHeaders, options, listener);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deserializes a collection page read from the given stream. The stream is
+     * closed by this method. If {@code options} is a {@link RequestOptions} with
+     * {@link RequestOptions#lazy()} true then the page is read into memory and
+     * entities are read lazily (see {@link #deserializeLazy}).
+     * 
+     * @param <T>            collection member type
+     * @param json           collection page json input
+     * @param cls            collection member class
+     * @param contextPath    context path
+     * @param requestHeaders headers to use when requesting further pages
+     * @param options        options to use when requesting further pages
+     * @param listener       notified of further pages
+     * @return collection page
+     */
+    public <T> CollectionPage<T> deserializeCollectionPage( //
+            InputStream json, //
+            Class<T> cls, //
+            ContextPath contextPath, //
+            List<RequestHeader> requestHeaders, //
+            HttpRequestOptions options, //
+            Consumer<? super CollectionPage<T>> listener) {
+        if (isLazy(options)) {
+            // entities keep byte ranges of the page
+            try (InputStream in = json) {
+                return deserializeCollectionPage(Util.toByteArray(in), cls, contextPath,
+                        requestHeaders, options, listener);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-            return new CollectionInfo<T>(list, nextLink, deltaLink, u);
+        }
+        try (JsonParser p = mapperExcludeNulls.getFactory().createParser(json)) {
+            return deserializeCollectionPage(p, null, cls, contextPath, requestHeaders, options,
+                    listener);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    private <T> CollectionPage<T> deserializeCollectionPage( //
+            JsonParser p, //
+            byte[] lazySource, //
+            Class<T> cls, //
+            ContextPath contextPath, //
+            List<RequestHeader> requestHeaders, //
+            HttpRequestOptions options, //
+            Consumer<? super CollectionPage<T>> listener) throws IOException {
+        CollectionInfo<T> c = deserializeToCollection(p, lazySource, cls, contextPath);
+        return new CollectionPage<T>(contextPath, cls, c.list, c.nextLink, c.deltaLink, c.count,
+                c.unmappedFields, requestHeaders, options, listener);
+    }
+
+    // Walks the page json once with a streaming parser. Page level fields are picked
+    // up as they are encountered and each member of the value array is bound straight
+    // from the parser (sub-classes are resolved from @odata.type while binding). If
+    // lazySource is non-null (the bytes being parsed) then entities are read lazily.
+    private <T> CollectionInfo<T> deserializeToCollection(JsonParser p, byte[] lazySource,
+            Class<T> cls, ContextPath contextPath) throws IOException {
+        if (p.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(p, "expected start of collection page json object");
+        }
+        List<T> list = new ArrayList<T>();
+        Optional<String> nextLink = Optional.empty();
+        Optional<String> deltaLink = Optional.empty();
+        Optional<Long> count = Optional.empty();
+        UnmappedFieldsImpl u = new UnmappedFieldsImpl();
+        ObjectReader itemReader = withContext(reader(cls), contextPath);
+        boolean lazy = lazySource != null && ODataEntityType.class.isAssignableFrom(cls);
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = p.getCurrentName();
+            JsonToken token = p.nextToken();
+            if ("value".equals(fieldName)) {
+                if (token == JsonToken.START_ARRAY) {
+                    while (p.nextToken() != JsonToken.END_ARRAY) {
+                        if (lazy && p.currentToken() == JsonToken.START_OBJECT) {
+                            list.add(readLazy(p, lazySource, itemReader, contextPath, true));
+                        } else {
+                            T t = itemReader.readValue(p);
+                            if (t instanceof ODataType) {
+                                ((ODataType) t).postInject(true);
+                            }
+                            list.add(t);
+                        }
+                    }
+                } else {
+                    p.skipChildren();
+                }
+            } else if ("@odata.nextLink".equals(fieldName)) {
+                // TODO support relative urls using odata.context if present
+                nextLink = Optional.ofNullable(p.getValueAsString());
+            } else if ("@odata.deltaLink".equals(fieldName)) {
+                deltaLink = Optional.ofNullable(p.getValueAsString());
+            } else if ("@odata.count".equals(fieldName)) {
+                // kept in the unmapped fields as well as before
+                Object value = reader(Object.class).readValue(p);
+                u.put(fieldName, value);
+                count = toCount(value);
+            } else {
+                u.put(fieldName, reader(Object.class).readValue(p));
+            }
+        }
+        return new CollectionInfo<T>(list, nextLink, deltaLink, count, u);
+    }
+
+    // the count is a string when IEEE754Compatible=true is requested
+    private static Optional<Long> toCount(Object value) {
+        if (value instanceof Number) {
+            return Optional.of(((Number) value).longValue());
+        } else if (value instanceof String) {
+            try {
+                return Optional.of(Long.parseLong((String) value));
+            } catch (NumberFormatException e) {
+                return Optional.empty();
+            }
+        } else {
+            return Optional.empty();
+        }
+    }
+
     private static final class CollectionInfo<T> {
 
         final List<T> list;
         final Optional<String> nextLink;
         final Optional<String> deltaLink;
+        final Optional<Long> count;
         final UnmappedFields unmappedFields;
 
-        CollectionInfo(List<T> list, Optional<String> nextLink, Optional<String> deltaLink, UnmappedFields unmappedFields) {
+        CollectionInfo(List<T> list, Optional<String> nextLink, Optional<String> deltaLink,
+                Optional<Long> count, UnmappedFields unmappedFields) {
             this.list = list;
             this.nextLink = nextLink;
             this.deltaLink = deltaLink;
+            this.count = count;
             this.unmappedFields = unmappedFields;
         }
     }
 
     public boolean matches(String expectedJson, String actualJson) throws IOException {
-        JsonNode expectedTree = MAPPER_EXCLUDE_NULLS.readTree(expectedJson);
-        JsonNode textTree = MAPPER_EXCLUDE_NULLS.readTree(actualJson);
+        JsonNode expectedTree = mapperExcludeNulls.readTree(expectedJson);
+        JsonNode textTree = mapperExcludeNulls.readTree(actualJson);
         return expectedTree.equals(textTree);
     }
 
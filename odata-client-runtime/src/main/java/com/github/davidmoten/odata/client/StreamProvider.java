@@ -41,6 +41,12 @@ public final class StreamProvider implements StreamProviderBase {
         return new StreamProvider(contextPath, o, contentType, base64);
     }
     
+    public StreamProvider deadline(Deadline deadline) {
+        Preconditions.checkNotNull(deadline);
+        RequestOptionsImpl o = new RequestOptionsImpl(options).withDeadline(deadline);
+        return new StreamProvider(contextPath, o, contentType, base64);
+    }
+
     public InputStream get() {
         return RequestHelper.getStream(contextPath, options, base64);
     }
@@ -9,4 +9,13 @@ public interface StreamUploader<T extends StreamUploader<T>> {
     T connectTimeout(long duration, TimeUnit unit) ;
     
     T readTimeout(long duration, TimeUnit unit); 
+
+    /**
+     * Sets the overall time budget (and cancellation token) for the upload
+     * including all of its chunks and retries.
+     * 
+     * @param deadline deadline for the upload
+     * @return this
+     */
+    T deadline(Deadline deadline);
 }
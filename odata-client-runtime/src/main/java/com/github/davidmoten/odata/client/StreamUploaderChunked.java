@@ -30,6 +30,7 @@ public final class StreamUploaderChunked implements StreamUploader<StreamUploade
     private final HttpMethod method;
     private Optional<Long> connectTimeoutMs = Optional.empty();
     private Optional<Long> readTimeoutMs = Optional.empty();
+    private Optional<Deadline> deadline = Optional.empty();
 
     StreamUploaderChunked(ContextPath contextPath, String contentType, HttpMethod method) {
         this.contextPath = contextPath;
@@ -53,6 +54,12 @@ public final class StreamUploaderChunked implements StreamUploader<StreamUploade
         return this;
     }
 
+    public StreamUploaderChunked deadline(Deadline deadline) {
+        Preconditions.checkNotNull(deadline);
+        this.deadline = Optional.of(deadline);
+        return this;
+    }
+
     public void upload(InputStream in, long size, int chunkSize) {
         upload(in, size, chunkSize, Retries.NONE);
     }
@@ -65,7 +72,7 @@ public final class StreamUploaderChunked implements StreamUploader<StreamUploade
         if (rem > 0 || chunkSize == 0) {
             chunkSize += chunkSize - rem;
         }
-        HttpRequestOptions options = HttpRequestOptions.create(connectTimeoutMs, readTimeoutMs);
+        HttpRequestOptions options = HttpRequestOptions.create(connectTimeoutMs, readTimeoutMs, deadline);
         // TODO do we use edit url?
         String uploadUrl = contextPath.toUrl();
 
@@ -76,7 +83,8 @@ public final class StreamUploaderChunked implements StreamUploader<StreamUploade
         for (int i = 0; i < size; i += chunkSize) {
             int start = i;
             int chunk = com.github.davidmoten.odata.client.internal.Util.readFully(in, buffer, chunkSize);
-            retries.performWithRetries(() -> {
+            deadline.ifPresent(Deadline::checkNotExpired);
+            retries.performWithRetries(deadline, () -> {
                 log.debug("putting chunk " + start + ", size=" + chunk);
                 RequestHelper.sendChunk( //
                         method, //
@@ -14,6 +14,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
+import com.github.davidmoten.guavamini.Preconditions;
 import com.github.davidmoten.odata.client.internal.RequestHelper;
 
 public final class StreamUploaderSingleCall implements StreamUploader<StreamUploaderSingleCall> {
@@ -24,6 +25,7 @@ public final class StreamUploaderSingleCall implements StreamUploader<StreamUplo
     private final HttpMethod method;
 	private Optional<Long> connectTimeoutMs = Optional.empty();
 	private Optional<Long> readTimeoutMs = Optional.empty();
+	private Optional<Deadline> deadline = Optional.empty();
 
     public StreamUploaderSingleCall(ContextPath contextPath, String contentType, HttpMethod method) {
         this.contextPath = contextPath;
@@ -48,6 +50,12 @@ public final class StreamUploaderSingleCall implements StreamUploader<StreamUplo
     	return this;
     }
     
+    public StreamUploaderSingleCall deadline(Deadline deadline) {
+        Preconditions.checkNotNull(deadline);
+        this.deadline = Optional.of(deadline);
+        return this;
+    }
+    
     public void upload(byte[] bytes) {
         upload(new ByteArrayInputStream(bytes), bytes.length);
     }
@@ -66,7 +74,7 @@ public final class StreamUploaderSingleCall implements StreamUploader<StreamUplo
     
     public void upload(InputStream in, int length) {
         requestHeaders.add(RequestHeader.contentRange(0, length - 1, length));
-        RequestHelper.send(method, contextPath, RequestOptions.create(queries, requestHeaders, connectTimeoutMs, readTimeoutMs), in, length);
+        RequestHelper.send(method, contextPath, RequestOptions.create(queries, requestHeaders, connectTimeoutMs, readTimeoutMs, deadline), in, length);
     }
     
     public void upload(InputStream in, int length, UploadListener listener, int reportingChunkSize) {
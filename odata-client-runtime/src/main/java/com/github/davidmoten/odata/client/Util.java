@@ -1,9 +1,6 @@
 package com.github.davidmoten.odata.client;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -25,17 +22,7 @@ public class Util {
     }
 
     static byte[] toByteArray(InputStream in) {
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-        byte[] buffer = new byte[8192];
-        int n;
-        try {
-            while ((n = in.read(buffer)) != -1) {
-                bytes.write(buffer, 0, n);
-            }
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-        return bytes.toByteArray();
+        return com.github.davidmoten.odata.client.internal.Util.read(in);
     }
 
     public static String utf8(InputStream in) {
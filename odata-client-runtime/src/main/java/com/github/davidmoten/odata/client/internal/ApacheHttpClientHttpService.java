@@ -1,15 +1,24 @@
 package com.github.davidmoten.odata.client.internal;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiFunction;
 import java.util.function.Supplier;
 
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.client.config.RequestConfig;
@@ -21,6 +30,7 @@ import org.apache.http.client.methods.HttpPatch;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
@@ -29,11 +39,17 @@ import org.slf4j.LoggerFactory;
 
 import com.github.davidmoten.guavamini.Preconditions;
 import com.github.davidmoten.odata.client.ClientException;
+import com.github.davidmoten.odata.client.CompressionStats;
+import com.github.davidmoten.odata.client.ConnectionPoolStats;
+import com.github.davidmoten.odata.client.Deadline.Registration;
+import com.github.davidmoten.odata.client.HttpCompression;
 import com.github.davidmoten.odata.client.HttpMethod;
 import com.github.davidmoten.odata.client.HttpRequestOptions;
 import com.github.davidmoten.odata.client.HttpResponse;
 import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.HttpStreamingResponse;
 import com.github.davidmoten.odata.client.Path;
+import com.github.davidmoten.odata.client.RequestBody;
 import com.github.davidmoten.odata.client.RequestHeader;
 
 public class ApacheHttpClientHttpService implements HttpService {
@@ -42,13 +58,92 @@ public class ApacheHttpClientHttpService implements HttpService {
 
     private final Path basePath;
     private final CloseableHttpClient client;
+    private final AutoCloseable closer;
     private final BiFunction<URL, List<RequestHeader>, List<RequestHeader>> requestHeadersModifier;
+    private final HttpCompression compression;
+    private final Optional<InstrumentedConnectionManager> connectionManager;
+    // not thread-safe but benign, set false once the server rejects a gzipped
+    // request body
+    private boolean requestCompressionSupported = true;
 
+    /**
+     * Constructor.
+     * 
+     * @param basePath               base path
+     * @param clientSupplier         supplies the client. If {@code compression}
+     *                               requests compressed responses then the client
+     *                               should be built with
+     *                               {@code disableContentCompression()} so that
+     *                               wire bytes can be counted (decoding works
+     *                               either way)
+     * @param requestHeadersModifier modifies the request headers
+     * @param compression            compression settings
+     * @param connectionManager      the connection manager used by the client
+     *                               (if known) to report
+     *                               {@link #connectionPoolStats()}
+     */
     public ApacheHttpClientHttpService(Path basePath, Supplier<CloseableHttpClient> clientSupplier,
-            BiFunction<URL, List<RequestHeader>, List<RequestHeader>> requestHeadersModifier) {
+            BiFunction<URL, List<RequestHeader>, List<RequestHeader>> requestHeadersModifier,
+            HttpCompression compression,
+            Optional<InstrumentedConnectionManager> connectionManager) {
+        this(basePath, clientSupplier.get(), requestHeadersModifier, compression,
+                connectionManager);
+    }
+
+    /**
+     * Constructor for a service that uses a client shared with other services. The
+     * client is released (not closed) when this service is closed.
+     * 
+     * @param basePath               base path
+     * @param shared                 shared client
+     * @param requestHeadersModifier modifies the request headers
+     * @param compression            compression settings
+     */
+    public ApacheHttpClientHttpService(Path basePath, SharedHttpClient shared,
+            BiFunction<URL, List<RequestHeader>, List<RequestHeader>> requestHeadersModifier,
+            HttpCompression compression) {
+        this(basePath, shared.acquire(), releaseOnce(shared), requestHeadersModifier,
+                compression, shared.connectionManager());
+    }
+
+    private static AutoCloseable releaseOnce(SharedHttpClient shared) {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                shared.release();
+            }
+        };
+    }
+
+    private ApacheHttpClientHttpService(Path basePath, CloseableHttpClient client,
+            BiFunction<URL, List<RequestHeader>, List<RequestHeader>> requestHeadersModifier,
+            HttpCompression compression,
+            Optional<InstrumentedConnectionManager> connectionManager) {
+        this(basePath, client, client, requestHeadersModifier, compression, connectionManager);
+    }
+
+    private ApacheHttpClientHttpService(Path basePath, CloseableHttpClient client,
+            AutoCloseable closer,
+            BiFunction<URL, List<RequestHeader>, List<RequestHeader>> requestHeadersModifier,
+            HttpCompression compression,
+            Optional<InstrumentedConnectionManager> connectionManager) {
         this.basePath = basePath;
-        this.client = clientSupplier.get();
+        this.client = client;
+        this.closer = closer;
         this.requestHeadersModifier = requestHeadersModifier;
+        this.compression = compression;
+        this.connectionManager = connectionManager;
+    }
+
+    public ApacheHttpClientHttpService(Path basePath, Supplier<CloseableHttpClient> clientSupplier,
+            BiFunction<URL, List<RequestHeader>, List<RequestHeader>> requestHeadersModifier,
+            HttpCompression compression) {
+        this(basePath, clientSupplier, requestHeadersModifier, compression, Optional.empty());
+    }
+
+    public ApacheHttpClientHttpService(Path basePath, Supplier<CloseableHttpClient> clientSupplier,
+            BiFunction<URL, List<RequestHeader>, List<RequestHeader>> requestHeadersModifier) {
+        this(basePath, clientSupplier, requestHeadersModifier, HttpCompression.none());
     }
 
     public ApacheHttpClientHttpService(Path basePath) {
@@ -59,32 +154,47 @@ public class ApacheHttpClientHttpService implements HttpService {
     @Override
     public HttpResponse get(String url, List<RequestHeader> requestHeaders,
             HttpRequestOptions options) {
-        return getResponse(requestHeaders, new HttpGet(url), true, null, -1, options);
+        return getResponse(requestHeaders, new HttpGet(url), true, null, options);
     }
 
     @Override
     public HttpResponse patch(String url, List<RequestHeader> requestHeaders, InputStream content,
             int length, HttpRequestOptions options) {
-        return getResponse(requestHeaders, new HttpPatch(url), false, content, length, options);
+        return getResponse(requestHeaders, new HttpPatch(url), false, body(content, length),
+                options);
     }
 
     @Override
     public HttpResponse put(String url, List<RequestHeader> requestHeaders, InputStream content,
             int length, HttpRequestOptions options) {
-        return getResponse(requestHeaders, new HttpPut(url), false, content, length, options);
+        return getResponse(requestHeaders, new HttpPut(url), false, body(content, length),
+                options);
     }
 
     @Override
     public HttpResponse post(String url, List<RequestHeader> requestHeaders, InputStream content,
             int length, HttpRequestOptions options) {
-        return getResponse(requestHeaders, new HttpPost(url), true, content, length, options);
+        return getResponse(requestHeaders, new HttpPost(url), true, body(content, length),
+                options);
+    }
+
+    @Override
+    public HttpResponse submit(HttpMethod method, String url, List<RequestHeader> requestHeaders,
+            RequestBody body, HttpRequestOptions options) {
+        Preconditions.checkArgument(method == HttpMethod.PATCH || method == HttpMethod.PUT
+                || method == HttpMethod.POST, method + " not permitted for a submission with content");
+        return getResponse(requestHeaders, toRequestBase(method, url), method == HttpMethod.POST,
+                body, options);
+    }
+
+    private static RequestBody body(InputStream content, int length) {
+        return content == null ? null : RequestBody.of(content, length);
     }
 
     @Override
     public HttpResponse delete(String url, List<RequestHeader> requestHeaders,
             HttpRequestOptions options) {
-        return getResponse(requestHeaders, new HttpDelete(url), false, null,
-                HttpService.LENGTH_UNKNOWN, options);
+        return getResponse(requestHeaders, new HttpDelete(url), false, null, options);
     }
 
     @Override
@@ -92,6 +202,11 @@ public class ApacheHttpClientHttpService implements HttpService {
         return basePath;
     }
 
+    @Override
+    public Optional<ConnectionPoolStats> connectionPoolStats() {
+        return connectionManager.map(InstrumentedConnectionManager::stats);
+    }
+
     private static URL toUrl(HttpRequestBase request) {
         try {
             return request.getURI().toURL();
@@ -101,51 +216,154 @@ public class ApacheHttpClientHttpService implements HttpService {
     }
 
     private HttpResponse getResponse(List<RequestHeader> requestHeaders, HttpRequestBase request,
-            boolean doInput, InputStream content, int length, HttpRequestOptions options) {
-        Preconditions.checkNotNull(options);
-        log.debug("{} from url {}", request.getMethod(), request.getURI());
-        log.debug("requestHeaders={}", requestHeaders);
-        for (RequestHeader header : requestHeadersModifier.apply(toUrl(request), requestHeaders)) {
-            request.addHeader(header.name(), header.value());
-        }
+            boolean doInput, RequestBody body, HttpRequestOptions options) {
+        boolean gzip = prepare(requestHeaders, request, body, options);
         try {
-            if (content != null && request instanceof HttpEntityEnclosingRequest) {
-                ((HttpEntityEnclosingRequest) request)
-                        .setEntity(new InputStreamEntity(content, length));
-                log.debug("content={}", content);
-            }
-            RequestConfig config = com.github.davidmoten.odata.client.Util.nvl(request.getConfig(),
-                    RequestConfig.DEFAULT);
-            Builder builder = RequestConfig //
-                    .copy(config);
-            options.requestConnectTimeoutMs()
-                    .ifPresent(x -> builder.setConnectTimeout(x.intValue()));
-            options.requestReadTimeoutMs().ifPresent(x -> builder.setSocketTimeout(x.intValue()));
-            config = builder.build();
-            request.setConfig(config);
             log.debug("executing request");
+            final boolean rejected;
+            Registration registration = Deadlines.onExpiry(options, request::abort);
             try (CloseableHttpResponse response = client.execute(request)) {
                 int statusCode = response.getStatusLine().getStatusCode();
                 log.debug("executed request, code={}", statusCode);
-                final byte[] bytes;
-                if (doInput || isError(statusCode)) {
-                    HttpEntity entity = response.getEntity();
-                    if (entity == null) {
-                        bytes = null;
+                rejected = rejected(gzip, statusCode, body);
+                if (!rejected) {
+                    final byte[] bytes;
+                    if (doInput || isError(statusCode)) {
+                        InputStream in = decode(response);
+                        bytes = in == null ? null : Util.read(in, decodedLength(response));
                     } else {
-                        bytes = Util.read(entity.getContent());
+                        bytes = null;
                     }
-                } else {
-                    bytes = null;
-                }
-                if (log.isDebugEnabled()) {
-                    log.debug("response text=\n{}", bytes == null ? "null" : new String(bytes, StandardCharsets.UTF_8));
+                    if (log.isDebugEnabled()) {
+                        log.debug("response text=\n{}", bytes == null ? "null" : new String(bytes, StandardCharsets.UTF_8));
+                    }
+                    return new HttpResponse(statusCode, bytes);
                 }
-                return new HttpResponse(statusCode, bytes);
+            } finally {
+                registration.close();
+            }
+            return getResponse(requestHeaders, toRequestBase(
+                    HttpMethod.valueOf(request.getMethod()), request.getURI().toString()), doInput,
+                    body, options);
+        } catch (IOException e) {
+            throw Deadlines.error(options, e);
+        }
+    }
+
+    @Override
+    public HttpStreamingResponse submitStreaming(HttpMethod method, String url,
+            List<RequestHeader> requestHeaders, InputStream content, int length,
+            HttpRequestOptions options) {
+        return submitStreaming(method, url, requestHeaders, body(content, length), options);
+    }
+
+    @Override
+    public HttpStreamingResponse submitStreaming(HttpMethod method, String url,
+            List<RequestHeader> requestHeaders, RequestBody body, HttpRequestOptions options) {
+        HttpRequestBase request = toRequestBase(method, url);
+        boolean gzip = prepare(requestHeaders, request, body, options);
+        CloseableHttpResponse response = null;
+        // the deadline can abort the request while the body is being read
+        Registration registration = Deadlines.onExpiry(options, request::abort);
+        try {
+            log.debug("executing request");
+            response = client.execute(request);
+            int statusCode = response.getStatusLine().getStatusCode();
+            log.debug("executed request, code={}", statusCode);
+            if (rejected(gzip, statusCode, body)) {
+                registration.close();
+                response.close();
+                return submitStreaming(method, url, requestHeaders, body, options);
             }
+            InputStream is = response.getEntity() == null ? new ByteArrayInputStream(new byte[0])
+                    : decode(response);
+            // ensure response is closed when input stream is closed
+            InputStream in = Deadlines.releaseOnClose(new InputStreamWithCloseable(is, response),
+                    registration);
+            return new HttpStreamingResponse(statusCode, headers(response), in);
         } catch (IOException e) {
-            throw new ClientException(e);
+            registration.close();
+            // ensure that response is closed on exception to avoid memory leak
+            if (response != null) {
+                try {
+                    response.close();
+                } catch (IOException e1) {
+                    log.warn(e1.getMessage(), e);
+                }
+            }
+            throw Deadlines.error(options, e);
+        }
+    }
+
+    // returns true if the server doesn't accept compressed requests and the body can
+    // be resent uncompressed
+    private boolean rejected(boolean gzip, int statusCode, RequestBody body) {
+        if (gzip && statusCode == Compression.HTTP_UNSUPPORTED_MEDIA_TYPE
+                && body.isRepeatable()) {
+            log.debug("gzipped request rejected, resending uncompressed");
+            requestCompressionSupported = false;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    private static Map<String, List<String>> headers(CloseableHttpResponse response) {
+        Map<String, List<String>> map = new LinkedHashMap<>();
+        for (Header header : response.getAllHeaders()) {
+            map.computeIfAbsent(header.getName(), k -> new ArrayList<>()).add(header.getValue());
+        }
+        return map;
+    }
+
+    // returns true if the request body is gzipped
+    private boolean prepare(List<RequestHeader> requestHeaders, HttpRequestBase request,
+            RequestBody body, HttpRequestOptions options) {
+        Preconditions.checkNotNull(options);
+        log.debug("{} from url {}", request.getMethod(), request.getURI());
+        log.debug("requestHeaders={}", requestHeaders);
+        for (RequestHeader header : Compression.requestHeaders(compression,
+                requestHeadersModifier.apply(toUrl(request), requestHeaders))) {
+            request.addHeader(header.name(), header.value());
+        }
+        boolean gzip = false;
+        if (body != null && request instanceof HttpEntityEnclosingRequest) {
+            // small bodies of unknown length are sent with a Content-Length
+            RequestBody sized = RequestBodies.sized(body);
+            gzip = requestCompressionSupported
+                    && compression.compressRequest(RequestBodies.minLength(sized));
+            ((HttpEntityEnclosingRequest) request)
+                    .setEntity(new RequestBodyEntity(sized, gzip, compression.stats()));
+            log.debug("content={}", body);
         }
+        RequestConfig config = com.github.davidmoten.odata.client.Util.nvl(request.getConfig(),
+                RequestConfig.DEFAULT);
+        Builder builder = RequestConfig //
+                .copy(config);
+        Deadlines.limit(options, options.requestConnectTimeoutMs())
+                .ifPresent(x -> builder.setConnectTimeout(x.intValue()));
+        Deadlines.limit(options, options.requestReadTimeoutMs())
+                .ifPresent(x -> builder.setSocketTimeout(x.intValue()));
+        config = builder.build();
+        request.setConfig(config);
+        return gzip;
+    }
+
+    private static long decodedLength(CloseableHttpResponse response) {
+        HttpEntity entity = response.getEntity();
+        Header encoding = entity.getContentEncoding();
+        return Compression.decodedLength(entity.getContentLength(),
+                encoding == null ? null : encoding.getValue());
+    }
+
+    private InputStream decode(CloseableHttpResponse response) throws IOException {
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return null;
+        }
+        Header encoding = entity.getContentEncoding();
+        return Compression.decode(entity.getContent(),
+                encoding == null ? null : encoding.getValue(), compression.stats());
     }
 
     @Override
@@ -165,7 +383,7 @@ public class ApacheHttpClientHttpService implements HttpService {
         } else if (method == HttpMethod.PUT) {
             return new HttpPut(url);
         } else if (method == HttpMethod.POST) {
-            return new HttpPut(url);
+            return new HttpPost(url);
         } else {
             throw new UnsupportedOperationException(method.toString() + " not recognized");
         }
@@ -177,7 +395,8 @@ public class ApacheHttpClientHttpService implements HttpService {
         log.debug("{} from url {}", request.getMethod(), request.getURI());
         log.debug("requestHeaders={}", requestHeaders);
         boolean contentLengthSet = false;
-        for (RequestHeader header : requestHeadersModifier.apply(toUrl(request), requestHeaders)) {
+        for (RequestHeader header : Compression.requestHeaders(compression,
+                requestHeadersModifier.apply(toUrl(request), requestHeaders))) {
             request.addHeader(header.name(), header.value());
             if ("Content-Length".equals(header.name())) {
                 contentLengthSet = true;
@@ -187,6 +406,7 @@ public class ApacheHttpClientHttpService implements HttpService {
             request.addHeader("Content-Length", Integer.toString(length));
         }
         CloseableHttpResponse response = null;
+        Registration registration = null;
         try {
             if (content != null && request instanceof HttpEntityEnclosingRequest) {
                 ((HttpEntityEnclosingRequest) request)
@@ -197,18 +417,21 @@ public class ApacheHttpClientHttpService implements HttpService {
                     RequestConfig.DEFAULT);
             Builder builder = RequestConfig //
                     .copy(config);
-            options.requestConnectTimeoutMs()
+            Deadlines.limit(options, options.requestConnectTimeoutMs())
                     .ifPresent(x -> builder.setConnectTimeout(x.intValue()));
-            options.requestReadTimeoutMs().ifPresent(x -> builder.setSocketTimeout(x.intValue()));
+            Deadlines.limit(options, options.requestReadTimeoutMs())
+                    .ifPresent(x -> builder.setSocketTimeout(x.intValue()));
             config = builder.build();
             request.setConfig(config);
             log.debug("executing request");
+            registration = Deadlines.onExpiry(options, request::abort);
             response =  client.execute(request);
             int statusCode = response.getStatusLine().getStatusCode();
             log.debug("executed request, code={}", statusCode);
-            InputStream is = response.getEntity().getContent();
+            InputStream is = decode(response);
             // ensure response is closed when input stream is closed
-            InputStream in = new InputStreamWithCloseable(is, response);
+            InputStream in = Deadlines.releaseOnClose(new InputStreamWithCloseable(is, response),
+                    registration);
             if (!isOk(statusCode)) {
                 try {
                     String msg = Util.readString(in, StandardCharsets.UTF_8);
@@ -225,6 +448,9 @@ public class ApacheHttpClientHttpService implements HttpService {
                 return in;
             }
         } catch (IOException e) {
+            if (registration != null) {
+                registration.close();
+            }
             // ensure that response is closed on exception to avoid memory leak
             if (response != null) {
                 try {
@@ -233,7 +459,7 @@ public class ApacheHttpClientHttpService implements HttpService {
                    log.warn(e1.getMessage(), e);
                 }
             }
-            throw new ClientException(e);
+            throw Deadlines.error(options, e);
         }
     }
 
@@ -244,7 +470,7 @@ public class ApacheHttpClientHttpService implements HttpService {
     @Override
     public void close() throws Exception {
         log.info("closing client");
-        client.close();
+        closer.close();
         log.info("closed client");
     }
 
@@ -252,4 +478,65 @@ public class ApacheHttpClientHttpService implements HttpService {
         return statusCode >= 200 && statusCode < 300;
     }
 
+    // writes the body straight to the connection (gzipped if requested)
+    private static final class RequestBodyEntity extends AbstractHttpEntity {
+
+        private final RequestBody body;
+        private final boolean gzip;
+        private final CompressionStats stats;
+
+        RequestBodyEntity(RequestBody body, boolean gzip, CompressionStats stats) {
+            this.body = body;
+            this.gzip = gzip;
+            this.stats = stats;
+            if (gzip) {
+                setContentEncoding(Compression.GZIP);
+            }
+            setChunked(getContentLength() < 0);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return body.isRepeatable();
+        }
+
+        @Override
+        public long getContentLength() {
+            return gzip ? -1 : body.length();
+        }
+
+        @Override
+        public InputStream getContent() {
+            // only used by callers that want the content in memory
+            return RequestBodies.toInputStream(body);
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            if (gzip) {
+                // don't close out, the connection owns it
+                OutputStream gz = Compression.gzip(new FilterOutputStream(out) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        out.flush();
+                    }
+                }, stats);
+                body.writeTo(gz);
+                gz.close();
+            } else {
+                body.writeTo(out);
+            }
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return !body.isRepeatable();
+        }
+    }
+
 }
@@ -0,0 +1,50 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.davidmoten.guavamini.Preconditions;
+
+/**
+ * Creates executors for running blocking http calls for an
+ * {@link com.github.davidmoten.odata.client.AsyncHttpService}. Blocking calls
+ * should not run on the common {@code ForkJoinPool} (they would starve
+ * unrelated work like parallel streams) so each owner gets its own pool.
+ */
+public final class BlockingCallExecutors {
+
+    public static final int DEFAULT_MAX_THREADS = 16;
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private BlockingCallExecutors() {
+        // prevent instantiation
+    }
+
+    /**
+     * Returns an executor of at most {@code maxThreads} daemon threads. Idle
+     * threads stop after a minute so an executor that is no longer used does not
+     * need to be shut down.
+     *
+     * @param name       prefix of the thread names
+     * @param maxThreads maximum number of threads, further calls are queued
+     * @return executor
+     */
+    public static ExecutorService create(String name, int maxThreads) {
+        Preconditions.checkNotNull(name);
+        Preconditions.checkArgument(maxThreads > 0, "maxThreads must be positive");
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import com.github.davidmoten.odata.client.AsyncHttpService;
+import com.github.davidmoten.odata.client.ClientException;
+import com.github.davidmoten.odata.client.HttpMethod;
+import com.github.davidmoten.odata.client.HttpRequestOptions;
+import com.github.davidmoten.odata.client.HttpResponse;
+import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.Path;
+import com.github.davidmoten.odata.client.RequestHeader;
+
+/**
+ * Blocking {@link HttpService} that waits on the futures of an
+ * {@link AsyncHttpService}. See {@link AsyncHttpService#toBlocking()}.
+ */
+public final class BlockingHttpService implements HttpService {
+
+    private final AsyncHttpService service;
+
+    public BlockingHttpService(AsyncHttpService service) {
+        this.service = service;
+    }
+
+    @Override
+    public HttpResponse get(String url, List<RequestHeader> requestHeaders,
+            HttpRequestOptions options) {
+        return join(service.get(url, requestHeaders, options));
+    }
+
+    @Override
+    public HttpResponse patch(String url, List<RequestHeader> requestHeaders, InputStream content,
+            int length, HttpRequestOptions options) {
+        return join(service.patch(url, requestHeaders, Util.read(content, length), options));
+    }
+
+    @Override
+    public HttpResponse put(String url, List<RequestHeader> requestHeaders, InputStream content,
+            int length, HttpRequestOptions options) {
+        return join(service.put(url, requestHeaders, Util.read(content, length), options));
+    }
+
+    @Override
+    public HttpResponse post(String url, List<RequestHeader> requestHeaders, InputStream content,
+            int length, HttpRequestOptions options) {
+        return join(service.post(url, requestHeaders, Util.read(content, length), options));
+    }
+
+    @Override
+    public HttpResponse delete(String url, List<RequestHeader> requestHeaders,
+            HttpRequestOptions options) {
+        return join(service.delete(url, requestHeaders, options));
+    }
+
+    @Override
+    public InputStream getStream(HttpMethod method, String url, List<RequestHeader> requestHeaders,
+            HttpRequestOptions options) {
+        final HttpResponse response;
+        if (method == HttpMethod.GET) {
+            response = get(url, requestHeaders, options);
+        } else if (method == HttpMethod.DELETE) {
+            response = delete(url, requestHeaders, options);
+        } else {
+            response = join(service.submitWithContent(method, url, requestHeaders, new byte[0],
+                    options));
+        }
+        if (response.getResponseCode() >= HttpURLConnection.HTTP_BAD_REQUEST) {
+            throw new ClientException(response.getResponseCode(),
+                    "responseCode=" + response.getResponseCode() + " from url=" + url
+                            + ", message=\n" + response.getText());
+        }
+        return new ByteArrayInputStream(response.getBytes() == null ? new byte[0] : response.getBytes());
+    }
+
+    @Override
+    public AsyncHttpService toAsync(Executor executor) {
+        return service;
+    }
+
+    @Override
+    public Path getBasePath() {
+        return service.getBasePath();
+    }
+
+    @Override
+    public void close() throws Exception {
+        service.close();
+    }
+
+    static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new ClientException(cause);
+            }
+        }
+    }
+
+}
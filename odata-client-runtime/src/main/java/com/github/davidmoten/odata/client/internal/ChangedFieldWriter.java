@@ -0,0 +1,82 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.github.davidmoten.odata.client.ODataEntityType;
+
+/**
+ * Property writer of an entity used by changes-only serialization that
+ * remembers its field ordinal so that testing whether it has changed is a bit
+ * test rather than a lookup by name. The ordinal is resolved against the
+ * {@link FieldOrdinals} of the {@link ChangedFields} being tested and kept
+ * until a different {@link FieldOrdinals} instance is seen (they are static
+ * per generated type so that is rare).
+ */
+public final class ChangedFieldWriter extends BeanPropertyWriter {
+
+    private static final long serialVersionUID = -3104563271432290357L;
+
+    /**
+     * Wraps the property writers of entities (other than {@code @odata.type}).
+     */
+    public static final BeanSerializerModifier MODIFIER = new BeanSerializerModifier() {
+
+        @Override
+        public List<BeanPropertyWriter> changeProperties(SerializationConfig config,
+                BeanDescription beanDesc, List<BeanPropertyWriter> beanProperties) {
+            if (ODataEntityType.class.isAssignableFrom(beanDesc.getBeanClass())) {
+                return beanProperties //
+                        .stream() //
+                        .map(w -> w.getName().equals(ODataTypeResolverBuilder.ODATA_TYPE) ? w
+                                : new ChangedFieldWriter(w)) //
+                        .collect(Collectors.toList());
+            } else {
+                return beanProperties;
+            }
+        }
+    };
+
+    private transient volatile Resolved resolved;
+
+    ChangedFieldWriter(BeanPropertyWriter base) {
+        super(base);
+    }
+
+    /**
+     * Returns true if this property has been changed.
+     *
+     * @param changedFields changed fields of the entity being written
+     * @return true if this property has been changed
+     */
+    public boolean isChanged(ChangedFields changedFields) {
+        FieldOrdinals ordinals = changedFields.ordinals();
+        int ordinal;
+        if (ordinals == null) {
+            ordinal = -1;
+        } else {
+            Resolved r = resolved;
+            if (r == null || r.ordinals != ordinals) {
+                r = new Resolved(ordinals, ordinals.ordinal(getName()));
+                resolved = r;
+            }
+            ordinal = r.ordinal;
+        }
+        return changedFields.contains(ordinal, getName());
+    }
+
+    private static final class Resolved {
+        final FieldOrdinals ordinals;
+        final int ordinal;
+
+        Resolved(FieldOrdinals ordinals, int ordinal) {
+            this.ordinals = ordinals;
+            this.ordinal = ordinal;
+        }
+    }
+
+}
@@ -1,56 +1,172 @@
 package com.github.davidmoten.odata.client.internal;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 /**
- * Immutable
+ * Immutable. Fields with an ordinal (see {@link FieldOrdinals}) are recorded
+ * as bits so that adding one costs a copy of a small {@code long[]} rather than
+ * of a set. Fields added by a name without an ordinal are kept in a set.
  */
 public final class ChangedFields implements Iterable<String> {
 
-    private final Set<String> set;
-    
+    private static final long[] NO_BITS = new long[0];
+
     public static final ChangedFields EMPTY = new ChangedFields();
 
-    private ChangedFields(Set<String> set) {
-        this.set = set;
+    // null until the first add by ordinal
+    private final FieldOrdinals ordinals;
+    private final long[] bits;
+    private final Set<String> others;
+
+    private ChangedFields(FieldOrdinals ordinals, long[] bits, Set<String> others) {
+        this.ordinals = ordinals;
+        this.bits = bits;
+        this.others = others;
     }
 
     public ChangedFields() {
-        this(Collections.emptySet());
+        this(null, NO_BITS, Collections.emptySet());
     }
 
     @Override
     public Iterator<String> iterator() {
-        // return a custom iterator that does not allow removal
+        // names with ordinals (in ordinal order) then the others, does not allow
+        // removal
         return new Iterator<String>() {
 
-            final Iterator<String> it = set.iterator();
+            int next = nextOrdinal(0);
+            final Iterator<String> it = others.iterator();
 
             @Override
             public boolean hasNext() {
-                return it.hasNext();
+                return next >= 0 || it.hasNext();
             }
 
             @Override
             public String next() {
-                return it.next();
+                if (next >= 0) {
+                    String name = ordinals.name(next);
+                    next = nextOrdinal(next + 1);
+                    return name;
+                } else if (it.hasNext()) {
+                    return it.next();
+                } else {
+                    throw new NoSuchElementException();
+                }
             }
         };
     }
 
+    private int nextOrdinal(int from) {
+        for (int i = from; i < bits.length * 64; i++) {
+            if (contains(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     public boolean contains(String name) {
-        return set.contains(name);
+        if (ordinals != null) {
+            int i = ordinals.ordinal(name);
+            if (i >= 0 && contains(i)) {
+                return true;
+            }
+        }
+        return others.contains(name);
+    }
+
+    /**
+     * Returns true if the field with the given ordinal has been added.
+     * 
+     * @param ordinal field ordinal
+     * @return true if the field has been added
+     */
+    public boolean contains(int ordinal) {
+        int word = ordinal >>> 6;
+        return word < bits.length && (bits[word] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Returns true if the field with the given ordinal (-1 if it has none) or name
+     * has been added. Names are only looked up if some fields were added without
+     * an ordinal.
+     * 
+     * @param ordinal field ordinal or -1
+     * @param name    field name
+     * @return true if the field has been added
+     */
+    boolean contains(int ordinal, String name) {
+        return ordinal >= 0 && contains(ordinal) || !others.isEmpty() && others.contains(name);
+    }
+
+    // the widest ordinals used so far, null if none
+    FieldOrdinals ordinals() {
+        return ordinals;
     }
 
     public ChangedFields add(String name) {
-        Set<String> set2 = new HashSet<String>(set);
-        set2.add(name);
-        return new ChangedFields(set2);
+        if (ordinals != null) {
+            int i = ordinals.ordinal(name);
+            if (i >= 0) {
+                return add(ordinals, i);
+            }
+        }
+        if (others.contains(name)) {
+            return this;
+        }
+        Set<String> set = new HashSet<String>(others);
+        set.add(name);
+        return new ChangedFields(ordinals, bits, set);
+    }
+
+    /**
+     * Returns a copy of this with the field with the given ordinal added.
+     * 
+     * @param fieldOrdinals ordinals of the type declaring the field
+     * @param ordinal       ordinal of the field
+     * @return a copy of this with the field added
+     */
+    public ChangedFields add(FieldOrdinals fieldOrdinals, int ordinal) {
+        FieldOrdinals o = widest(ordinals, fieldOrdinals);
+        if (o == null) {
+            // unrelated types, shouldn't happen
+            return add(fieldOrdinals.name(ordinal));
+        }
+        if (o == ordinals && contains(ordinal)) {
+            return this;
+        }
+        int word = ordinal >>> 6;
+        long[] b = Arrays.copyOf(bits, Math.max(bits.length, word + 1));
+        b[word] |= 1L << ordinal;
+        Set<String> set = others;
+        String name = o.name(ordinal);
+        if (set.contains(name)) {
+            // was added by name before the ordinals were known
+            set = new HashSet<String>(others);
+            set.remove(name);
+        }
+        return new ChangedFields(o, b, set);
+    }
+
+    private static FieldOrdinals widest(FieldOrdinals a, FieldOrdinals b) {
+        if (a == null || a == b) {
+            return b;
+        } else if (b.startsWith(a)) {
+            // b is a sub-type
+            return b;
+        } else if (a.startsWith(b)) {
+            return a;
+        } else {
+            return null;
+        }
     }
 
     public Set<String> toSet() {
@@ -0,0 +1,190 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import com.github.davidmoten.odata.client.CompressionStats;
+import com.github.davidmoten.odata.client.HttpCompression;
+import com.github.davidmoten.odata.client.RequestHeader;
+
+/**
+ * Compression support shared by the {@code HttpService} implementations.
+ */
+public final class Compression {
+
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+    public static final String GZIP = "gzip";
+    public static final int HTTP_UNSUPPORTED_MEDIA_TYPE = 415;
+
+    private static final String ACCEPT_ENCODING_VALUE = "gzip, deflate";
+    private static final int BUFFER_SIZE = 8192;
+
+    private Compression() {
+        // prevent instantiation
+    }
+
+    /**
+     * Returns the request headers with {@code Accept-Encoding} added if response
+     * compression is enabled and the caller has not set one.
+     *
+     * @param compression    settings
+     * @param requestHeaders request headers
+     * @return request headers
+     */
+    public static List<RequestHeader> requestHeaders(HttpCompression compression,
+            List<RequestHeader> requestHeaders) {
+        if (!compression.compressResponses() || requestHeaders.stream()
+                .anyMatch(h -> h.name().equalsIgnoreCase(ACCEPT_ENCODING))) {
+            return requestHeaders;
+        }
+        List<RequestHeader> list = new ArrayList<>(requestHeaders);
+        list.add(RequestHeader.create(ACCEPT_ENCODING, ACCEPT_ENCODING_VALUE));
+        return list;
+    }
+
+    /**
+     * Returns a stream that decodes {@code in} according to the
+     * {@code Content-Encoding} of the response (as it is read) and counts bytes in
+     * {@code stats}.
+     *
+     * @param in              raw response body, may be null
+     * @param contentEncoding value of the Content-Encoding header, may be null
+     * @param stats           counters
+     * @return decoded body or null if {@code in} is null
+     * @throws IOException if the encoding header cannot be read
+     */
+    public static InputStream decode(InputStream in, String contentEncoding,
+            CompressionStats stats) throws IOException {
+        if (in == null) {
+            return null;
+        }
+        InputStream wire = new CountingInputStream(in, stats::addResponseBytesOnWire);
+        final InputStream decoded;
+        String encoding = contentEncoding == null ? ""
+                : contentEncoding.trim().toLowerCase(Locale.ENGLISH);
+        if (encoding.equals(GZIP) || encoding.equals("x-gzip")) {
+            decoded = new GZIPInputStream(wire, BUFFER_SIZE);
+        } else if (encoding.equals("deflate")) {
+            decoded = inflate(wire);
+        } else {
+            decoded = wire;
+        }
+        return new CountingInputStream(decoded, stats::addResponseBytesDecoded);
+    }
+
+    /**
+     * Returns the length of the decoded body if it is known from the headers.
+     * 
+     * @param contentLength   Content-Length of the response, negative if absent
+     * @param contentEncoding Content-Encoding of the response, may be null
+     * @return decoded length or {@link Util#LENGTH_UNKNOWN}
+     */
+    public static long decodedLength(long contentLength, String contentEncoding) {
+        if (contentEncoding == null || contentEncoding.trim().isEmpty()
+                || contentEncoding.trim().equalsIgnoreCase("identity")) {
+            return contentLength < 0 ? Util.LENGTH_UNKNOWN : contentLength;
+        } else {
+            // Content-Length is the size on the wire
+            return Util.LENGTH_UNKNOWN;
+        }
+    }
+
+    // deflate should be zlib wrapped but some servers send raw deflate
+    private static InputStream inflate(InputStream in) throws IOException {
+        PushbackInputStream p = new PushbackInputStream(in, 2);
+        byte[] header = new byte[2];
+        int n = p.read(header);
+        if (n > 0) {
+            p.unread(header, 0, n);
+        }
+        boolean zlib = n == 2 && (header[0] & 0x0f) == 8
+                && (((header[0] & 0xff) << 8) | (header[1] & 0xff)) % 31 == 0;
+        return new InflaterInputStream(p, new Inflater(!zlib), BUFFER_SIZE);
+    }
+
+    /**
+     * Returns a stream that writes the gzipped bytes to {@code out} (and counts
+     * bytes in {@code stats}). Must be closed to finish the gzip stream.
+     *
+     * @param out   destination
+     * @param stats counters
+     * @return stream to write the uncompressed bytes to
+     * @throws IOException on write error
+     */
+    public static OutputStream gzip(OutputStream out, CompressionStats stats) throws IOException {
+        return new CountingOutputStream(
+                new GZIPOutputStream(
+                        new CountingOutputStream(out, stats::addRequestBytesOnWire), BUFFER_SIZE),
+                stats::addRequestBytesUncompressed);
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private final LongConsumer counter;
+
+        CountingInputStream(InputStream in, LongConsumer counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                counter.accept(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                counter.accept(n);
+            }
+            return n;
+        }
+
+        @Override
+        public boolean markSupported() {
+            // counts would be wrong after a reset
+            return false;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private final LongConsumer counter;
+
+        CountingOutputStream(OutputStream out, LongConsumer counter) {
+            super(out);
+            this.counter = counter;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            counter.accept(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            counter.accept(len);
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+import com.github.davidmoten.odata.client.ClientException;
+import com.github.davidmoten.odata.client.Deadline;
+import com.github.davidmoten.odata.client.Deadline.Registration;
+import com.github.davidmoten.odata.client.HttpRequestOptions;
+
+/**
+ * Applies the {@link Deadline} of {@link HttpRequestOptions} (if present) to a
+ * request made by an {@link com.github.davidmoten.odata.client.HttpService}.
+ */
+public final class Deadlines {
+
+    private static final Registration NONE = () -> {
+    };
+
+    private Deadlines() {
+        // prevent instantiation
+    }
+
+    /**
+     * Returns the timeout to use for a request limited by the time remaining
+     * before the deadline.
+     *
+     * @param options   request options
+     * @param timeoutMs timeout for the request, non-positive for no timeout
+     * @return timeout in ms
+     * @throws com.github.davidmoten.odata.client.DeadlineExceededException if
+     *         the deadline has passed
+     */
+    public static Optional<Long> limit(HttpRequestOptions options, Optional<Long> timeoutMs) {
+        if (options.deadline().isPresent()) {
+            return options.deadline().get().limit(timeoutMs);
+        } else {
+            return timeoutMs;
+        }
+    }
+
+    /**
+     * Runs {@code abort} if the deadline passes before the returned registration
+     * is closed.
+     *
+     * @param options request options
+     * @param abort   aborts the request in progress
+     * @return registration to close once the request has completed
+     */
+    public static Registration onExpiry(HttpRequestOptions options, Runnable abort) {
+        if (options.deadline().isPresent()) {
+            return options.deadline().get().onExpiry(abort);
+        } else {
+            return NONE;
+        }
+    }
+
+    /**
+     * Returns a stream that closes the registration when it is closed so that a
+     * response body being read can still be aborted by the deadline.
+     *
+     * @param in           response body
+     * @param registration deadline registration of the request
+     * @return stream
+     */
+    public static InputStream releaseOnClose(InputStream in, Registration registration) {
+        if (registration == NONE) {
+            return in;
+        } else {
+            return new InputStreamWithCloseable(in, registration::close);
+        }
+    }
+
+    /**
+     * Returns the exception to throw for an IO error. If the deadline has passed
+     * the error was most likely caused by aborting the request.
+     *
+     * @param options request options
+     * @param e       IO error
+     * @return exception to throw
+     */
+    public static RuntimeException error(HttpRequestOptions options, IOException e) {
+        if (options.deadline().isPresent() && options.deadline().get().isExpired()) {
+            return options.deadline().get().exception(e);
+        } else {
+            return new ClientException(e);
+        }
+    }
+
+}
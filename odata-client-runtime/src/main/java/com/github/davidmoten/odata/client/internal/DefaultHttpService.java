@@ -1,69 +1,96 @@
 package com.github.davidmoten.odata.client.internal;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.HttpRetryException;
 import java.net.HttpURLConnection;
 import java.net.ProtocolException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 import com.github.davidmoten.guavamini.Lists;
 import com.github.davidmoten.odata.client.ClientException;
+import com.github.davidmoten.odata.client.Deadline;
+import com.github.davidmoten.odata.client.Deadline.Registration;
+import com.github.davidmoten.odata.client.HttpCompression;
 import com.github.davidmoten.odata.client.HttpMethod;
 import com.github.davidmoten.odata.client.HttpRequestOptions;
 import com.github.davidmoten.odata.client.HttpResponse;
 import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.HttpStreamingResponse;
 import com.github.davidmoten.odata.client.Path;
+import com.github.davidmoten.odata.client.RequestBody;
 import com.github.davidmoten.odata.client.RequestHeader;
 
 public final class DefaultHttpService implements HttpService {
 
+    private static final int BUFFER_SIZE = 8192;
+
     private final Path basePath;
     private final Function<List<RequestHeader>, List<RequestHeader>> requestHeadersModifier;
 
     // not thread-safe but is ok if set multiple times from multiple threads (just
     // means a few extra calls that throw till all threads catch up to the setting
     private boolean patchSupported = true;
+    // same as above, set false once the server rejects a gzipped request body
+    private boolean requestCompressionSupported = true;
     private final Consumer<HttpURLConnection> consumer;
+    private final HttpCompression compression;
 
     public DefaultHttpService(Path basePath,
             Function<List<RequestHeader>, List<RequestHeader>> requestHeadersModifier,
-            Consumer<HttpURLConnection> consumer) {
+            Consumer<HttpURLConnection> consumer, HttpCompression compression) {
         this.basePath = basePath;
         this.requestHeadersModifier = requestHeadersModifier;
         this.consumer = consumer;
+        this.compression = compression;
+    }
+
+    public DefaultHttpService(Path basePath,
+            Function<List<RequestHeader>, List<RequestHeader>> requestHeadersModifier,
+            Consumer<HttpURLConnection> consumer) {
+        this(basePath, requestHeadersModifier, consumer, HttpCompression.none());
     }
 
     @Override
     public HttpResponse get(String url, List<RequestHeader> requestHeaders,
             HttpRequestOptions options) {
-        return getResponse(url, requestHeaders, HttpMethod.GET, true, null,
-                HttpService.LENGTH_UNKNOWN);
+        return getResponse(url, requestHeaders, HttpMethod.GET, true, null, options);
     }
 
     @Override
     public HttpResponse patch(String url, List<RequestHeader> requestHeaders, InputStream content,
             int length, HttpRequestOptions options) {
+        return patch(url, requestHeaders, body(content, length), options);
+    }
+
+    private HttpResponse patch(String url, List<RequestHeader> requestHeaders, RequestBody body,
+            HttpRequestOptions options) {
         if (patchSupported) {
             try {
-                return getResponse(url, requestHeaders, HttpMethod.PATCH, false, content, length);
+                return getResponse(url, requestHeaders, HttpMethod.PATCH, false, body, options);
             } catch (ProtocolRuntimeException e) {
-                return getResponsePatchOverride(url, requestHeaders, content, length);
+                return getResponsePatchOverride(url, requestHeaders, body, options);
             }
         } else {
-            return getResponsePatchOverride(url, requestHeaders, content, length);
+            return getResponsePatchOverride(url, requestHeaders, body, options);
         }
     }
 
     private HttpResponse getResponsePatchOverride(String url, List<RequestHeader> requestHeaders,
-            InputStream content, int length) {
+            RequestBody body, HttpRequestOptions options) {
         List<RequestHeader> list = Lists.newArrayList(requestHeaders);
         list.add(new RequestHeader("X-HTTP-Method-Override", "PATCH"));
-        HttpResponse result = getResponse(url, list, HttpMethod.POST, false, content, length);
+        HttpResponse result = getResponse(url, list, HttpMethod.POST, false, body, options);
         // only indicate patch not supported if the result is returned ok
         patchSupported = false;
         return result;
@@ -72,19 +99,40 @@ public final class DefaultHttpService implements HttpService {
     @Override
     public HttpResponse put(String url, List<RequestHeader> requestHeaders, InputStream content,
             int length, HttpRequestOptions options) {
-        return getResponse(url, requestHeaders, HttpMethod.PUT, false, content, length);
+        return getResponse(url, requestHeaders, HttpMethod.PUT, false, body(content, length),
+                options);
     }
 
     @Override
     public HttpResponse post(String url, List<RequestHeader> requestHeaders, InputStream content,
             int length, HttpRequestOptions options) {
-        return getResponse(url, requestHeaders, HttpMethod.POST, true, content, length);
+        return getResponse(url, requestHeaders, HttpMethod.POST, true, body(content, length),
+                options);
+    }
+
+    @Override
+    public HttpResponse submit(HttpMethod method, String url, List<RequestHeader> requestHeaders,
+            RequestBody body, HttpRequestOptions options) {
+        if (method == HttpMethod.PATCH) {
+            return patch(url, requestHeaders, body, options);
+        } else if (method == HttpMethod.PUT) {
+            return getResponse(url, requestHeaders, method, false, body, options);
+        } else if (method == HttpMethod.POST) {
+            return getResponse(url, requestHeaders, method, true, body, options);
+        } else {
+            throw new IllegalArgumentException(
+                    method + " not permitted for a submission with content");
+        }
+    }
+
+    private static RequestBody body(InputStream content, int length) {
+        return content == null ? null : RequestBody.of(content, length);
     }
 
     @Override
     public HttpResponse delete(String url, List<RequestHeader> requestHeaders,
             HttpRequestOptions options) {
-        return getResponse(url, requestHeaders, HttpMethod.DELETE, false, null, -1);
+        return getResponse(url, requestHeaders, HttpMethod.DELETE, false, null, options);
     }
 
     @Override
@@ -93,46 +141,215 @@ public final class DefaultHttpService implements HttpService {
     }
 
     private HttpResponse getResponse(String url, List<RequestHeader> requestHeaders,
-            HttpMethod method, boolean doInput, InputStream content, int length) {
+            HttpMethod method, boolean doInput, RequestBody content, HttpRequestOptions options) {
+        RequestBody body = RequestBodies.sized(content);
+        Registration registration = null;
         try {
-            URL u = new URL(url);
-            HttpURLConnection c = (HttpURLConnection) u.openConnection();
-            c.setInstanceFollowRedirects(true);
-            c.setRequestMethod(method.toString());
-            for (RequestHeader header : requestHeadersModifier.apply(requestHeaders)) {
-                c.setRequestProperty(header.name(), header.value());
-            }
-            if (length != HttpService.LENGTH_UNKNOWN) {
-                c.setRequestProperty("Content-Length", length + "");
-            }
-            c.setDoInput(doInput);
-            c.setDoOutput(content != null);
-            // apply just before connection established so further configuration can take
-            // place like timeouts
-            consumer.accept(c);
-            if (content != null) {
-                try (OutputStream out = c.getOutputStream()) {
-                    byte[] b = new byte[8192];
-                    int len;
-                    while ((len = content.read(b)) != -1) {
-                        out.write(b, 0, len);
-                    }
-                }
+            boolean gzip = gzipRequest(body);
+            HttpURLConnection c = open(url, options);
+            registration = Deadlines.onExpiry(options, c::disconnect);
+            connect(c, requestHeaders, method, body, gzip, options);
+            int responseCode = c.getResponseCode();
+            if (rejected(c, gzip, responseCode, body)) {
+                return getResponse(url, requestHeaders, method, doInput, body, options);
             }
             final byte[] bytes;
-            if (doInput) {
-                bytes = Util.read(c.getInputStream());
+            if (isError(responseCode)) {
+                // return the error body so that it appears in the ClientException thrown by
+                // the caller
+                bytes = readFully(decode(c, c.getErrorStream()), decodedLength(c));
+            } else if (doInput) {
+                bytes = readFully(decode(c, c.getInputStream()), decodedLength(c));
             } else {
+                // the body must be consumed for the connection to be reused
+                drain(decode(c, c.getInputStream()));
                 bytes = null;
             }
-            return new HttpResponse(c.getResponseCode(), bytes);
+            return new HttpResponse(responseCode, bytes);
+        } catch (HttpRetryException e) {
+            throw notResent(url, e);
         } catch (ProtocolException e) {
             throw new ProtocolRuntimeException(e);
+        } catch (IOException e) {
+            throw Deadlines.error(options, e);
+        } finally {
+            if (registration != null) {
+                registration.close();
+            }
+        }
+    }
+
+    @Override
+    public HttpStreamingResponse submitStreaming(HttpMethod method, String url,
+            List<RequestHeader> requestHeaders, InputStream content, int length,
+            HttpRequestOptions options) {
+        return submitStreaming(method, url, requestHeaders, body(content, length), options);
+    }
+
+    @Override
+    public HttpStreamingResponse submitStreaming(HttpMethod method, String url,
+            List<RequestHeader> requestHeaders, RequestBody content, HttpRequestOptions options) {
+        if (method == HttpMethod.PATCH) {
+            // PATCH may need the method override fallback
+            return HttpStreamingResponse.from(patch(url, requestHeaders, content, options));
+        }
+        RequestBody body = RequestBodies.sized(content);
+        HttpURLConnection c = open(url, options);
+        // the deadline can abort the request while the body is being read
+        Registration registration = Deadlines.onExpiry(options, c::disconnect);
+        try {
+            boolean gzip = gzipRequest(body);
+            connect(c, requestHeaders, method, body, gzip, options);
+            int responseCode = c.getResponseCode();
+            if (rejected(c, gzip, responseCode, body)) {
+                registration.close();
+                return submitStreaming(method, url, requestHeaders, body, options);
+            }
+            InputStream in = decode(c,
+                    isError(responseCode) ? c.getErrorStream() : c.getInputStream());
+            if (in == null) {
+                in = new ByteArrayInputStream(new byte[0]);
+            }
+            // closing the stream (once read) returns the connection to the keep-alive cache
+            return new HttpStreamingResponse(responseCode, headers(c),
+                    Deadlines.releaseOnClose(in, registration));
+        } catch (HttpRetryException e) {
+            registration.close();
+            throw notResent(url, e);
+        } catch (ProtocolException e) {
+            registration.close();
+            throw new ProtocolRuntimeException(e);
+        } catch (IOException e) {
+            registration.close();
+            throw Deadlines.error(options, e);
+        }
+    }
+
+    // returns true if the server doesn't accept compressed requests and the body can
+    // be resent uncompressed
+    private boolean rejected(HttpURLConnection c, boolean gzip, int responseCode,
+            RequestBody body) throws IOException {
+        if (gzip && responseCode == Compression.HTTP_UNSUPPORTED_MEDIA_TYPE
+                && body.isRepeatable()) {
+            drain(c.getErrorStream());
+            requestCompressionSupported = false;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    // HttpURLConnection can't resend a streamed request body to follow a redirect or
+    // to answer an authentication challenge
+    private static ClientException notResent(String url, HttpRetryException e) {
+        return new ClientException(e.responseCode(), "responseCode=" + e.responseCode()
+                + " from url=" + url + ", the streamed request body cannot be resent"
+                + (e.getLocation() == null ? "" : " to " + e.getLocation()) + ": "
+                + e.getReason());
+    }
+
+    private static Map<String, List<String>> headers(HttpURLConnection c) {
+        Map<String, List<String>> map = new LinkedHashMap<>();
+        for (Entry<String, List<String>> entry : c.getHeaderFields().entrySet()) {
+            // the status line has a null key
+            if (entry.getKey() != null) {
+                map.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return map;
+    }
+
+    private static HttpURLConnection open(String url, HttpRequestOptions options) {
+        // fail fast if the deadline has already passed
+        options.deadline().ifPresent(Deadline::checkNotExpired);
+        try {
+            return (HttpURLConnection) new URL(url).openConnection();
         } catch (IOException e) {
             throw new ClientException(e);
         }
     }
 
+    private void connect(HttpURLConnection c, List<RequestHeader> requestHeaders,
+            HttpMethod method, RequestBody body, boolean gzip, HttpRequestOptions options)
+            throws IOException {
+        c.setInstanceFollowRedirects(true);
+        c.setRequestMethod(method.toString());
+        for (RequestHeader header : Compression.requestHeaders(compression,
+                requestHeadersModifier.apply(requestHeaders))) {
+            c.setRequestProperty(header.name(), header.value());
+        }
+        // the response (or error) body is always read so that the connection can go
+        // back to the keep-alive cache
+        c.setDoInput(true);
+        c.setDoOutput(body != null);
+        if (body != null) {
+            // stream the body rather than let HttpURLConnection buffer it all to work out
+            // the Content-Length
+            if (gzip) {
+                c.setRequestProperty(Compression.CONTENT_ENCODING, Compression.GZIP);
+                c.setChunkedStreamingMode(BUFFER_SIZE);
+            } else if (body.length() == HttpService.LENGTH_UNKNOWN) {
+                c.setChunkedStreamingMode(BUFFER_SIZE);
+            } else {
+                c.setFixedLengthStreamingMode((long) body.length());
+            }
+        }
+        // apply just before connection established so further configuration can take
+        // place like timeouts
+        consumer.accept(c);
+        // per request timeouts are capped by the time left before the deadline (0 is
+        // no timeout)
+        Deadlines.limit(options, Optional.of(options.requestConnectTimeoutMs()
+                .orElse((long) c.getConnectTimeout())))
+                .ifPresent(x -> c.setConnectTimeout(x.intValue()));
+        Deadlines.limit(options, Optional.of(options.requestReadTimeoutMs()
+                .orElse((long) c.getReadTimeout())))
+                .ifPresent(x -> c.setReadTimeout(x.intValue()));
+        if (body != null) {
+            try (OutputStream out = gzip ? Compression.gzip(c.getOutputStream(), compression.stats())
+                    : c.getOutputStream()) {
+                body.writeTo(out);
+            }
+        }
+    }
+
+    private boolean gzipRequest(RequestBody body) {
+        return body != null && requestCompressionSupported
+                && compression.compressRequest(RequestBodies.minLength(body));
+    }
+
+    private InputStream decode(HttpURLConnection c, InputStream in) throws IOException {
+        return Compression.decode(in, c.getContentEncoding(), compression.stats());
+    }
+
+    private static boolean isError(int responseCode) {
+        return responseCode >= HttpURLConnection.HTTP_BAD_REQUEST;
+    }
+
+    private static long decodedLength(HttpURLConnection c) {
+        return Compression.decodedLength(c.getContentLengthLong(), c.getContentEncoding());
+    }
+
+    private static byte[] readFully(InputStream in, long lengthHint) throws IOException {
+        if (in == null) {
+            return null;
+        }
+        try (InputStream is = in) {
+            return Util.read(is, lengthHint);
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        if (in != null) {
+            try (InputStream is = in) {
+                byte[] b = new byte[BUFFER_SIZE];
+                while (is.read(b) != -1) {
+                    // discard
+                }
+            }
+        }
+    }
+
     @Override
     public void close() throws Exception {
         // do nothing
@@ -141,23 +358,22 @@ public final class DefaultHttpService implements HttpService {
     @Override
     public InputStream getStream(HttpMethod method, String url, List<RequestHeader> requestHeaders,
             HttpRequestOptions options) {
+        HttpURLConnection c = open(url, options);
+        Registration registration = Deadlines.onExpiry(options, c::disconnect);
         try {
-            URL u = new URL(url);
-            HttpURLConnection c = (HttpURLConnection) u.openConnection();
-            c.setInstanceFollowRedirects(true);
-            c.setRequestMethod(method.toString());
-            for (RequestHeader header : requestHeadersModifier.apply(requestHeaders)) {
-                c.setRequestProperty(header.name(), header.value());
+            connect(c, requestHeaders, method, null, false, options);
+            int responseCode = c.getResponseCode();
+            if (isError(responseCode)) {
+                byte[] bytes = readFully(decode(c, c.getErrorStream()), decodedLength(c));
+                registration.close();
+                throw new ClientException(responseCode,
+                        "responseCode=" + responseCode + " from url=" + url + ", message=\n"
+                                + (bytes == null ? "" : new String(bytes, StandardCharsets.UTF_8)));
             }
-            c.setDoInput(true);
-            c.setDoOutput(false);
-            // apply just before connection established so further configuration can take
-            // place like timeouts
-            consumer.accept(c);
-            // TODO check error code and throw message read from input stream
-            return c.getInputStream();
+            return Deadlines.releaseOnClose(decode(c, c.getInputStream()), registration);
         } catch (IOException e) {
-            throw new ClientException(e);
+            registration.close();
+            throw Deadlines.error(options, e);
         }
     }
 }
@@ -0,0 +1,93 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import com.github.davidmoten.odata.client.AsyncHttpService;
+import com.github.davidmoten.odata.client.HttpMethod;
+import com.github.davidmoten.odata.client.HttpRequestOptions;
+import com.github.davidmoten.odata.client.HttpResponse;
+import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.Path;
+import com.github.davidmoten.odata.client.RequestBody;
+import com.github.davidmoten.odata.client.RequestHeader;
+
+/**
+ * {@link AsyncHttpService} that runs the calls of a blocking
+ * {@link HttpService} on an {@link Executor}. See
+ * {@link AsyncHttpService#fromBlocking(HttpService, Executor)}.
+ */
+public final class ExecutorAsyncHttpService implements AsyncHttpService {
+
+    private final HttpService service;
+    private final Executor executor;
+
+    public ExecutorAsyncHttpService(HttpService service, Executor executor) {
+        this.service = service;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> get(String url, List<RequestHeader> requestHeaders,
+            HttpRequestOptions options) {
+        return run(() -> service.get(url, requestHeaders, options));
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> patch(String url, List<RequestHeader> requestHeaders,
+            byte[] content, HttpRequestOptions options) {
+        return run(() -> service.patch(url, requestHeaders, new ByteArrayInputStream(content),
+                content.length, options));
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> put(String url, List<RequestHeader> requestHeaders,
+            byte[] content, HttpRequestOptions options) {
+        return run(() -> service.put(url, requestHeaders, new ByteArrayInputStream(content),
+                content.length, options));
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> post(String url, List<RequestHeader> requestHeaders,
+            byte[] content, HttpRequestOptions options) {
+        return run(() -> service.post(url, requestHeaders, new ByteArrayInputStream(content),
+                content.length, options));
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> submit(HttpMethod method, String url,
+            List<RequestHeader> requestHeaders, RequestBody body, HttpRequestOptions options) {
+        // the body is written straight to the connection on the executor thread
+        return run(() -> service.submit(method, url, requestHeaders, body, options));
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> delete(String url, List<RequestHeader> requestHeaders,
+            HttpRequestOptions options) {
+        return run(() -> service.delete(url, requestHeaders, options));
+    }
+
+    @Override
+    public Path getBasePath() {
+        return service.getBasePath();
+    }
+
+    @Override
+    public HttpService toBlocking() {
+        // no need to hop threads
+        return service;
+    }
+
+    @Override
+    public void close() throws Exception {
+        service.close();
+    }
+
+    private CompletableFuture<HttpResponse> run(Supplier<HttpResponse> call) {
+        return CompletableFuture.supplyAsync(call, executor);
+    }
+
+}
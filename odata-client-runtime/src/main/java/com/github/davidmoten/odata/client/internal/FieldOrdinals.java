@@ -0,0 +1,67 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns each property name of a type an ordinal (its position in the list
+ * passed to {@link #of(String...)}) so that {@link ChangedFields} can record
+ * changes as bits. Generated classes list the properties of their base types
+ * first so the ordinals of a base type are valid for its sub-types.
+ */
+public final class FieldOrdinals {
+
+    private final String[] names;
+    private final Map<String, Integer> ordinals;
+
+    private FieldOrdinals(String[] names) {
+        this.names = names;
+        this.ordinals = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            ordinals.put(names[i], i);
+        }
+    }
+
+    public static FieldOrdinals of(String... names) {
+        return new FieldOrdinals(names);
+    }
+
+    /**
+     * Returns the ordinal of the given property name or -1 if not present.
+     * 
+     * @param name property name
+     * @return ordinal or -1 if name not present
+     */
+    public int ordinal(String name) {
+        Integer i = ordinals.get(name);
+        return i == null ? -1 : i;
+    }
+
+    public String name(int ordinal) {
+        return names[ordinal];
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns true if the names of {@code other} are a prefix of the names of this
+     * (so that the ordinals of other have the same meaning in this).
+     * 
+     * @param other other ordinals
+     * @return true if other is a prefix of this
+     */
+    boolean startsWith(FieldOrdinals other) {
+        if (other.names.length > names.length) {
+            return false;
+        }
+        for (int i = 0; i < other.names.length; i++) {
+            if (!names[i].equals(other.names[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.odata.client.DeltaLinkStore;
+
+/**
+ * Keeps a deltaLink in a file. Saves write a temporary file in the same
+ * directory, flush it to disk and then rename it over the target so that a
+ * crash never leaves a partly written deltaLink.
+ */
+public final class FileDeltaLinkStore implements DeltaLinkStore {
+
+    private final Path file;
+
+    public FileDeltaLinkStore(Path file) {
+        Preconditions.checkNotNull(file);
+        this.file = file.toAbsolutePath();
+    }
+
+    @Override
+    public Optional<String> load() {
+        try {
+            if (!Files.exists(file)) {
+                return Optional.empty();
+            }
+            String s = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+            return s.isEmpty() ? Optional.empty() : Optional.of(s);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void save(String deltaLink) {
+        Preconditions.checkNotNull(deltaLink);
+        Path tmp = null;
+        try {
+            // same directory so that the rename does not cross file systems
+            tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            Files.write(tmp, deltaLink.getBytes(StandardCharsets.UTF_8));
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            tmp = null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+/**
+ * Base class for deserializers generated for entity and complex types. Value
+ * deserializers for the properties are looked up once (in
+ * {@link #resolveFields(DeserializationContext)}) and the generated
+ * {@code deserialize} method switches on field name while reading tokens.
+ *
+ * @param <T> generated type
+ */
+public abstract class GeneratedDeserializer<T> extends StdDeserializer<T>
+        implements ResolvableDeserializer {
+
+    private static final long serialVersionUID = -4577283926462383407L;
+
+    private JsonDeserializer<Object> unmapped;
+
+    protected GeneratedDeserializer(Class<T> cls) {
+        super(cls);
+    }
+
+    @Override
+    public final void resolve(DeserializationContext ctxt) throws JsonMappingException {
+        unmapped = ctxt.findRootValueDeserializer(ctxt.constructType(Object.class));
+        resolveFields(ctxt);
+    }
+
+    /**
+     * Looks up the value deserializers for the properties of the type.
+     *
+     * @param ctxt context
+     * @throws JsonMappingException if a deserializer cannot be found
+     */
+    protected abstract void resolveFields(DeserializationContext ctxt)
+            throws JsonMappingException;
+
+    @Override
+    public boolean isCachable() {
+        // must be cached so that recursive types resolve
+        return true;
+    }
+
+    protected static JsonDeserializer<Object> deserializer(DeserializationContext ctxt,
+            Class<?> cls) throws JsonMappingException {
+        // includes @odata.type handling for ODataType
+        return ctxt.findRootValueDeserializer(ctxt.constructType(cls));
+    }
+
+    protected static JsonDeserializer<Object> collectionDeserializer(DeserializationContext ctxt,
+            Class<?> elementCls) throws JsonMappingException {
+        return ctxt.findRootValueDeserializer(
+                ctxt.getTypeFactory().constructCollectionType(List.class, elementCls));
+    }
+
+    protected static <S> S inject(DeserializationContext ctxt, Class<S> cls)
+            throws JsonMappingException {
+        // same value ids as used for @JacksonInject fields
+        return cls.cast(ctxt.findInjectableValue(cls.getName(), null, null));
+    }
+
+    /**
+     * Returns the token of the first field (or the end of the object) positioning
+     * the parser there.
+     *
+     * @param p parser
+     * @return the current token after skipping the start of the object
+     * @throws IOException on read error
+     */
+    protected static JsonToken firstField(JsonParser p) throws IOException {
+        JsonToken t = p.currentToken();
+        if (t == JsonToken.START_OBJECT) {
+            return p.nextToken();
+        } else {
+            return t;
+        }
+    }
+
+    protected static Object read(JsonParser p, DeserializationContext ctxt,
+            JsonDeserializer<Object> deserializer) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NULL) {
+            return deserializer.getNullValue(ctxt);
+        } else {
+            return deserializer.deserialize(p, ctxt);
+        }
+    }
+
+    protected final Object readUnmapped(JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+        return read(p, ctxt, unmapped);
+    }
+
+}
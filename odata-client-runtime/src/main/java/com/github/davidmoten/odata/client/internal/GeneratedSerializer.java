@@ -0,0 +1,49 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Base class for serializers generated for entity and complex types. The
+ * generated {@code serialize} method writes each property directly. Null values
+ * are written only if the mapper includes nulls.
+ *
+ * @param <T> generated type
+ */
+public abstract class GeneratedSerializer<T> extends StdSerializer<T> {
+
+    private static final long serialVersionUID = 6245530180296437421L;
+
+    protected GeneratedSerializer(Class<T> cls) {
+        super(cls);
+    }
+
+    protected static void write(JsonGenerator g, SerializerProvider provider, String name,
+            Object value) throws IOException {
+        if (value != null) {
+            g.writeFieldName(name);
+            provider.defaultSerializeValue(value, g);
+        } else if (includeNulls(provider)) {
+            g.writeNullField(name);
+        }
+    }
+
+    protected static void writeUnmapped(JsonGenerator g, SerializerProvider provider,
+            Map<String, Object> unmappedFields) throws IOException {
+        for (Entry<String, Object> entry : unmappedFields.entrySet()) {
+            write(g, provider, entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static boolean includeNulls(SerializerProvider provider) {
+        Include include = provider.getConfig().getDefaultPropertyInclusion().getValueInclusion();
+        return include == Include.ALWAYS || include == Include.USE_DEFAULTS;
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import com.github.davidmoten.odata.client.ConnectionPoolStats;
+
+/**
+ * Pooling connection manager that also records how long requests wait to lease
+ * a connection.
+ */
+public final class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public InstrumentedConnectionManager(long timeToLive, TimeUnit unit) {
+        super(timeToLive, unit);
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        ConnectionRequest request = super.requestConnection(route, state);
+        return new ConnectionRequest() {
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit unit)
+                    throws InterruptedException, ExecutionException,
+                    ConnectionPoolTimeoutException {
+                long t = System.nanoTime();
+                try {
+                    return request.get(timeout, unit);
+                } finally {
+                    record(System.nanoTime() - t);
+                }
+            }
+        };
+    }
+
+    private void record(long waitNanos) {
+        leases.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    public ConnectionPoolStats stats() {
+        PoolStats s = getTotalStats();
+        return new ConnectionPoolStats(s.getLeased(), s.getPending(), s.getAvailable(),
+                s.getMax(), leases.get(), TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get()),
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+    }
+
+}
@@ -0,0 +1,186 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.BiConsumer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Holds the raw json of the object and array valued fields of an entity read
+ * lazily. Scalar fields are bound as normal, the others are only decoded when
+ * first asked for (by the property getter of the entity or by
+ * {@code materialize()}) and the decoded value is memoized.
+ *
+ * <p>
+ * The source bytes are shared by all entities read from the same response.
+ */
+public final class LazyFields {
+
+    private final byte[] json;
+    private final ObjectReader reader;
+    // field name -> start and end offsets of the value in json
+    private final Map<String, int[]> ranges;
+    // field name -> decoded value
+    private final Map<String, Object> values = new HashMap<>();
+    private final int start;
+    private final int end;
+    private volatile boolean attached;
+
+    private LazyFields(byte[] json, ObjectReader reader, Map<String, int[]> ranges, int start,
+            int end) {
+        this.json = json;
+        this.reader = reader;
+        this.ranges = ranges;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Reads the json object at the current position of the parser (which must be
+     * {@code START_OBJECT} and reading from {@code json}). Scalar fields are copied
+     * to {@code scalars} (as a complete object) and the byte ranges of the other
+     * fields are recorded. On return the parser is positioned at the end of the
+     * object.
+     *
+     * @param p       parser positioned at the start of the object
+     * @param json    UTF-8 bytes being read by the parser
+     * @param reader  reader used to decode values when requested (has the
+     *                injectable values for the call)
+     * @param scalars receives the scalar fields
+     * @return lazy fields for the object
+     * @throws IOException on read error
+     */
+    public static LazyFields read(JsonParser p, byte[] json, ObjectReader reader,
+            TokenBuffer scalars) throws IOException {
+        int start = (int) p.getTokenLocation().getByteOffset();
+        Map<String, int[]> ranges = new LinkedHashMap<>();
+        scalars.writeStartObject();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.getCurrentName();
+            JsonToken t = p.nextToken();
+            if (t == JsonToken.START_OBJECT || t == JsonToken.START_ARRAY) {
+                int valueStart = (int) p.getTokenLocation().getByteOffset();
+                p.skipChildren();
+                ranges.put(name,
+                        new int[] { valueStart, (int) p.getCurrentLocation().getByteOffset() });
+            } else {
+                scalars.writeFieldName(name);
+                scalars.copyCurrentEvent(p);
+            }
+        }
+        scalars.writeEndObject();
+        int end = (int) p.getCurrentLocation().getByteOffset();
+        return new LazyFields(json, reader, ranges, start, end);
+    }
+
+    /**
+     * Returns the decoded value of the field if it was deferred otherwise returns
+     * {@code current}.
+     *
+     * @param <T>     value type
+     * @param name    json field name
+     * @param current current value of the field
+     * @param cls     value class
+     * @return decoded value or current
+     */
+    public <T> T value(String name, T current, Class<T> cls) {
+        return value(name, current, reader.getTypeFactory().constructType(cls));
+    }
+
+    /**
+     * Returns the decoded value of the collection valued field if it was deferred
+     * otherwise returns {@code current}.
+     *
+     * @param <T>        element type
+     * @param name       json field name
+     * @param current    current value of the field
+     * @param elementCls element class
+     * @return decoded value or current
+     */
+    public <T> List<T> list(String name, List<T> current, Class<T> elementCls) {
+        return value(name, current,
+                reader.getTypeFactory().constructCollectionType(List.class, elementCls));
+    }
+
+    /**
+     * Decodes the deferred fields that have not been asked for by name (those that
+     * are not properties of the entity type) and passes them to the consumer.
+     *
+     * @param consumer receives field name and decoded value
+     */
+    public void forEachRemaining(BiConsumer<String, Object> consumer) {
+        for (Entry<String, int[]> entry : ranges.entrySet()) {
+            if (!isDecoded(entry.getKey())) {
+                consumer.accept(entry.getKey(),
+                        value(entry.getKey(), null, reader.getTypeFactory().constructType(Object.class)));
+            }
+        }
+    }
+
+    private synchronized boolean isDecoded(String name) {
+        return values.containsKey(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T> T value(String name, T current, JavaType type) {
+        int[] range = ranges.get(name);
+        if (range == null) {
+            return current;
+        }
+        if (values.containsKey(name)) {
+            return (T) values.get(name);
+        }
+        try {
+            T v = reader.forType(type).readValue(json, range[0], range[1] - range[0]);
+            values.put(name, v);
+            return v;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records that this instance has been injected into the entity (if the entity
+     * class doesn't declare a field for it then the deferred fields would be lost).
+     *
+     * @return this
+     */
+    public LazyFields attach() {
+        attached = true;
+        return this;
+    }
+
+    public boolean isAttached() {
+        return attached;
+    }
+
+    /**
+     * Returns the offset in the source bytes of the start of the json object.
+     *
+     * @return start offset of the object
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * Returns the offset in the source bytes just after the end of the json
+     * object.
+     *
+     * @return end offset (exclusive) of the object
+     */
+    public int end() {
+        return end;
+    }
+
+}
@@ -0,0 +1,577 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.odata.client.ClientException;
+import com.github.davidmoten.odata.client.ConnectionPoolStats;
+import com.github.davidmoten.odata.client.HttpMethod;
+import com.github.davidmoten.odata.client.HttpRequestOptions;
+import com.github.davidmoten.odata.client.HttpResponse;
+import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.HttpStreamingResponse;
+import com.github.davidmoten.odata.client.Path;
+import com.github.davidmoten.odata.client.RequestBody;
+import com.github.davidmoten.odata.client.RequestHeader;
+
+/**
+ * Spreads requests across several replicas of the same OData service without
+ * an external load balancer.
+ *
+ * <p>
+ * The client is built with a logical base path (which need not resolve). Urls
+ * under the logical base path are rewritten to the base url of a replica chosen
+ * by power-of-two-choices (or least outstanding requests) weighted by the
+ * recent latency of each replica. Urls that already start with the base url of
+ * a replica, like the {@code @odata.nextLink} of a page returned by that
+ * replica, are sent to that replica so that paging continues where it started.
+ * Other urls are passed to the transport unchanged.
+ *
+ * <p>
+ * Replicas are checked passively: a replica that fails a number of requests in
+ * a row (IO errors or 5xx responses) or whose average latency rises above a
+ * limit is ejected for a while. If every replica is ejected requests go to all
+ * of them again.
+ */
+public final class LoadBalancingHttpService implements HttpService {
+
+    // weight of the latest sample in the latency average
+    private static final double LATENCY_ALPHA = 0.3;
+
+    private final HttpService transport;
+    private final Path basePath;
+    private final String logicalBase;
+    private final List<Replica> replicas;
+    private final boolean powerOfTwoChoices;
+    private final int maxConsecutiveFailures;
+    private final long ejectionNanos;
+    private final Optional<Long> maxLatencyMs;
+
+    private LoadBalancingHttpService(HttpService transport, Path basePath, List<Replica> replicas,
+            boolean powerOfTwoChoices, int maxConsecutiveFailures, long ejectionNanos,
+            Optional<Long> maxLatencyMs) {
+        this.transport = transport;
+        this.basePath = basePath;
+        this.logicalBase = trimTrailingSlashes(basePath.toUrl());
+        this.replicas = replicas;
+        this.powerOfTwoChoices = powerOfTwoChoices;
+        this.maxConsecutiveFailures = maxConsecutiveFailures;
+        this.ejectionNanos = ejectionNanos;
+        this.maxLatencyMs = maxLatencyMs;
+    }
+
+    /**
+     * Returns a builder for a service that sends requests using
+     * {@code transport}. The transport is called with absolute replica urls so
+     * its own base path is not used.
+     *
+     * @param transport sends the requests
+     * @return builder
+     */
+    public static Builder transport(HttpService transport) {
+        return new Builder(transport);
+    }
+
+    /**
+     * Returns the replicas in the order they were added.
+     *
+     * @return replicas
+     */
+    public List<Replica> replicas() {
+        return replicas;
+    }
+
+    @Override
+    public HttpResponse get(String url, List<RequestHeader> requestHeaders,
+            HttpRequestOptions options) {
+        return call(url, u -> transport.get(u, requestHeaders, options),
+                HttpResponse::getResponseCode);
+    }
+
+    @Override
+    public HttpResponse patch(String url, List<RequestHeader> requestHeaders, InputStream content,
+            int length, HttpRequestOptions options) {
+        return call(url, u -> transport.patch(u, requestHeaders, content, length, options),
+                HttpResponse::getResponseCode);
+    }
+
+    @Override
+    public HttpResponse put(String url, List<RequestHeader> requestHeaders, InputStream content,
+            int length, HttpRequestOptions options) {
+        return call(url, u -> transport.put(u, requestHeaders, content, length, options),
+                HttpResponse::getResponseCode);
+    }
+
+    @Override
+    public HttpResponse post(String url, List<RequestHeader> requestHeaders, InputStream content,
+            int length, HttpRequestOptions options) {
+        return call(url, u -> transport.post(u, requestHeaders, content, length, options),
+                HttpResponse::getResponseCode);
+    }
+
+    @Override
+    public HttpResponse delete(String url, List<RequestHeader> requestHeaders,
+            HttpRequestOptions options) {
+        return call(url, u -> transport.delete(u, requestHeaders, options),
+                HttpResponse::getResponseCode);
+    }
+
+    @Override
+    public HttpResponse submit(HttpMethod method, String url, List<RequestHeader> requestHeaders,
+            RequestBody body, HttpRequestOptions options) {
+        return call(url, u -> transport.submit(method, u, requestHeaders, body, options),
+                HttpResponse::getResponseCode);
+    }
+
+    @Override
+    public InputStream getStream(HttpMethod method, String url, List<RequestHeader> requestHeaders,
+            HttpRequestOptions options) {
+        Target target = route(url);
+        if (target.replica == null) {
+            return transport.getStream(method, url, requestHeaders, options);
+        }
+        Call call = target.replica.start();
+        try {
+            InputStream in = transport.getStream(method, target.url, requestHeaders, options);
+            call.responded(HttpURLConnection.HTTP_OK);
+            // the request is outstanding until the body has been read
+            return new InputStreamWithCloseable(in, call::finish);
+        } catch (RuntimeException e) {
+            call.failed(e);
+            call.finish();
+            throw e;
+        }
+    }
+
+    @Override
+    public HttpStreamingResponse submitStreaming(HttpMethod method, String url,
+            List<RequestHeader> requestHeaders, InputStream content, int length,
+            HttpRequestOptions options) {
+        return streaming(url, u -> transport.submitStreaming(method, u, requestHeaders, content,
+                length, options));
+    }
+
+    @Override
+    public HttpStreamingResponse submitStreaming(HttpMethod method, String url,
+            List<RequestHeader> requestHeaders, RequestBody body, HttpRequestOptions options) {
+        return streaming(url,
+                u -> transport.submitStreaming(method, u, requestHeaders, body, options));
+    }
+
+    @Override
+    public Path getBasePath() {
+        return basePath;
+    }
+
+    @Override
+    public Optional<Proxy> getProxy() {
+        return transport.getProxy();
+    }
+
+    @Override
+    public Optional<ConnectionPoolStats> connectionPoolStats() {
+        return transport.connectionPoolStats();
+    }
+
+    @Override
+    public void close() throws Exception {
+        transport.close();
+    }
+
+    private <T> T call(String url, Function<String, T> request,
+            ToIntFunction<T> responseCode) {
+        Target target = route(url);
+        if (target.replica == null) {
+            return request.apply(url);
+        }
+        Call call = target.replica.start();
+        try {
+            T result = request.apply(target.url);
+            call.responded(responseCode.applyAsInt(result));
+            return result;
+        } catch (RuntimeException e) {
+            call.failed(e);
+            throw e;
+        } finally {
+            call.finish();
+        }
+    }
+
+    private HttpStreamingResponse streaming(String url,
+            Function<String, HttpStreamingResponse> request) {
+        Target target = route(url);
+        if (target.replica == null) {
+            return request.apply(url);
+        }
+        Call call = target.replica.start();
+        try {
+            HttpStreamingResponse r = request.apply(target.url);
+            call.responded(r.getResponseCode());
+            // the request is outstanding until the body has been read
+            return new HttpStreamingResponse(r.getResponseCode(), r.getHeaders(),
+                    new InputStreamWithCloseable(r.getBody(), call::finish));
+        } catch (RuntimeException e) {
+            call.failed(e);
+            call.finish();
+            throw e;
+        }
+    }
+
+    private Target route(String url) {
+        for (Replica r : replicas) {
+            if (startsWithBase(url, r.baseUrl)) {
+                // a continuation (nextLink) stays on the replica that issued it
+                return new Target(r, url);
+            }
+        }
+        if (startsWithBase(url, logicalBase)) {
+            Replica r = choose();
+            return new Target(r, r.baseUrl + url.substring(logicalBase.length()));
+        } else {
+            return new Target(null, url);
+        }
+    }
+
+    private Replica choose() {
+        long now = System.nanoTime();
+        List<Replica> healthy = new ArrayList<>(replicas.size());
+        for (Replica r : replicas) {
+            if (!r.isEjected(now)) {
+                healthy.add(r);
+            }
+        }
+        if (healthy.isEmpty()) {
+            // better to try an ejected replica than to fail without trying
+            healthy = replicas;
+        }
+        for (Replica r : healthy) {
+            if (r.readmitted) {
+                r.readmit(meanLatencyMs(healthy));
+            }
+        }
+        if (healthy.size() == 1) {
+            return healthy.get(0);
+        } else if (powerOfTwoChoices) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int i = random.nextInt(healthy.size());
+            int j = random.nextInt(healthy.size() - 1);
+            if (j >= i) {
+                j++;
+            }
+            Replica a = healthy.get(i);
+            Replica b = healthy.get(j);
+            return a.cost() <= b.cost() ? a : b;
+        } else {
+            Replica best = healthy.get(0);
+            for (int i = 1; i < healthy.size(); i++) {
+                if (healthy.get(i).cost() < best.cost()) {
+                    best = healthy.get(i);
+                }
+            }
+            return best;
+        }
+    }
+
+    // mean latency of the replicas that have been in rotation (0 if none known)
+    private static double meanLatencyMs(List<Replica> replicas) {
+        double sum = 0;
+        int n = 0;
+        for (Replica r : replicas) {
+            double ms = r.latencyMs();
+            if (!r.readmitted && ms > 0) {
+                sum += ms;
+                n++;
+            }
+        }
+        return n == 0 ? 0 : sum / n;
+    }
+
+    private static boolean startsWithBase(String url, String base) {
+        return url.startsWith(base) && (url.length() == base.length()
+                || "/?#(".indexOf(url.charAt(base.length())) >= 0);
+    }
+
+    private static String trimTrailingSlashes(String url) {
+        String s = url;
+        while (s.endsWith("/")) {
+            s = s.substring(0, s.length() - 1);
+        }
+        return s;
+    }
+
+    private static final class Target {
+        final Replica replica;
+        final String url;
+
+        Target(Replica replica, String url) {
+            this.replica = replica;
+            this.url = url;
+        }
+    }
+
+    /**
+     * A replica of the service and its recent behaviour as seen by this client.
+     */
+    public final class Replica {
+
+        private final String baseUrl;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        // guarded by this
+        private double latencyMs;
+        private int consecutiveFailures;
+        private long ejectedUntilNanos;
+        private boolean ejected;
+        private long requests;
+        private long failures;
+        private long ejections;
+        // back in rotation but latency not yet seeded
+        private volatile boolean readmitted;
+
+        Replica(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public String baseUrl() {
+            return baseUrl;
+        }
+
+        /**
+         * Returns the number of requests sent to this replica that have not yet
+         * completed (a streamed response completes when its body is closed).
+         *
+         * @return requests in flight
+         */
+        public int outstanding() {
+            return outstanding.get();
+        }
+
+        /**
+         * Returns the moving average of the time taken for responses to arrive (0
+         * until the first response).
+         *
+         * @return average latency in ms
+         */
+        public synchronized double latencyMs() {
+            return latencyMs;
+        }
+
+        public synchronized long requests() {
+            return requests;
+        }
+
+        public synchronized long failures() {
+            return failures;
+        }
+
+        public synchronized long ejections() {
+            return ejections;
+        }
+
+        public boolean isEjected() {
+            return isEjected(System.nanoTime());
+        }
+
+        synchronized boolean isEjected(long now) {
+            if (ejected && now - ejectedUntilNanos >= 0) {
+                // back in rotation
+                ejected = false;
+                consecutiveFailures = 0;
+                readmitted = true;
+            }
+            return ejected;
+        }
+
+        // Starts a readmitted replica from the mean latency of the others so that it
+        // neither wins every comparison till its first response (as it would with no
+        // latency) nor loses every one (as it would with the latency that got it
+        // ejected). Keeps the previous average if the others have none.
+        synchronized void readmit(double meanLatencyMs) {
+            if (readmitted) {
+                readmitted = false;
+                if (meanLatencyMs > 0) {
+                    latencyMs = meanLatencyMs;
+                }
+            }
+        }
+
+        // lower is better, unknown latency counts as fast so new replicas get
+        // traffic
+        double cost() {
+            return (outstanding.get() + 1) * Math.max(1, latencyMs());
+        }
+
+        Call start() {
+            outstanding.incrementAndGet();
+            return new Call(this);
+        }
+
+        synchronized void record(long latencyNanos, boolean failure) {
+            requests++;
+            double ms = latencyNanos / 1_000_000.0;
+            latencyMs = latencyMs == 0 ? ms : LATENCY_ALPHA * ms + (1 - LATENCY_ALPHA) * latencyMs;
+            if (failure) {
+                failures++;
+                consecutiveFailures++;
+            } else {
+                consecutiveFailures = 0;
+            }
+            if (!ejected && (consecutiveFailures >= maxConsecutiveFailures
+                    || maxLatencyMs.isPresent() && latencyMs > maxLatencyMs.get())) {
+                ejected = true;
+                ejections++;
+                ejectedUntilNanos = System.nanoTime() + ejectionNanos;
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "Replica[baseUrl=" + baseUrl + ", outstanding=" + outstanding.get()
+                    + ", latencyMs=" + latencyMs + ", requests=" + requests + ", failures="
+                    + failures + ", ejected=" + ejected + "]";
+        }
+
+    }
+
+    private static final class Call {
+
+        private final Replica replica;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        Call(Replica replica) {
+            this.replica = replica;
+        }
+
+        void responded(int responseCode) {
+            replica.record(System.nanoTime() - startNanos,
+                    responseCode >= HttpURLConnection.HTTP_INTERNAL_ERROR);
+        }
+
+        void failed(RuntimeException e) {
+            // IO errors and server errors count against the replica, client errors
+            // and deadlines do not
+            if (e instanceof ClientException) {
+                Optional<Integer> code = ((ClientException) e).getStatusCode();
+                if (!code.isPresent() || code.get() >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+                    replica.record(System.nanoTime() - startNanos, true);
+                }
+            }
+        }
+
+        void finish() {
+            if (finished.compareAndSet(false, true)) {
+                replica.outstanding.decrementAndGet();
+            }
+        }
+    }
+
+    public static final class Builder {
+
+        private final HttpService transport;
+        private Optional<Path> basePath = Optional.empty();
+        private final List<String> replicaUrls = new ArrayList<>();
+        private boolean powerOfTwoChoices = true;
+        private int maxConsecutiveFailures = 3;
+        private long ejectionMs = TimeUnit.SECONDS.toMillis(30);
+        private Optional<Long> maxLatencyMs = Optional.empty();
+
+        Builder(HttpService transport) {
+            Preconditions.checkNotNull(transport);
+            this.transport = transport;
+        }
+
+        /**
+         * Sets the logical base path used to build request urls. Must not be the
+         * base url of a replica. Defaults to the base path of the transport.
+         *
+         * @param basePath logical base path
+         * @return this
+         */
+        public Builder basePath(Path basePath) {
+            Preconditions.checkNotNull(basePath);
+            this.basePath = Optional.of(basePath);
+            return this;
+        }
+
+        public Builder replica(String baseUrl) {
+            Preconditions.checkNotNull(baseUrl);
+            replicaUrls.add(trimTrailingSlashes(baseUrl));
+            return this;
+        }
+
+        public Builder replicas(List<String> baseUrls) {
+            baseUrls.forEach(this::replica);
+            return this;
+        }
+
+        /**
+         * Picks the better of two random replicas for each request (the default).
+         * Cheap and avoids every client piling onto the same replica.
+         *
+         * @return this
+         */
+        public Builder powerOfTwoChoices() {
+            this.powerOfTwoChoices = true;
+            return this;
+        }
+
+        /**
+         * Picks the replica with the fewest outstanding requests (weighted by
+         * latency) for each request.
+         *
+         * @return this
+         */
+        public Builder leastOutstandingRequests() {
+            this.powerOfTwoChoices = false;
+            return this;
+        }
+
+        public Builder ejectAfterConsecutiveFailures(int failures) {
+            Preconditions.checkArgument(failures > 0, "failures must be > 0");
+            this.maxConsecutiveFailures = failures;
+            return this;
+        }
+
+        public Builder ejectIfLatencyAbove(long duration, TimeUnit unit) {
+            Preconditions.checkArgument(duration > 0, "duration must be > 0");
+            this.maxLatencyMs = Optional.of(unit.toMillis(duration));
+            return this;
+        }
+
+        public Builder ejectFor(long duration, TimeUnit unit) {
+            Preconditions.checkArgument(duration >= 0, "duration must be >= 0");
+            this.ejectionMs = unit.toMillis(duration);
+            return this;
+        }
+
+        public LoadBalancingHttpService build() {
+            Preconditions.checkArgument(!replicaUrls.isEmpty(), "at least one replica required");
+            Path path = basePath.orElse(transport.getBasePath());
+            String logicalBase = trimTrailingSlashes(path.toUrl());
+            Preconditions.checkArgument(!replicaUrls.contains(logicalBase),
+                    "base path must not be the url of a replica");
+            List<Replica> list = new ArrayList<>();
+            LoadBalancingHttpService service = new LoadBalancingHttpService(transport, path,
+                    Collections.unmodifiableList(list), powerOfTwoChoices,
+                    maxConsecutiveFailures, TimeUnit.MILLISECONDS.toNanos(ejectionMs),
+                    maxLatencyMs);
+            for (String url : replicaUrls) {
+                list.add(service.new Replica(url));
+            }
+            return service;
+        }
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.JsonTypeInfo.As;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DatabindContext;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.jsontype.NamedType;
+import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
+import com.fasterxml.jackson.databind.jsontype.TypeIdResolver;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.jsontype.impl.AsPropertyTypeDeserializer;
+import com.fasterxml.jackson.databind.jsontype.impl.StdTypeResolverBuilder;
+import com.fasterxml.jackson.databind.jsontype.impl.TypeIdResolverBase;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.github.davidmoten.odata.client.ODataType;
+
+/**
+ * Jackson default typing for {@link ODataType} classes that reads the
+ * {@code @odata.type} field while binding and dispatches to the sub-class
+ * registered for that type in the {@link SchemaLookup} of the current call
+ * (passed as an attribute keyed by {@code SchemaLookup.class}). Applies to
+ * top-level values and to nested properties and collection members. If the
+ * type is absent or not a sub-class of the declared type then the declared type
+ * is used.
+ *
+ * <p>
+ * OData writes control information like {@code @odata.type} before the other
+ * properties of an object (after {@code @odata.context} at the top level) so
+ * usually only that leading control information (one or two scalars) is
+ * buffered before the type is found. A type written after regular properties is
+ * still used, the fields before it are buffered as
+ * {@link AsPropertyTypeDeserializer} does.
+ *
+ * <p>
+ * Only affects deserialization, the {@code @odata.type} field is written by the
+ * generated classes themselves.
+ */
+public final class ODataTypeResolverBuilder extends StdTypeResolverBuilder {
+
+    public static final String ODATA_TYPE = "@odata.type";
+
+    public ODataTypeResolverBuilder() {
+        super(JsonTypeInfo.Id.CUSTOM, As.EXISTING_PROPERTY, ODATA_TYPE);
+        // pass the @odata.type field through to the bean as well
+        typeIdVisibility(true);
+    }
+
+    @Override
+    public TypeSerializer buildTypeSerializer(SerializationConfig config, JavaType baseType,
+            Collection<NamedType> subtypes) {
+        return null;
+    }
+
+    @Override
+    public TypeDeserializer buildTypeDeserializer(DeserializationConfig config, JavaType baseType,
+            Collection<NamedType> subtypes) {
+        if (!ODataType.class.isAssignableFrom(baseType.getRawClass())) {
+            return null;
+        } else {
+            return new ODataTypeDeserializer(baseType, new ODataTypeIdResolver(baseType, config),
+                    baseType);
+        }
+    }
+
+    static final class ODataTypeIdResolver extends TypeIdResolverBase {
+
+        ODataTypeIdResolver(JavaType baseType, MapperConfig<?> config) {
+            super(baseType, config.getTypeFactory());
+        }
+
+        @Override
+        public String idFromValue(Object value) {
+            return "#" + ((ODataType) value).odataTypeName();
+        }
+
+        @Override
+        public String idFromValueAndType(Object value, Class<?> suggestedType) {
+            return idFromValue(value);
+        }
+
+        @Override
+        public JsonTypeInfo.Id getMechanism() {
+            return JsonTypeInfo.Id.CUSTOM;
+        }
+
+        @Override
+        public JavaType typeFromId(DatabindContext context, String id) {
+            SchemaLookup lookup = (SchemaLookup) context.getAttribute(SchemaLookup.class);
+            if (lookup != null) {
+                Optional<Class<?>> c = lookup.lookup(id);
+                if (c.isPresent() && c.get() != _baseType.getRawClass()
+                        && _baseType.getRawClass().isAssignableFrom(c.get())) {
+                    return context.constructSpecializedType(_baseType, c.get());
+                }
+            }
+            return _baseType;
+        }
+
+    }
+
+    static final class ODataTypeDeserializer extends AsPropertyTypeDeserializer {
+
+        private static final long serialVersionUID = -1924474637520284396L;
+
+        // resolved type -> deserializer, independent of the schemas used for a call
+        private final Map<JavaType, JsonDeserializer<Object>> deserializers;
+
+        ODataTypeDeserializer(JavaType baseType, TypeIdResolver idResolver,
+                JavaType defaultImpl) {
+            super(baseType, idResolver, ODATA_TYPE, true, defaultImpl, As.EXISTING_PROPERTY);
+            this.deserializers = new ConcurrentHashMap<>();
+        }
+
+        ODataTypeDeserializer(ODataTypeDeserializer src, BeanProperty property) {
+            super(src, property);
+            this.deserializers = new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public TypeDeserializer forProperty(BeanProperty prop) {
+            return prop == _property ? this : new ODataTypeDeserializer(this, prop);
+        }
+
+        @Override
+        public Object deserializeTypedFromObject(JsonParser p, DeserializationContext ctxt)
+                throws IOException {
+            JsonToken t = p.currentToken();
+            if (t == JsonToken.START_OBJECT) {
+                t = p.nextToken();
+            } else if (t != JsonToken.FIELD_NAME) {
+                return super.deserializeTypedFromObject(p, ctxt);
+            }
+            TokenBuffer tb = null;
+            // fields before the type are kept for the bean (OData writes the type
+            // first so usually there are none or only other control information)
+            while (t == JsonToken.FIELD_NAME) {
+                String name = p.getCurrentName();
+                p.nextToken();
+                if (ODATA_TYPE.equals(name)) {
+                    return _deserializeTypedForId(p, ctxt, tb, p.getText());
+                }
+                // keep for the bean
+                if (tb == null) {
+                    tb = new TokenBuffer(p, ctxt);
+                }
+                tb.writeFieldName(name);
+                tb.copyCurrentStructure(p);
+                t = p.nextToken();
+            }
+            // no @odata.type so bind as the declared type
+            JsonDeserializer<Object> deser = _findDefaultImplDeserializer(ctxt);
+            if (tb != null) {
+                // replay the buffered fields
+                tb.writeEndObject();
+                p = tb.asParser(p);
+                p.nextToken();
+            }
+            return deser.deserialize(p, ctxt);
+        }
+
+        // The superclass caches deserializers by type id but the class for a type id
+        // depends on the schemas passed with each call so resolve each time (the
+        // lookup is memoized per Context). Otherwise as per the superclass.
+        @Override
+        protected Object _deserializeTypedForId(JsonParser p, DeserializationContext ctxt,
+                TokenBuffer tb, String typeId) throws IOException {
+            JsonDeserializer<Object> deser = findDeserializer(ctxt, typeId);
+            if (_typeIdVisible) {
+                // merge the id back into the json input
+                if (tb == null) {
+                    tb = new TokenBuffer(p, ctxt);
+                }
+                tb.writeFieldName(p.getCurrentName());
+                tb.writeString(typeId);
+            }
+            if (tb != null) {
+                // put back skipped properties
+                p.clearCurrentToken();
+                p = JsonParserSequence.createFlattened(false, tb.asParser(p), p);
+            }
+            if (p.currentToken() != JsonToken.END_OBJECT) {
+                // skip past the type id value
+                p.nextToken();
+            }
+            return deser.deserialize(p, ctxt);
+        }
+
+        private JsonDeserializer<Object> findDeserializer(DeserializationContext ctxt,
+                String typeId) throws IOException {
+            JavaType type = _idResolver.typeFromId(ctxt, typeId);
+            JsonDeserializer<Object> deser = deserializers.get(type);
+            if (deser == null) {
+                deser = ctxt.findContextualValueDeserializer(type, _property);
+                deserializers.put(type, deser);
+            }
+            return deser;
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.odata.client.ClientException;
+import com.github.davidmoten.odata.client.Paged;
+
+/**
+ * Iterates the pages of a {@link Paged} collection while fetching up to
+ * {@code depth} of the following pages on an executor. Each page is requested
+ * (and parsed) as soon as the page before it has arrived so the round trip for
+ * a page overlaps with the consumer working through the pages before it. At
+ * most {@code depth} pages are held that have not been returned yet.
+ *
+ * <p>
+ * An error fetching a page is thrown by {@link #hasNext()} or {@link #next()}
+ * when the consumer reaches that page. {@link #close()} stops fetching pages
+ * that have not yet been requested.
+ *
+ * @param <T> item type
+ * @param <R> page type
+ */
+public final class PagePrefetcher<T, R extends Paged<T, R>>
+        implements Iterator<Paged<T, R>>, AutoCloseable {
+
+    private final int depth;
+    private final Executor executor;
+    // pages not yet returned, in order, completed with empty after the last page
+    private final Deque<CompletableFuture<Optional<Paged<T, R>>>> pages = new ArrayDeque<>();
+    private CompletableFuture<Optional<Paged<T, R>>> last;
+    private volatile boolean closed;
+
+    public PagePrefetcher(Paged<T, R> first, int depth, Executor executor) {
+        Preconditions.checkNotNull(first);
+        Preconditions.checkArgument(depth > 0, "depth must be > 0");
+        Preconditions.checkNotNull(executor);
+        this.depth = depth;
+        this.executor = executor;
+        this.last = CompletableFuture.completedFuture(Optional.of(first));
+        pages.add(last);
+        fill();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !closed && join(pages.peek()).isPresent();
+    }
+
+    @Override
+    public Paged<T, R> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Paged<T, R> page = join(pages.poll()).get();
+        fill();
+        return page;
+    }
+
+    /**
+     * Returns an iterator over the items of the pages.
+     *
+     * @return item iterator
+     */
+    public Iterator<T> items() {
+        return new Iterator<T>() {
+
+            Paged<T, R> page;
+            int i;
+
+            @Override
+            public boolean hasNext() {
+                while (page == null || i == page.currentPage().size()) {
+                    if (PagePrefetcher.this.hasNext()) {
+                        page = PagePrefetcher.this.next();
+                        i = 0;
+                    } else {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T v = page.currentPage().get(i);
+                i++;
+                return v;
+            }
+        };
+    }
+
+    /**
+     * Stops fetching pages. A page already being fetched is discarded when it
+     * arrives.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        pages.forEach(f -> f.cancel(false));
+        pages.clear();
+    }
+
+    private void fill() {
+        while (!closed && pages.size() < depth) {
+            // the link to a page is only known once the page before it has arrived
+            last = last.thenApplyAsync(p -> {
+                if (closed || !p.isPresent()) {
+                    return Optional.empty();
+                } else {
+                    return p.get().nextPage().map(x -> x);
+                }
+            }, executor);
+            pages.add(last);
+        }
+    }
+
+    private static <S> S join(CompletableFuture<S> future) {
+        try {
+            return future.join();
+        } catch (CancellationException e) {
+            throw new ClientException("page prefetching was closed", e);
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new ClientException(cause);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,251 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.RequestBody;
+
+public final class RequestBodies {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Repeatable bodies of unknown length up to this size are buffered by
+     * {@link #sized(RequestBody)}.
+     */
+    public static final int SMALL_BODY_BYTES = 64 * 1024;
+
+    /**
+     * Streams are marked with this limit so that a body of unknown length can be
+     * measured by {@link #sized(RequestBody)} (which stops within a buffer of
+     * {@link #SMALL_BODY_BYTES}) and then written again.
+     */
+    public static final int MAX_MARK_BYTES = SMALL_BODY_BYTES + BUFFER_SIZE;
+
+    private RequestBodies() {
+        // prevent instantiation
+    }
+
+    public static RequestBody of(byte[] bytes) {
+        Preconditions.checkNotNull(bytes);
+        return new RequestBody() {
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(bytes);
+            }
+
+            @Override
+            public int length() {
+                return bytes.length;
+            }
+        };
+    }
+
+    /**
+     * Returns a body that copies {@code in}. The body can be written again (to
+     * measure it or to resend it) only if {@code in} supports mark and reset and no
+     * more than {@link #MAX_MARK_BYTES} have been read from it, so that a large
+     * upload is not held on the heap by (for example) a
+     * {@code BufferedInputStream}.
+     * 
+     * @param in     content
+     * @param length number of bytes in {@code in} or
+     *               {@link HttpService#LENGTH_UNKNOWN}
+     * @return body
+     */
+    public static RequestBody of(InputStream in, int length) {
+        Preconditions.checkNotNull(in);
+        boolean markable = in.markSupported() && length <= MAX_MARK_BYTES;
+        if (markable) {
+            in.mark(MAX_MARK_BYTES);
+        }
+        return new RequestBody() {
+
+            private boolean written;
+            private boolean repeatable = markable;
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                if (written) {
+                    Preconditions.checkArgument(repeatable, "body cannot be written again");
+                    in.reset();
+                }
+                written = true;
+                byte[] b = new byte[BUFFER_SIZE];
+                long count = 0;
+                int n;
+                while ((n = in.read(b)) != -1) {
+                    count += n;
+                    if (count > MAX_MARK_BYTES) {
+                        // the mark is no longer valid
+                        repeatable = false;
+                    }
+                    out.write(b, 0, n);
+                }
+            }
+
+            @Override
+            public int length() {
+                return length;
+            }
+
+            @Override
+            public boolean isRepeatable() {
+                return repeatable;
+            }
+        };
+    }
+
+    /**
+     * Returns a body of known length with the content of {@code body} if
+     * {@code body} is repeatable, of unknown length and writes at most
+     * {@link #SMALL_BODY_BYTES}, otherwise returns {@code body}. Small bodies (like
+     * most json entities) can then be sent with a Content-Length rather than
+     * chunked and request compression can compare their size with its threshold.
+     * A body that turns out to be larger is abandoned once the limit is passed and
+     * written again when the request is sent.
+     * 
+     * @param body request body, may be null
+     * @return body with a known length if small, otherwise {@code body}
+     */
+    public static RequestBody sized(RequestBody body) {
+        if (body == null || body.length() != HttpService.LENGTH_UNKNOWN
+                || !body.isRepeatable()) {
+            return body;
+        }
+        BoundedOutputStream out = new BoundedOutputStream(SMALL_BODY_BYTES);
+        try {
+            body.writeTo(out);
+        } catch (IOException | RuntimeException e) {
+            // the overflow may arrive wrapped (for example by Jackson)
+            if (out.overflowed) {
+                return body;
+            } else if (e instanceof IOException) {
+                throw new UncheckedIOException((IOException) e);
+            } else {
+                throw (RuntimeException) e;
+            }
+        }
+        return out.toBody();
+    }
+
+    /**
+     * Returns the length of a body returned by {@link #sized(RequestBody)} or a
+     * lower bound on it. A repeatable body of unknown length was too big to buffer
+     * so is longer than {@link #SMALL_BODY_BYTES}.
+     * 
+     * @param body body returned by {@link #sized(RequestBody)}
+     * @return length, a lower bound on the length or
+     *         {@link HttpService#LENGTH_UNKNOWN}
+     */
+    public static int minLength(RequestBody body) {
+        if (body.length() == HttpService.LENGTH_UNKNOWN && body.isRepeatable()) {
+            return SMALL_BODY_BYTES + 1;
+        } else {
+            return body.length();
+        }
+    }
+
+    /**
+     * Writes the body to a byte array, for transports that cannot stream it.
+     * 
+     * @param body request body
+     * @return bytes written by the body
+     */
+    public static byte[] toBytes(RequestBody body) {
+        return write(body).toBytes();
+    }
+
+    /**
+     * Returns a stream of the bytes written by the body, for transports that
+     * cannot stream it.
+     * 
+     * @param body request body
+     * @return stream of the body
+     */
+    public static InputStream toInputStream(RequestBody body) {
+        return write(body).toInputStream();
+    }
+
+    private static ExposedByteArrayOutputStream write(RequestBody body) {
+        ExposedByteArrayOutputStream bytes = new ExposedByteArrayOutputStream(
+                body.length() > 0 ? body.length() : BUFFER_SIZE);
+        try {
+            body.writeTo(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes;
+    }
+
+    private static final class BoundedOutputStream extends ByteArrayOutputStream {
+
+        private final int maxBytes;
+        boolean overflowed;
+
+        BoundedOutputStream(int maxBytes) {
+            super(BUFFER_SIZE);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void write(int b) {
+            checkRoom(1);
+            super.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            checkRoom(len);
+            super.write(b, off, len);
+        }
+
+        private void checkRoom(int len) {
+            if (count + len > maxBytes) {
+                overflowed = true;
+                throw new UncheckedIOException(new IOException("body longer than " + maxBytes));
+            }
+        }
+
+        RequestBody toBody() {
+            byte[] bytes = buf;
+            int length = count;
+            return new RequestBody() {
+
+                @Override
+                public void writeTo(OutputStream out) throws IOException {
+                    out.write(bytes, 0, length);
+                }
+
+                @Override
+                public int length() {
+                    return length;
+                }
+            };
+        }
+    }
+
+    // avoids the copy made by toByteArray
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+        ExposedByteArrayOutputStream(int size) {
+            super(size);
+        }
+
+        InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+
+        byte[] toBytes() {
+            return count == buf.length ? buf : toByteArray();
+        }
+    }
+
+}
@@ -1,17 +1,22 @@
 package com.github.davidmoten.odata.client.internal;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import com.github.davidmoten.guavamini.Preconditions;
@@ -22,14 +27,15 @@ import com.github.davidmoten.odata.client.HttpMethod;
 import com.github.davidmoten.odata.client.HttpRequestOptions;
 import com.github.davidmoten.odata.client.HttpResponse;
 import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.HttpStreamingResponse;
 import com.github.davidmoten.odata.client.ODataEntityType;
 import com.github.davidmoten.odata.client.ODataType;
 import com.github.davidmoten.odata.client.Path;
 import com.github.davidmoten.odata.client.Properties;
+import com.github.davidmoten.odata.client.RequestBody;
 import com.github.davidmoten.odata.client.RequestHeader;
 import com.github.davidmoten.odata.client.RequestOptions;
 import com.github.davidmoten.odata.client.SchemaInfo;
-import com.github.davidmoten.odata.client.Serializer;
 import com.github.davidmoten.odata.client.StreamProvider;
 import com.github.davidmoten.odata.client.StreamUploaderSingleCall;
 import com.github.davidmoten.odata.client.UnmappedFields;
@@ -63,20 +69,25 @@ public final class RequestHelper {
 
         List<RequestHeader> h = cleanAndSupplementRequestHeaders(options, "minimal", false);
 
-        // get the response
-        HttpResponse response = cp.context().service().get(cp.toUrl(), h, options);
-
-        checkResponseCode(cp, response, HttpURLConnection.HTTP_OK);
-
-        // deserialize
-        // Though cls might be Class<Attachment> we might actually want to return a
-        // sub-class like FileAttachment (which extends Attachment). This method returns
-        // the actual sub-class by inspecting the json response.
-        Class<? extends T> c = getSubClass(cp, contextPath.context().schemas(), returnCls,
-                response.getText());
-        // check if we need to deserialize into a subclass of T (e.g. return a
-        // FileAttachment which is a subclass of Attachment)
-        return cp.context().serializer().deserialize(response.getText(), c, contextPath, false);
+        // get the response, the body is parsed as it arrives
+        try (HttpStreamingResponse response = cp.context().service().getStreaming(cp.toUrl(), h,
+                options)) {
+            checkResponseCode(cp.toUrl(), response, HttpURLConnection.HTTP_OK,
+                    HttpURLConnection.HTTP_OK);
+
+            // deserialize
+            // Though cls might be Class<Attachment> we might actually want to return a
+            // sub-class like FileAttachment (which extends Attachment). The serializer
+            // resolves the actual sub-class from @odata.type while deserializing.
+            if (options.lazy()) {
+                return cp.context().serializer().deserializeLazy(Util.read(response.getBody()),
+                        returnCls, contextPath, false);
+            }
+            return cp.context().serializer().deserialize(response.getBody(), returnCls,
+                    contextPath, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     public static void checkResponseCode(String url, HttpResponse response,
@@ -90,6 +101,34 @@ public final class RequestHelper {
         }
     }
 
+    /**
+     * Throws a {@link ClientException} (including the response body as the message)
+     * if the response code is not in the expected range. The response body is
+     * left unread otherwise.
+     * 
+     * @param url                     request url
+     * @param response                streaming response
+     * @param expectedResponseCodeMin minimum expected response code
+     * @param expectedResponseCodeMax maximum expected response code
+     * @throws IOException if reading the response body fails
+     */
+    public static void checkResponseCode(String url, HttpStreamingResponse response,
+            int expectedResponseCodeMin, int expectedResponseCodeMax) throws IOException {
+        if (response.getResponseCode() < expectedResponseCodeMin
+                || response.getResponseCode() > expectedResponseCodeMax) {
+            String text = Util.readString(response.getBody(), StandardCharsets.UTF_8);
+            throw new ClientException(response.getResponseCode(),
+                    "responseCode=" + response.getResponseCode() + " from url=" + url
+                            + ", expectedResponseCode in [" + expectedResponseCodeMin + ", "
+                            + expectedResponseCodeMax + "], message=\n" + text);
+        }
+    }
+
+    public static void checkResponseCodeOk(String url, HttpStreamingResponse response)
+            throws IOException {
+        checkResponseCode(url, response, HTTP_OK_MIN, HTTP_OK_MAX);
+    }
+
     public static void checkResponseCodeOk(ContextPath cp, HttpResponse response) {
         checkResponseCode(cp, response, HTTP_OK_MIN, HTTP_OK_MAX);
     }
@@ -104,6 +143,42 @@ public final class RequestHelper {
         checkResponseCode(cp, response, expectedResponseCode, expectedResponseCode);
     }
 
+    /**
+     * Returns the number of members of the collection at {@code contextPath} that
+     * match the filter and search options using the {@code /$count} segment (no
+     * members are read).
+     * 
+     * @param contextPath path of the collection
+     * @param options     request options, only {@code $filter}, {@code $search} and
+     *                    custom queries are applied
+     * @return number of matching members
+     */
+    public static long getCount(ContextPath contextPath, RequestOptions options) {
+        // only filtering and searching apply to /$count
+        Map<String, String> queries = new HashMap<>();
+        options.getQueries().forEach((name, v) -> {
+            if (name.equals("$filter") || name.equals("$search") || !name.startsWith("$")) {
+                queries.put(name, v);
+            }
+        });
+        ContextPath cp = contextPath.addSegment("$count").addQueries(queries);
+        List<RequestHeader> h = new ArrayList<>();
+        h.add(RequestHeader.ODATA_VERSION);
+        h.add(RequestHeader.ACCEPT_TEXT_PLAIN);
+        options.getRequestHeaders().stream() //
+                .filter(x -> !x.name().equalsIgnoreCase("Accept")) //
+                .forEach(h::add);
+        HttpResponse response = cp.context().service().get(cp.toUrl(), h, options);
+        checkResponseCodeOk(cp, response);
+        // some services prefix the count with a byte order mark
+        String text = response.getText().replace("\uFEFF", "").trim();
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw new ClientException("unexpected response from " + cp.toUrl() + ": " + text);
+        }
+    }
+
     public static <T, S> T getWithParametricType(ContextPath contextPath, Class<T> cls,
             Class<S> parametricTypeClass, RequestOptions options) {
         // build the url
@@ -111,18 +186,21 @@ public final class RequestHelper {
 
         List<RequestHeader> h = cleanAndSupplementRequestHeaders(options, "minimal", false);
 
-        // get the response
-        HttpResponse response = cp.context().service().get(cp.toUrl(), h, options);
-
-        checkResponseCode(cp, response, HttpURLConnection.HTTP_OK);
-
-        // deserialize
-        String text = response.getText();
-        Class<? extends T> c = getSubClass(cp, contextPath.context().schemas(), cls, text);
-        // check if we need to deserialize into a subclass of T (e.g. return a
-        // FileAttachment which is a subclass of Attachment)
-        return cp.context().serializer().deserializeWithParametricType(text, c, parametricTypeClass,
-                contextPath, false);
+        // get the response, the body is parsed as it arrives
+        try (HttpStreamingResponse response = cp.context().service().getStreaming(cp.toUrl(), h,
+                options)) {
+            checkResponseCode(cp.toUrl(), response, HttpURLConnection.HTTP_OK,
+                    HttpURLConnection.HTTP_OK);
+
+            // deserialize
+            // Though cls might be Class<Attachment> we might actually want to return a
+            // sub-class like FileAttachment (which extends Attachment). The serializer
+            // resolves the actual sub-class from @odata.type while deserializing.
+            return cp.context().serializer().deserializeWithParametricType(response.getBody(),
+                    cls, parametricTypeClass, contextPath, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     // designed for saving a new entity and returning that entity
@@ -134,16 +212,15 @@ public final class RequestHelper {
     public static void post(Map<String, Object> parameters, ContextPath contextPath,
             RequestOptions options) {
 
-        String json = Serializer.INSTANCE.serialize(parameters);
-
         // build the url
         ContextPath cp = contextPath.addQueries(options.getQueries());
         List<RequestHeader> h = cleanAndSupplementRequestHeaders(options, "minimal", true);
         final String url = cp.toUrl();
 
-        // get the response
+        // get the response, the json is written straight to the connection
         HttpService service = cp.context().service();
-        final HttpResponse response = service.post(url, h, json, options);
+        final HttpResponse response = service.submit(HttpMethod.POST, url, h,
+                RequestBody.json(parameters), options);
 
         checkResponseCodeOk(cp, response);
     }
@@ -153,24 +230,26 @@ public final class RequestHelper {
         // build the url
         ContextPath cp = contextPath.addQueries(options.getQueries());
 
-        String json = Serializer.INSTANCE.serialize(object);
-
         List<RequestHeader> h = cleanAndSupplementRequestHeaders(options, "minimal", true);
 
-        // get the response
-        HttpResponse response = cp.context().service().post(cp.toUrl(), h, json, options);
-
-        // TODO could be tightened to 201 for POST create but POST Action calls need to
-        // accept any successful code
-        checkResponseCodeOk(cp, response);
-
-        String text = response.getText();
-        // deserialize
-        Class<? extends T> c = getSubClass(cp, contextPath.context().schemas(), responseClass,
-                text);
-        // check if we need to deserialize into a subclass of T (e.g. return a
-        // FileAttachment which is a subclass of Attachment)
-        return cp.context().serializer().deserialize(text, c, contextPath, false);
+        // get the response, the json is written straight to the connection and the
+        // response body is parsed as it arrives
+        try (HttpStreamingResponse response = cp.context().service().submitStreaming(
+                HttpMethod.POST, cp.toUrl(), h, RequestBody.json(object), options)) {
+
+            // TODO could be tightened to 201 for POST create but POST Action calls need to
+            // accept any successful code
+            checkResponseCode(cp.toUrl(), response, HTTP_OK_MIN, HTTP_OK_MAX);
+
+            // deserialize
+            // Though cls might be Class<Attachment> we might actually want to return a
+            // sub-class like FileAttachment (which extends Attachment). The serializer
+            // resolves the actual sub-class from @odata.type while deserializing.
+            return cp.context().serializer().deserialize(response.getBody(), responseClass,
+                    contextPath, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     public static <T, S> T postAnyWithParametricType(Object object, ContextPath contextPath,
@@ -178,23 +257,24 @@ public final class RequestHelper {
         // build the url
         ContextPath cp = contextPath.addQueries(options.getQueries());
 
-        String json = Serializer.INSTANCE.serialize(object);
-
         List<RequestHeader> h = cleanAndSupplementRequestHeaders(options, "minimal", true);
 
-        // get the response
-        HttpResponse response = cp.context().service().post(cp.toUrl(), h, json, options);
-
-        checkResponseCode(cp, response, HttpURLConnection.HTTP_CREATED);
-
-        String text = response.getText();
-
-        // deserialize
-        Class<? extends T> c = getSubClass(cp, contextPath.context().schemas(), cls, text);
-        // check if we need to deserialize into a subclass of T (e.g. return a
-        // FileAttachment which is a subclass of Attachment)
-        return cp.context().serializer().deserializeWithParametricType(text, c, parametricTypeClass,
-                contextPath, false);
+        // get the response, the json is written straight to the connection and the
+        // response body is parsed as it arrives
+        try (HttpStreamingResponse response = cp.context().service().submitStreaming(
+                HttpMethod.POST, cp.toUrl(), h, RequestBody.json(object), options)) {
+            checkResponseCode(cp.toUrl(), response, HttpURLConnection.HTTP_CREATED,
+                    HttpURLConnection.HTTP_CREATED);
+
+            // deserialize
+            // Though cls might be Class<Attachment> we might actually want to return a
+            // sub-class like FileAttachment (which extends Attachment). The serializer
+            // resolves the actual sub-class from @odata.type while deserializing.
+            return cp.context().serializer().deserializeWithParametricType(response.getBody(),
+                    cls, parametricTypeClass, contextPath, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     public static <T extends ODataEntityType> T patch(T entity, ContextPath contextPath,
@@ -214,28 +294,42 @@ public final class RequestHelper {
         return patchOrPut(entity, contextPath, options, HttpMethod.PUT);
     }
 
-    @SuppressWarnings("unused")
     private static <T extends ODataEntityType> T patchOrPut(T entity, ContextPath contextPath,
             RequestOptions options, HttpMethod method) {
         Preconditions.checkArgument(method == HttpMethod.PUT || method == HttpMethod.PATCH);
-        final String json;
-        if (method == HttpMethod.PATCH) {
-            json = Serializer.INSTANCE.serializeChangesOnly(entity);
-        } else {
-            json = Serializer.INSTANCE.serialize(entity);
-        }
 
         // build the url
         ContextPath cp = contextPath.addQueries(options.getQueries());
 
         List<RequestHeader> h = cleanAndSupplementRequestHeaders(options, "minimal", true);
 
-        final String url;
+        final String url = patchOrPutUrl(entity, cp);
+        // get the response
+        HttpService service = cp.context().service();
+        final HttpResponse response = service.submit(method, url, h,
+                patchOrPutBody(entity, method), options);
+        checkResponseCodeOk(cp, response);
+        // TODO is service returning the entity that we should use rather than the
+        // original?
+        return entity;
+    }
+
+    private static <T extends ODataEntityType> RequestBody patchOrPutBody(T entity,
+            HttpMethod method) {
+        if (method == HttpMethod.PATCH) {
+            return RequestBody.jsonChangesOnly(entity);
+        } else {
+            return RequestBody.json(entity);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static <T extends ODataEntityType> String patchOrPutUrl(T entity, ContextPath cp) {
         String editLink = (String) entity.getUnmappedFields().get("@odata.editLink");
         // TODO get patch working when editLink present (does not work with MsGraph)
         if (editLink != null && false) {
             if (editLink.startsWith(HTTPS) || editLink.startsWith("http://")) {
-                url = editLink;
+                return editLink;
             } else {
                 // TOOD unit test relative url in editLink
                 // from
@@ -246,24 +340,89 @@ public final class RequestHelper {
                         URL u = new URL(context);
                         String p = u.getPath();
                         String basePath = p.substring(0, p.lastIndexOf('/'));
-                        url = basePath + "/" + editLink;
+                        return basePath + "/" + editLink;
                     } catch (MalformedURLException e) {
                         throw new ClientException(e);
                     }
                 } else {
-                    url = cp.context().service().getBasePath().toUrl() + "/" + editLink;
+                    return cp.context().service().getBasePath().toUrl() + "/" + editLink;
                 }
             }
         } else {
-            url = cp.toUrl();
+            return cp.toUrl();
         }
-        // get the response
-        HttpService service = cp.context().service();
-        final HttpResponse response = service.submitWithContent(method, url, h, json, options);
-        checkResponseCodeOk(cp, response);
-        // TODO is service returning the entity that we should use rather than the
-        // original?
-        return entity;
+    }
+
+    /**
+     * Async version of {@link #get(ContextPath, Class, RequestOptions)}. The
+     * response is buffered and then deserialized on the thread that completes the
+     * response future.
+     * 
+     * @param <T>         return object type
+     * @param contextPath context and current path
+     * @param returnCls   return class
+     * @param options     request options
+     * @return future of the object hydrated from json
+     */
+    public static <T> CompletableFuture<T> getAsync(ContextPath contextPath, Class<T> returnCls,
+            RequestOptions options) {
+        ContextPath cp = contextPath.addQueries(options.getQueries());
+        List<RequestHeader> h = cleanAndSupplementRequestHeaders(options, "minimal", false);
+        String url = cp.toUrl();
+        return cp.context().asyncService().get(url, h, options).thenApply(response -> {
+            checkResponseCode(url, response, HttpURLConnection.HTTP_OK, HttpURLConnection.HTTP_OK);
+            if (options.lazy()) {
+                return cp.context().serializer().deserializeLazy(response.getBytes(), returnCls,
+                        contextPath, false);
+            }
+            return cp.context().serializer().deserialize(response.getBytes(), returnCls,
+                    contextPath, false);
+        });
+    }
+
+    public static <T extends ODataEntityType> CompletableFuture<T> postAsync(T entity,
+            ContextPath contextPath, Class<T> cls, RequestOptions options) {
+        ContextPath cp = contextPath.addQueries(options.getQueries());
+        List<RequestHeader> h = cleanAndSupplementRequestHeaders(options, "minimal", true);
+        String url = cp.toUrl();
+        return cp.context().asyncService()
+                .submit(HttpMethod.POST, url, h, RequestBody.json(entity), options)
+                .thenApply(response -> {
+                    checkResponseCode(url, response, HTTP_OK_MIN, HTTP_OK_MAX);
+                    return cp.context().serializer().deserialize(response.getBytes(), cls,
+                            contextPath, false);
+                });
+    }
+
+    public static <T extends ODataEntityType> CompletableFuture<T> patchAsync(T entity,
+            ContextPath contextPath, RequestOptions options) {
+        return patchOrPutAsync(entity, contextPath, options, HttpMethod.PATCH);
+    }
+
+    public static <T extends ODataEntityType> CompletableFuture<T> putAsync(T entity,
+            ContextPath contextPath, RequestOptions options) {
+        return patchOrPutAsync(entity, contextPath, options, HttpMethod.PUT);
+    }
+
+    private static <T extends ODataEntityType> CompletableFuture<T> patchOrPutAsync(T entity,
+            ContextPath contextPath, RequestOptions options, HttpMethod method) {
+        Preconditions.checkArgument(method == HttpMethod.PUT || method == HttpMethod.PATCH);
+        ContextPath cp = contextPath.addQueries(options.getQueries());
+        List<RequestHeader> h = cleanAndSupplementRequestHeaders(options, "minimal", true);
+        String url = patchOrPutUrl(entity, cp);
+        return cp.context().asyncService()
+                .submit(method, url, h, patchOrPutBody(entity, method), options)
+                .thenApply(response -> {
+                    checkResponseCodeOk(cp, response);
+                    return entity;
+                });
+    }
+
+    public static CompletableFuture<Void> deleteAsync(ContextPath cp, RequestOptions options) {
+        String url = cp.toUrl();
+        List<RequestHeader> h = cleanAndSupplementRequestHeaders(options, "minimal", true);
+        return cp.context().asyncService().delete(url, h, options).thenAccept(
+                response -> checkResponseCode(cp, response, HttpURLConnection.HTTP_NO_CONTENT));
     }
 
     public static void put(ContextPath contextPath, RequestOptions options, InputStream in,
@@ -287,11 +446,26 @@ public final class RequestHelper {
         }
     }
 
-    @SuppressWarnings("unchecked")
     public static <T> Class<? extends T> getSubClass(ContextPath cp, List<SchemaInfo> schemas,
             Class<T> cls, String json) {
-        Optional<String> namespacedType = cp.context().serializer().getODataType(json)
-                .map(x -> x.substring(1));
+        return getSubClassFromODataType(schemas, cls, cp.context().serializer().getODataType(json));
+    }
+
+    /**
+     * Returns the class corresponding to the given {@code @odata.type} value (for
+     * example {@code #microsoft.graph.fileAttachment}) using the given schemas. If
+     * the type is not present or not found then {@code cls} is returned.
+     * 
+     * @param <T>       type of the base class
+     * @param schemas   schemas to look up the type in
+     * @param cls       base class
+     * @param odataType value of the {@code @odata.type} field if present
+     * @return sub-class of cls corresponding to the odata type or cls
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Class<? extends T> getSubClassFromODataType(List<SchemaInfo> schemas,
+            Class<T> cls, Optional<String> odataType) {
+        Optional<String> namespacedType = odataType.map(x -> x.substring(1));
         if (namespacedType.isPresent()) {
             for (SchemaInfo schema : schemas) {
                 Class<? extends T> c = (Class<? extends T>) schema
@@ -524,4 +698,29 @@ public final class RequestHelper {
         }
     }
 
+    /**
+     * As {@link #getValue(UnmappedFields, String)} for an entity that may have been
+     * read lazily. An expanded navigation property is an object or array valued
+     * field so is deferred in {@code lazyFields} until asked for. Only that field is
+     * decoded and it is then kept with the other unmapped fields.
+     * 
+     * @param unmappedFields unmapped fields of the entity, may be null
+     * @param lazyFields     deferred fields of the entity, may be null
+     * @param name           json field name
+     * @return value of the field if present
+     */
+    public static Optional<Object> getValue(UnmappedFieldsImpl unmappedFields,
+            LazyFields lazyFields, String name) {
+        if (lazyFields != null) {
+            Object value = lazyFields.value(name, null, Object.class);
+            if (value != null) {
+                if (unmappedFields != null) {
+                    unmappedFields.put(name, value);
+                }
+                return Optional.of(value);
+            }
+        }
+        return getValue(unmappedFields, name);
+    }
+
 }
@@ -6,6 +6,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
+import com.github.davidmoten.odata.client.Deadline;
 import com.github.davidmoten.odata.client.RequestHeader;
 import com.github.davidmoten.odata.client.RequestOptions;
 
@@ -16,38 +17,52 @@ public class RequestOptionsImpl implements RequestOptions {
     private final List<RequestHeader> requestHeaders;
     private final Map<String, String> queries;
     private final Optional<String> urlOverride;
+    private final Optional<Deadline> deadline;
 
     public RequestOptionsImpl(Optional<Long> requestConnectTimeoutMs,
             Optional<Long> requestReadTimeoutMs, List<RequestHeader> requestHeaders,
             Map<String, String> queries, Optional<String> urlOverride) {
+        this(requestConnectTimeoutMs, requestReadTimeoutMs, requestHeaders, queries, urlOverride,
+                Optional.empty());
+    }
+
+    public RequestOptionsImpl(Optional<Long> requestConnectTimeoutMs,
+            Optional<Long> requestReadTimeoutMs, List<RequestHeader> requestHeaders,
+            Map<String, String> queries, Optional<String> urlOverride,
+            Optional<Deadline> deadline) {
         this.requestConnectTimeoutMs = requestConnectTimeoutMs;
         this.requestReadTimeoutMs = requestReadTimeoutMs;
         this.requestHeaders = requestHeaders;
         this.queries = queries;
         this.urlOverride = urlOverride;
-
+        this.deadline = deadline;
     }
 
     public RequestOptionsImpl(RequestOptions r) {
         this(r.requestConnectTimeoutMs(), r.requestReadTimeoutMs(), r.getRequestHeaders(),
-                r.getQueries(), r.getUrlOverride());
+                r.getQueries(), r.getUrlOverride(), r.deadline());
     }
 
     public RequestOptionsImpl withConnectTimeoutMs(long duration, TimeUnit unit) {
         return new RequestOptionsImpl(Optional.of(unit.toMillis(duration)), requestReadTimeoutMs, requestHeaders,
-                queries, urlOverride);
+                queries, urlOverride, deadline);
     }
 
     public RequestOptionsImpl withReadTimeoutMs(long duration, TimeUnit unit) {
         return new RequestOptionsImpl(requestConnectTimeoutMs, Optional.of(unit.toMillis(duration)), requestHeaders,
-                queries, urlOverride);
+                queries, urlOverride, deadline);
     }
 
     public RequestOptionsImpl withRequestHeader(String name, String value) {
         List<RequestHeader> h = new ArrayList<>(requestHeaders);
         h.add(RequestHeader.create(name, value));
         return new RequestOptionsImpl(requestConnectTimeoutMs, requestReadTimeoutMs, h, queries,
-                urlOverride);
+                urlOverride, deadline);
+    }
+
+    public RequestOptionsImpl withDeadline(Deadline deadline) {
+        return new RequestOptionsImpl(requestConnectTimeoutMs, requestReadTimeoutMs,
+                requestHeaders, queries, urlOverride, Optional.of(deadline));
     }
 
     @Override
@@ -75,4 +90,9 @@ public class RequestOptionsImpl implements RequestOptions {
         return urlOverride;
     }
 
+    @Override
+    public Optional<Deadline> deadline() {
+        return deadline;
+    }
+
 }
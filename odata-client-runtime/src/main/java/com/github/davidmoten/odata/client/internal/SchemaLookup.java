@@ -0,0 +1,48 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.davidmoten.odata.client.SchemaInfo;
+
+/**
+ * Looks up the class for a namespaced OData type name across a list of
+ * {@link SchemaInfo}. Results (including misses) are memoized so that each
+ * type name is resolved against the schemas only once.
+ */
+public final class SchemaLookup {
+
+    private final List<SchemaInfo> schemas;
+    private final Map<String, Optional<Class<?>>> cache = new ConcurrentHashMap<>();
+
+    public SchemaLookup(List<SchemaInfo> schemas) {
+        this.schemas = schemas == null ? Collections.emptyList() : schemas;
+    }
+
+    /**
+     * Returns the class corresponding to the given {@code @odata.type} value (for
+     * example {@code #microsoft.graph.fileAttachment}). The leading {@code #} is
+     * optional.
+     *
+     * @param odataType value of an {@code @odata.type} field
+     * @return class corresponding to the type if found in the schemas
+     */
+    public Optional<Class<?>> lookup(String odataType) {
+        return cache.computeIfAbsent(odataType, this::find);
+    }
+
+    private Optional<Class<?>> find(String odataType) {
+        String name = odataType.startsWith("#") ? odataType.substring(1) : odataType;
+        for (SchemaInfo schema : schemas) {
+            Class<?> c = schema.getClassFromTypeWithNamespace(name);
+            if (c != null) {
+                return Optional.of(c);
+            }
+        }
+        return Optional.empty();
+    }
+
+}
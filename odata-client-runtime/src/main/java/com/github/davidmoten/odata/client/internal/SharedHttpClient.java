@@ -0,0 +1,73 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+
+import com.github.davidmoten.guavamini.Preconditions;
+
+/**
+ * An Apache {@link CloseableHttpClient} (and so its connection pool) shared by
+ * many {@link ApacheHttpClientHttpService} instances. The client is closed when
+ * the owner and every service using it have released it.
+ */
+public final class SharedHttpClient {
+
+    private final CloseableHttpClient client;
+    private final Optional<InstrumentedConnectionManager> connectionManager;
+    // starts with the reference held by the owner
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    public SharedHttpClient(CloseableHttpClient client,
+            Optional<InstrumentedConnectionManager> connectionManager) {
+        Preconditions.checkNotNull(client);
+        Preconditions.checkNotNull(connectionManager);
+        this.client = client;
+        this.connectionManager = connectionManager;
+    }
+
+    /**
+     * Returns the client after adding a reference that must be matched by a call
+     * to {@link #release()}.
+     *
+     * @return the client
+     * @throws IllegalStateException if the client has been closed
+     */
+    public CloseableHttpClient acquire() {
+        while (true) {
+            int n = references.get();
+            if (n == 0) {
+                throw new IllegalStateException("shared client has been closed");
+            }
+            if (references.compareAndSet(n, n + 1)) {
+                return client;
+            }
+        }
+    }
+
+    /**
+     * Removes a reference, closing the client if it was the last one.
+     *
+     * @throws IOException if closing the client fails
+     */
+    public void release() throws IOException {
+        int n = references.decrementAndGet();
+        if (n == 0) {
+            client.close();
+        } else if (n < 0) {
+            references.incrementAndGet();
+            throw new IllegalStateException("released more often than acquired");
+        }
+    }
+
+    public Optional<InstrumentedConnectionManager> connectionManager() {
+        return connectionManager;
+    }
+
+    public int references() {
+        return references.get();
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.github.davidmoten.odata.client.internal;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Map that keeps its entries in a single array (keys and values alternating)
+ * with lookups by linear scan. Much smaller than a {@code HashMap} for a
+ * handful of entries but should not be used for many entries (see
+ * {@link UnmappedFieldsImpl} which switches to a {@code HashMap}).
+ */
+final class SmallMap extends AbstractMap<String, Object> {
+
+    private static final int INITIAL_CAPACITY = 2;
+
+    private Object[] entries;
+    private int size;
+    private int modCount;
+
+    SmallMap() {
+        this.entries = new Object[INITIAL_CAPACITY * 2];
+    }
+
+    SmallMap(SmallMap other) {
+        this.entries = Arrays.copyOf(other.entries, Math.max(other.size, 1) * 2);
+        this.size = other.size;
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < size * 2; i += 2) {
+            // keys are usually interned by the parser so try identity first
+            if (entries[i] == key) {
+                return i;
+            }
+        }
+        for (int i = 0; i < size * 2; i += 2) {
+            if (entries[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int i = indexOf(key);
+        return i < 0 ? null : entries[i + 1];
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        Objects.requireNonNull(key);
+        int i = indexOf(key);
+        if (i >= 0) {
+            Object previous = entries[i + 1];
+            entries[i + 1] = value;
+            return previous;
+        }
+        if (size * 2 == entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        entries[size * 2] = key;
+        entries[size * 2 + 1] = value;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        Object previous = entries[i + 1];
+        removeAt(i);
+        return previous;
+    }
+
+    private void removeAt(int i) {
+        int last = (size - 1) * 2;
+        System.arraycopy(entries, i + 2, entries, i, last - i);
+        entries[last] = null;
+        entries[last + 1] = null;
+        size--;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(entries, 0, size * 2, null);
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+
+        private int next;
+        private int current = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return next < size * 2;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next += 2;
+            int i = current;
+            return new SimpleEntry<String, Object>((String) entries[i], entries[i + 1]) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public Object setValue(Object value) {
+                    entries[i + 1] = value;
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(current);
+            next = current;
+            current = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+}
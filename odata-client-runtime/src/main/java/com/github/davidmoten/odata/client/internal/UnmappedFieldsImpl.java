@@ -1,101 +1,160 @@
 package com.github.davidmoten.odata.client.internal;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
 import com.github.davidmoten.odata.client.UnmappedFields;
 
+/**
+ * Unmapped fields of a deserialized object. Most objects have none or only a
+ * few (like {@code @odata.etag}) so storage is allocated on the first put, is a
+ * {@link SmallMap} for up to {@link #MAX_SMALL_SIZE} entries and a
+ * {@code HashMap} beyond that. Well-known annotation keys are stored as shared
+ * instances.
+ */
 public final class UnmappedFieldsImpl implements UnmappedFields, Map<String, Object> {
 
-    private final Map<String, Object> map;
+    static final int MAX_SMALL_SIZE = 8;
+
+    private static final Map<String, String> WELL_KNOWN_KEYS = wellKnownKeys( //
+            "@odata.context", //
+            "@odata.type", //
+            "@odata.id", //
+            "@odata.etag", //
+            "@odata.editLink", //
+            "@odata.readLink", //
+            "@odata.navigationLink", //
+            "@odata.associationLink", //
+            "@odata.mediaEditLink", //
+            "@odata.mediaReadLink", //
+            "@odata.mediaContentType", //
+            "@odata.mediaEtag", //
+            "@odata.nextLink", //
+            "@odata.deltaLink", //
+            "@odata.count");
+
+    // null until the first put
+    private Map<String, Object> map;
 
     public UnmappedFieldsImpl() {
-        this(new HashMap<>());
+        this(null);
     }
 
     public UnmappedFieldsImpl(Map<String, Object> map) {
         this.map = map;
     }
 
+    private static Map<String, String> wellKnownKeys(String... keys) {
+        Map<String, String> m = new HashMap<>();
+        for (String key : keys) {
+            m.put(key, key);
+        }
+        return m;
+    }
+
+    static String canonical(String key) {
+        String k = WELL_KNOWN_KEYS.get(key);
+        return k == null ? key : k;
+    }
+
+    private Map<String, Object> map() {
+        return map == null ? Collections.emptyMap() : map;
+    }
+
     @Override
     public int size() {
-        return map.size();
+        return map().size();
     }
 
     @Override
     public boolean isEmpty() {
-        return map.isEmpty();
+        return map().isEmpty();
     }
 
     @Override
     public boolean containsKey(String key) {
-        return map.containsKey(key);
+        return map().containsKey(key);
     }
 
     @Override
     public boolean containsValue(Object value) {
-        return map.containsValue(value);
+        return map().containsValue(value);
     }
 
     @Override
     public Object get(String key) {
-        return map.get(key);
+        return map().get(key);
     }
 
     @Override
     public Object put(String key, Object value) {
-        return map.put(key, value);
+        if (map == null) {
+            map = new SmallMap();
+        } else if (map instanceof SmallMap && map.size() >= MAX_SMALL_SIZE
+                && !map.containsKey(key)) {
+            map = new HashMap<>(map);
+        }
+        return map.put(canonical(key), value);
     }
 
     @Override
     public Object remove(Object key) {
-        return map.remove(key);
+        return map().remove(key);
     }
 
     @Override
     public void putAll(Map<? extends String, ? extends Object> m) {
-        map.putAll(m);
+        for (Entry<? extends String, ? extends Object> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
     }
 
     @Override
     public void clear() {
-        map.clear();
+        map().clear();
     }
 
     @Override
     public Set<String> keySet() {
-        return map.keySet();
+        return map().keySet();
     }
 
     @Override
     public Collection<Object> values() {
-        return map.values();
+        return map().values();
     }
 
     @Override
     public Set<Entry<String, Object>> entrySet() {
-        return map.entrySet();
+        return map().entrySet();
     }
 
     @Override
     public String toString() {
-        return map.toString();
+        return map().toString();
     }
 
     public UnmappedFieldsImpl copy() {
-        return new UnmappedFieldsImpl(new HashMap<>(map));
+        if (map == null) {
+            return new UnmappedFieldsImpl();
+        } else if (map instanceof SmallMap) {
+            return new UnmappedFieldsImpl(new SmallMap((SmallMap) map));
+        } else {
+            return new UnmappedFieldsImpl(new HashMap<>(map));
+        }
     }
 
     @Override
     public boolean containsKey(Object key) {
-        return map.containsKey(key);
+        return map().containsKey(key);
     }
 
     @Override
     public Object get(Object key) {
-        return map.get(key);
+        return map().get(key);
     }
 
 }
@@ -1,6 +1,5 @@
 package com.github.davidmoten.odata.client.internal;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -8,20 +7,37 @@ import java.io.UncheckedIOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import com.github.davidmoten.odata.client.ClientException;
 import com.github.davidmoten.odata.client.ODataType;
 
 public final class Util {
 
+    public static final long LENGTH_UNKNOWN = -1;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    // a length hint (from a Content-Length header that may be wrong) won't allocate
+    // more than this up front, longer streams are read in chunks
+    private static final int MAX_PRESIZE = 4 * 1024 * 1024;
+
+    private static final int MAX_CHUNK_SIZE = 1024 * 1024;
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final ThreadLocal<byte[]> READ_BUFFER = new ThreadLocal<>();
+
     public static String readString(InputStream in, Charset charset) throws IOException {
-        ByteArrayOutputStream result = new ByteArrayOutputStream();
-        byte[] buffer = new byte[1024];
-        int length;
-        while ((length = in.read(buffer)) != -1) {
-            result.write(buffer, 0, length);
+        try {
+            return new String(read(in), charset);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
-        return new String(result.toByteArray(), charset);
     }
 
     public static String trimTrailingSlash(String url) {
@@ -91,19 +107,89 @@ public final class Util {
     }
 
     public static byte[] read(InputStream in) {
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-        int n;
-        byte[] buffer = new byte[8192];
+        return read(in, LENGTH_UNKNOWN);
+    }
+
+    /**
+     * Reads the stream to the end and returns its bytes. When the length is known
+     * (for example from a Content-Length header) and at most 4MB the bytes are read
+     * straight into an array of that size. Otherwise the bytes are read into a list
+     * of chunks (the first being a buffer kept for reuse by the current thread)
+     * that grow with the amount read so that bytes already read are not copied as
+     * the stream gets longer, and are copied once into the exact-size result. A
+     * length that turns out to be wrong is tolerated.
+     * 
+     * @param in         input stream
+     * @param lengthHint expected number of bytes or a negative value if unknown
+     * @return the bytes read
+     */
+    public static byte[] read(InputStream in, long lengthHint) {
         try {
-            while ((n = in.read(buffer)) != -1) {
-                bytes.write(buffer, 0, n);
+            if (lengthHint < 0 || lengthHint > MAX_PRESIZE) {
+                return readChunked(in, EMPTY);
             }
-            return bytes.toByteArray();
+            byte[] bytes = new byte[(int) lengthHint];
+            int n = readFully(in, bytes, bytes.length);
+            if (n < bytes.length) {
+                return Arrays.copyOf(bytes, n);
+            }
+            int next = in.read();
+            if (next == -1) {
+                return bytes;
+            }
+            // longer than advertised
+            byte[] prefix = Arrays.copyOf(bytes, n + 1);
+            prefix[n] = (byte) next;
+            return readChunked(in, prefix);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    private static byte[] readChunked(InputStream in, byte[] prefix) throws IOException {
+        // take the buffer from the thread local while in use so that a nested read on
+        // the same thread gets its own buffer
+        byte[] buffer = READ_BUFFER.get();
+        if (buffer == null) {
+            buffer = new byte[BUFFER_SIZE];
+        } else {
+            READ_BUFFER.remove();
+        }
+        List<byte[]> full = new ArrayList<>();
+        if (prefix.length > 0) {
+            full.add(prefix);
+        }
+        long total = prefix.length;
+        byte[] chunk = buffer;
+        int len = 0;
+        while (true) {
+            if (len == chunk.length) {
+                full.add(chunk);
+                total += len;
+                // doubles the capacity each time till chunks reach the maximum size
+                chunk = new byte[(int) Math.min(MAX_CHUNK_SIZE, total)];
+                len = 0;
+            }
+            int n = in.read(chunk, len, chunk.length - len);
+            if (n == -1) {
+                break;
+            }
+            len += n;
+            if (total + len > MAX_ARRAY_SIZE) {
+                throw new IOException("stream too long to read into an array");
+            }
+        }
+        byte[] result = new byte[(int) (total + len)];
+        int pos = 0;
+        for (byte[] b : full) {
+            System.arraycopy(b, 0, result, pos, b.length);
+            pos += b.length;
+        }
+        System.arraycopy(chunk, 0, result, pos, len);
+        READ_BUFFER.set(buffer);
+        return result;
+    }
+
     public static void copy(InputStream in, OutputStream out, int bufferSize) throws IOException {
         byte[] b = new byte[bufferSize];
         int n;
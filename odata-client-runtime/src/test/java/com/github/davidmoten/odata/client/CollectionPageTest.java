@@ -1,6 +1,7 @@
 package com.github.davidmoten.odata.client;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -10,9 +11,12 @@ import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
 
 import org.junit.Test;
 
@@ -39,16 +43,92 @@ public class CollectionPageTest {
                 });
         assertEquals(2, c.currentPage().size());
         assertEquals("Russell", c.currentPage().get(0).firstName);
+        assertEquals("serviceRoot/People?%24skiptoken=8", c.nextLink().get());
+        assertFalse(c.deltaLink().isPresent());
+        assertEquals("serviceRoot/$metadata#People", c.unmappedFields().get("@odata.context"));
+        assertFalse(c.unmappedFields().containsKey("@odata.nextLink"));
     }
     
+    @Test
+    public void testParseCount() {
+        String json = "{\"@odata.count\":1234,\"value\":[\"a\",\"b\"]}";
+        CollectionPage<String> c = page(json);
+        assertEquals(Optional.of(1234L), c.count());
+        assertEquals(1234L, c.stream().spliterator().estimateSize());
+        assertFalse(c.spliterator().hasCharacteristics(Spliterator.SIZED));
+        assertEquals(Arrays.asList("a", "b"), c.toList());
+        // still available as before
+        assertEquals(1234, c.unmappedFields().get("@odata.count"));
+    }
+
+    @Test
+    public void testParseCountAsString() {
+        CollectionPage<String> c = page("{\"@odata.count\":\"12\",\"value\":[]}");
+        assertEquals(Optional.of(12L), c.count());
+    }
+
+    @Test
+    public void testNoCount() {
+        CollectionPage<String> c = page("{\"value\":[\"a\"]}");
+        assertFalse(c.count().isPresent());
+        assertEquals(Long.MAX_VALUE, c.spliterator().estimateSize());
+        assertEquals(Collections.singletonList("a"), c.toList());
+    }
+
+    @Test
+    public void testCountRequest() {
+        List<String> urls = new ArrayList<>();
+        List<List<RequestHeader>> headers = new ArrayList<>();
+        HttpService service = createHttpService("\uFEFF42\n", urls, headers);
+        Context context = new Context(Serializer.INSTANCE, service, Collections.emptyList());
+        CollectionPageEntityRequest<Person, EntityRequest<Person>> request = new CollectionPageEntityRequest<>(
+                new ContextPath(context, service.getBasePath().addSegment("People")), Person.class,
+                cp -> null, Optional.empty());
+        assertEquals(42, request.filter("Age gt 3").select("UserName").top(5).getCount());
+        assertEquals("https://base/People/%24count?$filter=Age%20gt%203", urls.get(0));
+        assertTrue(headers.get(0).contains(RequestHeader.ACCEPT_TEXT_PLAIN));
+        assertFalse(headers.get(0).contains(RequestHeader.ACCEPT_JSON_METADATA_MINIMAL));
+    }
+
+    @Test
+    public void testNonEntityCountRequest() {
+        List<String> urls = new ArrayList<>();
+        List<List<RequestHeader>> headers = new ArrayList<>();
+        HttpService service = createHttpService("7", urls, headers);
+        Context context = new Context(Serializer.INSTANCE, service, Collections.emptyList());
+        CollectionPageNonEntityRequest<String> request = new CollectionPageNonEntityRequest<>(
+                new ContextPath(context, service.getBasePath().addSegment("Tags")),
+                String.class);
+        assertEquals(7, request.filter("length gt 3").top(2).getCount());
+        assertEquals("https://base/Tags/%24count?$filter=length%20gt%203", urls.get(0));
+        assertTrue(headers.get(0).contains(RequestHeader.ACCEPT_TEXT_PLAIN));
+        assertEquals(7, request.getCount());
+        assertEquals("https://base/Tags/%24count", urls.get(1));
+    }
+
+    private static CollectionPage<String> page(String json) {
+        HttpService service = createHttpService(json);
+        Context context = new Context(Serializer.INSTANCE, service, Collections.emptyList());
+        return Serializer.INSTANCE.deserializeCollectionPage(json, String.class,
+                new ContextPath(context, service.getBasePath()), Collections.emptyList(),
+                HttpRequestOptions.EMPTY, null);
+    }
+
     private static final byte[] EMPTY_ARRAY = new byte[0];
     
     private static HttpService createHttpService(String json) {
+        return createHttpService(json, new ArrayList<>(), new ArrayList<>());
+    }
+
+    private static HttpService createHttpService(String json, List<String> urls,
+            List<List<RequestHeader>> headers) {
         return new HttpService() {
 
             @Override
             public HttpResponse get(String url, List<RequestHeader> requestHeaders,
                     HttpRequestOptions options) {
+                urls.add(url);
+                headers.add(requestHeaders);
                 return new HttpResponse(200, json.getBytes(StandardCharsets.UTF_8));
             }
 
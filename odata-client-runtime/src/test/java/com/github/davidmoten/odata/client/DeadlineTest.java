@@ -0,0 +1,72 @@
+package com.github.davidmoten.odata.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.github.davidmoten.odata.client.Deadline.Registration;
+
+public class DeadlineTest {
+
+    @Test
+    public void testLimitUsesSmallerOfTimeoutAndRemaining() {
+        Deadline d = Deadline.after(1, TimeUnit.HOURS);
+        assertEquals(Optional.of(100L), d.limit(Optional.of(100L)));
+        long remaining = d.limit(Optional.empty()).get();
+        assertTrue(remaining > TimeUnit.MINUTES.toMillis(59));
+        // 0 means no timeout
+        assertTrue(d.limit(Optional.of(0L)).get() > 100);
+    }
+
+    @Test
+    public void testCancellableHasNoTimeLimit() {
+        Deadline d = Deadline.cancellable();
+        assertEquals(Optional.empty(), d.limit(Optional.empty()));
+        assertFalse(d.isExpired());
+    }
+
+    @Test
+    public void testCancelRunsAbortAndFailsFurtherRequests() {
+        Deadline d = Deadline.cancellable();
+        AtomicInteger aborts = new AtomicInteger();
+        Registration r = d.onExpiry(aborts::incrementAndGet);
+        Registration closed = d.onExpiry(aborts::incrementAndGet);
+        closed.close();
+        d.cancel();
+        d.cancel();
+        r.close();
+        assertEquals(1, aborts.get());
+        assertTrue(d.isCancelled());
+        try {
+            d.checkNotExpired();
+        } catch (DeadlineExceededException e) {
+            assertEquals("cancelled", e.getMessage());
+        }
+        // registering after expiry aborts immediately
+        d.onExpiry(aborts::incrementAndGet);
+        assertEquals(2, aborts.get());
+    }
+
+    @Test
+    public void testAbortRunsWhenDeadlinePasses() throws InterruptedException {
+        Deadline d = Deadline.after(50, TimeUnit.MILLISECONDS);
+        CountDownLatch latch = new CountDownLatch(1);
+        d.onExpiry(latch::countDown);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(d.isExpired());
+        assertFalse(d.isCancelled());
+    }
+
+    @Test(expected = DeadlineExceededException.class)
+    public void testRemainingThrowsWhenExpired() {
+        Deadline.after(0, TimeUnit.MILLISECONDS).remainingMs();
+    }
+
+}
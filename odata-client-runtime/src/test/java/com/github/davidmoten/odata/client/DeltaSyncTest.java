@@ -0,0 +1,300 @@
+package com.github.davidmoten.odata.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.davidmoten.odata.client.internal.UnmappedFieldsImpl;
+
+public class DeltaSyncTest {
+
+    @Test
+    public void testFullSyncThenDelta() {
+        DeltaService service = new DeltaService();
+        MemoryStore store = new MemoryStore();
+        RecordingSink sink = new RecordingSink();
+        DeltaSync<Item> sync = sync(service, store, sink);
+        assertEquals(3, sync.syncOnce());
+        assertEquals(Arrays.asList("reset", "upsert a", "upsert b", "upsert c"), sink.events);
+        assertEquals(Optional.of("https://base/delta1"), store.load());
+        sink.events.clear();
+        assertEquals(2, sync.syncOnce());
+        assertEquals(Arrays.asList("upsert d", "delete a"), sink.events);
+        assertEquals(Optional.of("https://base/delta2"), store.load());
+    }
+
+    @Test
+    public void testGoneStartsFullSync() {
+        DeltaService service = new DeltaService();
+        MemoryStore store = new MemoryStore();
+        store.save("https://base/expired");
+        RecordingSink sink = new RecordingSink();
+        assertEquals(3, sync(service, store, sink).syncOnce());
+        assertEquals(Arrays.asList("reset", "upsert a", "upsert b", "upsert c"), sink.events);
+        assertEquals(Optional.of("https://base/delta1"), store.load());
+    }
+
+    @Test
+    public void testFailedRoundKeepsCheckpoint() {
+        DeltaService service = new DeltaService();
+        service.failFullPage2 = true;
+        MemoryStore store = new MemoryStore();
+        RecordingSink sink = new RecordingSink();
+        try {
+            sync(service, store, sink).syncOnce();
+            fail();
+        } catch (ClientException e) {
+            assertEquals(Optional.of(500), e.getStatusCode());
+        }
+        assertFalse(store.load().isPresent());
+    }
+
+    @Test
+    public void testNextInterval() {
+        // no changes doubles up to the max
+        assertEquals(200, DeltaSync.nextIntervalMs(100, 0, 1, 10, 1000));
+        assertEquals(1000, DeltaSync.nextIntervalMs(800, 0, 1, 10, 1000));
+        // changes halve down to the min
+        assertEquals(50, DeltaSync.nextIntervalMs(100, 3, 1, 10, 1000));
+        assertEquals(10, DeltaSync.nextIntervalMs(15, 3, 1, 10, 1000));
+        // paging goes straight to the min
+        assertEquals(10, DeltaSync.nextIntervalMs(800, 30, 2, 10, 1000));
+    }
+
+    @Test
+    public void testPollingStopsOnClose() throws InterruptedException {
+        DeltaService service = new DeltaService();
+        MemoryStore store = new MemoryStore();
+        RecordingSink sink = new RecordingSink();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            DeltaSync<Item> sync = DeltaSync
+                    .from(() -> service.page("https://base/full"), service::page) //
+                    .store(store) //
+                    .sink(sink) //
+                    .pollInterval(10, 40, TimeUnit.MILLISECONDS) //
+                    .build() //
+                    .start(scheduler);
+            long start = System.currentTimeMillis();
+            // full sync, delta1 -> delta2, then delta2 (no changes) repeatedly
+            while (service.emptyRounds.get() < 3) {
+                assertTrue(System.currentTimeMillis() - start < 5000);
+                Thread.sleep(10);
+            }
+            assertEquals(40, sync.pollIntervalMs());
+            sync.close();
+            int requests = service.requests.get();
+            Thread.sleep(100);
+            assertEquals(requests, service.requests.get());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCloseDoesNotWaitForRoundInProgress() throws InterruptedException {
+        DeltaService service = new DeltaService();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            DeltaSync<Item> sync = DeltaSync.from(() -> {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return service.page("https://base/full");
+            }, service::page) //
+                    .store(new MemoryStore()) //
+                    .sink(new RecordingSink()) //
+                    .pollInterval(10, 40, TimeUnit.MILLISECONDS) //
+                    .build() //
+                    .start(scheduler);
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            // the round is blocked reading the first page
+            long start = System.currentTimeMillis();
+            assertEquals(10, sync.pollIntervalMs());
+            sync.close();
+            assertTrue(System.currentTimeMillis() - start < 1000);
+            release.countDown();
+            // the round completes but no further round is scheduled
+            Thread.sleep(100);
+            assertEquals(2, service.requests.get());
+        } finally {
+            release.countDown();
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFileStore() throws IOException {
+        File dir = Files.createTempDirectory("delta").toFile();
+        try {
+            java.nio.file.Path file = new File(dir, "users.delta").toPath();
+            DeltaLinkStore store = DeltaLinkStore.file(file);
+            assertFalse(store.load().isPresent());
+            store.save("https://base/delta1");
+            assertEquals(Optional.of("https://base/delta1"), store.load());
+            store.save("https://base/delta2");
+            assertEquals(Optional.of("https://base/delta2"), store.load());
+            // no temporary files left behind
+            assertEquals(1, dir.list().length);
+            store.clear();
+            assertFalse(store.load().isPresent());
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    private static DeltaSync<Item> sync(DeltaService service, DeltaLinkStore store,
+            DeltaSink<Item> sink) {
+        return DeltaSync.from(() -> service.page("https://base/full"), service::page) //
+                .store(store) //
+                .sink(sink) //
+                .build();
+    }
+
+    static final class Item implements ODataType {
+
+        @JsonProperty("id")
+        String id;
+
+        private final UnmappedFieldsImpl unmappedFields = new UnmappedFieldsImpl();
+
+        @JsonAnySetter
+        private void setUnmappedField(String name, Object value) {
+            unmappedFields.put(name, value);
+        }
+
+        @Override
+        public UnmappedFields getUnmappedFields() {
+            return unmappedFields;
+        }
+
+        @Override
+        public void postInject(boolean addKeysToContextPath) {
+            // do nothing
+        }
+
+        @Override
+        public String odataTypeName() {
+            return "item";
+        }
+    }
+
+    private static final class MemoryStore implements DeltaLinkStore {
+
+        private final AtomicReference<String> link = new AtomicReference<>();
+
+        @Override
+        public Optional<String> load() {
+            return Optional.ofNullable(link.get());
+        }
+
+        @Override
+        public void save(String deltaLink) {
+            link.set(deltaLink);
+        }
+
+        @Override
+        public void clear() {
+            link.set(null);
+        }
+    }
+
+    private static final class RecordingSink implements DeltaSink<Item> {
+
+        final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void upsert(Item item) {
+            events.add("upsert " + item.id);
+        }
+
+        @Override
+        public void delete(Item item) {
+            events.add("delete " + item.id);
+        }
+
+        @Override
+        public void reset() {
+            events.add("reset");
+        }
+    }
+
+    private static final class DeltaService {
+
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicInteger emptyRounds = new AtomicInteger();
+        volatile boolean failFullPage2;
+        private final Map<String, String> pages = new ConcurrentHashMap<>();
+        private final HttpService service = StubHttpService.create("https://base", this::respond);
+
+        DeltaService() {
+            pages.put("https://base/full",
+                    "{\"value\":[{\"id\":\"a\"},{\"id\":\"b\"}],"
+                            + "\"@odata.nextLink\":\"https://base/full2\"}");
+            pages.put("https://base/full2", "{\"value\":[{\"id\":\"c\"}],"
+                    + "\"@odata.deltaLink\":\"https://base/delta1\"}");
+            pages.put("https://base/delta1",
+                    "{\"value\":[{\"id\":\"d\"},{\"id\":\"a\",\"@removed\":{\"reason\":\"deleted\"}}],"
+                            + "\"@odata.deltaLink\":\"https://base/delta2\"}");
+            pages.put("https://base/delta2",
+                    "{\"value\":[],\"@odata.deltaLink\":\"https://base/delta2\"}");
+        }
+
+        CollectionPage<Item> page(String url) {
+            HttpResponse response = service.get(url, HttpRequestOptions.EMPTY);
+            if (response.getResponseCode() != 200) {
+                throw new ClientException(response.getResponseCode(), response.getText());
+            }
+            Context context = new Context(Serializer.INSTANCE, service, Collections.emptyList());
+            return Serializer.INSTANCE.deserializeCollectionPage(response.getText(), Item.class,
+                    new ContextPath(context, service.getBasePath()), Collections.emptyList(),
+                    HttpRequestOptions.EMPTY, null);
+        }
+
+        private HttpResponse respond(String url) {
+            requests.incrementAndGet();
+            if (url.equals("https://base/delta2")) {
+                emptyRounds.incrementAndGet();
+            }
+            if (url.equals("https://base/full2") && failFullPage2) {
+                return StubHttpService.response(500, "boo");
+            }
+            String json = pages.get(url);
+            if (json == null) {
+                return StubHttpService.response(410, "gone");
+            }
+            return StubHttpService.response(200, json);
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.github.davidmoten.odata.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class PartitionedScanTest {
+
+    private static final int PAGES = 5;
+    private static final int PAGE_SIZE = 3;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testStreamMergesAllPartitions() {
+        PartitionedScan<String> scan = scan(4, new PagingService(-1)).concurrency(2);
+        try (Stream<String> s = scan.stream(executor)) {
+            List<String> list = s.collect(Collectors.toList());
+            assertEquals(4 * PAGES * PAGE_SIZE, list.size());
+            assertEquals(list.size(), new TreeSet<>(list).size());
+        }
+    }
+
+    @Test
+    public void testConcurrencyLimit() {
+        PagingService service = new PagingService(-1);
+        try (Stream<String> s = scan(6, service).concurrency(2).stream(executor)) {
+            assertEquals(6 * PAGES * PAGE_SIZE, s.count());
+        }
+        assertTrue(service.maxInFlight.get() <= 2);
+    }
+
+    @Test
+    public void testForEachReportsPartition() {
+        Set<String> items = ConcurrentHashMap.newKeySet();
+        scan(3, new PagingService(-1)).forEach(executor, (x, partition) -> {
+            assertTrue(x.startsWith("p" + partition + "-"));
+            items.add(x);
+        });
+        assertEquals(3 * PAGES * PAGE_SIZE, items.size());
+    }
+
+    @Test
+    public void testErrorInPartitionIsThrown() {
+        try (Stream<String> s = scan(3, new PagingService(2)).stream(executor)) {
+            s.count();
+            fail();
+        } catch (ClientException e) {
+            assertEquals(Optional.of(500), e.getStatusCode());
+        }
+    }
+
+    @Test
+    public void testCloseStopsReading() throws InterruptedException {
+        PagingService service = new PagingService(-1);
+        try (Stream<String> s = scan(4, service).concurrency(1).stream(executor)) {
+            assertEquals(2, s.limit(2).count());
+        }
+        Thread.sleep(300);
+        int requests = service.requests.get();
+        Thread.sleep(300);
+        assertEquals(requests, service.requests.get());
+        assertTrue(requests < 4 * PAGES);
+    }
+
+    private static PartitionedScan<String> scan(int partitions, PagingService paging) {
+        HttpService service = paging.service;
+        Context context = new Context(Serializer.INSTANCE, service, Collections.emptyList());
+        ContextPath contextPath = new ContextPath(context, service.getBasePath());
+        List<Supplier<CollectionPage<String>>> list = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            String url = "https://base/p" + i + "/0";
+            list.add(() -> {
+                String json = new String(service.get(url, HttpRequestOptions.EMPTY).getBytes(),
+                        StandardCharsets.UTF_8);
+                return Serializer.INSTANCE.deserializeCollectionPage(json, String.class,
+                        contextPath, Collections.emptyList(), HttpRequestOptions.EMPTY, null);
+            });
+        }
+        return new PartitionedScan<>(list);
+    }
+
+    // serves pages at https://base/p<partition>/<page>
+    private static final class PagingService {
+
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final HttpService service = StubHttpService.create("https://base", this::respond);
+        private final int failPage;
+
+        PagingService(int failPage) {
+            this.failPage = failPage;
+        }
+
+        private HttpResponse respond(String url) {
+            requests.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(10);
+                String[] parts = url.substring("https://base/".length()).split("/");
+                String partition = parts[0];
+                int page = Integer.parseInt(parts[1]);
+                if (page == failPage && partition.equals("p1")) {
+                    return StubHttpService.response(500, "boo");
+                }
+                StringBuilder b = new StringBuilder("{\"value\":[");
+                for (int i = 0; i < PAGE_SIZE; i++) {
+                    if (i > 0) {
+                        b.append(",");
+                    }
+                    b.append("\"" + partition + "-" + page + "-" + i + "\"");
+                }
+                b.append("]");
+                if (page < PAGES - 1) {
+                    b.append(",\"@odata.nextLink\":\"https://base/" + partition + "/" + (page + 1)
+                            + "\"");
+                }
+                b.append("}");
+                return StubHttpService.response(200, b.toString());
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+}
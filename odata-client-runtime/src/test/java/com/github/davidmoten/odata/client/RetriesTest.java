@@ -106,6 +106,27 @@ public class RetriesTest {
         }
     }
 
+    @Test
+    public void testDeadlineStopsRetries() {
+        AtomicInteger attempts = new AtomicInteger();
+        Retries r = Retries.builder().maxRetries(1000)
+                .retryIntervals(Arrays.asList(10L, 10L, 10L, 10L, 10L, 10L, 10L, 10L, 10L, 10L,
+                        10000L), TimeUnit.MILLISECONDS)
+                .build();
+        long t = System.currentTimeMillis();
+        try {
+            r.performWithRetries(Deadline.after(200, TimeUnit.MILLISECONDS), () -> {
+                attempts.incrementAndGet();
+                throw new RuntimeException("boo");
+            });
+            Assert.fail();
+        } catch (DeadlineExceededException e) {
+            // the long last interval is cut short by the deadline
+            assertTrue(System.currentTimeMillis() - t < 5000);
+            assertEquals(11, attempts.get());
+        }
+    }
+
     private void checkMaxRetriesHonoured(int maxRetries) {
         AtomicInteger attempts = new AtomicInteger();
         Retries r = Retries.builder().maxRetries(maxRetries).build();
@@ -1,16 +1,50 @@
 package com.github.davidmoten.odata.client;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
+import com.fasterxml.jackson.annotation.JacksonInject;
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.github.davidmoten.odata.client.internal.ChangedFields;
+import com.github.davidmoten.odata.client.internal.FieldOrdinals;
+import com.github.davidmoten.odata.client.internal.GeneratedDeserializer;
+import com.github.davidmoten.odata.client.internal.GeneratedSerializer;
+import com.github.davidmoten.odata.client.internal.LazyFields;
+import com.github.davidmoten.odata.client.internal.UnmappedFieldsImpl;
 
 public class SerializerTest {
 
@@ -51,7 +85,557 @@ public class SerializerTest {
         String json = Serializer.INSTANCE.serialize(new Thing());
         assertEquals("{\"name\":\"Bert\"}", json);
     }
+
+    @Test
+    public void testSerializeToStreamDoesNotCloseStream() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean();
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+        Serializer.INSTANCE.serialize(new Thing(), out);
+        assertEquals("{\"name\":\"Bert\"}", new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertFalse(closed.get());
+    }
     
+    @Test
+    public void testDeserializeInjectsContextPathPerCall() {
+        ContextPath cp1 = new ContextPath(null, null);
+        ContextPath cp2 = new ContextPath(null, null);
+        String json = "{\"name\":\"Bert\"}";
+        Injected a = Serializer.INSTANCE.deserialize(json, Injected.class, cp1, false);
+        Injected b = Serializer.INSTANCE.deserialize(json, Injected.class, cp2, false);
+        assertEquals("Bert", a.name);
+        assertSame(cp1, a.contextPath);
+        assertSame(cp2, b.contextPath);
+    }
+
+    @Test
+    public void testDeserializeResolvesSubClassFromODataType() {
+        SchemaInfo schema = name -> name.equals("test.Sub") ? Sub.class : null;
+        Context context = new Context(Serializer.INSTANCE, null, Collections.singletonList(schema));
+        ContextPath cp = new ContextPath(context, null);
+
+        // top level
+        Base a = Serializer.INSTANCE.deserialize("{\"@odata.type\":\"#test.Sub\",\"extra\":\"x\"}",
+                Base.class, cp, false);
+        assertTrue(a instanceof Sub);
+        assertEquals("#test.Sub", a.odataType);
+        assertEquals("x", ((Sub) a).extra);
+
+        // absent or unknown type falls back to the declared class
+        assertEquals(Base.class,
+                Serializer.INSTANCE.deserialize("{\"name\":\"Bert\"}", Base.class, cp, false).getClass());
+        assertEquals(Base.class, Serializer.INSTANCE
+                .deserialize("{\"@odata.type\":\"#test.Other\"}", Base.class, cp, false).getClass());
+        assertEquals(Base.class, Serializer.INSTANCE.deserialize("{}", Base.class, cp, false).getClass());
+
+        // a type after regular properties is used too
+        Base c = Serializer.INSTANCE.deserialize(
+                "{\"name\":\"Bert\",\"extra\":\"y\",\"@odata.type\":\"#test.Sub\"}",
+                Base.class, cp, false);
+        assertTrue(c instanceof Sub);
+        assertEquals("Bert", c.name);
+        assertEquals("y", ((Sub) c).extra);
+        assertEquals("#test.Sub", c.odataType);
+
+        // type after other control information (top level responses have
+        // @odata.context first)
+        Base d = Serializer.INSTANCE.deserialize(
+                "{\"@odata.context\":\"ctx\",\"@odata.type\":\"#test.Sub\",\"extra\":\"z\"}",
+                Base.class, cp, false);
+        assertTrue(d instanceof Sub);
+        assertEquals("z", ((Sub) d).extra);
+        Base e = Serializer.INSTANCE.deserialize("{\"@odata.context\":\"ctx\",\"name\":\"Bert\"}",
+                Base.class, cp, false);
+        assertEquals(Base.class, e.getClass());
+        assertEquals("Bert", e.name);
+        assertEquals(Base.class, Serializer.INSTANCE
+                .deserialize("{\"@odata.context\":\"ctx\"}", Base.class, cp, false).getClass());
+
+        // nested property
+        Base b = Serializer.INSTANCE.deserialize(
+                "{\"child\":{\"@odata.type\":\"#test.Sub\",\"extra\":\"y\"}}", Base.class, cp,
+                false);
+        assertEquals(Base.class, b.getClass());
+        assertEquals("y", ((Sub) b.child).extra);
+    }
+
+    @Test
+    public void testDeserializeCollectionPageResolvesSubClassFromODataType() {
+        SchemaInfo schema = name -> name.equals("test.Sub") ? Sub.class : null;
+        Context context = new Context(Serializer.INSTANCE, null, Collections.singletonList(schema));
+        ContextPath cp = new ContextPath(context, null);
+        CollectionPage<Base> page = Serializer.INSTANCE.deserializeCollectionPage(
+                "{\"value\":[{\"name\":\"a\"},{\"@odata.type\":\"#test.Sub\",\"name\":\"b\"}]}",
+                Base.class, cp, Collections.emptyList(), HttpRequestOptions.EMPTY, x -> {
+                });
+        assertEquals(2, page.currentPage().size());
+        assertEquals(Base.class, page.currentPage().get(0).getClass());
+        assertEquals(Sub.class, page.currentPage().get(1).getClass());
+        assertEquals("b", page.currentPage().get(1).name);
+    }
+
+    @Test
+    public void testDeserializeFromBytesAndInputStream() {
+        ContextPath cp = new ContextPath(null, null);
+        byte[] bytes = "{\"name\":\"Bert\u00e9\"}".getBytes(StandardCharsets.UTF_8);
+        Injected a = Serializer.INSTANCE.deserialize(bytes, Injected.class, cp, false);
+        assertEquals("Bert\u00e9", a.name);
+        assertSame(cp, a.contextPath);
+        Injected b = Serializer.INSTANCE.deserialize(new ByteArrayInputStream(bytes),
+                Injected.class, cp, false);
+        assertEquals("Bert\u00e9", b.name);
+    }
+
+    @Test
+    public void testSerializeChangesOnly() {
+        Person child = new Person("b", null, null, ChangedFields.EMPTY.add("name"));
+        Person p = new Person("a", null, child, ChangedFields.EMPTY.add("age"));
+        assertEquals("{\"@odata.type\":\"test.Person\",\"age\":null}",
+                Serializer.INSTANCE.serializeChangesOnly(p));
+        p = new Person("a", 3, child, ChangedFields.EMPTY.add("name").add("child"));
+        // nested values are written in full
+        assertEquals("{\"@odata.type\":\"test.Person\",\"name\":\"a\",\"child\":"
+                + "{\"@odata.type\":\"test.Person\",\"name\":\"b\",\"age\":null,\"child\":null}}",
+                Serializer.INSTANCE.serializeChangesOnly(p));
+    }
+
+    @Test
+    public void testSerializeChangesOnlyByOrdinal() {
+        FieldOrdinals ordinals = FieldOrdinals.of("name", "age", "child");
+        Person p = new Person("a", 3, null, ChangedFields.EMPTY.add(ordinals, 1));
+        assertEquals("{\"@odata.type\":\"test.Person\",\"age\":3}",
+                Serializer.INSTANCE.serializeChangesOnly(p));
+        // mixed with a field added by name
+        p = new Person("a", 3, null, ChangedFields.EMPTY.add("name").add(ordinals, 1));
+        assertEquals("{\"@odata.type\":\"test.Person\",\"name\":\"a\",\"age\":3}",
+                Serializer.INSTANCE.serializeChangesOnly(p));
+    }
+
+    @Test
+    public void testSchemaModuleRegisteredOnce() {
+        AtomicInteger calls = new AtomicInteger();
+        SchemaInfo schema = new SchemaInfo() {
+            @Override
+            public Class<?> getClassFromTypeWithNamespace(String name) {
+                return null;
+            }
+
+            @Override
+            public Optional<Module> jacksonModule() {
+                calls.incrementAndGet();
+                return Optional.of(new SimpleModule("test.registeredOnce"));
+            }
+        };
+        for (int i = 0; i < 3; i++) {
+            new Context(Serializer.INSTANCE, null, Collections.singletonList(schema));
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testGeneratedSerializerAndDeserializer() {
+        SchemaInfo schema = new SchemaInfo() {
+            @Override
+            public Class<?> getClassFromTypeWithNamespace(String name) {
+                return name.equals("test.Coded") ? Coded.class : null;
+            }
+
+            @Override
+            public Optional<Module> jacksonModule() {
+                SimpleModule m = new SimpleModule("test.coded");
+                m.addSerializer(Coded.class, new Coded._Serializer());
+                m.addDeserializer(Coded.class, new Coded._Deserializer());
+                return Optional.of(m);
+            }
+        };
+        Context context = new Context(Serializer.INSTANCE, null, Collections.singletonList(schema));
+        ContextPath cp = new ContextPath(context, null);
+        String json = "{\"@odata.type\":\"#test.Coded\",\"name\":\"a\","
+                + "\"children\":[{\"name\":\"b\",\"children\":null}],\"other\":1}";
+        Coded c = Serializer.INSTANCE.deserialize(json, Coded.class, cp, false);
+        assertEquals("#test.Coded", c.odataType);
+        assertEquals("a", c.name);
+        assertSame(cp, c.contextPath);
+        assertEquals(1, c.children.size());
+        assertEquals("b", c.children.get(0).name);
+        assertNull(c.children.get(0).children);
+        assertSame(cp, c.children.get(0).contextPath);
+        // no @JsonAnySetter so only the generated deserializer puts this
+        assertEquals(1, c.unmappedFields().get("other"));
+        // no visible properties so only the generated serializer writes these
+        assertEquals("{\"@odata.type\":\"#test.Coded\",\"name\":\"a\","
+                + "\"children\":[{\"name\":\"b\"}],\"other\":1}", Serializer.INSTANCE.serialize(c));
+    }
+
+    @Test
+    public void testDeserializeLazy() {
+        ContextPath cp = new ContextPath(null, null);
+        byte[] json = ("{\"name\":\"a\",\"address\":{\"name\":\"b\"},\"tags\":[\"x\",\"y\"],"
+                + "\"extra\":{\"z\":1}}").getBytes(StandardCharsets.UTF_8);
+        LazyThing t = Serializer.INSTANCE.deserializeLazy(json, LazyThing.class, cp, false);
+        assertEquals("a", t.name);
+        assertNull(t.address);
+        assertNull(t.tags);
+        assertEquals("b", t.getAddress().name);
+        assertSame(t.getAddress(), t.getAddress());
+        assertEquals(Arrays.asList("x", "y"), t.getTags());
+        // structured fields that are not properties are decoded on materialize
+        assertEquals(Collections.singletonMap("z", 1), t.getUnmappedFields().get("extra"));
+        assertEquals("{\"name\":\"a\",\"address\":{\"name\":\"b\"},\"tags\":[\"x\",\"y\"],"
+                + "\"extra\":{\"z\":1}}", Serializer.INSTANCE.serialize(t));
+    }
+
+    @Test
+    public void testDeserializeLazySerializeMaterializes() {
+        ContextPath cp = new ContextPath(null, null);
+        byte[] json = "{\"name\":\"a\",\"tags\":[\"x\"]}".getBytes(StandardCharsets.UTF_8);
+        LazyThing t = Serializer.INSTANCE.deserializeLazy(json, LazyThing.class, cp, false);
+        assertEquals("{\"name\":\"a\",\"tags\":[\"x\"]}", Serializer.INSTANCE.serialize(t));
+    }
+
+    @Test
+    public void testDeserializeLazyClassWithoutLazyFieldsReadInFull() {
+        ContextPath cp = new ContextPath(null, null);
+        byte[] json = "{\"name\":\"a\",\"tags\":[\"x\"]}".getBytes(StandardCharsets.UTF_8);
+        NotLazyThing t = Serializer.INSTANCE.deserializeLazy(json, NotLazyThing.class, cp, false);
+        assertEquals("a", t.name);
+        assertEquals(Arrays.asList("x"), t.tags);
+    }
+
+    @Test
+    public void testDeserializeCollectionPageLazy() {
+        ContextPath cp = new ContextPath(null, null);
+        RequestOptions options = new EntityRequestOptions<LazyThing>(Collections.emptyList(),
+                Optional.empty(), Optional.empty(), false, Optional.empty(), Optional.empty(),
+                Collections.emptyMap(), true);
+        byte[] json = ("{\"value\":[{\"name\":\"a\",\"tags\":[\"x\"]},"
+                + "{\"name\":\"b\",\"address\":{\"name\":\"c\"}}]}")
+                        .getBytes(StandardCharsets.UTF_8);
+        CollectionPage<LazyThing> page = Serializer.INSTANCE.deserializeCollectionPage(
+                new ByteArrayInputStream(json), LazyThing.class, cp, Collections.emptyList(),
+                options, x -> {
+                });
+        List<LazyThing> list = page.currentPage();
+        assertEquals(2, list.size());
+        assertNull(list.get(0).tags);
+        assertEquals(Arrays.asList("x"), list.get(0).getTags());
+        assertNull(list.get(0).getAddress());
+        assertEquals("b", list.get(1).name);
+        assertEquals("c", list.get(1).getAddress().name);
+    }
+
+    @JsonPropertyOrder({ "@odata.type", "name", "age", "child" })
+    static final class Person implements ODataEntityType {
+
+        @JsonProperty("@odata.type")
+        final String odataType = "test.Person";
+
+        @JsonProperty("name")
+        final String name;
+
+        @JsonProperty("age")
+        final Integer age;
+
+        @JsonProperty("child")
+        final Person child;
+
+        @JsonIgnore
+        final ChangedFields changedFields;
+
+        Person(String name, Integer age, Person child, ChangedFields changedFields) {
+            this.name = name;
+            this.age = age;
+            this.child = child;
+            this.changedFields = changedFields;
+        }
+
+        @Override
+        public String odataTypeName() {
+            return "test.Person";
+        }
+
+        @JsonIgnore
+        @Override
+        public UnmappedFields getUnmappedFields() {
+            return UnmappedFields.EMPTY;
+        }
+
+        @Override
+        public void postInject(boolean addKeysToContextPath) {
+            // do nothing
+        }
+
+        @JsonIgnore
+        @Override
+        public ChangedFields getChangedFields() {
+            return changedFields;
+        }
+    }
+
+    static class Base implements ODataType {
+
+        @JsonProperty("@odata.type")
+        String odataType;
+
+        @JsonProperty
+        String name;
+
+        @JsonProperty
+        Base child;
+
+        @Override
+        public String odataTypeName() {
+            return "test.Base";
+        }
+
+        @Override
+        public UnmappedFields getUnmappedFields() {
+            return UnmappedFields.EMPTY;
+        }
+
+        @Override
+        public void postInject(boolean addKeysToContextPath) {
+            // do nothing
+        }
+    }
+
+    static final class Sub extends Base {
+
+        @JsonProperty
+        String extra;
+
+        @Override
+        public String odataTypeName() {
+            return "test.Sub";
+        }
+    }
+
+    // in the shape written by the generator with generateJsonCodecs enabled (no
+    // Jackson annotations so that bean binding can't be used by accident)
+    static final class Coded implements ODataType {
+
+        ContextPath contextPath;
+        UnmappedFieldsImpl unmappedFields;
+        String odataType;
+        String name;
+        List<Coded> children;
+
+        @Override
+        public String odataTypeName() {
+            return "test.Coded";
+        }
+
+        private void setUnmappedField(String name, Object value) {
+            if (unmappedFields == null) {
+                unmappedFields = new UnmappedFieldsImpl();
+            }
+            unmappedFields.put(name, value);
+        }
+
+        private UnmappedFieldsImpl unmappedFields() {
+            return unmappedFields == null ? UnmappedFieldsImpl.EMPTY : unmappedFields;
+        }
+
+        @Override
+        public UnmappedFields getUnmappedFields() {
+            return unmappedFields();
+        }
+
+        @Override
+        public void postInject(boolean addKeysToContextPath) {
+            // do nothing
+        }
+
+        public static final class _Serializer extends GeneratedSerializer<Coded> {
+
+            private static final long serialVersionUID = 1L;
+
+            public _Serializer() {
+                super(Coded.class);
+            }
+
+            @Override
+            public void serialize(Coded _x, JsonGenerator g, SerializerProvider provider)
+                    throws IOException {
+                g.writeStartObject(_x);
+                write(g, provider, "@odata.type", _x.odataType);
+                write(g, provider, "name", _x.name);
+                write(g, provider, "children", _x.children);
+                writeUnmapped(g, provider, _x.unmappedFields());
+                g.writeEndObject();
+            }
+        }
+
+        public static final class _Deserializer extends GeneratedDeserializer<Coded> {
+
+            private static final long serialVersionUID = 1L;
+
+            private JsonDeserializer<Object> _odataType;
+            private JsonDeserializer<Object> _name;
+            private JsonDeserializer<Object> _children;
+
+            public _Deserializer() {
+                super(Coded.class);
+            }
+
+            @Override
+            protected void resolveFields(DeserializationContext ctxt) throws JsonMappingException {
+                _odataType = deserializer(ctxt, String.class);
+                _name = deserializer(ctxt, String.class);
+                _children = collectionDeserializer(ctxt, Coded.class);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Coded deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+                Coded _x = new Coded();
+                _x.contextPath = inject(ctxt, ContextPath.class);
+                _x.unmappedFields = inject(ctxt, UnmappedFieldsImpl.class);
+                for (JsonToken t = firstField(p); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+                    String name = p.getCurrentName();
+                    p.nextToken();
+                    switch (name) {
+                    case "@odata.type":
+                        _x.odataType = (String) read(p, ctxt, _odataType);
+                        break;
+                    case "name":
+                        _x.name = (String) read(p, ctxt, _name);
+                        break;
+                    case "children":
+                        _x.children = (List<Coded>) read(p, ctxt, _children);
+                        break;
+                    default:
+                        _x.setUnmappedField(name, readUnmapped(p, ctxt));
+                    }
+                }
+                return _x;
+            }
+        }
+    }
+
+    // in the shape of a generated entity
+    @JsonInclude(Include.NON_NULL)
+    @JsonPropertyOrder({ "name", "address", "tags" })
+    static final class LazyThing implements ODataEntityType {
+
+        @JacksonInject
+        @JsonIgnore
+        LazyFields lazyFields;
+
+        @JacksonInject
+        @JsonIgnore
+        UnmappedFieldsImpl unmappedFields;
+
+        @JsonProperty("name")
+        String name;
+
+        @JsonProperty("address")
+        Injected address;
+
+        @JsonProperty("tags")
+        List<String> tags;
+
+        Injected getAddress() {
+            if (lazyFields != null) {
+                address = lazyFields.value("address", address, Injected.class);
+            }
+            return address;
+        }
+
+        List<String> getTags() {
+            if (lazyFields != null) {
+                tags = lazyFields.list("tags", tags, String.class);
+            }
+            return tags;
+        }
+
+        @Override
+        public void materialize() {
+            if (lazyFields != null) {
+                address = lazyFields.value("address", address, Injected.class);
+                tags = lazyFields.list("tags", tags, String.class);
+                lazyFields.forEachRemaining(this::setUnmappedField);
+            }
+        }
+
+        @JsonAnySetter
+        private void setUnmappedField(String name, Object value) {
+            if (unmappedFields == null) {
+                unmappedFields = new UnmappedFieldsImpl();
+            }
+            unmappedFields.put(name, value);
+        }
+
+        @JsonAnyGetter
+        private UnmappedFieldsImpl unmappedFields() {
+            return unmappedFields == null ? UnmappedFieldsImpl.EMPTY : unmappedFields;
+        }
+
+        @Override
+        public UnmappedFields getUnmappedFields() {
+            materialize();
+            return unmappedFields();
+        }
+
+        @Override
+        public String odataTypeName() {
+            return "test.LazyThing";
+        }
+
+        @Override
+        public void postInject(boolean addKeysToContextPath) {
+            // do nothing
+        }
+
+        @JsonIgnore
+        @Override
+        public ChangedFields getChangedFields() {
+            return ChangedFields.EMPTY;
+        }
+    }
+
+    static final class NotLazyThing implements ODataEntityType {
+
+        @JsonProperty("name")
+        String name;
+
+        @JsonProperty("tags")
+        List<String> tags;
+
+        @Override
+        public String odataTypeName() {
+            return "test.NotLazyThing";
+        }
+
+        @Override
+        public UnmappedFields getUnmappedFields() {
+            return UnmappedFields.EMPTY;
+        }
+
+        @Override
+        public void postInject(boolean addKeysToContextPath) {
+            // do nothing
+        }
+
+        @JsonIgnore
+        @Override
+        public ChangedFields getChangedFields() {
+            return ChangedFields.EMPTY;
+        }
+    }
+
+    static final class Injected {
+        @JacksonInject
+        ContextPath contextPath;
+
+        @JsonProperty
+        String name;
+    }
+
     @JsonInclude(Include.NON_NULL)
     static final class Thing {
         @JsonProperty
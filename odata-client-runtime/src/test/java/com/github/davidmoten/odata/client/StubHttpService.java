@@ -0,0 +1,76 @@
+package com.github.davidmoten.odata.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Creates {@link HttpService}s for tests that answer every request with the
+ * response returned by a function of the request url.
+ */
+public final class StubHttpService {
+
+    private StubHttpService() {
+        // prevent instantiation
+    }
+
+    public static HttpService create(String baseUrl,
+            Function<? super String, HttpResponse> responder) {
+        Path basePath = new Path(baseUrl, PathStyle.IDENTIFIERS_AS_SEGMENTS);
+        return new HttpService() {
+
+            @Override
+            public HttpResponse get(String url, List<RequestHeader> requestHeaders,
+                    HttpRequestOptions options) {
+                return responder.apply(url);
+            }
+
+            @Override
+            public HttpResponse patch(String url, List<RequestHeader> requestHeaders,
+                    InputStream content, int length, HttpRequestOptions options) {
+                return responder.apply(url);
+            }
+
+            @Override
+            public HttpResponse put(String url, List<RequestHeader> requestHeaders,
+                    InputStream content, int length, HttpRequestOptions options) {
+                return responder.apply(url);
+            }
+
+            @Override
+            public HttpResponse post(String url, List<RequestHeader> requestHeaders,
+                    InputStream content, int length, HttpRequestOptions options) {
+                return responder.apply(url);
+            }
+
+            @Override
+            public HttpResponse delete(String url, List<RequestHeader> requestHeaders,
+                    HttpRequestOptions options) {
+                return responder.apply(url);
+            }
+
+            @Override
+            public InputStream getStream(HttpMethod method, String url,
+                    List<RequestHeader> requestHeaders, HttpRequestOptions options) {
+                return new ByteArrayInputStream(responder.apply(url).getBytes());
+            }
+
+            @Override
+            public Path getBasePath() {
+                return basePath;
+            }
+
+            @Override
+            public void close() {
+                // do nothing
+            }
+        };
+    }
+
+    public static HttpResponse response(int statusCode, String text) {
+        return new HttpResponse(statusCode, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
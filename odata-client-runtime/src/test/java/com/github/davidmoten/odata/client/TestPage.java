@@ -0,0 +1,97 @@
+package com.github.davidmoten.odata.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Paged} collection of integers for tests. Page {@code index} (from 0)
+ * holds the items {@code index * size} to {@code index * size + size - 1}.
+ * There are {@code count} pages and requesting page {@code failAt} throws an
+ * {@link IllegalStateException} with message "boo" (use -1 for no failure).
+ * Pages requested with {@link #nextPage()} are counted by {@link Fetches}.
+ */
+public class TestPage implements Paged<Integer, TestPage> {
+
+    private final int index;
+    private final int count;
+    private final int size;
+    private final Fetches fetches;
+    private final int failAt;
+
+    public TestPage(int count, int size, Fetches fetches, int failAt) {
+        this(0, count, size, fetches, failAt);
+    }
+
+    private TestPage(int index, int count, int size, Fetches fetches, int failAt) {
+        this.index = index;
+        this.count = count;
+        this.size = size;
+        this.fetches = fetches;
+        this.failAt = failAt;
+    }
+
+    @Override
+    public List<Integer> currentPage() {
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(index * size + i);
+        }
+        return list;
+    }
+
+    @Override
+    public Optional<TestPage> nextPage() {
+        if (index + 1 == count) {
+            return Optional.empty();
+        } else if (index + 1 == failAt) {
+            throw new IllegalStateException("boo");
+        } else {
+            fetches.increment();
+            return Optional.of(new TestPage(index + 1, count, size, fetches, failAt));
+        }
+    }
+
+    /**
+     * Counts the pages fetched so that tests can wait for fetches (or check that
+     * none happen) without sleeping.
+     */
+    public static final class Fetches {
+
+        // guarded by this
+        private int count;
+
+        public synchronized int get() {
+            return count;
+        }
+
+        synchronized void increment() {
+            count++;
+            notifyAll();
+        }
+
+        /**
+         * Waits until at least {@code n} pages have been fetched.
+         *
+         * @param n       number of pages
+         * @param timeout maximum time to wait
+         * @param unit    unit of {@code timeout}
+         * @return true if {@code n} pages were fetched, false on timeout
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public synchronized boolean await(int n, long timeout, TimeUnit unit)
+                throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (count < n) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return true;
+        }
+    }
+
+}
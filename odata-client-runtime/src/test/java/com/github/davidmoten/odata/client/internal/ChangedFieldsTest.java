@@ -0,0 +1,85 @@
+package com.github.davidmoten.odata.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ChangedFieldsTest {
+
+    private static final FieldOrdinals BASE = FieldOrdinals.of("id", "name");
+    private static final FieldOrdinals SUB = FieldOrdinals.of("id", "name", "size");
+
+    @Test
+    public void testEmpty() {
+        assertFalse(ChangedFields.EMPTY.iterator().hasNext());
+        assertFalse(ChangedFields.EMPTY.contains("id"));
+        assertTrue(ChangedFields.EMPTY.toSet().isEmpty());
+    }
+
+    @Test
+    public void testAddByOrdinalIsImmutable() {
+        ChangedFields a = ChangedFields.EMPTY.add(BASE, 1);
+        assertFalse(ChangedFields.EMPTY.contains("name"));
+        assertTrue(a.contains("name"));
+        assertTrue(a.contains(1));
+        assertFalse(a.contains("id"));
+        assertSame(a, a.add(BASE, 1));
+        assertSame(a, a.add("name"));
+    }
+
+    @Test
+    public void testAddByNameWithoutOrdinals() {
+        ChangedFields a = ChangedFields.EMPTY.add("other");
+        assertTrue(a.contains("other"));
+        assertSame(a, a.add("other"));
+        assertEquals(Collections.singleton("other"), a.toSet());
+    }
+
+    @Test
+    public void testSubTypeOrdinalsWiden() {
+        ChangedFields a = ChangedFields.EMPTY.add(BASE, 0).add(SUB, 2).add(BASE, 1);
+        assertEquals(Arrays.asList("id", "name", "size"), list(a));
+    }
+
+    @Test
+    public void testAddByNameThenOrdinalNotDuplicated() {
+        ChangedFields a = ChangedFields.EMPTY.add("name").add(BASE, 1).add("other");
+        assertEquals(Arrays.asList("name", "other"), list(a));
+    }
+
+    @Test
+    public void testUnrelatedOrdinalsFallBackToNames() {
+        ChangedFields a = ChangedFields.EMPTY.add(BASE, 0).add(FieldOrdinals.of("x", "y"), 1);
+        assertTrue(a.contains("id"));
+        assertTrue(a.contains("y"));
+        assertFalse(a.contains("x"));
+    }
+
+    @Test
+    public void testMoreThan64Fields() {
+        String[] names = new String[130];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "f" + i;
+        }
+        FieldOrdinals ordinals = FieldOrdinals.of(names);
+        ChangedFields a = ChangedFields.EMPTY.add(ordinals, 129).add(ordinals, 63).add(ordinals, 64);
+        assertEquals(Arrays.asList("f63", "f64", "f129"), list(a));
+        assertFalse(a.contains("f0"));
+        assertFalse(a.contains(200));
+    }
+
+    private static List<String> list(ChangedFields c) {
+        List<String> list = new ArrayList<>();
+        c.forEach(list::add);
+        return list;
+    }
+
+}
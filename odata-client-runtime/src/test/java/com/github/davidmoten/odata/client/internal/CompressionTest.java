@@ -0,0 +1,324 @@
+package com.github.davidmoten.odata.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.davidmoten.odata.client.CompressionStats;
+import com.github.davidmoten.odata.client.Context;
+import com.github.davidmoten.odata.client.ContextPath;
+import com.github.davidmoten.odata.client.HttpCompression;
+import com.github.davidmoten.odata.client.HttpMethod;
+import com.github.davidmoten.odata.client.HttpRequestOptions;
+import com.github.davidmoten.odata.client.HttpResponse;
+import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.HttpStreamingResponse;
+import com.github.davidmoten.odata.client.Path;
+import com.github.davidmoten.odata.client.PathStyle;
+import com.github.davidmoten.odata.client.RequestBody;
+import com.github.davidmoten.odata.client.RequestHeader;
+import com.github.davidmoten.odata.client.RequestOptions;
+import com.github.davidmoten.odata.client.Serializer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class CompressionTest {
+
+    private static final String JSON = "{\"value\":["
+            + String.join(",", Collections.nCopies(200, "{\"name\":\"something\"}")) + "]}";
+
+    private HttpServer server;
+    private String url;
+    private final AtomicInteger rejected = new AtomicInteger();
+    private final AtomicReference<String> received = new AtomicReference<>();
+
+    @Before
+    public void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/json", exchange -> {
+            String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            byte[] bytes = JSON.getBytes(StandardCharsets.UTF_8);
+            if (accept != null && accept.contains("gzip")) {
+                respond(exchange, 200, "gzip", gzip(bytes));
+            } else {
+                respond(exchange, 200, null, bytes);
+            }
+        });
+        server.createContext("/deflate", exchange -> respond(exchange, 200, "deflate",
+                deflate(JSON.getBytes(StandardCharsets.UTF_8), false)));
+        server.createContext("/rawDeflate", exchange -> respond(exchange, 200, "deflate",
+                deflate(JSON.getBytes(StandardCharsets.UTF_8), true)));
+        server.createContext("/upload", exchange -> {
+            InputStream in = exchange.getRequestBody();
+            String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            if ("gzip".equals(encoding)) {
+                in = new GZIPInputStream(in);
+            }
+            respond(exchange, 200, null,
+                    (encoding + ":" + Util.read(in).length).getBytes(StandardCharsets.UTF_8));
+        });
+        server.createContext("/action", exchange -> {
+            InputStream in = exchange.getRequestBody();
+            String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            if ("gzip".equals(encoding)) {
+                in = new GZIPInputStream(in);
+            }
+            received.set(encoding + ":"
+                    + exchange.getRequestHeaders().getFirst("Content-Length") + ":"
+                    + Util.read(in).length);
+            // read to the end of the chunked body so the connection is kept alive
+            Util.read(exchange.getRequestBody());
+            // no body to write (writing even an empty one fails and drops the connection)
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.createContext("/strict", exchange -> {
+            if (exchange.getRequestHeaders().getFirst("Content-Encoding") != null) {
+                Util.read(exchange.getRequestBody());
+                rejected.incrementAndGet();
+                respond(exchange, 415, null, "no".getBytes(StandardCharsets.UTF_8));
+            } else {
+                respond(exchange, 200, null, ("plain:" + Util.read(exchange.getRequestBody()).length)
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void after() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testNoCompressionByDefault() {
+        HttpCompression compression = HttpCompression.none();
+        HttpResponse r = defaultService(compression).get(url + "/json", Collections.emptyList(),
+                HttpRequestOptions.EMPTY);
+        assertEquals(JSON, r.getText());
+        CompressionStats stats = compression.stats();
+        assertEquals(stats.responseBytesDecoded(), stats.responseBytesOnWire());
+    }
+
+    @Test
+    public void testGzipResponseDecodedByDefaultHttpService() {
+        HttpCompression compression = HttpCompression.responses();
+        checkGzipResponse(defaultService(compression), compression);
+    }
+
+    @Test
+    public void testGzipResponseDecodedByApacheHttpService() {
+        HttpCompression compression = HttpCompression.responses();
+        checkGzipResponse(apacheService(compression), compression);
+    }
+
+    @Test
+    public void testDeflateResponseDecoded() {
+        HttpService service = defaultService(HttpCompression.responses());
+        assertEquals(JSON, service.get(url + "/deflate", Collections.emptyList(),
+                HttpRequestOptions.EMPTY).getText());
+        assertEquals(JSON, service.get(url + "/rawDeflate", Collections.emptyList(),
+                HttpRequestOptions.EMPTY).getText());
+    }
+
+    @Test
+    public void testGzipStreamDecoded() throws IOException {
+        try (InputStream in = defaultService(HttpCompression.responses())
+                .getStream(url + "/json", Collections.emptyList(), HttpRequestOptions.EMPTY)) {
+            assertEquals(JSON, Util.readString(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testLargeRequestsGzippedByDefaultHttpService() {
+        HttpCompression compression = HttpCompression.none().gzipRequestsLargerThan(1000);
+        checkGzipRequests(defaultService(compression), compression);
+    }
+
+    @Test
+    public void testLargeRequestsGzippedByApacheHttpService() {
+        HttpCompression compression = HttpCompression.none().gzipRequestsLargerThan(1000);
+        checkGzipRequests(apacheService(compression), compression);
+    }
+
+    @Test
+    public void testJsonPostGzippedByDefaultHttpService() {
+        checkJsonPosts(defaultService(HttpCompression.none().gzipRequestsLargerThan(1000)));
+    }
+
+    @Test
+    public void testJsonPostGzippedByApacheHttpService() {
+        checkJsonPosts(apacheService(HttpCompression.none().gzipRequestsLargerThan(1000)));
+    }
+
+    @Test
+    public void testRejectedGzipRequestResentUncompressedByDefaultHttpService() {
+        checkRejectedGzipRequest(defaultService(HttpCompression.none().gzipRequestsLargerThan(0)));
+    }
+
+    @Test
+    public void testRejectedGzipRequestResentUncompressedByApacheHttpService() {
+        checkRejectedGzipRequest(apacheService(HttpCompression.none().gzipRequestsLargerThan(0)));
+    }
+
+    @Test
+    public void testRejectedGzipStreamingRequestResentUncompressedByDefaultHttpService()
+            throws IOException {
+        checkRejectedGzipStreamingRequest(
+                defaultService(HttpCompression.none().gzipRequestsLargerThan(0)));
+    }
+
+    @Test
+    public void testRejectedGzipStreamingRequestResentUncompressedByApacheHttpService()
+            throws IOException {
+        checkRejectedGzipStreamingRequest(
+                apacheService(HttpCompression.none().gzipRequestsLargerThan(0)));
+    }
+
+    @Test
+    public void testCallerAcceptEncodingNotOverridden() {
+        HttpCompression compression = HttpCompression.responses();
+        assertEquals("identity",
+                Compression.requestHeaders(compression,
+                        Collections.singletonList(
+                                RequestHeader.create("accept-encoding", "identity")))
+                        .get(0).value());
+        assertEquals(1, Compression.requestHeaders(compression, Collections.emptyList()).size());
+        assertTrue(Compression.requestHeaders(HttpCompression.none(), Collections.emptyList())
+                .isEmpty());
+    }
+
+    @Test
+    public void testDecodeNull() throws IOException {
+        assertNull(Compression.decode(null, "gzip", HttpCompression.none().stats()));
+    }
+
+    private void checkGzipResponse(HttpService service, HttpCompression compression) {
+        HttpResponse r = service.get(url + "/json", Collections.emptyList(),
+                HttpRequestOptions.EMPTY);
+        assertEquals(JSON, r.getText());
+        CompressionStats stats = compression.stats();
+        assertEquals(JSON.length(), stats.responseBytesDecoded());
+        assertTrue(stats.responseBytesOnWire() > 0);
+        assertTrue(stats.responseBytesOnWire() < stats.responseBytesDecoded() / 10);
+    }
+
+    private void checkGzipRequests(HttpService service, HttpCompression compression) {
+        CompressionStats stats = compression.stats();
+        assertEquals("null:10", service.post(url + "/upload", Collections.emptyList(),
+                new ByteArrayInputStream(new byte[10]), 10, HttpRequestOptions.EMPTY).getText());
+        assertEquals(0, stats.requestBytesUncompressed());
+        assertEquals("gzip:100000", service.post(url + "/upload", Collections.emptyList(),
+                new ByteArrayInputStream(new byte[100000]), 100000, HttpRequestOptions.EMPTY)
+                .getText());
+        assertEquals(100000, stats.requestBytesUncompressed());
+        assertTrue(stats.requestBytesOnWire() < 1000);
+        // small bodies of unknown length are measured
+        assertEquals("null:10", service.post(url + "/upload", Collections.emptyList(),
+                new ByteArrayInputStream(new byte[10]), HttpService.LENGTH_UNKNOWN,
+                HttpRequestOptions.EMPTY).getText());
+    }
+
+    private void checkJsonPosts(HttpService service) {
+        ContextPath cp = new ContextPath(
+                new Context(Serializer.INSTANCE, service, Collections.emptyList()),
+                service.getBasePath()).addSegment("action");
+        // json bodies are of unknown length till written
+        for (int n : new int[] { 10, 2000, 200000 }) {
+            String value = String.join("", Collections.nCopies(n, "a"));
+            int length = ("{\"name\":\"" + value + "\"}").length();
+            RequestHelper.post(Collections.singletonMap("name", value), cp, RequestOptions.EMPTY);
+            if (n == 10) {
+                // small so buffered and sent with a Content-Length
+                assertEquals("null:" + length + ":" + length, received.get());
+            } else {
+                assertEquals("gzip:null:" + length, received.get());
+            }
+        }
+    }
+
+    private void checkRejectedGzipRequest(HttpService service) {
+        for (int i = 0; i < 3; i++) {
+            HttpResponse r = service.post(url + "/strict", Collections.emptyList(),
+                    new ByteArrayInputStream(new byte[100]), 100, HttpRequestOptions.EMPTY);
+            assertEquals(200, r.getResponseCode());
+            assertEquals("plain:100", r.getText());
+        }
+        assertEquals(1, rejected.get());
+    }
+
+    private void checkRejectedGzipStreamingRequest(HttpService service) throws IOException {
+        for (int i = 0; i < 3; i++) {
+            try (HttpStreamingResponse r = service.submitStreaming(HttpMethod.POST,
+                    url + "/strict", Collections.emptyList(), RequestBody.of(new byte[100]),
+                    HttpRequestOptions.EMPTY)) {
+                assertEquals(200, r.getResponseCode());
+                assertEquals("plain:100", Util.readString(r.getBody(), StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(1, rejected.get());
+    }
+
+    private HttpService defaultService(HttpCompression compression) {
+        return new DefaultHttpService(new Path(url, PathStyle.IDENTIFIERS_AS_SEGMENTS), x -> x,
+                c -> {
+                }, compression);
+    }
+
+    private HttpService apacheService(HttpCompression compression) {
+        return new ApacheHttpClientHttpService(new Path(url, PathStyle.IDENTIFIERS_AS_SEGMENTS),
+                () -> HttpClientBuilder.create().disableContentCompression().build(), (u, m) -> m,
+                compression);
+    }
+
+    private static void respond(HttpExchange exchange, int code, String contentEncoding,
+            byte[] bytes) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        if (contentEncoding != null) {
+            exchange.getResponseHeaders().add("Content-Encoding", contentEncoding);
+        }
+        exchange.sendResponseHeaders(code, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(b)) {
+            out.write(bytes);
+        }
+        return b.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] bytes, boolean raw) throws IOException {
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        try (OutputStream out = new DeflaterOutputStream(b,
+                new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+            out.write(bytes);
+        }
+        return b.toByteArray();
+    }
+
+}
@@ -0,0 +1,303 @@
+package com.github.davidmoten.odata.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Authenticator;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.davidmoten.odata.client.ClientException;
+import com.github.davidmoten.odata.client.Deadline;
+import com.github.davidmoten.odata.client.DeadlineExceededException;
+import com.github.davidmoten.odata.client.HttpMethod;
+import com.github.davidmoten.odata.client.HttpRequestOptions;
+import com.github.davidmoten.odata.client.HttpResponse;
+import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.HttpStreamingResponse;
+import com.github.davidmoten.odata.client.Path;
+import com.github.davidmoten.odata.client.PathStyle;
+import com.github.davidmoten.odata.client.RequestBody;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class DefaultHttpServiceTest {
+
+    private HttpServer server;
+    private DefaultHttpService service;
+    private String url;
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @Before
+    public void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/ok", exchange -> respond(exchange, 200, "{\"a\":1}"));
+        server.createContext("/bad", exchange -> respond(exchange, 400, "boo"));
+        server.createContext("/echo", exchange -> respond(exchange, 200,
+                exchange.getRequestMethod() + ":"
+                        + exchange.getRequestHeaders().getFirst("Content-Length") + ":"
+                        + exchange.getRequestHeaders().getFirst("Transfer-Encoding") + ":"
+                        + Util.read(exchange.getRequestBody()).length));
+        server.createContext("/nobody", exchange -> {
+            record(exchange);
+            Util.read(exchange.getRequestBody());
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.createContext("/redirect", exchange -> {
+            Util.read(exchange.getRequestBody());
+            exchange.getResponseHeaders().add("Location", url + "/echo");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        server.createContext("/unauthorized", exchange -> {
+            Util.read(exchange.getRequestBody());
+            exchange.getResponseHeaders().add("WWW-Authenticate", "Basic realm=\"test\"");
+            respond(exchange, 401, "who are you");
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(3000);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            respond(exchange, 200, "slow");
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+        service = new DefaultHttpService(new Path(url, PathStyle.IDENTIFIERS_AS_SEGMENTS),
+                x -> x, c -> {
+                });
+    }
+
+    @After
+    public void after() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    @Test
+    public void testDeadlineAbortsRequest() {
+        long t = System.currentTimeMillis();
+        try {
+            service.get(url + "/slow", Collections.emptyList(),
+                    HttpRequestOptions.deadline(Deadline.after(200, TimeUnit.MILLISECONDS)));
+            fail();
+        } catch (DeadlineExceededException e) {
+            assertTrue(System.currentTimeMillis() - t < 2000);
+        }
+    }
+
+    @Test
+    public void testCancelAbortsStreamingRequest() {
+        Deadline deadline = Deadline.cancellable();
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        executor.schedule(deadline::cancel, 200, TimeUnit.MILLISECONDS);
+        long t = System.currentTimeMillis();
+        try {
+            service.getStreaming(url + "/slow", Collections.emptyList(),
+                    HttpRequestOptions.deadline(deadline));
+            fail();
+        } catch (DeadlineExceededException e) {
+            assertEquals("cancelled", e.getMessage());
+            assertTrue(System.currentTimeMillis() - t < 2000);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = DeadlineExceededException.class)
+    public void testExpiredDeadlineFailsFast() {
+        service.get(url + "/ok", Collections.emptyList(),
+                HttpRequestOptions.deadline(Deadline.after(0, TimeUnit.MILLISECONDS)));
+    }
+
+    @Test
+    public void testGetStreaming() throws IOException {
+        try (HttpStreamingResponse r = service.getStreaming(url + "/ok", Collections.emptyList(),
+                HttpRequestOptions.EMPTY)) {
+            assertEquals(200, r.getResponseCode());
+            assertEquals("application/json", r.getHeader("content-type").get());
+            assertEquals("{\"a\":1}", Util.readString(r.getBody(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testGetStreamingErrorReturnsErrorBody() throws IOException {
+        try (HttpStreamingResponse r = service.getStreaming(url + "/bad", Collections.emptyList(),
+                HttpRequestOptions.EMPTY)) {
+            assertEquals(400, r.getResponseCode());
+            assertEquals("boo", Util.readString(r.getBody(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testUploadWithKnownLengthUsesFixedLengthStreaming() {
+        HttpResponse r = service.post(url + "/echo", Collections.emptyList(),
+                new ByteArrayInputStream(new byte[100000]), 100000, HttpRequestOptions.EMPTY);
+        assertEquals("POST:100000:null:100000", r.getText());
+    }
+
+    @Test
+    public void testUploadWithUnknownLengthIsChunked() {
+        HttpResponse r = service.post(url + "/echo", Collections.emptyList(),
+                new ByteArrayInputStream(new byte[100000]), HttpService.LENGTH_UNKNOWN,
+                HttpRequestOptions.EMPTY);
+        assertEquals("POST:null:chunked:100000", r.getText());
+    }
+
+    @Test
+    public void testRequestBodyOfUnknownLengthWrittenToConnection() {
+        AtomicInteger writes = new AtomicInteger();
+        HttpResponse r = service.submit(HttpMethod.POST, url + "/echo", Collections.emptyList(),
+                out -> {
+                    for (int i = 0; i < 100; i++) {
+                        out.write(new byte[1000]);
+                        writes.incrementAndGet();
+                    }
+                }, HttpRequestOptions.EMPTY);
+        assertEquals("POST:null:chunked:100000", r.getText());
+        // the first attempt to buffer it stops once past RequestBodies.SMALL_BODY_BYTES
+        assertEquals(65 + 100, writes.get());
+    }
+
+    @Test
+    public void testRequestBodyOfKnownLengthUsesFixedLengthStreaming() {
+        HttpResponse r = service.submit(HttpMethod.POST, url + "/echo", Collections.emptyList(),
+                RequestBody.of(new byte[1234]), HttpRequestOptions.EMPTY);
+        assertEquals("POST:1234:null:1234", r.getText());
+    }
+
+    @Test
+    public void testSmallJsonRequestBodySentWithContentLength() {
+        try (HttpStreamingResponse s = service.submitStreaming(HttpMethod.POST, url + "/echo",
+                Collections.emptyList(), RequestBody.json(Collections.singletonMap("a", 1)),
+                HttpRequestOptions.EMPTY)) {
+            assertEquals("POST:7:null:7", Util.readString(s.getBody(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void testLargeJsonRequestBodyStreamed() {
+        String value = String.join("", Collections.nCopies(100000, "a"));
+        HttpResponse r = service.submit(HttpMethod.POST, url + "/echo", Collections.emptyList(),
+                RequestBody.json(Collections.singletonMap("a", value)), HttpRequestOptions.EMPTY);
+        assertEquals("POST:null:chunked:100008", r.getText());
+    }
+
+    @Test
+    public void testRedirectOfStreamedBodyThrowsWithStatusCode() {
+        try {
+            service.post(url + "/redirect", Collections.emptyList(),
+                    new ByteArrayInputStream(new byte[100]), 100, HttpRequestOptions.EMPTY);
+            fail();
+        } catch (ClientException e) {
+            assertEquals(302, (int) e.getStatusCode().get());
+        }
+    }
+
+    @Test
+    public void testRedirectOfStreamedBodyThrowsWithStatusCodeWhenStreaming() {
+        try {
+            service.submitStreaming(HttpMethod.PUT, url + "/redirect", Collections.emptyList(),
+                    RequestBody.of(new byte[100]), HttpRequestOptions.EMPTY);
+            fail();
+        } catch (ClientException e) {
+            assertEquals(302, (int) e.getStatusCode().get());
+        }
+    }
+
+    @Test
+    public void testUnauthorizedStreamedBodyReturnsStatusCode() {
+        // with credentials available HttpURLConnection would resend the request
+        Authenticator.setDefault(new Authenticator() {
+            @Override
+            protected PasswordAuthentication getPasswordAuthentication() {
+                return new PasswordAuthentication("user", new char[] { 'a' });
+            }
+        });
+        try {
+            HttpResponse r = service.post(url + "/unauthorized", Collections.emptyList(),
+                    new ByteArrayInputStream(new byte[100]), 100, HttpRequestOptions.EMPTY);
+            assertEquals(401, r.getResponseCode());
+        } finally {
+            Authenticator.setDefault(null);
+        }
+    }
+
+    @Test
+    public void testErrorBodyReturned() {
+        HttpResponse r = service.get(url + "/bad", Collections.emptyList(),
+                HttpRequestOptions.EMPTY);
+        assertEquals(400, r.getResponseCode());
+        assertEquals("boo", r.getText());
+    }
+
+    @Test
+    public void testGetStreamErrorThrowsWithBody() {
+        try {
+            service.getStream(url + "/bad", Collections.emptyList(), HttpRequestOptions.EMPTY);
+            fail();
+        } catch (ClientException e) {
+            assertEquals(400, (int) e.getStatusCode().get());
+            assertTrue(e.getMessage().endsWith("boo"));
+        }
+    }
+
+    @Test
+    public void testConnectionReusedAcrossSuccessesAndErrors() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, service.get(url + "/ok", Collections.emptyList(),
+                    HttpRequestOptions.EMPTY).getResponseCode());
+            assertEquals(400, service.get(url + "/bad", Collections.emptyList(),
+                    HttpRequestOptions.EMPTY).getResponseCode());
+            assertEquals(200, service.put(url + "/echo", Collections.emptyList(), "abc",
+                    HttpRequestOptions.EMPTY).getResponseCode());
+            assertEquals(204, service.delete(url + "/nobody", Collections.emptyList(),
+                    HttpRequestOptions.EMPTY).getResponseCode());
+            try (HttpStreamingResponse r = service.getStreaming(url + "/ok",
+                    Collections.emptyList(), HttpRequestOptions.EMPTY)) {
+                Util.read(r.getBody());
+            }
+        }
+        assertEquals(25, requests.get());
+        assertEquals(1, connections.size());
+    }
+
+    private void respond(HttpExchange exchange, int code, String body) throws IOException {
+        record(exchange);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void record(HttpExchange exchange) {
+        connections.add(exchange.getRemoteAddress());
+        requests.incrementAndGet();
+    }
+
+}
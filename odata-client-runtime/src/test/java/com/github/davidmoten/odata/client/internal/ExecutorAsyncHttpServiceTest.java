@@ -0,0 +1,175 @@
+package com.github.davidmoten.odata.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.davidmoten.odata.client.AsyncHttpService;
+import com.github.davidmoten.odata.client.ClientException;
+import com.github.davidmoten.odata.client.Context;
+import com.github.davidmoten.odata.client.ContextPath;
+import com.github.davidmoten.odata.client.HttpRequestOptions;
+import com.github.davidmoten.odata.client.HttpResponse;
+import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.Path;
+import com.github.davidmoten.odata.client.PathStyle;
+import com.github.davidmoten.odata.client.RequestOptions;
+import com.github.davidmoten.odata.client.Serializer;
+import com.github.davidmoten.odata.client.StubHttpService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class ExecutorAsyncHttpServiceTest {
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private DefaultHttpService blocking;
+    private AsyncHttpService service;
+    private String url;
+
+    @Before
+    public void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/ok", exchange -> respond(exchange, 200, "{\"a\":1}"));
+        server.createContext("/bad", exchange -> respond(exchange, 404, "not here"));
+        server.createContext("/echo", exchange -> respond(exchange, 201,
+                exchange.getRequestMethod() + ":" + new String(Util.read(exchange.getRequestBody()),
+                        StandardCharsets.UTF_8)));
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+        executor = Executors.newFixedThreadPool(2);
+        blocking = new DefaultHttpService(new Path(url, PathStyle.IDENTIFIERS_AS_SEGMENTS), x -> x,
+                c -> {
+                });
+        service = AsyncHttpService.fromBlocking(blocking, executor);
+    }
+
+    @After
+    public void after() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testManyConcurrentGets() {
+        List<CompletableFuture<HttpResponse>> list = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            list.add(service.get(url + "/ok", Collections.emptyList(), HttpRequestOptions.EMPTY));
+        }
+        for (CompletableFuture<HttpResponse> f : list) {
+            HttpResponse r = f.join();
+            assertEquals(200, r.getResponseCode());
+            assertEquals("{\"a\":1}", r.getText());
+        }
+    }
+
+    @Test
+    public void testPost() {
+        HttpResponse r = service.post(url + "/echo", Collections.emptyList(),
+                "hello".getBytes(StandardCharsets.UTF_8), HttpRequestOptions.EMPTY).join();
+        assertEquals(201, r.getResponseCode());
+        assertEquals("POST:hello", r.getText());
+    }
+
+    @Test
+    public void testToBlockingOfAdapterReturnsOriginal() {
+        assertSame(blocking, service.toBlocking());
+    }
+
+    @Test
+    public void testBlockingViewOfAsyncService() {
+        HttpService b = new BlockingHttpService(service);
+        assertEquals("POST:there", b.post(url + "/echo", Collections.emptyList(), "there",
+                HttpRequestOptions.EMPTY).getText());
+    }
+
+    @Test
+    public void testBlockingViewGetStreamErrorThrowsWithBody() {
+        HttpService b = new BlockingHttpService(service);
+        try {
+            b.getStream(url + "/bad", Collections.emptyList(), HttpRequestOptions.EMPTY);
+            fail();
+        } catch (ClientException e) {
+            assertEquals(404, (int) e.getStatusCode().get());
+            assertTrue(e.getMessage().endsWith("not here"));
+        }
+    }
+
+    @Test
+    public void testContextAsyncServiceDoesNotUseCommonPool() {
+        HttpService stub = StubHttpService.create(url,
+                u -> StubHttpService.response(200, Thread.currentThread().getName()));
+        Context context = new Context(Serializer.INSTANCE, stub, Collections.emptyList());
+        AsyncHttpService a = context.asyncService();
+        assertSame(a, context.asyncService());
+        String thread = a.get(url + "/ok", Collections.emptyList(), HttpRequestOptions.EMPTY)
+                .join().getText();
+        assertTrue(thread, thread.startsWith("odata-client-async-"));
+    }
+
+    @Test
+    public void testBlockingViewRethrowsCause() {
+        CompletableFuture<String> f = new CompletableFuture<>();
+        ClientException e = new ClientException("boo");
+        f.completeExceptionally(e);
+        try {
+            BlockingHttpService.join(f);
+            fail();
+        } catch (ClientException ex) {
+            assertSame(e, ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testRequestHelperGetAsync() {
+        Context context = new Context(Serializer.INSTANCE, blocking, service,
+                Collections.emptyMap(), Collections.emptyList());
+        ContextPath cp = new ContextPath(context, context.service().getBasePath().addSegment("ok"));
+        Map<String, Object> map = RequestHelper.getAsync(cp, Map.class, RequestOptions.EMPTY).join();
+        assertEquals(1, map.get("a"));
+    }
+
+    @Test
+    public void testRequestHelperGetAsyncCompletesExceptionallyOnBadResponseCode()
+            throws InterruptedException {
+        Context context = new Context(Serializer.INSTANCE, blocking, service,
+                Collections.emptyMap(), Collections.emptyList());
+        ContextPath cp = new ContextPath(context,
+                context.service().getBasePath().addSegment("echo"));
+        try {
+            RequestHelper.getAsync(cp, Map.class, RequestOptions.EMPTY).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ClientException);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.github.davidmoten.odata.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.junit.Test;
+
+import com.github.davidmoten.odata.client.ConnectionPoolStats;
+import com.github.davidmoten.odata.client.HttpCompression;
+import com.github.davidmoten.odata.client.HttpRequestOptions;
+import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.Path;
+import com.github.davidmoten.odata.client.PathStyle;
+import com.sun.net.httpserver.HttpServer;
+
+public class InstrumentedConnectionManagerTest {
+
+    @Test
+    public void testStatsShowWaitingForSingleConnection() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            exchange.sendResponseHeaders(200, 2);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("ok".getBytes());
+            }
+        });
+        server.start();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        InstrumentedConnectionManager cm = new InstrumentedConnectionManager(-1,
+                TimeUnit.MILLISECONDS);
+        cm.setMaxTotal(1);
+        cm.setDefaultMaxPerRoute(1);
+        String url = "http://localhost:" + server.getAddress().getPort();
+        try (HttpService service = new ApacheHttpClientHttpService(
+                new Path(url, PathStyle.IDENTIFIERS_AS_SEGMENTS),
+                () -> HttpClientBuilder.create().setConnectionManager(cm).build(), (u, m) -> m,
+                HttpCompression.none(), Optional.of(cm))) {
+            List<Future<String>> list = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                list.add(executor.submit(() -> service
+                        .get(url + "/slow", Collections.emptyList(), HttpRequestOptions.EMPTY)
+                        .getText()));
+            }
+            for (Future<String> f : list) {
+                assertEquals("ok", f.get());
+            }
+            ConnectionPoolStats stats = service.connectionPoolStats().get();
+            assertEquals(4, stats.leases());
+            assertEquals(0, stats.leased());
+            assertEquals(0, stats.pending());
+            assertEquals(1, stats.available());
+            assertEquals(1, stats.max());
+            // three requests waited for the one connection
+            assertTrue(stats.maxWaitMs() >= 150);
+            assertTrue(stats.totalWaitMs() >= stats.maxWaitMs());
+        } finally {
+            executor.shutdownNow();
+            server.stop(0);
+            ((ExecutorService) server.getExecutor()).shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,272 @@
+package com.github.davidmoten.odata.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.github.davidmoten.odata.client.ClientException;
+import com.github.davidmoten.odata.client.HttpRequestOptions;
+import com.github.davidmoten.odata.client.HttpResponse;
+import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.HttpStreamingResponse;
+import com.github.davidmoten.odata.client.Path;
+import com.github.davidmoten.odata.client.PathStyle;
+import com.github.davidmoten.odata.client.StubHttpService;
+import com.github.davidmoten.odata.client.internal.LoadBalancingHttpService.Replica;
+
+public class LoadBalancingHttpServiceTest {
+
+    private static final String BASE = "http://odata";
+    private static final String A = "http://a:8080/odata";
+    private static final String B = "http://b:8080/odata";
+
+    @Test
+    public void testRequestsAreSpreadAcrossReplicas() {
+        Transport transport = new Transport();
+        LoadBalancingHttpService service = service(transport).build();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(200, service.get(BASE + "/Products", Collections.emptyList(),
+                    HttpRequestOptions.EMPTY).getResponseCode());
+        }
+        assertEquals(100, transport.urls.size());
+        long a = transport.urls.stream().filter(u -> u.equals(A + "/Products")).count();
+        long b = transport.urls.stream().filter(u -> u.equals(B + "/Products")).count();
+        assertEquals(100, a + b);
+        assertTrue(a > 0 && b > 0);
+        assertEquals(0, service.replicas().get(0).outstanding());
+        assertEquals(0, service.replicas().get(1).outstanding());
+    }
+
+    @Test
+    public void testLeastOutstandingRequestsAvoidsBusyReplica() throws IOException {
+        Transport transport = new Transport();
+        LoadBalancingHttpService service = service(transport).leastOutstandingRequests().build();
+        // a stream stays outstanding until closed
+        InputStream in = service.getStream(BASE + "/Media", Collections.emptyList(),
+                HttpRequestOptions.EMPTY);
+        String busy = transport.urls.get(0).startsWith(A) ? A : B;
+        String idle = busy.equals(A) ? B : A;
+        for (int i = 0; i < 5; i++) {
+            service.get(BASE + "/Products", Collections.emptyList(), HttpRequestOptions.EMPTY);
+            assertEquals(idle + "/Products", transport.urls.get(transport.urls.size() - 1));
+        }
+        in.close();
+        in.close();
+        assertEquals(0, service.replicas().get(0).outstanding());
+        assertEquals(0, service.replicas().get(1).outstanding());
+    }
+
+    @Test
+    public void testFailingReplicaIsEjected() {
+        Transport transport = new Transport();
+        transport.statusCodes.put(A, 503);
+        LoadBalancingHttpService service = service(transport) //
+                .ejectAfterConsecutiveFailures(2) //
+                .ejectFor(1, TimeUnit.MINUTES) //
+                .build();
+        for (int i = 0; i < 50; i++) {
+            service.get(BASE + "/Products", Collections.emptyList(), HttpRequestOptions.EMPTY);
+        }
+        Replica a = service.replicas().get(0);
+        assertTrue(a.isEjected());
+        assertEquals(2, a.requests());
+        assertEquals(1, a.ejections());
+        assertFalse(service.replicas().get(1).isEjected());
+        assertEquals(48, service.replicas().get(1).requests());
+    }
+
+    @Test
+    public void testIoErrorsCountAsFailures() {
+        Transport transport = new Transport();
+        transport.errors.put(B, new ClientException(new IOException("connection refused")));
+        LoadBalancingHttpService service = service(transport).ejectAfterConsecutiveFailures(1)
+                .build();
+        int errors = 0;
+        for (int i = 0; i < 20; i++) {
+            try {
+                service.get(BASE + "/Products", Collections.emptyList(), HttpRequestOptions.EMPTY);
+            } catch (ClientException e) {
+                errors++;
+            }
+        }
+        // not retried on another replica
+        assertEquals(1, errors);
+        assertTrue(service.replicas().get(1).isEjected());
+        assertEquals(0, service.replicas().get(1).outstanding());
+    }
+
+    @Test
+    public void testAllReplicasEjectedStillSendsRequests() {
+        Transport transport = new Transport();
+        transport.statusCodes.put(A, 500);
+        transport.statusCodes.put(B, 500);
+        LoadBalancingHttpService service = service(transport).ejectAfterConsecutiveFailures(1)
+                .build();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(500, service.get(BASE + "/Products", Collections.emptyList(),
+                    HttpRequestOptions.EMPTY).getResponseCode());
+        }
+        assertEquals(10, transport.urls.size());
+    }
+
+    @Test
+    public void testEjectedReplicaReturnsAfterEjectionPeriod() {
+        Transport transport = new Transport();
+        transport.statusCodes.put(A, 503);
+        LoadBalancingHttpService service = service(transport).ejectAfterConsecutiveFailures(1)
+                .ejectFor(0, TimeUnit.MILLISECONDS).build();
+        for (int i = 0; i < 20; i++) {
+            service.get(BASE + "/Products", Collections.emptyList(), HttpRequestOptions.EMPTY);
+        }
+        assertTrue(service.replicas().get(0).ejections() > 1);
+    }
+
+    @Test
+    public void testReadmittedReplicaStartsFromMeanLatencyOfOthers() throws InterruptedException {
+        Transport transport = new Transport();
+        transport.statusCodes.put(A, 503);
+        transport.delays.put(B, 20L);
+        LoadBalancingHttpService service = service(transport).leastOutstandingRequests()
+                .ejectAfterConsecutiveFailures(1).ejectFor(100, TimeUnit.MILLISECONDS).build();
+        Replica a = service.replicas().get(0);
+        Replica b = service.replicas().get(1);
+        // ties go to A which fails and is ejected
+        service.get(BASE + "/Products", Collections.emptyList(), HttpRequestOptions.EMPTY);
+        assertTrue(a.isEjected());
+        service.get(BASE + "/Products", Collections.emptyList(), HttpRequestOptions.EMPTY);
+        assertEquals(1, b.requests());
+        double latencyB = b.latencyMs();
+        assertTrue(latencyB >= 20);
+        Thread.sleep(150);
+        transport.statusCodes.clear();
+        assertFalse(a.isEjected());
+        // A is seeded with the latency of B so it ties (and wins) but its fast response
+        // is averaged with the seed rather than replacing it
+        service.get(BASE + "/Products", Collections.emptyList(), HttpRequestOptions.EMPTY);
+        assertEquals(2, a.requests());
+        assertEquals(1, b.requests());
+        assertTrue(a.latencyMs() >= 0.7 * latencyB);
+    }
+
+    @Test
+    public void testNextLinkStaysOnReplica() {
+        Transport transport = new Transport();
+        transport.statusCodes.put(B, 503);
+        LoadBalancingHttpService service = service(transport).ejectAfterConsecutiveFailures(1)
+                .build();
+        // eject B
+        for (int i = 0; i < 20; i++) {
+            service.get(BASE + "/Products", Collections.emptyList(), HttpRequestOptions.EMPTY);
+        }
+        assertTrue(service.replicas().get(1).isEjected());
+        // a continuation issued by B is still sent to B
+        String nextLink = B + "/Products?$skiptoken=10";
+        service.get(nextLink, Collections.emptyList(), HttpRequestOptions.EMPTY);
+        assertEquals(nextLink, transport.urls.get(transport.urls.size() - 1));
+    }
+
+    @Test
+    public void testOtherUrlsPassThrough() {
+        Transport transport = new Transport();
+        LoadBalancingHttpService service = service(transport).build();
+        service.get("http://elsewhere/x", Collections.emptyList(), HttpRequestOptions.EMPTY);
+        service.get(BASE + "other/x", Collections.emptyList(), HttpRequestOptions.EMPTY);
+        assertEquals("http://elsewhere/x", transport.urls.get(0));
+        assertEquals(BASE + "other/x", transport.urls.get(1));
+        assertEquals(0, service.replicas().get(0).requests() + service.replicas().get(1).requests());
+    }
+
+    @Test
+    public void testStreamingResponseOutstandingUntilClosed() throws IOException {
+        Transport transport = new Transport();
+        LoadBalancingHttpService service = service(transport).build();
+        HttpStreamingResponse r = service.getStreaming(BASE + "/Products",
+                Collections.emptyList(), HttpRequestOptions.EMPTY);
+        assertEquals(1, service.replicas().get(0).outstanding()
+                + service.replicas().get(1).outstanding());
+        r.getBody().close();
+        assertEquals(0, service.replicas().get(0).outstanding()
+                + service.replicas().get(1).outstanding());
+    }
+
+    @Test
+    public void testFailedStreamIsNotOutstanding() {
+        Transport transport = new Transport();
+        transport.errors.put(A, new ClientException(new IOException("connection refused")));
+        transport.errors.put(B, new ClientException(new IOException("connection refused")));
+        LoadBalancingHttpService service = service(transport).build();
+        for (int i = 0; i < 4; i++) {
+            try {
+                service.getStream(BASE + "/Media", Collections.emptyList(),
+                        HttpRequestOptions.EMPTY);
+                fail();
+            } catch (ClientException e) {
+                // expected
+            }
+        }
+        assertEquals(0, service.replicas().get(0).outstanding());
+        assertEquals(0, service.replicas().get(1).outstanding());
+    }
+
+    @Test
+    public void testBasePathMustNotBeReplica() {
+        try {
+            LoadBalancingHttpService.transport(new Transport().service) //
+                    .basePath(new Path(A + "/", PathStyle.IDENTIFIERS_AS_SEGMENTS)) //
+                    .replica(A) //
+                    .build();
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static LoadBalancingHttpService.Builder service(Transport transport) {
+        return LoadBalancingHttpService.transport(transport.service) //
+                .basePath(new Path(BASE, PathStyle.IDENTIFIERS_AS_SEGMENTS)) //
+                .replica(A) //
+                .replica(B + "/");
+    }
+
+    private static final class Transport {
+
+        final List<String> urls = new CopyOnWriteArrayList<>();
+        final Map<String, Integer> statusCodes = new ConcurrentHashMap<>();
+        final Map<String, RuntimeException> errors = new ConcurrentHashMap<>();
+        final Map<String, Long> delays = new ConcurrentHashMap<>();
+        final HttpService service = StubHttpService.create("http://unused", this::respond);
+
+        private HttpResponse respond(String url) {
+            urls.add(url);
+            delays.entrySet().stream().filter(e -> url.startsWith(e.getKey())).findFirst()
+                    .ifPresent(e -> {
+                        try {
+                            Thread.sleep(e.getValue());
+                        } catch (InterruptedException ex) {
+                            throw new RuntimeException(ex);
+                        }
+                    });
+            for (Map.Entry<String, RuntimeException> entry : errors.entrySet()) {
+                if (url.startsWith(entry.getKey())) {
+                    throw entry.getValue();
+                }
+            }
+            int code = statusCodes.entrySet().stream().filter(e -> url.startsWith(e.getKey()))
+                    .map(Map.Entry::getValue).findFirst().orElse(200);
+            return StubHttpService.response(code, "{}");
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.github.davidmoten.odata.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.davidmoten.odata.client.TestPage;
+import com.github.davidmoten.odata.client.TestPage.Fetches;
+
+public class PagePrefetcherTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testItemsInOrder() {
+        Fetches fetches = new Fetches();
+        try (Stream<Integer> s = new TestPage(5, 1, fetches, -1).streamPrefetching(2,
+                executor)) {
+            assertEquals(Arrays.asList(0, 1, 2, 3, 4), s.collect(Collectors.toList()));
+        }
+        assertEquals(4, fetches.get());
+    }
+
+    @Test
+    public void testSinglePage() {
+        Fetches fetches = new Fetches();
+        try (Stream<Integer> s = new TestPage(1, 1, fetches, -1).streamPrefetching(3,
+                executor)) {
+            assertEquals(Collections.singletonList(0), s.collect(Collectors.toList()));
+        }
+        assertEquals(0, fetches.get());
+    }
+
+    @Test
+    public void testFetchesAheadOfConsumer() throws InterruptedException {
+        Fetches fetches = new Fetches();
+        try (PagePrefetcher<Integer, TestPage> p = new PagePrefetcher<>(
+                new TestPage(100, 1, fetches, -1), 3, executor)) {
+            assertEquals(0, (int) p.next().currentPage().get(0));
+            // pages 1, 2 and 3 are fetched without being asked for
+            assertTrue(fetches.await(3, 5, TimeUnit.SECONDS));
+            assertFalse(fetches.await(4, 100, TimeUnit.MILLISECONDS));
+            assertEquals(1, (int) p.next().currentPage().get(0));
+            assertTrue(fetches.await(4, 5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testErrorThrownWhenPageReached() {
+        PagePrefetcher<Integer, TestPage> p = new PagePrefetcher<>(
+                new TestPage(10, 1, new Fetches(), 3), 2, executor);
+        assertEquals(0, (int) p.next().currentPage().get(0));
+        assertEquals(1, (int) p.next().currentPage().get(0));
+        assertEquals(2, (int) p.next().currentPage().get(0));
+        try {
+            p.hasNext();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("boo", e.getMessage());
+        }
+        p.close();
+    }
+
+    @Test
+    public void testCloseStopsFetching() throws InterruptedException {
+        Fetches fetches = new Fetches();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(1);
+        TestPage first = new TestPage(100, 1, fetches, -1) {
+            @Override
+            public Optional<TestPage> nextPage() {
+                started.countDown();
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                return super.nextPage();
+            }
+        };
+        PagePrefetcher<Integer, TestPage> p = new PagePrefetcher<>(first, 5, executor);
+        assertTrue(p.hasNext());
+        p.next();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        p.close();
+        latch.countDown();
+        assertFalse(p.hasNext());
+        // the request in progress when closed completes but no more are made
+        assertTrue(fetches.await(1, 5, TimeUnit.SECONDS));
+        assertFalse(fetches.await(2, 100, TimeUnit.MILLISECONDS));
+    }
+
+}
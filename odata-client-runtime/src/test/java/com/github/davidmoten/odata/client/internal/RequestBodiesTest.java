@@ -0,0 +1,82 @@
+package com.github.davidmoten.odata.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.RequestBody;
+
+public class RequestBodiesTest {
+
+    @Test
+    public void testSmallMarkableStreamIsRepeatable() throws IOException {
+        RequestBody body = RequestBodies.of(stream(1000), 1000);
+        assertTrue(body.isRepeatable());
+        assertEquals(1000, write(body));
+        assertEquals(1000, write(body));
+    }
+
+    @Test
+    public void testLargeStreamOfKnownLengthIsNotMarked() {
+        int length = RequestBodies.MAX_MARK_BYTES + 1;
+        CountingMark in = new CountingMark(stream(length));
+        RequestBody body = RequestBodies.of(in, length);
+        assertFalse(body.isRepeatable());
+        assertFalse(in.marked);
+    }
+
+    @Test
+    public void testLargeStreamOfUnknownLengthIsNotBufferedOnSend() throws IOException {
+        int length = 1000000;
+        RequestBody body = RequestBodies.of(stream(length), HttpService.LENGTH_UNKNOWN);
+        // measured then written again in full
+        RequestBody sized = RequestBodies.sized(body);
+        assertEquals(HttpService.LENGTH_UNKNOWN, sized.length());
+        assertTrue(sized.isRepeatable());
+        assertEquals(length, write(sized));
+        // the mark was passed so the body can't be resent
+        assertFalse(sized.isRepeatable());
+    }
+
+    @Test
+    public void testSmallStreamOfUnknownLengthIsSized() throws IOException {
+        RequestBody body = RequestBodies.sized(RequestBodies.of(stream(100), HttpService.LENGTH_UNKNOWN));
+        assertEquals(100, body.length());
+        assertEquals(100, write(body));
+    }
+
+    private static InputStream stream(int length) {
+        return new BufferedInputStream(new ByteArrayInputStream(new byte[length]));
+    }
+
+    private static int write(RequestBody body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        return out.size();
+    }
+
+    private static final class CountingMark extends BufferedInputStream {
+
+        boolean marked;
+
+        CountingMark(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            marked = true;
+            super.mark(readlimit);
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.github.davidmoten.odata.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.junit.Test;
+
+import com.github.davidmoten.odata.client.HttpCompression;
+import com.github.davidmoten.odata.client.HttpRequestOptions;
+import com.github.davidmoten.odata.client.HttpService;
+import com.github.davidmoten.odata.client.Path;
+import com.github.davidmoten.odata.client.PathStyle;
+import com.github.davidmoten.odata.client.RequestHeader;
+import com.sun.net.httpserver.HttpServer;
+
+public class SharedHttpClientTest {
+
+    @Test
+    public void testServicesShareConnectionsAndCloseWhenAllReleased() throws Exception {
+        Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            connections.add(exchange.getRemoteAddress());
+            byte[] bytes = String.valueOf(exchange.getRequestHeaders().getFirst("Tenant"))
+                    .getBytes();
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort();
+            InstrumentedConnectionManager cm = new InstrumentedConnectionManager(-1,
+                    TimeUnit.MILLISECONDS);
+            SharedHttpClient shared = new SharedHttpClient(
+                    HttpClientBuilder.create().setConnectionManager(cm).build(), Optional.of(cm));
+            List<HttpService> services = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                String tenant = "t" + i;
+                services.add(new ApacheHttpClientHttpService(
+                        new Path(url + "/" + tenant, PathStyle.IDENTIFIERS_AS_SEGMENTS), shared,
+                        (u, m) -> tenantHeader(m, tenant), HttpCompression.none()));
+            }
+            assertEquals(4, shared.references());
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < services.size(); i++) {
+                    HttpService s = services.get(i);
+                    assertEquals("t" + i, s.get(s.getBasePath().toUrl(), Collections.emptyList(),
+                            HttpRequestOptions.EMPTY).getText());
+                }
+            }
+            assertEquals(1, connections.size());
+            assertEquals(6, services.get(0).connectionPoolStats().get().leases());
+
+            // closing twice only releases once
+            services.get(0).close();
+            services.get(0).close();
+            assertEquals(3, shared.references());
+            // owner releases but the remaining services still work
+            shared.release();
+            HttpService s = services.get(1);
+            assertEquals("t1", s.get(s.getBasePath().toUrl(), Collections.emptyList(),
+                    HttpRequestOptions.EMPTY).getText());
+            services.get(1).close();
+            services.get(2).close();
+            assertEquals(0, shared.references());
+            try {
+                shared.acquire();
+                fail();
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleaseTooOftenThrows() throws IOException {
+        SharedHttpClient shared = new SharedHttpClient(HttpClientBuilder.create().build(),
+                Optional.empty());
+        shared.release();
+        shared.release();
+    }
+
+    private static List<RequestHeader> tenantHeader(List<RequestHeader> headers, String tenant) {
+        List<RequestHeader> list = new ArrayList<>(headers);
+        list.add(RequestHeader.create("Tenant", tenant));
+        return list;
+    }
+
+}
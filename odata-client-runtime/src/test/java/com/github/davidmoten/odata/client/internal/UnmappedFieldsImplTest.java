@@ -0,0 +1,79 @@
+package com.github.davidmoten.odata.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.Test;
+
+public class UnmappedFieldsImplTest {
+
+    @Test
+    public void testEmpty() {
+        UnmappedFieldsImpl u = new UnmappedFieldsImpl();
+        assertTrue(u.isEmpty());
+        assertNull(u.get("a"));
+        assertFalse(u.entrySet().iterator().hasNext());
+        assertEquals("{}", u.toString());
+        assertTrue(u.copy().isEmpty());
+    }
+
+    @Test
+    public void testSameAsHashMapAcrossSmallAndLargeSizes() {
+        UnmappedFieldsImpl u = new UnmappedFieldsImpl();
+        Map<String, Object> expected = new HashMap<>();
+        for (int i = 0; i < UnmappedFieldsImpl.MAX_SMALL_SIZE * 3; i++) {
+            assertNull(u.put("k" + i, i));
+            expected.put("k" + i, i);
+            assertEquals(expected, new HashMap<>(u));
+        }
+        assertEquals(0, u.put("k0", 100));
+        assertEquals(100, u.get("k0"));
+    }
+
+    @Test
+    public void testRemoveWhileSmall() {
+        UnmappedFieldsImpl u = new UnmappedFieldsImpl();
+        u.put("a", 1);
+        u.put("b", 2);
+        u.put("c", 3);
+        assertEquals(2, u.remove("b"));
+        assertEquals(2, u.size());
+        assertEquals(3, u.get("c"));
+        Iterator<Entry<String, Object>> it = u.entrySet().iterator();
+        assertEquals("a", it.next().getKey());
+        it.remove();
+        assertEquals("c", it.next().getKey());
+        assertFalse(it.hasNext());
+        assertEquals(1, u.size());
+        assertFalse(u.containsKey("a"));
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        UnmappedFieldsImpl u = new UnmappedFieldsImpl();
+        u.put("a", 1);
+        UnmappedFieldsImpl v = u.copy();
+        v.put("b", 2);
+        u.put("a", 3);
+        assertEquals(1, u.size());
+        assertEquals(1, v.get("a"));
+        assertEquals(2, v.size());
+    }
+
+    @Test
+    public void testWellKnownKeysAreShared() {
+        UnmappedFieldsImpl u = new UnmappedFieldsImpl();
+        u.put(new String("@odata.etag"), "x");
+        String key = u.keySet().iterator().next();
+        assertSame(UnmappedFieldsImpl.canonical("@odata.etag"), key);
+    }
+
+}
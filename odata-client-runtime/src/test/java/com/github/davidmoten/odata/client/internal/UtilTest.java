@@ -55,6 +55,62 @@ public class UtilTest {
         }
     }
 
+    @Test
+    public void testReadWithExactLengthHint() {
+        assertArrayEquals(new byte[] { 1, 2, 3, 4, 5, 6 }, Util.read(createInputStream(6), 6));
+    }
+
+    @Test
+    public void testReadWithLengthHintTooLarge() {
+        assertArrayEquals(new byte[] { 1, 2, 3 }, Util.read(createInputStream(3), 6));
+    }
+
+    @Test
+    public void testReadWithLengthHintTooSmall() {
+        assertArrayEquals(new byte[] { 1, 2, 3, 4, 5, 6 }, Util.read(createInputStream(6), 2));
+    }
+
+    @Test
+    public void testReadWithoutLengthHintLargerThanBuffer() {
+        byte[] b = Util.read(createInputStream(100000), Util.LENGTH_UNKNOWN);
+        assertEquals(100000, b.length);
+        assertEquals((byte) 100000, b[99999]);
+        // buffer reused by the next read on this thread
+        assertArrayEquals(new byte[] { 1, 2 }, Util.read(createInputStream(2)));
+    }
+
+    @Test
+    public void testReadWithHugeLengthHintDoesNotPresize() {
+        // would need a 2GB array if presized from the hint
+        assertArrayEquals(new byte[] { 1, 2, 3 },
+                Util.read(createInputStream(3), Integer.MAX_VALUE - 100));
+    }
+
+    @Test
+    public void testReadLongerThanPresizeLimitInChunks() {
+        int length = 5 * 1024 * 1024 + 7;
+        byte[] b = Util.read(createInputStream(length), length);
+        assertEquals(length, b.length);
+        for (int i = 0; i < length; i++) {
+            assertEquals((byte) (i + 1), b[i]);
+        }
+    }
+
+    @Test
+    public void testReadWithLengthHintTooSmallContinuesInChunks() {
+        byte[] b = Util.read(createInputStream(100000), 10);
+        assertEquals(100000, b.length);
+        for (int i = 0; i < b.length; i++) {
+            assertEquals((byte) (i + 1), b[i]);
+        }
+    }
+
+    @Test
+    public void testReadEmptyStream() {
+        assertEquals(0, Util.read(createInputStream(0), Util.LENGTH_UNKNOWN).length);
+        assertEquals(0, Util.read(createInputStream(0), 0).length);
+    }
+
     private InputStream createInputStream(int maxLength) {
         InputStream in = new InputStream() {
             int i = 0;
@@ -0,0 +1,97 @@
+package com.github.davidmoten.odata.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.github.davidmoten.odata.client.HttpMethod;
+import com.github.davidmoten.odata.client.RequestHeader;
+import com.github.davidmoten.odata.client.TestingService.ContainerBuilder;
+
+import test10.codecs.container.Test10Service;
+import test10.codecs.entity.Order;
+import test10.codecs.entity.SpecialOrder;
+import test10.codecs.schema.SchemaInfo;
+
+/**
+ * Same schema as {@link Test10ServiceTest} generated with
+ * {@code generateJsonCodecs} so that reads and writes go through the generated
+ * serializers and deserializers.
+ */
+public class Test10CodecsServiceTest {
+
+    @Test
+    public void testSchemaHasJacksonModule() {
+        assertTrue(SchemaInfo.INSTANCE.jacksonModule().isPresent());
+        assertTrue(!test10.a.schema.SchemaInfo.INSTANCE.jacksonModule().isPresent());
+    }
+
+    @Test
+    public void testGetAndPutRoundTrip() {
+        Test10Service client = test() //
+                .expectRequest("/Orders/2") //
+                .withMethod(HttpMethod.GET) //
+                .withRequestHeadersStandard() //
+                .withResponse("/response-special-order.json") //
+                .expectRequest("/Orders/2") //
+                .withMethod(HttpMethod.PUT) //
+                .withPayload("/request-put-special-order.json") //
+                .withRequestHeaders(RequestHeader.ACCEPT_JSON, RequestHeader.CONTENT_TYPE_JSON,
+                        RequestHeader.ODATA_VERSION) //
+                .build();
+        SpecialOrder order = (SpecialOrder) client.orders(2).get();
+        assertEquals(2, (int) order.getID().get());
+        assertEquals("second", order.getName().get());
+        assertEquals("Sydney", order.getAddress().get().getCity().get());
+        assertEquals(Arrays.asList("c"), order.getTags().currentPage());
+        assertEquals(5, (int) order.getPriority().get());
+        order.withPriority(7).put();
+    }
+
+    @Test
+    public void testLazyGetAndPutRoundTrip() {
+        Test10Service client = test() //
+                .expectRequest("/Orders/1") //
+                .withMethod(HttpMethod.GET) //
+                .withRequestHeadersStandard() //
+                .withResponse("/response-order-expanded.json") //
+                .expectRequest("/Orders/1") //
+                .withMethod(HttpMethod.PUT) //
+                .withPayload("/response-order-expanded.json") //
+                .withRequestHeaders(RequestHeader.ACCEPT_JSON, RequestHeader.CONTENT_TYPE_JSON,
+                        RequestHeader.ODATA_VERSION) //
+                .build();
+        Order order = client.orders(1).lazy().get();
+        String s = order.toString();
+        assertTrue(s, s.contains("City=Canberra"));
+        // serializing materializes the fields not yet read
+        order.put();
+    }
+
+    @Test
+    public void testPatchSendsChangedFieldsOnly() {
+        Test10Service client = test() //
+                .expectRequest("/Orders/1") //
+                .withMethod(HttpMethod.GET) //
+                .withRequestHeadersStandard() //
+                .withResponse("/response-order-expanded.json") //
+                .expectRequest("/Orders/1") //
+                .withMethod(HttpMethod.PATCH) //
+                .withPayload("/request-patch-order.json") //
+                .withRequestHeaders(RequestHeader.ACCEPT_JSON, RequestHeader.CONTENT_TYPE_JSON,
+                        RequestHeader.ODATA_VERSION) //
+                .build();
+        Order order = client.orders(1).lazy().get().withName("renamed");
+        assertEquals("Canberra", order.getAddress().get().getCity().get());
+        order.patch();
+    }
+
+    private static ContainerBuilder<Test10Service> test() {
+        // registers the generated codecs and resolves @odata.type sub-classes
+        return ((ContainerBuilder<Test10Service>) Test10Service.test()).addSchema(SchemaInfo.INSTANCE);
+    }
+
+}
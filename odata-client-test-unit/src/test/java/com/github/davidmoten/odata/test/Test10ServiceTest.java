@@ -0,0 +1,130 @@
+package com.github.davidmoten.odata.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.github.davidmoten.odata.client.HttpMethod;
+import com.github.davidmoten.odata.client.RequestHeader;
+import com.github.davidmoten.odata.client.Serializer;
+import com.github.davidmoten.odata.client.TestingService.ContainerBuilder;
+
+import test10.a.container.Test10Service;
+import test10.a.entity.Customer;
+import test10.a.entity.Line;
+import test10.a.entity.Order;
+import test10.a.entity.SpecialOrder;
+import test10.a.schema.SchemaInfo;
+
+public class Test10ServiceTest {
+
+    @Test
+    public void testExpandedNavigationPropertiesReadInLazyMode() {
+        Test10Service client = test() //
+                .expectRequest("/Orders/1?$expand=Lines%2CCustomer") //
+                .withMethod(HttpMethod.GET) //
+                .withResponseStatusCode(200) //
+                .withRequestHeadersStandard() //
+                .withResponse("/response-order-expanded.json") //
+                .build();
+        Order order = client.orders(1).expand("Lines,Customer").lazy().get();
+        // no further requests are expected, the expanded values are used
+        List<Integer> quantities = order.getLines() //
+                .stream() //
+                .map(Line::getQuantity) //
+                .map(x -> x.get()) //
+                .collect(Collectors.toList());
+        assertEquals(3, (int) quantities.get(0));
+        assertEquals(4, (int) quantities.get(1));
+        Customer customer = order.getCustomer().get();
+        assertEquals("Fred", customer.getName().get());
+        assertEquals("Canberra", order.getAddress().get().getCity().get());
+    }
+
+    @Test
+    public void testLazyGettersAndToStringMaterialize() {
+        Order order = lazyOrder();
+        assertEquals("Canberra", order.getAddress().get().getCity().get());
+        assertEquals(Arrays.asList("a", "b"), order.getTags().currentPage());
+        String s = order.toString();
+        assertTrue(s, s.contains("Street=1 Main St"));
+        // expanded navigation properties end up in the unmapped fields
+        assertTrue(s, s.contains("Customer="));
+        assertTrue(order.getUnmappedFields().containsKey("Lines"));
+    }
+
+    @Test
+    public void testCopyMaterializesLazyFields() {
+        Order order = lazyOrder().withName("renamed");
+        assertEquals("renamed", order.getName().get());
+        assertEquals("Canberra", order.getAddress().get().getCity().get());
+        assertEquals(Arrays.asList("a", "b"), order.getTags().currentPage());
+        assertTrue(order.getUnmappedFields().containsKey("Customer"));
+    }
+
+    @Test
+    public void testBuilderChangedFields() {
+        Order order = Order.builder().name("fred").ID(3).build();
+        assertEquals("{\"@odata.type\":\"Test10.A.Order\",\"ID\":3,\"Name\":\"fred\"}",
+                Serializer.INSTANCE.serializeChangesOnly(order));
+        SpecialOrder special = SpecialOrder.builderSpecialOrder().priority(2).name("fred").build();
+        assertEquals(
+                "{\"@odata.type\":\"Test10.A.SpecialOrder\",\"Name\":\"fred\",\"Priority\":2}",
+                Serializer.INSTANCE.serializeChangesOnly(special));
+    }
+
+    @Test
+    public void testPatchSendsChangedFieldsOnly() {
+        Test10Service client = test() //
+                .expectRequest("/Orders/1") //
+                .withMethod(HttpMethod.GET) //
+                .withRequestHeadersStandard() //
+                .withResponse("/response-order-expanded.json") //
+                .expectRequest("/Orders/1") //
+                .withMethod(HttpMethod.PATCH) //
+                .withPayload("/request-patch-order.json") //
+                .withRequestHeaders(RequestHeader.ACCEPT_JSON,
+                        RequestHeader.CONTENT_TYPE_JSON, RequestHeader.ODATA_VERSION) //
+                .build();
+        Order order = client.orders(1).lazy().get().withName("renamed").patch();
+        assertEquals("renamed", order.getName().get());
+    }
+
+    @Test
+    public void testPatchSubclassSendsChangedFieldsOnly() {
+        Test10Service client = test() //
+                .expectRequest("/Orders/2") //
+                .withMethod(HttpMethod.GET) //
+                .withRequestHeadersStandard() //
+                .withResponse("/response-special-order.json") //
+                .expectRequest("/Orders/2") //
+                .withMethod(HttpMethod.PATCH) //
+                .withPayload("/request-patch-special-order.json") //
+                .withRequestHeaders(RequestHeader.ACCEPT_JSON,
+                        RequestHeader.CONTENT_TYPE_JSON, RequestHeader.ODATA_VERSION) //
+                .build();
+        SpecialOrder order = (SpecialOrder) client.orders(2).get();
+        assertEquals(6, (int) order.withPriority(6).patch().getPriority().get());
+    }
+
+    private static Order lazyOrder() {
+        Test10Service client = test() //
+                .expectRequest("/Orders/1") //
+                .withMethod(HttpMethod.GET) //
+                .withRequestHeadersStandard() //
+                .withResponse("/response-order-expanded.json") //
+                .build();
+        return client.orders(1).lazy().get();
+    }
+
+    private static ContainerBuilder<Test10Service> test() {
+        // schema needed to resolve @odata.type sub-classes
+        return ((ContainerBuilder<Test10Service>) Test10Service.test()).addSchema(SchemaInfo.INSTANCE);
+    }
+
+}
@@ -16,6 +16,7 @@ import com.github.davidmoten.odata.client.UnmappedFields;
 import com.github.davidmoten.odata.client.Util;
 import com.github.davidmoten.odata.client.annotation.Property;
 import com.github.davidmoten.odata.client.internal.ChangedFields;
+import com.github.davidmoten.odata.client.internal.FieldOrdinals;
 import com.github.davidmoten.odata.client.internal.RequestHelper;
 import com.github.davidmoten.odata.client.internal.UnmappedFieldsImpl;
 
@@ -50,6 +51,8 @@ public class FileAttachment extends Attachment implements ODataEntityType {
     @JsonProperty("contentLocation")
     protected String contentLocation;
 
+    private static final FieldOrdinals FIELD_ORDINALS = FieldOrdinals.of("id", "contentType", "isInline", "lastModifiedDateTime", "name", "size", "contentBytes", "contentId", "contentLocation");
+
     protected FileAttachment() {
         super();
     }
@@ -84,55 +87,55 @@ public class FileAttachment extends Attachment implements ODataEntityType {
 
         public Builder id(String id) {
             this.id = id;
-            this.changedFields = changedFields.add("id");
+            this.changedFields = changedFields.add(FIELD_ORDINALS, 0);
             return this;
         }
 
         public Builder contentType(String contentType) {
             this.contentType = contentType;
-            this.changedFields = changedFields.add("contentType");
+            this.changedFields = changedFields.add(FIELD_ORDINALS, 1);
             return this;
         }
 
         public Builder isInline(Boolean isInline) {
             this.isInline = isInline;
-            this.changedFields = changedFields.add("isInline");
+            this.changedFields = changedFields.add(FIELD_ORDINALS, 2);
             return this;
         }
 
         public Builder lastModifiedDateTime(OffsetDateTime lastModifiedDateTime) {
             this.lastModifiedDateTime = lastModifiedDateTime;
-            this.changedFields = changedFields.add("lastModifiedDateTime");
+            this.changedFields = changedFields.add(FIELD_ORDINALS, 3);
             return this;
         }
 
         public Builder name(String name) {
             this.name = name;
-            this.changedFields = changedFields.add("name");
+            this.changedFields = changedFields.add(FIELD_ORDINALS, 4);
             return this;
         }
 
         public Builder size(Integer size) {
             this.size = size;
-            this.changedFields = changedFields.add("size");
+            this.changedFields = changedFields.add(FIELD_ORDINALS, 5);
             return this;
         }
 
         public Builder contentBytes(byte[] contentBytes) {
             this.contentBytes = contentBytes;
-            this.changedFields = changedFields.add("contentBytes");
+            this.changedFields = changedFields.add(FIELD_ORDINALS, 6);
             return this;
         }
 
         public Builder contentId(String contentId) {
             this.contentId = contentId;
-            this.changedFields = changedFields.add("contentId");
+            this.changedFields = changedFields.add(FIELD_ORDINALS, 7);
             return this;
         }
 
         public Builder contentLocation(String contentLocation) {
             this.contentLocation = contentLocation;
-            this.changedFields = changedFields.add("contentLocation");
+            this.changedFields = changedFields.add(FIELD_ORDINALS, 8);
             return this;
         }
 
@@ -171,12 +174,15 @@ public class FileAttachment extends Attachment implements ODataEntityType {
     @Property(name="contentBytes")
     @JsonIgnore
     public Optional<byte[]> getContentBytes() {
+        if (lazyFields != null) {
+            contentBytes = lazyFields.value("contentBytes", contentBytes, byte[].class);
+        }
         return Optional.ofNullable(contentBytes);
     }
 
     public FileAttachment withContentBytes(byte[] contentBytes) {
         FileAttachment _x = _copy();
-        _x.changedFields = changedFields.add("contentBytes");
+        _x.changedFields = changedFields.add(FIELD_ORDINALS, 6);
         _x.odataType = Util.nvl(odataType, "microsoft.graph.fileAttachment");
         _x.contentBytes = contentBytes;
         return _x;
@@ -185,12 +191,15 @@ public class FileAttachment extends Attachment implements ODataEntityType {
     @Property(name="contentId")
     @JsonIgnore
     public Optional<String> getContentId() {
+        if (lazyFields != null) {
+            contentId = lazyFields.value("contentId", contentId, String.class);
+        }
         return Optional.ofNullable(contentId);
     }
 
     public FileAttachment withContentId(String contentId) {
         FileAttachment _x = _copy();
-        _x.changedFields = changedFields.add("contentId");
+        _x.changedFields = changedFields.add(FIELD_ORDINALS, 7);
         _x.odataType = Util.nvl(odataType, "microsoft.graph.fileAttachment");
         _x.contentId = contentId;
         return _x;
@@ -199,12 +208,15 @@ public class FileAttachment extends Attachment implements ODataEntityType {
     @Property(name="contentLocation")
     @JsonIgnore
     public Optional<String> getContentLocation() {
+        if (lazyFields != null) {
+            contentLocation = lazyFields.value("contentLocation", contentLocation, String.class);
+        }
         return Optional.ofNullable(contentLocation);
     }
 
     public FileAttachment withContentLocation(String contentLocation) {
         FileAttachment _x = _copy();
-        _x.changedFields = changedFields.add("contentLocation");
+        _x.changedFields = changedFields.add(FIELD_ORDINALS, 8);
         _x.odataType = Util.nvl(odataType, "microsoft.graph.fileAttachment");
         _x.contentLocation = contentLocation;
         return _x;
@@ -231,9 +243,26 @@ public class FileAttachment extends Attachment implements ODataEntityType {
 
     @Override
     public UnmappedFields getUnmappedFields() {
+        materialize();
         return unmappedFields();
     }
 
+    @Override
+    public void materialize() {
+        if (lazyFields != null) {
+            id = lazyFields.value("id", id, String.class);
+            contentType = lazyFields.value("contentType", contentType, String.class);
+            isInline = lazyFields.value("isInline", isInline, Boolean.class);
+            lastModifiedDateTime = lazyFields.value("lastModifiedDateTime", lastModifiedDateTime, OffsetDateTime.class);
+            name = lazyFields.value("name", name, String.class);
+            size = lazyFields.value("size", size, Integer.class);
+            contentBytes = lazyFields.value("contentBytes", contentBytes, byte[].class);
+            contentId = lazyFields.value("contentId", contentId, String.class);
+            contentLocation = lazyFields.value("contentLocation", contentLocation, String.class);
+            lazyFields.forEachRemaining(this::setUnmappedField);
+        }
+    }
+
     /**
      * If suitable metadata found a StreamProvider is returned otherwise returns
      * {@code Optional.empty()}. Normally for a stream to be available this entity
@@ -278,6 +307,7 @@ public class FileAttachment extends Attachment implements ODataEntityType {
     }
 
     private FileAttachment _copy() {
+        materialize();
         FileAttachment _x = new FileAttachment();
         _x.contextPath = contextPath;
         _x.changedFields = changedFields;
@@ -297,6 +327,7 @@ public class FileAttachment extends Attachment implements ODataEntityType {
 
     @Override
     public String toString() {
+        materialize();
         StringBuilder b = new StringBuilder();
         b.append("FileAttachment[");
         b.append("id=");